@@ -65,6 +65,7 @@ set(MBGL_TEST_FILES
     test/storage/headers.test.cpp
     test/storage/http_file_source.test.cpp
     test/storage/local_file_source.test.cpp
+    test/storage/mbtiles_file_source.test.cpp
     test/storage/offline.test.cpp
     test/storage/offline_database.test.cpp
     test/storage/offline_download.test.cpp
@@ -75,8 +76,10 @@ set(MBGL_TEST_FILES
     test/style/conversion/geojson_options.test.cpp
 
     # style
+    test/style/cluster_index.test.cpp
     test/style/filter.test.cpp
     test/style/functions.test.cpp
+    test/style/geojson_source.test.cpp
     test/style/source.test.cpp
     test/style/style.test.cpp
     test/style/style_layer.test.cpp
@@ -23,6 +23,7 @@ class View;
 class FileSource;
 class Scheduler;
 class SpriteImage;
+class CanonicalTileID;
 struct CameraOptions;
 struct AnimationOptions;
 
@@ -71,6 +72,10 @@ public:
     std::string getStyleURL() const;
     std::string getStyleJSON() const;
 
+    // Records the style that the current style has been updated to in place, e.g. by applying a
+    // diff. getStyleURL/getStyleJSON return it and setStyleURL/setStyleJSON compare against it.
+    void setStyleIdentity(const std::string& url, const std::string& json);
+
     // Transition
     void cancelTransitions();
     void setGestureInProgress(bool);
@@ -184,6 +189,13 @@ public:
     std::vector<Feature> queryRenderedFeatures(const ScreenBox&,        const optional<std::vector<std::string>>& layerIDs = {});
     AnnotationIDs queryPointAnnotations(const ScreenBox&);
 
+    // Prefetching. Requests the tiles of all tile sources ahead of time at a low priority, so they
+    // load from the cache once visible. Tile IDs are given at the zoom of 512 pixel tiles, in the
+    // order they are needed. At most maximumTiles tiles are requested from all sources together.
+    // Requests stop once the tiles received add up to maximumBytes, or when prefetching again.
+    void prefetchTiles(const std::vector<CanonicalTileID>&, std::size_t maximumTiles, uint64_t maximumBytes);
+    void cancelPrefetch();
+
     // Memory
     void setSourceTileCacheSize(size_t);
     void onLowMemory();
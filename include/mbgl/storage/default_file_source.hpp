@@ -3,7 +3,10 @@
 #include <mbgl/storage/file_source.hpp>
 #include <mbgl/storage/offline.hpp>
 #include <mbgl/util/constants.hpp>
+#include <mbgl/util/chrono.hpp>
+#include <mbgl/util/optional.hpp>
 
+#include <mutex>
 #include <vector>
 
 namespace mbgl {
@@ -107,6 +110,16 @@ public:
      */
     void deleteOfflineRegion(OfflineRegion&&, std::function<void (std::exception_ptr)>);
 
+    /*
+     * Set how long after expiring a cached resource of the given kind is still shown while it is
+     * revalidated (stale-while-revalidate). A resource that expired longer ago is only delivered
+     * once the server confirms it, or when the server can't be reached (stale-if-error), so
+     * offline use is unaffected. An empty duration never withholds expired resources, which is
+     * the default for unknown resources. Styles and sources default to one day, tiles to a week
+     * and glyphs and sprites to thirty days.
+     */
+    void setMaximumStaleness(Resource::Kind, optional<Duration>);
+
     /*
      * Changing or bypassing this limit without permission from Mapbox is prohibited
      * by the Mapbox Terms of Service.
@@ -122,6 +135,10 @@ private:
     const std::unique_ptr<util::Thread<Impl>> thread;
     const std::unique_ptr<FileSource> assetFileSource;
     const std::unique_ptr<FileSource> localFileSource;
+
+    // Created on the first mbtiles:// request, most applications never open one
+    std::once_flag mbtilesFileSourceOnce;
+    std::unique_ptr<FileSource> mbtilesFileSource;
 };
 
 } // namespace mbgl
@@ -34,6 +34,14 @@ public:
         Required = true,
     };
 
+    // Requests are queued behind requests of a higher priority: prefetched tiles behind regular
+    // requests, and low priority requests, such as offline downloads, behind both.
+    enum class Priority : uint8_t {
+        Regular,
+        Prefetch,
+        Low,
+    };
+
     Resource(Kind kind_, std::string url_, optional<TileData> tileData_ = {}, Necessity necessity_ = Required)
         : kind(kind_),
           necessity(necessity_),
@@ -58,6 +66,7 @@ public:
 
     Kind kind;
     Necessity necessity;
+    Priority priority = Priority::Regular;
     std::string url;
 
     // Includes auxiliary data if this is a tile request.
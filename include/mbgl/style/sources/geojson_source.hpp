@@ -2,27 +2,29 @@
 
 #include <mbgl/style/source.hpp>
 #include <mbgl/util/geojson.hpp>
+#include <mbgl/util/feature.hpp>
 #include <mbgl/util/optional.hpp>
 
 #include <mapbox/geojson.hpp>
 
+#include <utility>
+#include <vector>
+
 namespace mapbox {
 
 namespace geojsonvt {
 class GeoJSONVT;
 } // namespace geojsonvt
 
-namespace supercluster {
-class Supercluster;
-} // namespace supercluster
-
 } // namespace mapbox
 
 namespace mbgl {
 namespace style {
 
+class ClusterIndex;
+
 using GeoJSONVTPointer = std::unique_ptr<mapbox::geojsonvt::GeoJSONVT>;
-using SuperclusterPointer = std::unique_ptr<mapbox::supercluster::Supercluster>;
+using ClusterIndexPointer = std::unique_ptr<ClusterIndex>;
 
 struct GeoJSONOptions {
     // GeoJSON-VT options
@@ -30,7 +32,7 @@ struct GeoJSONOptions {
     uint16_t buffer = 128;
     double tolerance = 0.375;
 
-    // Supercluster options
+    // Clustering options
     bool cluster = false;
     uint16_t clusterRadius = 50;
     uint8_t clusterMaxZoom = 17;
@@ -42,6 +44,25 @@ public:
 
     void setURL(const std::string& url);
     void setGeoJSON(const GeoJSON&);
+    // Takes over the features instead of copying them
+    void setGeoJSON(GeoJSON&&);
+
+    // Incremental updates, keyed by feature id. Ids are compared by value, so the string "7" and
+    // the number 7 identify the same feature. Only tiles that contain the changed features are
+    // reloaded. Features without an id are always added.
+    void addFeatures(const FeatureCollection&);
+    void updateFeatures(const FeatureCollection&);
+    void removeFeatures(const std::vector<FeatureIdentifier>&);
+
+    // Merges properties into the features with the given ids, keeping their geometry.
+    void setFeatureProperty(const FeatureIdentifier&, const std::string& key, const Value&);
+    void setFeatureProperties(const std::vector<std::pair<FeatureIdentifier, PropertyMap>>&);
+
+    // Cluster inspection for clustered sources. Cluster ids are the ids of the cluster features,
+    // also stored in their "cluster_id" property. Unknown ids yield no result.
+    FeatureCollection getClusterChildren(uint32_t clusterID) const;
+    FeatureCollection getClusterLeaves(uint32_t clusterID, uint32_t limit = 10, uint32_t offset = 0) const;
+    optional<uint8_t> getClusterExpansionZoom(uint32_t clusterID) const;
 
     optional<std::string> getURL();
 
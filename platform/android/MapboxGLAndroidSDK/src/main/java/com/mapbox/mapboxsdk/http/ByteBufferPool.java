@@ -0,0 +1,176 @@
+package com.mapbox.mapboxsdk.http;
+
+import android.support.annotation.NonNull;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+
+/**
+ * A pool of direct buffers for response bodies, handed to native code without copying them into a
+ * Java array first.
+ * <p>
+ * This reduces garbage, not copies. A body is still copied from the OkHttp stream into the buffer,
+ * through a small per-thread chunk, and native code copies it once more into the response data as
+ * the buffer is reused. What goes away is a Java array per response, as large as the body.
+ * </p>
+ * <p>
+ * Buffer capacities are powers of two, so a released buffer can serve any later body of up to the
+ * same size. The pool keeps a bounded number of bytes, larger buffers are left to the garbage
+ * collector.
+ * </p>
+ */
+class ByteBufferPool {
+
+    private static final int MIN_CAPACITY = 16 * 1024;
+    private static final int MAX_POOLED_CAPACITY = 2 * 1024 * 1024;
+    private static final int CHUNK_SIZE = 8 * 1024;
+
+    private static final ThreadLocal<byte[]> chunks = new ThreadLocal<byte[]>() {
+        @Override
+        protected byte[] initialValue() {
+            return new byte[CHUNK_SIZE];
+        }
+    };
+
+    private final long maxPooledBytes;
+    private final ArrayDeque<ByteBuffer>[] buckets;
+    private long pooledBytes;
+
+    @SuppressWarnings("unchecked")
+    ByteBufferPool(long maxPooledBytes) {
+        this.maxPooledBytes = maxPooledBytes;
+        this.buckets = new ArrayDeque[bucket(MAX_POOLED_CAPACITY) + 1];
+        for (int i = 0; i < buckets.length; i++) {
+            buckets[i] = new ArrayDeque<>();
+        }
+    }
+
+    /**
+     * @param minCapacity the minimum capacity
+     * @return a cleared direct buffer of at least the capacity
+     */
+    ByteBuffer acquire(int minCapacity) {
+        int capacity = capacity(minCapacity);
+        if (capacity <= MAX_POOLED_CAPACITY) {
+            synchronized (this) {
+                ByteBuffer buffer = buckets[bucket(capacity)].poll();
+                if (buffer != null) {
+                    pooledBytes -= buffer.capacity();
+                    buffer.clear();
+                    return buffer;
+                }
+            }
+        }
+        return ByteBuffer.allocateDirect(capacity);
+    }
+
+    /**
+     * Return a buffer to the pool. The buffer must not be used afterwards.
+     *
+     * @param buffer a buffer from {@link #acquire(int)}
+     */
+    void release(@NonNull ByteBuffer buffer) {
+        int capacity = buffer.capacity();
+        if (capacity > MAX_POOLED_CAPACITY || Integer.bitCount(capacity) != 1 || capacity < MIN_CAPACITY) {
+            return;
+        }
+
+        synchronized (this) {
+            if (pooledBytes + capacity <= maxPooledBytes) {
+                buckets[bucket(capacity)].push(buffer);
+                pooledBytes += capacity;
+            }
+        }
+    }
+
+    /**
+     * Read a stream to the end into a pooled buffer.
+     *
+     * @param input         the stream
+     * @param expectedSize  the size of the content, or -1 if unknown
+     * @return the buffer, flipped for reading
+     * @throws IOException when reading fails
+     */
+    ByteBuffer read(@NonNull InputStream input, long expectedSize) throws IOException {
+        if (expectedSize > Integer.MAX_VALUE) {
+            throw new IOException("Response body too large: " + expectedSize);
+        }
+
+        ByteBuffer buffer = acquire(expectedSize >= 0 ? (int) expectedSize : MIN_CAPACITY);
+        byte[] chunk = chunks.get();
+        try {
+            int count;
+            while ((count = input.read(chunk)) != -1) {
+                buffer = put(buffer, chunk, count);
+            }
+        } catch (IOException exception) {
+            release(buffer);
+            throw exception;
+        }
+
+        buffer.flip();
+        return buffer;
+    }
+
+    /**
+     * Copy an array into a pooled buffer.
+     *
+     * @param data the data
+     * @return the buffer, flipped for reading
+     */
+    ByteBuffer wrap(@NonNull byte[] data) {
+        ByteBuffer buffer = acquire(data.length);
+        buffer.put(data);
+        buffer.flip();
+        return buffer;
+    }
+
+    /**
+     * Append bytes to a pooled buffer, moving them to a larger buffer if needed.
+     *
+     * @param buffer a buffer from {@link #acquire(int)}, in write mode
+     * @param data   the bytes
+     * @param count  the number of bytes to append
+     * @return the buffer, or its larger replacement
+     */
+    ByteBuffer put(@NonNull ByteBuffer buffer, @NonNull byte[] data, int count) {
+        if (buffer.remaining() < count) {
+            buffer = grow(buffer, buffer.position() + count);
+        }
+        buffer.put(data, 0, count);
+        return buffer;
+    }
+
+    synchronized long getPooledBytes() {
+        return pooledBytes;
+    }
+
+    private ByteBuffer grow(ByteBuffer buffer, int minCapacity) {
+        if (minCapacity < 0) {
+            throw new IllegalStateException("Response body too large");
+        }
+        // Doubles, so bodies of unknown size are copied a logarithmic number of times
+        ByteBuffer larger = acquire(Math.max(minCapacity, (int) Math.min(Integer.MAX_VALUE, 2L * buffer.capacity())));
+        buffer.flip();
+        larger.put(buffer);
+        release(buffer);
+        return larger;
+    }
+
+    private static int capacity(int minCapacity) {
+        if (minCapacity <= MIN_CAPACITY) {
+            return MIN_CAPACITY;
+        }
+        if (minCapacity > MAX_POOLED_CAPACITY) {
+            return minCapacity;
+        }
+        int capacity = Integer.highestOneBit(minCapacity);
+        return capacity == minCapacity ? capacity : capacity << 1;
+    }
+
+    private static int bucket(int capacity) {
+        return Integer.numberOfTrailingZeros(capacity) - Integer.numberOfTrailingZeros(MIN_CAPACITY);
+    }
+}
@@ -0,0 +1,150 @@
+package com.mapbox.mapboxsdk.http;
+
+import android.support.annotation.NonNull;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import okhttp3.HttpUrl;
+import okhttp3.Interceptor;
+import okhttp3.Request;
+import okhttp3.Response;
+
+/**
+ * Internal use.
+ * <p>
+ * Normalizes the urls of Mapbox resources for caching and request coalescing. The access token and
+ * the events flag don't change the content of a resource, so they are left out of the key: identical
+ * tiles requested with different tokens share a cache entry, and rotating a token doesn't
+ * invalidate the cache.
+ * </p>
+ * <p>
+ * For the OkHttp disk cache, {@link #applicationInterceptor()} strips the parameters before the
+ * cache sees the request, and {@link #networkInterceptor()} restores them before the request goes
+ * on the wire. Parameters are only restored for Mapbox hosts, so tokens don't follow redirects to
+ * other hosts.
+ * </p>
+ */
+public final class CacheKey {
+
+    static final List<String> VOLATILE_PARAMETERS = Collections.unmodifiableList(
+        Arrays.asList("access_token", "events"));
+
+    // Carries the stripped parameters from the application to the network interceptor
+    private static final String VOLATILE_QUERY_HEADER = "X-Mapbox-Volatile-Query";
+
+    private CacheKey() {
+    }
+
+    /**
+     * @param host a lowercase host
+     * @return true if the host serves Mapbox resources
+     */
+    public static boolean isMapboxHost(@NonNull String host) {
+        return host.equals("mapbox.com") || host.endsWith(".mapbox.com")
+            || host.equals("mapbox.cn") || host.endsWith(".mapbox.cn");
+    }
+
+    /**
+     * Normalize an url, without its fragment and, for Mapbox hosts, without its volatile query
+     * parameters.
+     *
+     * @param url the url
+     * @return the normalized url
+     */
+    @NonNull
+    public static HttpUrl normalize(@NonNull HttpUrl url) {
+        // HttpUrl already lowercases the scheme and host and drops default ports
+        HttpUrl.Builder builder = url.newBuilder().fragment(null);
+        if (isMapboxHost(url.host()) && hasVolatileParameters(url)) {
+            builder.query(null);
+            for (int i = 0; i < url.querySize(); i++) {
+                String name = url.queryParameterName(i);
+                if (!VOLATILE_PARAMETERS.contains(name)) {
+                    builder.addQueryParameter(name, url.queryParameterValue(i));
+                }
+            }
+        }
+        return builder.build();
+    }
+
+    /**
+     * @param url the url
+     * @return the normalized url, as a string
+     */
+    @NonNull
+    public static String normalize(@NonNull String url) {
+        HttpUrl httpUrl = HttpUrl.parse(url);
+        return httpUrl != null ? normalize(httpUrl).toString() : url;
+    }
+
+    /**
+     * @return an interceptor that strips volatile parameters before the cache
+     */
+    public static Interceptor applicationInterceptor() {
+        return new Interceptor() {
+            @Override
+            public Response intercept(Chain chain) throws IOException {
+                Request request = chain.request();
+                HttpUrl url = request.url();
+                if (!isMapboxHost(url.host()) || !hasVolatileParameters(url)) {
+                    return chain.proceed(request);
+                }
+
+                HttpUrl.Builder stripped = new HttpUrl.Builder().scheme("http").host("localhost");
+                for (int i = 0; i < url.querySize(); i++) {
+                    String name = url.queryParameterName(i);
+                    if (VOLATILE_PARAMETERS.contains(name)) {
+                        stripped.addQueryParameter(name, url.queryParameterValue(i));
+                    }
+                }
+
+                return chain.proceed(request.newBuilder()
+                    .url(normalize(url))
+                    .header(VOLATILE_QUERY_HEADER, stripped.build().encodedQuery())
+                    .build());
+            }
+        };
+    }
+
+    /**
+     * @return an interceptor that restores the parameters stripped by
+     * {@link #applicationInterceptor()} on each network request
+     */
+    public static Interceptor networkInterceptor() {
+        return new Interceptor() {
+            @Override
+            public Response intercept(Chain chain) throws IOException {
+                Request request = chain.request();
+                String query = request.header(VOLATILE_QUERY_HEADER);
+                if (query == null) {
+                    return chain.proceed(request);
+                }
+
+                Request.Builder builder = request.newBuilder().removeHeader(VOLATILE_QUERY_HEADER);
+                if (isMapboxHost(request.url().host())) {
+                    HttpUrl.Builder url = request.url().newBuilder();
+                    HttpUrl parameters = HttpUrl.parse("http://localhost/?" + query);
+                    for (int i = 0; i < parameters.querySize(); i++) {
+                        url.addQueryParameter(parameters.queryParameterName(i), parameters.queryParameterValue(i));
+                    }
+                    builder.url(url.build());
+                }
+
+                // The cache stores the response under the url of its request, keep it normalized
+                return chain.proceed(builder.build()).newBuilder().request(request).build();
+            }
+        };
+    }
+
+    private static boolean hasVolatileParameters(HttpUrl url) {
+        for (String name : VOLATILE_PARAMETERS) {
+            if (url.queryParameterNames().contains(name)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
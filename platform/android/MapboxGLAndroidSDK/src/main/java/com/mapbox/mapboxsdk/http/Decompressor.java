@@ -0,0 +1,259 @@
+package com.mapbox.mapboxsdk.http;
+
+import android.support.annotation.NonNull;
+
+import com.mapbox.mapboxsdk.net.HttpMetrics;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * Decompresses gzip response bodies on a bounded pool of threads, so that network threads only
+ * read bytes off the socket.
+ * <p>
+ * Requests ask for gzip explicitly, which turns off OkHttp's transparent decompression. Bodies are
+ * inflated from one pooled buffer into another with pooled inflaters and per-thread chunks, so a
+ * response allocates nothing once the pools are warm. When the queue of the pool is full, the
+ * network thread decompresses the body itself, which slows down reading further responses.
+ * </p>
+ */
+class Decompressor {
+
+    interface Callback {
+
+        /**
+         * @param body the decompressed body, in a pooled buffer owned by the callback
+         */
+        void onDecompressed(ByteBuffer body);
+
+        void onFailure(IOException error);
+    }
+
+    private static final int CHUNK_SIZE = 8 * 1024;
+    private static final int MAX_POOLED_INFLATERS = 4;
+    private static final int GZIP_MAGIC = 0x8b1f;
+    private static final int FHCRC = 2;
+    private static final int FEXTRA = 4;
+    private static final int FNAME = 8;
+    private static final int FCOMMENT = 16;
+
+    private static final ThreadLocal<Chunks> chunks = new ThreadLocal<Chunks>() {
+        @Override
+        protected Chunks initialValue() {
+            return new Chunks();
+        }
+    };
+
+    private final ByteBufferPool bufferPool;
+    private final Executor executor;
+    private final ArrayDeque<Inflater> inflaters = new ArrayDeque<>();
+
+    Decompressor(ByteBufferPool bufferPool, Executor executor) {
+        this.bufferPool = bufferPool;
+        this.executor = executor;
+    }
+
+    /**
+     * @param threads   the number of threads
+     * @param queueSize the number of bodies waiting before network threads decompress themselves
+     * @return an executor for decompression
+     */
+    static ThreadPoolExecutor newExecutor(int threads, int queueSize) {
+        final AtomicInteger count = new AtomicInteger();
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 30, TimeUnit.SECONDS,
+            new ArrayBlockingQueue<Runnable>(queueSize), new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable runnable) {
+                    Thread thread = new Thread(runnable, "HTTPDecompress-" + count.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            }, new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    /**
+     * @param contentEncoding the Content-Encoding header of a response
+     * @return true if bodies with this encoding are decompressed
+     */
+    static boolean accepts(String contentEncoding) {
+        return "gzip".equalsIgnoreCase(contentEncoding);
+    }
+
+    /**
+     * Decompress a gzip body on the pool.
+     *
+     * @param body     the compressed body in a pooled buffer, released once decompressed
+     * @param callback the callback, called on a decompression thread or on the calling thread
+     */
+    void decompress(@NonNull final ByteBuffer body, @NonNull final Callback callback) {
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                ByteBuffer decompressed;
+                try {
+                    decompressed = gunzip(body);
+                } catch (IOException error) {
+                    callback.onFailure(error);
+                    return;
+                }
+                callback.onDecompressed(decompressed);
+            }
+        });
+    }
+
+    /**
+     * Decompress a gzip body on the calling thread.
+     *
+     * @param input the compressed body in a pooled buffer, released before returning
+     * @return the decompressed body in a pooled buffer, flipped for reading
+     * @throws IOException when the body isn't valid gzip
+     */
+    ByteBuffer gunzip(@NonNull ByteBuffer input) throws IOException {
+        Chunks chunks = Decompressor.chunks.get();
+        long start = System.nanoTime();
+        int compressedSize = input.remaining();
+        ByteBuffer output = null;
+        Inflater inflater = acquireInflater();
+        try {
+            skipHeader(input);
+
+            // Tiles typically compress three to four times
+            output = bufferPool.acquire(Math.min(compressedSize, Integer.MAX_VALUE / 4) * 4);
+            chunks.crc.reset();
+            while (!inflater.finished()) {
+                if (inflater.needsInput()) {
+                    if (!input.hasRemaining()) {
+                        throw new EOFException("Truncated gzip body");
+                    }
+                    int count = Math.min(input.remaining(), CHUNK_SIZE);
+                    input.get(chunks.input, 0, count);
+                    inflater.setInput(chunks.input, 0, count);
+                }
+
+                int count = inflater.inflate(chunks.output);
+                if (count == 0 && inflater.needsDictionary()) {
+                    throw new IOException("Invalid gzip body");
+                }
+                chunks.crc.update(chunks.output, 0, count);
+                output = bufferPool.put(output, chunks.output, count);
+            }
+
+            // The trailer follows the deflate stream, partly in the last input chunk
+            int trailer = input.position() - inflater.getRemaining();
+            if (input.limit() - trailer < 8) {
+                throw new EOFException("Truncated gzip trailer");
+            }
+            if (readIntLe(input, trailer) != (int) chunks.crc.getValue()
+                || readIntLe(input, trailer + 4) != (int) inflater.getBytesWritten()) {
+                throw new IOException("Corrupt gzip body");
+            }
+
+            HttpMetrics.getInstance().onDecompressed(compressedSize, output.position(),
+                TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start));
+            output.flip();
+            ByteBuffer decompressed = output;
+            output = null;
+            return decompressed;
+        } catch (DataFormatException exception) {
+            throw new IOException("Invalid gzip body: " + exception.getMessage());
+        } finally {
+            releaseInflater(inflater);
+            bufferPool.release(input);
+            if (output != null) {
+                bufferPool.release(output);
+            }
+        }
+    }
+
+    private static void skipHeader(ByteBuffer input) throws IOException {
+        if (input.remaining() < 10) {
+            throw new EOFException("Truncated gzip header");
+        }
+        int start = input.position();
+        if ((input.get(start) & 0xff | (input.get(start + 1) & 0xff) << 8) != GZIP_MAGIC
+            || input.get(start + 2) != 8) {
+            throw new IOException("Not a gzip body");
+        }
+
+        int flags = input.get(start + 3);
+        input.position(start + 10);
+        if ((flags & FEXTRA) != 0) {
+            if (input.remaining() < 2) {
+                throw new EOFException("Truncated gzip header");
+            }
+            int length = input.get() & 0xff | (input.get() & 0xff) << 8;
+            skip(input, length);
+        }
+        if ((flags & FNAME) != 0) {
+            skipString(input);
+        }
+        if ((flags & FCOMMENT) != 0) {
+            skipString(input);
+        }
+        if ((flags & FHCRC) != 0) {
+            skip(input, 2);
+        }
+    }
+
+    private static void skip(ByteBuffer input, int count) throws EOFException {
+        if (input.remaining() < count) {
+            throw new EOFException("Truncated gzip header");
+        }
+        input.position(input.position() + count);
+    }
+
+    private static void skipString(ByteBuffer input) throws EOFException {
+        while (input.hasRemaining()) {
+            if (input.get() == 0) {
+                return;
+            }
+        }
+        throw new EOFException("Truncated gzip header");
+    }
+
+    private static int readIntLe(ByteBuffer input, int index) {
+        return input.get(index) & 0xff | (input.get(index + 1) & 0xff) << 8
+            | (input.get(index + 2) & 0xff) << 16 | (input.get(index + 3) & 0xff) << 24;
+    }
+
+    private Inflater acquireInflater() {
+        synchronized (inflaters) {
+            Inflater inflater = inflaters.poll();
+            if (inflater != null) {
+                return inflater;
+            }
+        }
+        // gzip wraps a raw deflate stream
+        return new Inflater(true);
+    }
+
+    private void releaseInflater(Inflater inflater) {
+        inflater.reset();
+        synchronized (inflaters) {
+            if (inflaters.size() < MAX_POOLED_INFLATERS) {
+                inflaters.push(inflater);
+                return;
+            }
+        }
+        inflater.end();
+    }
+
+    private static class Chunks {
+        final byte[] input = new byte[CHUNK_SIZE];
+        final byte[] output = new byte[CHUNK_SIZE];
+        final CRC32 crc = new CRC32();
+    }
+}
@@ -10,6 +10,10 @@ import timber.log.Timber;
 import com.mapbox.mapboxsdk.BuildConfig;
 import com.mapbox.mapboxsdk.MapboxAccountManager;
 import com.mapbox.mapboxsdk.constants.MapboxConstants;
+import com.mapbox.mapboxsdk.net.BandwidthEstimator;
+import com.mapbox.mapboxsdk.net.HttpEngine;
+import com.mapbox.mapboxsdk.net.HttpMetrics;
+import com.mapbox.mapboxsdk.style.sources.CustomTileDispatcher;
 
 import java.io.IOException;
 import java.io.InterruptedIOException;
@@ -17,42 +21,86 @@ import java.net.NoRouteToHostException;
 import java.net.ProtocolException;
 import java.net.SocketException;
 import java.net.UnknownHostException;
-import java.util.concurrent.locks.ReentrantLock;
+import java.nio.ByteBuffer;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import javax.net.ssl.SSLException;
 
-import okhttp3.Call;
-import okhttp3.Callback;
 import okhttp3.HttpUrl;
-import okhttp3.OkHttpClient;
 import okhttp3.Request;
-import okhttp3.Response;
 import okhttp3.internal.Util;
 
-class HTTPRequest implements Callback {
+class HTTPRequest implements RequestCoalescer.Listener, RequestScheduler.Task {
+
+    private static final ByteBufferPool mBufferPool = new ByteBufferPool(4 * 1024 * 1024);
+    private static final HostBackoff mHostBackoff = HostBackoff.getInstance();
+    private static final Decompressor mDecompressor = new Decompressor(mBufferPool, Decompressor.newExecutor(2, 64));
+    private static final RequestCoalescer mCoalescer = new RequestCoalescer(mBufferPool, mHostBackoff, mDecompressor);
+    private static final ScheduledThreadPoolExecutor mBackoffExecutor = new ScheduledThreadPoolExecutor(1,
+        new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "HTTPRequestBackoff");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+
+    static {
+        mBackoffExecutor.setRemoveOnCancelPolicy(true);
+    }
 
-    private static OkHttpClient mClient = new OkHttpClient();
     private String USER_AGENT_STRING = null;
 
     private static final int CONNECTION_ERROR = 0;
     private static final int TEMPORARY_ERROR = 1;
     private static final int PERMANENT_ERROR = 2;
 
-    // Reentrancy is not needed, but "Lock" is an
-    // abstract class.
-    private ReentrantLock mLock = new ReentrantLock();
+    // mbgl::Resource::Kind::Tile
+    private static final int KIND_TILE = 3;
+
+    // mbgl::Resource::Priority
+    private static final int RESOURCE_PRIORITY_PREFETCH = 1;
+    private static final int RESOURCE_PRIORITY_LOW = 2;
+
+    // Tiles downgraded on a slow network are refreshed sooner, to get the full resolution once it's faster
+    private static final String DOWNGRADED_CACHE_CONTROL = "max-age=600";
+
+    // A request delivers at most one result to native code. Native code frees its side of the
+    // request as soon as cancel() returns, so cancel() has to wait out a delivery in progress.
+    private static final int STATE_PENDING = 0;
+    private static final int STATE_DELIVERING = 1;
+    private static final int STATE_DONE = 2;
+    private static final int STATE_CANCELLED = 3;
+
+    private final AtomicInteger mState = new AtomicInteger(STATE_PENDING);
 
     private long mNativePtr = 0;
 
-    private Call mCall;
+    private final HttpMetrics.Call mMetricsCall;
+    private volatile ScheduledFuture<?> mDelayedSubmit;
+    private volatile RequestScheduler.Ticket mTicket;
+    private volatile RequestCoalescer.Subscription mSubscription;
     private Request mRequest;
+    private boolean mDowngraded;
+    private CustomTileDispatcher.Request mCustomTileRequest;
 
     private native void nativeOnFailure(int type, String message);
 
-    private native void nativeOnResponse(int code, String etag, String modified, String cacheControl, String expires, String retryAfter, String xRateLimitReset, byte[] body);
+    private native void nativeOnResponse(int code, String etag, String modified, String cacheControl, String expires, String retryAfter, String xRateLimitReset, ByteBuffer body, int length);
 
-    private HTTPRequest(long nativePtr, String resourceUrl, String etag, String modified) {
+    private HTTPRequest(long nativePtr, String resourceUrl, String etag, String modified, int kind, int resourcePriority) {
         mNativePtr = nativePtr;
+        mMetricsCall = HttpMetrics.getInstance().newCall(HttpMetrics.typeOfResourceKind(kind));
+
+        if (CustomTileDispatcher.accepts(resourceUrl)) {
+            requestCustomTile(resourceUrl);
+            return;
+        }
 
         try {
             // Don't try a request if we aren't connected
@@ -60,9 +108,15 @@ class HTTPRequest implements Callback {
                 throw new NoRouteToHostException("No Internet connection available.");
             }
 
+            if (kind == KIND_TILE) {
+                String selectedUrl = BandwidthEstimator.getInstance().selectTileUrl(resourceUrl);
+                mDowngraded = !selectedUrl.equals(resourceUrl);
+                resourceUrl = selectedUrl;
+            }
+
             HttpUrl httpUrl = HttpUrl.parse(resourceUrl);
             final String host = httpUrl.host().toLowerCase(MapboxConstants.MAPBOX_LOCALE);
-            if (host.equals("mapbox.com") || host.endsWith(".mapbox.com") || host.equals("mapbox.cn") || host.endsWith(".mapbox.cn")) {
+            if (CacheKey.isMapboxHost(host)) {
                 if (httpUrl.querySize() == 0) {
                     resourceUrl = resourceUrl + "?";
                 } else {
@@ -73,77 +127,215 @@ class HTTPRequest implements Callback {
 
             Request.Builder builder = new Request.Builder()
                     .url(resourceUrl)
-                    .tag(resourceUrl.toLowerCase(MapboxConstants.MAPBOX_LOCALE))
-                    .addHeader("User-Agent", getUserAgent());
+                    .tag(mMetricsCall)
+                    .addHeader("User-Agent", getUserAgent())
+                    // Explicit, so bodies are decompressed by mDecompressor instead of on OkHttp threads
+                    .addHeader("Accept-Encoding", "gzip");
             if (etag.length() > 0) {
                 builder = builder.addHeader("If-None-Match", etag);
             } else if (modified.length() > 0) {
                 builder = builder.addHeader("If-Modified-Since", modified);
             }
             mRequest = builder.build();
-            mCall = mClient.newCall(mRequest);
-            mCall.enqueue(this);
+
+            final int priority = schedulerPriority(kind, resourcePriority);
+
+            // Requests to a failing or rate limited host are paced, or fail right away while its
+            // circuit is open. Native code retries those with its own backoff.
+            long delay = mHostBackoff.admit(mRequest.url().host());
+            if (delay == HostBackoff.REJECT) {
+                onFailure(TEMPORARY_ERROR, "Requests to " + host + " are paused after repeated failures");
+            } else if (delay > 0) {
+                mDelayedSubmit = mBackoffExecutor.schedule(new Runnable() {
+                    @Override
+                    public void run() {
+                        submit(priority);
+                    }
+                }, delay, TimeUnit.MILLISECONDS);
+            } else {
+                submit(priority);
+            }
         } catch (Exception e) {
             onFailure(e);
         }
     }
 
+    private static int schedulerPriority(int kind, int resourcePriority) {
+        if (resourcePriority == RESOURCE_PRIORITY_LOW) {
+            return RequestScheduler.PRIORITY_OFFLINE;
+        } else if (resourcePriority == RESOURCE_PRIORITY_PREFETCH) {
+            return RequestScheduler.PRIORITY_PREFETCH;
+        }
+        return kind == KIND_TILE ? RequestScheduler.PRIORITY_VISIBLE : RequestScheduler.PRIORITY_RESOURCE;
+    }
+
+    private void submit(int priority) {
+        if (mState.get() != STATE_PENDING) {
+            return;
+        }
+
+        // Installing the engine sizes the scheduler
+        HttpEngine.getInstance();
+        mTicket = RequestScheduler.getInstance().submit(this, priority);
+
+        // cancel() may have run in between, before the ticket was visible to it
+        if (mState.get() == STATE_CANCELLED) {
+            releaseTicket();
+            preempt();
+        }
+    }
+
+    private void requestCustomTile(String resourceUrl) {
+        try {
+            mCustomTileRequest = CustomTileDispatcher.request(resourceUrl, new CustomTileDispatcher.Callback() {
+                @Override
+                public void onTile(byte[] data) {
+                    if (mState.get() != STATE_PENDING) {
+                        return;
+                    }
+
+                    ByteBuffer body = data != null ? mBufferPool.wrap(data) : null;
+                    if (beginDelivery()) {
+                        HttpMetrics.getInstance().onResponse(mMetricsCall, data != null ? 200 : 204,
+                            body != null ? body.remaining() : 0);
+                        try {
+                            // 204 for tiles without data, like a tile server would
+                            nativeOnResponse(data != null ? 200 : 204, null, null, null, null, null, null,
+                                body, body != null ? body.remaining() : 0);
+                        } finally {
+                            endDelivery();
+                        }
+                    }
+                    if (body != null) {
+                        mBufferPool.release(body);
+                    }
+                }
+
+                @Override
+                public void onError(IOException error) {
+                    // Provider errors are retried like temporary server errors
+                    if (beginDelivery()) {
+                        HttpMetrics.getInstance().onFailure(mMetricsCall);
+                        try {
+                            nativeOnFailure(TEMPORARY_ERROR, error.getMessage() != null ? error.getMessage() : "Tile provider failed");
+                        } finally {
+                            endDelivery();
+                        }
+                    }
+                }
+            });
+        } catch (IOException e) {
+            onFailure(e);
+        }
+    }
+
+    @Override
+    public void start(RequestScheduler.Ticket ticket) {
+        mTicket = ticket;
+        mSubscription = mCoalescer.enqueue(HttpEngine.getInstance().getClient(), mRequest, this);
+    }
+
+    @Override
+    public void preempt() {
+        RequestCoalescer.Subscription subscription = mSubscription;
+        mSubscription = null;
+        if (subscription != null) {
+            subscription.cancel();
+        }
+    }
+
+    private void releaseTicket() {
+        RequestScheduler.Ticket ticket = mTicket;
+        if (ticket != null) {
+            ticket.release();
+        }
+    }
+
     public void cancel() {
-        // mCall can be null if the constructor gets aborted (e.g, under a NoRouteToHostException).
-        if (mCall != null) {
-            mCall.cancel();
+        ScheduledFuture<?> delayedSubmit = mDelayedSubmit;
+        if (delayedSubmit != null) {
+            delayedSubmit.cancel(false);
+        }
+
+        // Leaves the scheduler first, so the request can't be started anymore.
+        releaseTicket();
+
+        // mSubscription can be null if the constructor gets aborted (e.g, under a NoRouteToHostException).
+        RequestCoalescer.Subscription subscription = mSubscription;
+        if (subscription != null) {
+            subscription.cancel();
+        }
+        if (mCustomTileRequest != null) {
+            mCustomTileRequest.cancel();
         }
 
-        // TODO: We need a lock here because we can try
-        // to cancel at the same time the request is getting
-        // answered on the OkHTTP thread. We could get rid of
-        // this lock by using Runnable when we move Android
-        // implementation of mbgl::RunLoop to Looper.
-        mLock.lock();
+        // Pending requests are cancelled with a single CAS. The response can only be in the
+        // middle of being handed to native code, a copy into the native response, if it arrived
+        // concurrently on an OkHttp thread.
+        while (true) {
+            int state = mState.get();
+            if (state == STATE_CANCELLED) {
+                break;
+            } else if (state == STATE_DELIVERING) {
+                Thread.yield();
+            } else if (mState.compareAndSet(state, STATE_CANCELLED)) {
+                if (state == STATE_PENDING) {
+                    HttpMetrics.getInstance().onCancel(mMetricsCall);
+                }
+                break;
+            }
+        }
         mNativePtr = 0;
-        mLock.unlock();
+    }
+
+    private boolean beginDelivery() {
+        return mState.compareAndSet(STATE_PENDING, STATE_DELIVERING);
+    }
+
+    private void endDelivery() {
+        // cancel() waits while delivering, so nothing else changes the state meanwhile
+        mState.set(STATE_DONE);
     }
 
     @Override
-    public void onResponse(Call call, Response response) throws IOException {
+    public void onResponse(RequestCoalescer.Result response) {
+        releaseTicket();
+
         if (response.isSuccessful()) {
-            Timber.v(String.format("[HTTP] Request was successful (code = %d).", response.code()));
+            Timber.v(String.format("[HTTP] Request was successful (code = %d).", response.code));
         } else {
             // We don't want to call this unsuccessful because a 304 isn't really an error
-            String message = !TextUtils.isEmpty(response.message()) ? response.message() : "No additional information";
+            String message = !TextUtils.isEmpty(response.message) ? response.message : "No additional information";
             Timber.d(String.format(
                     "[HTTP] Request with response code = %d: %s",
-                    response.code(), message));
-        }
-
-        byte[] body;
-        try {
-            body = response.body().bytes();
-        } catch (IOException e) {
-            onFailure(e);
-            //throw e;
-            return;
-        } finally {
-            response.body().close();
+                    response.code, message));
         }
 
-        mLock.lock();
-        if (mNativePtr != 0) {
-            nativeOnResponse(response.code(),
-                    response.header("ETag"),
-                    response.header("Last-Modified"),
-                    response.header("Cache-Control"),
-                    response.header("Expires"),
-                    response.header("Retry-After"),
-                    response.header("x-rate-limit-reset"),
-                    body);
+        if (beginDelivery()) {
+            HttpMetrics.getInstance().onResponse(mMetricsCall, response.code, response.body.remaining());
+            try {
+                // A 304 confirms the downgraded tile cached before, it must not keep it any longer
+                boolean downgraded = mDowngraded
+                        && (response.isSuccessful() || response.code == 304);
+                nativeOnResponse(response.code,
+                        response.etag,
+                        response.modified,
+                        downgraded ? DOWNGRADED_CACHE_CONTROL : response.cacheControl,
+                        downgraded ? null : response.expires,
+                        response.retryAfter,
+                        response.xRateLimitReset,
+                        response.body,
+                        response.body.remaining());
+            } finally {
+                endDelivery();
+            }
         }
-        mLock.unlock();
     }
 
     @Override
-    public void onFailure(Call call, IOException e) {
-        onFailure(e);
+    public void onFailure(IOException e) {
+        releaseTicket();
+        onFailure((Exception) e);
     }
 
     private void onFailure(Exception e) {
@@ -155,7 +347,10 @@ class HTTPRequest implements Callback {
         }
 
         String errorMessage = e.getMessage() != null ? e.getMessage() : "Error processing the request";
+        onFailure(type, errorMessage);
+    }
 
+    private void onFailure(int type, String errorMessage) {
         if (type == TEMPORARY_ERROR) {
             Timber.d(String.format(MapboxConstants.MAPBOX_LOCALE,
                 "Request failed due to a temporary error: %s", errorMessage));
@@ -168,11 +363,14 @@ class HTTPRequest implements Callback {
                 "Request failed due to a permanent error: %s", errorMessage));
         }
 
-        mLock.lock();
-        if (mNativePtr != 0) {
-            nativeOnFailure(type, errorMessage);
+        if (beginDelivery()) {
+            HttpMetrics.getInstance().onFailure(mMetricsCall);
+            try {
+                nativeOnFailure(type, errorMessage);
+            } finally {
+                endDelivery();
+            }
         }
-        mLock.unlock();
     }
 
     private String getUserAgent() {
@@ -0,0 +1,273 @@
+package com.mapbox.mapboxsdk.http;
+
+import android.support.annotation.Nullable;
+
+import com.mapbox.mapboxsdk.net.ConnectivityListener;
+
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.internal.http.HttpDate;
+
+/**
+ * Internal use.
+ * <p>
+ * Paces requests to hosts that are failing or rate limiting, so that hundreds of tile requests
+ * retried after a network blip don't all hit the network at once.
+ * <ul>
+ * <li>After a failure, new requests to the host are delayed by an exponential backoff with full
+ * jitter.</li>
+ * <li>After several consecutive failures the circuit of the host opens, and requests fail right
+ * away until a cooldown has passed. A single probe request then decides whether the circuit closes
+ * again or stays open for a longer cooldown.</li>
+ * <li>A 429 response pauses all requests to the host until the time given by the Retry-After or
+ * x-rate-limit-reset header.</li>
+ * </ul>
+ * <p>
+ * Failures of calls started before the circuit opened don't count against the host, and
+ * connection failures don't count while the device is offline. Regaining connectivity closes all
+ * circuits.
+ * </p>
+ */
+public final class HostBackoff implements ConnectivityListener {
+
+    /**
+     * Returned by {@link #admit(String)} when the circuit of the host is open.
+     */
+    static final long REJECT = -1;
+
+    static final int CIRCUIT_THRESHOLD = 5;
+
+    private static final long BASE_DELAY_MILLIS = 250;
+    private static final long MAX_DELAY_MILLIS = TimeUnit.SECONDS.toMillis(30);
+    private static final long BASE_COOLDOWN_MILLIS = TimeUnit.SECONDS.toMillis(5);
+    private static final long MAX_COOLDOWN_MILLIS = TimeUnit.MINUTES.toMillis(2);
+    private static final long DEFAULT_RATE_LIMIT_MILLIS = TimeUnit.SECONDS.toMillis(5);
+    private static final long RATE_LIMIT_SPREAD_MILLIS = 1000;
+
+    /**
+     * Time source, replaceable in tests.
+     */
+    interface Clock {
+
+        long currentTimeMillis();
+    }
+
+    private static final Clock SYSTEM_CLOCK = new Clock() {
+        @Override
+        public long currentTimeMillis() {
+            return System.currentTimeMillis();
+        }
+    };
+
+    private static final HostBackoff instance = new HostBackoff();
+
+    private final Map<String, Host> hosts = new HashMap<>();
+    private final Clock clock;
+    private final Random random;
+    private boolean connected = true;
+
+    /**
+     * @return the backoff shared by all HTTP requests
+     */
+    public static HostBackoff getInstance() {
+        return instance;
+    }
+
+    HostBackoff() {
+        this(SYSTEM_CLOCK, new Random());
+    }
+
+    HostBackoff(Clock clock, Random random) {
+        this.clock = clock;
+        this.random = random;
+    }
+
+    /**
+     * @return the current time of the clock, to pass as the start time of a call to
+     * {@link #onFailure(String, long)} and {@link #onConnectionFailure(String, long)}
+     */
+    long currentTimeMillis() {
+        return clock.currentTimeMillis();
+    }
+
+    /**
+     * Decide when a new request to the host may start.
+     *
+     * @param host the host
+     * @return 0 to start right away, the delay in milliseconds, or {@link #REJECT} if the request
+     * should fail without being made
+     */
+    synchronized long admit(String host) {
+        Host state = hosts.get(host);
+        if (state == null) {
+            return 0;
+        }
+
+        long now = clock.currentTimeMillis();
+        if (state.pausedUntil > now) {
+            // Spreads the requests waiting for the end of the pause
+            return state.pausedUntil - now + (long) (random.nextDouble() * RATE_LIMIT_SPREAD_MILLIS);
+        }
+
+        if (state.circuitOpenings > 0) {
+            // A probe that never reports back, because it was cancelled, expires after a cooldown
+            if (now < state.circuitOpenUntil || (state.probing && now - state.probeStarted < BASE_COOLDOWN_MILLIS)) {
+                return REJECT;
+            }
+            state.probing = true;
+            state.probeStarted = now;
+            return 0;
+        }
+
+        if (state.failures > 0) {
+            return jitter(BASE_DELAY_MILLIS, state.failures, MAX_DELAY_MILLIS);
+        }
+        return 0;
+    }
+
+    /**
+     * Record a response that isn't a server error or rate limit.
+     */
+    synchronized void onSuccess(String host) {
+        Host state = hosts.get(host);
+        if (state == null) {
+            return;
+        }
+
+        if (state.pausedUntil > clock.currentTimeMillis()) {
+            state.failures = 0;
+            state.circuitOpenings = 0;
+            state.probing = false;
+        } else {
+            hosts.remove(host);
+        }
+    }
+
+    /**
+     * Record a server error.
+     *
+     * @param startedAt the time the call started, from {@link #currentTimeMillis()}
+     */
+    synchronized void onFailure(String host, long startedAt) {
+        Host state = getOrCreate(host);
+        if (state.circuitOpenings > 0 && startedAt <= state.circuitOpenedAt) {
+            // Was already in flight when the circuit opened, says nothing about the host since
+            return;
+        }
+
+        state.failures++;
+        state.probing = false;
+
+        // Opens a closed circuit, or reopens it for a longer cooldown after a failed probe
+        if (state.circuitOpenings > 0 || state.failures >= CIRCUIT_THRESHOLD) {
+            long now = clock.currentTimeMillis();
+            state.circuitOpenings++;
+            state.circuitOpenedAt = now;
+            state.circuitOpenUntil = now
+                + BASE_COOLDOWN_MILLIS / 2 + jitter(BASE_COOLDOWN_MILLIS / 2, state.circuitOpenings, MAX_COOLDOWN_MILLIS);
+        }
+    }
+
+    /**
+     * Record a failure to connect to the host or to read its response.
+     *
+     * @param startedAt the time the call started, from {@link #currentTimeMillis()}
+     */
+    synchronized void onConnectionFailure(String host, long startedAt) {
+        // Unreachable hosts and failed DNS lookups while offline are no fault of the host
+        if (connected) {
+            onFailure(host, startedAt);
+        }
+    }
+
+    /**
+     * Closes all circuits when connectivity comes back, rate limits stay in place.
+     */
+    @Override
+    public synchronized void onNetworkStateChanged(boolean connected) {
+        this.connected = connected;
+        if (!connected) {
+            return;
+        }
+
+        Iterator<Host> iterator = hosts.values().iterator();
+        while (iterator.hasNext()) {
+            Host state = iterator.next();
+            if (state.pausedUntil > clock.currentTimeMillis()) {
+                state.failures = 0;
+                state.circuitOpenings = 0;
+                state.probing = false;
+            } else {
+                iterator.remove();
+            }
+        }
+    }
+
+    /**
+     * Record a 429 response.
+     *
+     * @param retryAfter      the Retry-After header, in seconds or as an HTTP date
+     * @param xRateLimitReset the x-rate-limit-reset header, in seconds since the epoch
+     */
+    synchronized void onRateLimited(String host, @Nullable String retryAfter, @Nullable String xRateLimitReset) {
+        long now = clock.currentTimeMillis();
+        long until = parseRetryTime(retryAfter, xRateLimitReset, now);
+        if (until <= now) {
+            until = now + DEFAULT_RATE_LIMIT_MILLIS;
+        }
+
+        Host state = getOrCreate(host);
+        state.pausedUntil = Math.max(state.pausedUntil, until);
+    }
+
+    static long parseRetryTime(@Nullable String retryAfter, @Nullable String xRateLimitReset, long now) {
+        if (retryAfter != null) {
+            try {
+                return now + TimeUnit.SECONDS.toMillis(Long.parseLong(retryAfter.trim()));
+            } catch (NumberFormatException exception) {
+                Date date = HttpDate.parse(retryAfter);
+                if (date != null) {
+                    return date.getTime();
+                }
+            }
+        }
+
+        if (xRateLimitReset != null) {
+            try {
+                return TimeUnit.SECONDS.toMillis(Long.parseLong(xRateLimitReset.trim()));
+            } catch (NumberFormatException exception) {
+                // Ignored, like a missing header
+            }
+        }
+        return 0;
+    }
+
+    private long jitter(long base, int attempts, long max) {
+        long ceiling = Math.min(max, base << Math.min(attempts - 1, 20));
+        return (long) (random.nextDouble() * ceiling);
+    }
+
+    private Host getOrCreate(String host) {
+        Host state = hosts.get(host);
+        if (state == null) {
+            state = new Host();
+            hosts.put(host, state);
+        }
+        return state;
+    }
+
+    private static class Host {
+        int failures;
+        int circuitOpenings;
+        long circuitOpenedAt;
+        long circuitOpenUntil;
+        boolean probing;
+        long probeStarted;
+        long pausedUntil;
+    }
+}
@@ -0,0 +1,277 @@
+package com.mapbox.mapboxsdk.http;
+
+import android.support.annotation.NonNull;
+
+import com.mapbox.mapboxsdk.net.BandwidthEstimator;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+
+/**
+ * Attaches concurrent requests for the same resource to a single network call.
+ * <p>
+ * Requests are identical when their normalized url (see {@link CacheKey}) and conditional headers
+ * match, for example when several maps or sources show the same tiles. Every attached request
+ * receives the response, and the call is only cancelled once all of them are cancelled.
+ * </p>
+ */
+class RequestCoalescer {
+
+    /**
+     * Receives the outcome of a request, on an OkHttp or decompression thread. The body of a result
+     * is only valid during the call.
+     */
+    interface Listener {
+
+        void onResponse(Result result);
+
+        void onFailure(IOException error);
+    }
+
+    /**
+     * A response, read completely into a pooled direct buffer so it can be handed to several
+     * listeners and to native code without further copies.
+     */
+    static class Result {
+        final int code;
+        final String message;
+        final String etag;
+        final String modified;
+        final String cacheControl;
+        final String expires;
+        final String retryAfter;
+        final String xRateLimitReset;
+        final ByteBuffer body;
+
+        Result(Response response, ByteBuffer body) {
+            this.code = response.code();
+            this.message = response.message();
+            this.etag = response.header("ETag");
+            this.modified = response.header("Last-Modified");
+            this.cacheControl = response.header("Cache-Control");
+            this.expires = response.header("Expires");
+            this.retryAfter = response.header("Retry-After");
+            this.xRateLimitReset = response.header("x-rate-limit-reset");
+            this.body = body;
+        }
+
+        boolean isSuccessful() {
+            return code >= 200 && code < 300;
+        }
+    }
+
+    /**
+     * A request attached to a shared call.
+     */
+    interface Subscription {
+
+        /**
+         * Stops delivery to this request's listener. The call is cancelled when no other request
+         * is attached to it.
+         */
+        void cancel();
+    }
+
+    private final Map<String, SharedCall> calls = new HashMap<>();
+    private final ByteBufferPool bufferPool;
+    private final HostBackoff hostBackoff;
+    private final Decompressor decompressor;
+
+    RequestCoalescer(ByteBufferPool bufferPool, HostBackoff hostBackoff, Decompressor decompressor) {
+        this.bufferPool = bufferPool;
+        this.hostBackoff = hostBackoff;
+        this.decompressor = decompressor;
+    }
+
+    /**
+     * Start a request, or attach to an identical request in flight.
+     *
+     * @param client   the client to start the call with
+     * @param request  the request
+     * @param listener the listener for the outcome
+     * @return the subscription, to cancel the request
+     */
+    Subscription enqueue(@NonNull OkHttpClient client, @NonNull Request request, @NonNull Listener listener) {
+        String key = key(request);
+        SharedCall sharedCall;
+        Attachment attachment;
+        boolean start = false;
+
+        synchronized (calls) {
+            sharedCall = calls.get(key);
+            if (sharedCall == null) {
+                sharedCall = new SharedCall(key, client.newCall(request));
+                calls.put(key, sharedCall);
+                start = true;
+            }
+            attachment = new Attachment(sharedCall, listener);
+            sharedCall.attachments.add(attachment);
+        }
+
+        if (start) {
+            sharedCall.call.enqueue(sharedCall);
+        }
+        return attachment;
+    }
+
+    /**
+     * @return the number of network calls in flight
+     */
+    int getCallCount() {
+        synchronized (calls) {
+            return calls.size();
+        }
+    }
+
+    static String key(Request request) {
+        return CacheKey.normalize(request.url()).toString() + '\n' + header(request, "If-None-Match") + '\n'
+            + header(request, "If-Modified-Since");
+    }
+
+    private static String header(Request request, String name) {
+        String value = request.header(name);
+        return value != null ? value : "";
+    }
+
+    private class SharedCall implements Callback {
+        private final String key;
+        private final Call call;
+        private final long startedAt;
+        private final List<Attachment> attachments = new ArrayList<>();
+
+        SharedCall(String key, Call call) {
+            this.key = key;
+            this.call = call;
+            this.startedAt = hostBackoff.currentTimeMillis();
+        }
+
+        @Override
+        public void onResponse(Call call, final Response response) {
+            ByteBuffer raw;
+            ResponseBody body = response.body();
+            try {
+                raw = bufferPool.read(body.byteStream(), body.contentLength());
+            } catch (IOException error) {
+                // Recorded as a connection failure
+                onFailure(call, error);
+                return;
+            } finally {
+                body.close();
+            }
+
+            // Recorded once per network call, however many requests are attached to it, and only
+            // once the body arrived
+            String host = call.request().url().host();
+            if (response.code() == 429) {
+                hostBackoff.onRateLimited(host, response.header("Retry-After"), response.header("x-rate-limit-reset"));
+            } else if (response.code() >= 500) {
+                hostBackoff.onFailure(host, startedAt);
+            } else {
+                hostBackoff.onSuccess(host);
+            }
+
+            // Responses from the cache or an interceptor don't measure the network
+            if (response.networkResponse() != null && response.sentRequestAtMillis() > 0) {
+                BandwidthEstimator.getInstance().onTransfer(raw.remaining(), response.sentRequestAtMillis(),
+                    System.currentTimeMillis());
+            }
+
+            // Bodies of 304 responses are empty, whatever their encoding
+            if (!raw.hasRemaining() || !Decompressor.accepts(response.header("Content-Encoding"))) {
+                deliver(new Result(response, raw));
+                return;
+            }
+
+            decompressor.decompress(raw, new Decompressor.Callback() {
+                @Override
+                public void onDecompressed(ByteBuffer decompressed) {
+                    deliver(new Result(response, decompressed));
+                }
+
+                @Override
+                public void onFailure(IOException error) {
+                    deliver(error);
+                }
+            });
+        }
+
+        @Override
+        public void onFailure(Call call, IOException error) {
+            if (!call.isCanceled()) {
+                hostBackoff.onConnectionFailure(call.request().url().host(), startedAt);
+            }
+            deliver(error);
+        }
+
+        private void deliver(Result result) {
+            try {
+                for (Attachment attachment : detach()) {
+                    attachment.listener.onResponse(result);
+                }
+            } finally {
+                bufferPool.release(result.body);
+            }
+        }
+
+        private void deliver(IOException error) {
+            for (Attachment attachment : detach()) {
+                attachment.listener.onFailure(error);
+            }
+        }
+
+        /**
+         * Removes this call from the map, so later identical requests start a new call, and returns
+         * the requests attached until now.
+         */
+        private List<Attachment> detach() {
+            synchronized (calls) {
+                if (calls.get(key) == this) {
+                    calls.remove(key);
+                }
+                List<Attachment> delivered = new ArrayList<>(attachments);
+                attachments.clear();
+                return delivered;
+            }
+        }
+
+        void cancel(Attachment attachment) {
+            boolean last;
+            synchronized (calls) {
+                last = attachments.remove(attachment) && attachments.isEmpty() && calls.get(key) == this;
+                if (last) {
+                    calls.remove(key);
+                }
+            }
+
+            if (last) {
+                call.cancel();
+            }
+        }
+    }
+
+    private static class Attachment implements Subscription {
+        private final SharedCall sharedCall;
+        private final Listener listener;
+
+        Attachment(SharedCall sharedCall, Listener listener) {
+            this.sharedCall = sharedCall;
+            this.listener = listener;
+        }
+
+        @Override
+        public void cancel() {
+            sharedCall.cancel(this);
+        }
+    }
+}
@@ -0,0 +1,290 @@
+package com.mapbox.mapboxsdk.http;
+
+import android.support.annotation.NonNull;
+
+import com.mapbox.mapboxsdk.net.HttpEngine;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Internal use.
+ * <p>
+ * Orders HTTP requests by priority before they reach the HTTP engine. Style resources go first, then
+ * tiles of the maps on screen, then prefetched tiles and finally offline downloads. A request moves
+ * up one priority level for each aging interval it has waited, so lower priorities are never
+ * starved. When all slots are taken, a new resource or visible tile request preempts the most
+ * recently started prefetch or offline request, which goes back to the queue.
+ * </p>
+ * <p>
+ * Requests for tiles that left the viewport are cancelled by the map and leave the queue right away.
+ * </p>
+ */
+public final class RequestScheduler {
+
+    public static final int PRIORITY_RESOURCE = 0;
+    public static final int PRIORITY_VISIBLE = 1;
+    public static final int PRIORITY_PREFETCH = 2;
+    public static final int PRIORITY_OFFLINE = 3;
+
+    private static final int PRIORITY_COUNT = 4;
+    private static final long DEFAULT_AGING_INTERVAL_MILLIS = 2000;
+    private static final int DEFAULT_MAX_RUNNING = HttpEngine.DEFAULT_MAX_REQUESTS;
+
+    private static final RequestScheduler instance = new RequestScheduler(DEFAULT_MAX_RUNNING,
+        DEFAULT_AGING_INTERVAL_MILLIS);
+
+    /**
+     * A request that is started when a slot is available. Both methods are called with the scheduler
+     * locked and must not block.
+     */
+    interface Task {
+
+        void start(Ticket ticket);
+
+        /**
+         * Stops the request, it is started again later with the same ticket.
+         */
+        void preempt();
+    }
+
+    private final long agingIntervalNanos;
+    private final List<Ticket> queued = new ArrayList<>();
+    private final List<Ticket> running = new ArrayList<>();
+    private int maxRunning;
+
+    // Metrics, per base priority
+    private final long[] startedCount = new long[PRIORITY_COUNT];
+    private final long[] totalWaitNanos = new long[PRIORITY_COUNT];
+    private final long[] maxWaitNanos = new long[PRIORITY_COUNT];
+    private long preemptedCount;
+
+    RequestScheduler(int maxRunning, long agingIntervalMillis) {
+        this.maxRunning = maxRunning;
+        this.agingIntervalNanos = TimeUnit.MILLISECONDS.toNanos(agingIntervalMillis);
+    }
+
+    /**
+     * @return the scheduler of all map requests
+     */
+    public static RequestScheduler getInstance() {
+        return instance;
+    }
+
+    /**
+     * Set the number of requests allowed to run at once. Requests above the limit wait in the queue.
+     *
+     * @param maxRunning the number of concurrent requests
+     */
+    public synchronized void setMaxRunning(int maxRunning) {
+        if (maxRunning < 1) {
+            throw new IllegalArgumentException("maxRunning < 1: " + maxRunning);
+        }
+        this.maxRunning = maxRunning;
+        startQueued();
+    }
+
+    /**
+     * @return the number of requests allowed to run at once
+     */
+    public synchronized int getMaxRunning() {
+        return maxRunning;
+    }
+
+    /**
+     * Queue a task, it is started right away if a slot is available.
+     *
+     * @param task     the task
+     * @param priority one of the PRIORITY constants
+     * @return the ticket, to release the slot when the task completes or is cancelled
+     */
+    synchronized Ticket submit(@NonNull Task task, int priority) {
+        if (priority < PRIORITY_RESOURCE || priority > PRIORITY_OFFLINE) {
+            throw new IllegalArgumentException("Unknown priority: " + priority);
+        }
+
+        Ticket ticket = new Ticket(task, priority, System.nanoTime());
+        queued.add(ticket);
+        if (running.size() >= maxRunning && priority <= PRIORITY_VISIBLE) {
+            preempt(priority, ticket.queuedNanos);
+        }
+        startQueued();
+        return ticket;
+    }
+
+    /**
+     * @return a snapshot of the queue depth and wait times
+     */
+    public synchronized Metrics getMetrics() {
+        int[] queueDepth = new int[PRIORITY_COUNT];
+        for (Ticket ticket : queued) {
+            queueDepth[ticket.priority]++;
+        }
+        return new Metrics(queueDepth, running.size(), startedCount.clone(), totalWaitNanos.clone(),
+            maxWaitNanos.clone(), preemptedCount);
+    }
+
+    private synchronized void release(Ticket ticket) {
+        if (queued.remove(ticket) || running.remove(ticket)) {
+            startQueued();
+        }
+    }
+
+    private void preempt(int priority, long now) {
+        // The most recently started request has made the least progress
+        Ticket victim = null;
+        for (Ticket ticket : running) {
+            if (ticket.priority >= PRIORITY_PREFETCH && effectivePriority(ticket, now) > priority
+                && (victim == null || ticket.startedNanos > victim.startedNanos)) {
+                victim = ticket;
+            }
+        }
+
+        if (victim != null) {
+            running.remove(victim);
+            // Keeps its place in the queue, it has already waited
+            queued.add(victim);
+            preemptedCount++;
+            victim.task.preempt();
+        }
+    }
+
+    private void startQueued() {
+        long now = System.nanoTime();
+        while (running.size() < maxRunning && !queued.isEmpty()) {
+            Ticket next = null;
+            long nextPriority = Long.MAX_VALUE;
+            for (Ticket ticket : queued) {
+                long priority = effectivePriority(ticket, now);
+                if (priority < nextPriority || (priority == nextPriority && ticket.queuedNanos < next.queuedNanos)) {
+                    next = ticket;
+                    nextPriority = priority;
+                }
+            }
+
+            queued.remove(next);
+            running.add(next);
+
+            // Preempted requests are only counted the first time they start
+            if (!next.started) {
+                long wait = now - next.queuedNanos;
+                startedCount[next.priority]++;
+                totalWaitNanos[next.priority] += wait;
+                maxWaitNanos[next.priority] = Math.max(maxWaitNanos[next.priority], wait);
+            }
+            next.started = true;
+            next.startedNanos = now;
+
+            next.task.start(next);
+        }
+    }
+
+    private long effectivePriority(Ticket ticket, long now) {
+        return ticket.priority - (now - ticket.queuedNanos) / agingIntervalNanos;
+    }
+
+    /**
+     * The place of a task in the scheduler.
+     */
+    class Ticket {
+        private final Task task;
+        private final int priority;
+        private final long queuedNanos;
+        private boolean started;
+        private long startedNanos;
+
+        Ticket(Task task, int priority, long queuedNanos) {
+            this.task = task;
+            this.priority = priority;
+            this.queuedNanos = queuedNanos;
+        }
+
+        /**
+         * Leaves the queue, or frees the slot of a running task. Safe to call more than once.
+         */
+        void release() {
+            RequestScheduler.this.release(this);
+        }
+    }
+
+    /**
+     * Queue depth and wait times of the scheduler. Wait times are measured from the moment a request
+     * is made until it is started.
+     */
+    public static class Metrics {
+        private final int[] queueDepth;
+        private final int runningCount;
+        private final long[] startedCount;
+        private final long[] totalWaitNanos;
+        private final long[] maxWaitNanos;
+        private final long preemptedCount;
+
+        Metrics(int[] queueDepth, int runningCount, long[] startedCount, long[] totalWaitNanos,
+                long[] maxWaitNanos, long preemptedCount) {
+            this.queueDepth = queueDepth;
+            this.runningCount = runningCount;
+            this.startedCount = startedCount;
+            this.totalWaitNanos = totalWaitNanos;
+            this.maxWaitNanos = maxWaitNanos;
+            this.preemptedCount = preemptedCount;
+        }
+
+        /**
+         * @return the number of requests waiting to be started
+         */
+        public int getQueueDepth() {
+            int total = 0;
+            for (int depth : queueDepth) {
+                total += depth;
+            }
+            return total;
+        }
+
+        /**
+         * @param priority one of the PRIORITY constants
+         * @return the number of requests of the priority waiting to be started
+         */
+        public int getQueueDepth(int priority) {
+            return queueDepth[priority];
+        }
+
+        /**
+         * @return the number of requests running
+         */
+        public int getRunningCount() {
+            return runningCount;
+        }
+
+        /**
+         * @param priority one of the PRIORITY constants
+         * @return the number of requests of the priority started so far
+         */
+        public long getStartedCount(int priority) {
+            return startedCount[priority];
+        }
+
+        /**
+         * @param priority one of the PRIORITY constants
+         * @return the average wait time of the requests of the priority, in milliseconds
+         */
+        public double getAverageWaitMillis(int priority) {
+            return startedCount[priority] == 0 ? 0 : totalWaitNanos[priority] / 1e6 / startedCount[priority];
+        }
+
+        /**
+         * @param priority one of the PRIORITY constants
+         * @return the longest wait time of the requests of the priority, in milliseconds
+         */
+        public double getMaxWaitMillis(int priority) {
+            return maxWaitNanos[priority] / 1e6;
+        }
+
+        /**
+         * @return the number of requests that were preempted by higher priority requests
+         */
+        public long getPreemptedCount() {
+            return preemptedCount;
+        }
+    }
+}
@@ -648,6 +648,24 @@ public final class MapboxMap {
         });
     }
 
+    /**
+     * Sets how many tiles are requested ahead of camera animations and flings.
+     * <p>
+     * When an animation or fling starts, the tiles along its path and at its destination are
+     * requested at a lower priority than the visible tiles. The requests are cancelled when the
+     * animation is interrupted, or once the tiles received reach the byte budget. The defaults are 64
+     * tiles and 4 MB.
+     * </p>
+     *
+     * @param maxTiles the maximum number of tiles requested per animation, from all sources together,
+     *                 0 disables prefetching
+     * @param maxBytes the maximum number of bytes received per animation
+     */
+    @UiThread
+    public void setTilePrefetchBudget(int maxTiles, long maxBytes) {
+        transform.setTilePrefetchBudget(maxTiles, maxBytes);
+    }
+
     /**
      * Invalidates the current camera position by reconstructing it from mbgl
      */
@@ -759,6 +777,49 @@ public final class MapboxMap {
         nativeMapView.setStyleUrl(url);
     }
 
+    /**
+     * <p>
+     * Loads a new map style from the specified URL, optionally by diffing it against the current style.
+     * </p>
+     * <p>
+     * When {@code diff} is true the new style is compared with the currently loaded one and only the
+     * differences are applied: sources with an unchanged definition keep their tiles, layers that only
+     * differ in paint or layout properties are updated in place and other layers are replaced. This makes
+     * switching between variants of a style, eg. day and night, much cheaper than a full reload.
+     * If the styles can't be diffed (eg. the sprite or glyphs changed, or a property value is invalid) the
+     * style is reloaded as with {@link #setStyleUrl(String)}. The diff is checked completely before the map
+     * is changed, so it is either applied as a whole or not at all.
+     * </p>
+     * After a successful diff {@link #getStyleUrl()} returns the URL of the new style.
+     *
+     * @param url  The URL of the map style
+     * @param diff True to apply the new style as a diff against the current style
+     * @see #setStyleUrl(String)
+     */
+    @UiThread
+    public void setStyleUrl(@NonNull String url, boolean diff) {
+        nativeMapView.setStyleUrl(url, diff);
+    }
+
+    /**
+     * <p>
+     * Loads a new map style from a json string, optionally by diffing it against the current style.
+     * </p>
+     * <p>
+     * When {@code diff} is true only the differences with the currently loaded style are applied, as
+     * described for {@link #setStyleUrl(String, boolean)}. If the styles can't be diffed the style is
+     * reloaded from {@code json}, as it always is when {@code diff} is false.
+     * </p>
+     *
+     * @param json The json of the map style
+     * @param diff True to apply the new style as a diff against the current style
+     * @see #setStyleUrl(String, boolean)
+     */
+    @UiThread
+    public void setStyleJson(@NonNull String json, boolean diff) {
+        nativeMapView.setStyleJson(json, diff);
+    }
+
     /**
      * <p>
      * Loads a new map style from the specified bundled style.
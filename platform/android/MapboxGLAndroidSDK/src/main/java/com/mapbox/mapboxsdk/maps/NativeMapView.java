@@ -20,6 +20,7 @@ import com.mapbox.mapboxsdk.geometry.ProjectedMeters;
 import com.mapbox.mapboxsdk.offline.OfflineManager;
 import com.mapbox.mapboxsdk.style.layers.Layer;
 import com.mapbox.mapboxsdk.style.layers.NoSuchLayerException;
+import com.mapbox.mapboxsdk.style.sources.CustomTileSource;
 import com.mapbox.mapboxsdk.style.sources.NoSuchSourceException;
 import com.mapbox.mapboxsdk.style.sources.Source;
 import com.mapbox.services.commons.geojson.Feature;
@@ -27,7 +28,9 @@ import com.mapbox.services.commons.geojson.Feature;
 import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.CopyOnWriteArrayList;
 
 import timber.log.Timber;
@@ -50,6 +53,9 @@ final class NativeMapView {
     // Listeners for Map change events
     private CopyOnWriteArrayList<MapView.OnMapChangedListener> onMapChangedListeners;
 
+    // Custom tile sources on the map, which keep their tile providers alive
+    private final Map<String, CustomTileSource> customTileSources = new HashMap<>();
+
     //
     // Static methods
     //
@@ -99,6 +105,7 @@ final class NativeMapView {
     //
 
     public void destroy() {
+        customTileSources.clear();
         nativeDestroy(nativeMapViewPtr);
         nativeMapViewPtr = 0;
         mapView = null;
@@ -211,17 +218,36 @@ final class NativeMapView {
     }
 
     public void setStyleUrl(String url) {
+        // Sources added at runtime don't survive a new style
+        customTileSources.clear();
         nativeSetStyleUrl(nativeMapViewPtr, url);
     }
 
+    public void setStyleUrl(String url, boolean diff) {
+        if (diff) {
+            nativeUpdateStyleUrl(nativeMapViewPtr, url);
+        } else {
+            setStyleUrl(url);
+        }
+    }
+
     public String getStyleUrl() {
         return nativeGetStyleUrl(nativeMapViewPtr);
     }
 
     public void setStyleJson(String newStyleJson) {
+        customTileSources.clear();
         nativeSetStyleJson(nativeMapViewPtr, newStyleJson);
     }
 
+    public void setStyleJson(String newStyleJson, boolean diff) {
+        if (diff) {
+            nativeUpdateStyleJson(nativeMapViewPtr, newStyleJson);
+        } else {
+            setStyleJson(newStyleJson);
+        }
+    }
+
     public String getStyleJson() {
         return nativeGetStyleJson(nativeMapViewPtr);
     }
@@ -238,6 +264,14 @@ final class NativeMapView {
         nativeCancelTransitions(nativeMapViewPtr);
     }
 
+    public void prefetchTiles(long[] tileIds, int maximumTiles, long maximumBytes) {
+        nativePrefetchTiles(nativeMapViewPtr, tileIds, maximumTiles, maximumBytes);
+    }
+
+    public void cancelPrefetch() {
+        nativeCancelPrefetch(nativeMapViewPtr);
+    }
+
     public void setGestureInProgress(boolean inProgress) {
         nativeSetGestureInProgress(nativeMapViewPtr, inProgress);
     }
@@ -523,14 +557,19 @@ final class NativeMapView {
 
     public void addSource(@NonNull Source source) {
         nativeAddSource(nativeMapViewPtr, source.getNativePtr());
+        if (source instanceof CustomTileSource) {
+            customTileSources.put(source.getId(), (CustomTileSource) source);
+        }
     }
 
     public void removeSource(@NonNull String sourceId) throws NoSuchSourceException {
         nativeRemoveSourceById(nativeMapViewPtr, sourceId);
+        customTileSources.remove(sourceId);
     }
 
     public void removeSource(@NonNull Source source) throws NoSuchSourceException {
         nativeRemoveSource(nativeMapViewPtr, source.getNativePtr());
+        customTileSources.remove(source.getId());
     }
 
     public void addImage(@NonNull String name, @NonNull Bitmap image) {
@@ -658,12 +697,20 @@ final class NativeMapView {
 
     private native String nativeGetStyleJson(long nativeMapViewPtr);
 
+    private native void nativeUpdateStyleUrl(long nativeMapViewPtr, String url);
+
+    private native void nativeUpdateStyleJson(long nativeMapViewPtr, String newStyleJson);
+
     private native void nativeSetAccessToken(long nativeMapViewPtr, String accessToken);
 
     private native String nativeGetAccessToken(long nativeMapViewPtr);
 
     private native void nativeCancelTransitions(long nativeMapViewPtr);
 
+    private native void nativePrefetchTiles(long nativeMapViewPtr, long[] tileIds, int maximumTiles, long maximumBytes);
+
+    private native void nativeCancelPrefetch(long nativeMapViewPtr);
+
     private native void nativeSetGestureInProgress(long nativeMapViewPtr, boolean inProgress);
 
     private native void nativeMoveBy(long nativeMapViewPtr, double dx,
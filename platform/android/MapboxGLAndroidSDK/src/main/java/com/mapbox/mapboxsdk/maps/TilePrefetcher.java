@@ -0,0 +1,244 @@
+package com.mapbox.mapboxsdk.maps;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.UiThread;
+
+import com.mapbox.mapboxsdk.constants.MapboxConstants;
+import com.mapbox.mapboxsdk.geometry.LatLng;
+import com.mapbox.mapboxsdk.tiles.TileCover;
+import com.mapbox.mapboxsdk.tiles.TileId;
+import com.mapbox.mapboxsdk.tiles.TileMath;
+
+import java.util.Arrays;
+
+/**
+ * Requests the tiles a camera animation or fling is about to show, before they are visible.
+ * <p>
+ * The tile cover of the camera path is computed when the animation starts: the destination first,
+ * then evenly spaced points along the way. Tiles already visible are left out. The requests are made
+ * at a priority below visible tiles, up to a tile and byte budget, and are cancelled when the
+ * animation is interrupted.
+ * </p>
+ * <p>
+ * The cover is that of an untilted viewport, enlarged to its diagonal so it holds for any bearing.
+ * Tile ids are {@link TileId}s of 512 pixel tiles; native code maps them to the tiles of each source.
+ * </p>
+ */
+final class TilePrefetcher {
+
+    static final int DEFAULT_MAX_TILES = 64;
+    static final long DEFAULT_MAX_BYTES = 4 * 1024 * 1024;
+
+    private static final double TILE_SIZE = 512;
+    private static final int PATH_SAMPLES = 4;
+
+    private final NativeMapView mapView;
+    private int maxTiles = DEFAULT_MAX_TILES;
+    private long maxBytes = DEFAULT_MAX_BYTES;
+    private boolean active;
+
+    TilePrefetcher(@NonNull NativeMapView mapView) {
+        this.mapView = mapView;
+    }
+
+    /**
+     * Set the budget of a single camera animation or fling.
+     *
+     * @param maxTiles the maximum number of tiles requested, 0 disables prefetching
+     * @param maxBytes the number of bytes received after which the remaining requests are cancelled
+     */
+    void setBudget(int maxTiles, long maxBytes) {
+        this.maxTiles = Math.max(0, maxTiles);
+        this.maxBytes = Math.max(0, maxBytes);
+    }
+
+    int getMaxTiles() {
+        return maxTiles;
+    }
+
+    long getMaxBytes() {
+        return maxBytes;
+    }
+
+    /**
+     * Prefetch the tiles of a camera animation.
+     *
+     * @param from     the center when the animation starts
+     * @param fromZoom the zoom when the animation starts
+     * @param to       the center at the end of the animation
+     * @param toZoom   the zoom at the end of the animation
+     * @param flight   true for a flyTo, which zooms out in between to show both centers
+     */
+    @UiThread
+    void prefetchCameraPath(LatLng from, double fromZoom, LatLng to, double toZoom, boolean flight) {
+        if (maxTiles == 0 || from == null || to == null) {
+            return;
+        }
+        prefetch(pathCover(TileMath.worldX(from.getLongitude()), TileMath.worldY(from.getLatitude()), fromZoom,
+            TileMath.worldX(to.getLongitude()), TileMath.worldY(to.getLatitude()), toZoom, flight,
+            getViewportWidth(), getViewportHeight(), maxTiles));
+    }
+
+    /**
+     * Prefetch the tiles a fling will show.
+     *
+     * @param center  the center when the fling starts
+     * @param zoom    the zoom
+     * @param offsetX the horizontal offset of the fling, as passed to {@link NativeMapView#moveBy(double, double, long)}
+     * @param offsetY the vertical offset of the fling, as passed to {@link NativeMapView#moveBy(double, double, long)}
+     */
+    @UiThread
+    void prefetchFling(LatLng center, double zoom, double offsetX, double offsetY) {
+        if (maxTiles == 0 || center == null) {
+            return;
+        }
+        // Moving the content by an offset moves the center by the opposite offset
+        double scale = TILE_SIZE * Math.pow(2, zoom) * mapView.getPixelRatio();
+        double fromX = TileMath.worldX(center.getLongitude());
+        double fromY = TileMath.worldY(center.getLatitude());
+        prefetch(pathCover(fromX, fromY, zoom, fromX - offsetX / scale, clampY(fromY - offsetY / scale), zoom, false,
+            getViewportWidth(), getViewportHeight(), maxTiles));
+    }
+
+    /**
+     * Cancel the requests of the last animation that are still in flight.
+     */
+    @UiThread
+    void cancel() {
+        if (active) {
+            active = false;
+            mapView.cancelPrefetch();
+        }
+    }
+
+    private void prefetch(long[] tileIds) {
+        if (tileIds.length == 0) {
+            cancel();
+            return;
+        }
+        active = true;
+        mapView.prefetchTiles(tileIds, maxTiles, maxBytes);
+    }
+
+    private double getViewportWidth() {
+        return mapView.getWidth() / mapView.getPixelRatio();
+    }
+
+    private double getViewportHeight() {
+        return mapView.getHeight() / mapView.getPixelRatio();
+    }
+
+    /**
+     * Compute the tiles along a camera path, in the order they are needed, without the tiles visible
+     * at the start.
+     * <p>
+     * Coordinates are world coordinates from 0 to 1, the viewport size is in map points.
+     * </p>
+     *
+     * @return the packed tile ids, at most maxTiles of them
+     */
+    static long[] pathCover(double fromX, double fromY, double fromZoom, double toX, double toY, double toZoom,
+                            boolean flight, double width, double height, int maxTiles) {
+        // The shorter way around the antimeridian
+        double dx = wrapDelta(toX - fromX);
+        double dy = toY - fromY;
+
+        // A flight zooms out far enough to show both centers at once halfway through
+        double midZoom = (fromZoom + toZoom) / 2;
+        if (flight) {
+            double distance = Math.sqrt(dx * dx + dy * dy);
+            midZoom = Math.min(fromZoom, toZoom);
+            if (distance > 0) {
+                midZoom = Math.min(midZoom, log2(Math.max(width, height) / (TILE_SIZE * distance)));
+            }
+        }
+
+        long[] visible = viewportCover(fromX, fromY, fromZoom, width, height);
+        Arrays.sort(visible);
+
+        long[] tileIds = new long[maxTiles];
+        int count = addCover(tileIds, 0, visible, toX, toY, toZoom, width, height);
+        for (int i = 1; i < PATH_SAMPLES && count < maxTiles; i++) {
+            double t = (double) i / PATH_SAMPLES;
+            double zoom = t < 0.5
+                ? fromZoom + (midZoom - fromZoom) * t * 2
+                : midZoom + (toZoom - midZoom) * (t - 0.5) * 2;
+            count = addCover(tileIds, count, visible, fromX + dx * t, fromY + dy * t, zoom, width, height);
+        }
+        return Arrays.copyOf(tileIds, count);
+    }
+
+    private static int addCover(long[] tileIds, int count, long[] visible, double x, double y, double zoom,
+                                double width, double height) {
+        for (long tileId : viewportCover(x, y, zoom, width, height)) {
+            if (count >= tileIds.length) {
+                break;
+            }
+            if (Arrays.binarySearch(visible, tileId) < 0 && !contains(tileIds, count, tileId)) {
+                tileIds[count++] = tileId;
+            }
+        }
+        return count;
+    }
+
+    private static boolean contains(long[] tileIds, int count, long tileId) {
+        for (int i = 0; i < count; i++) {
+            if (tileIds[i] == tileId) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Compute the tiles of the viewport centered on a point, nearest to the center first.
+     */
+    static long[] viewportCover(double x, double y, double zoom, double width, double height) {
+        zoom = Math.max(MapboxConstants.MINIMUM_ZOOM, Math.min(MapboxConstants.MAXIMUM_ZOOM, zoom));
+        int z = (int) Math.floor(zoom);
+        double tileCount = 1 << z;
+
+        // A square around the circle through the corners, so the cover holds for any bearing
+        double radius = Math.sqrt(width * width + height * height) / 2 / (TILE_SIZE * Math.pow(2, zoom));
+        double[] square = new double[] {
+            x - radius, y - radius, x + radius, y - radius, x + radius, y + radius, x - radius, y + radius
+        };
+        long[] tileIds = new long[(int) TileCover.count(square, z)];
+        TileCover.cover(square, z, tileIds, 0);
+
+        // Insertion sort by distance to the center, a viewport has a few dozen tiles
+        double[] distances = new double[tileIds.length];
+        for (int i = 0; i < tileIds.length; i++) {
+            double dx = wrapDelta((TileId.getX(tileIds[i]) + 0.5) / tileCount - x);
+            double dy = (TileId.getY(tileIds[i]) + 0.5) / tileCount - y;
+            double distance = dx * dx + dy * dy;
+            long tileId = tileIds[i];
+            int j = i - 1;
+            while (j >= 0 && distances[j] > distance) {
+                distances[j + 1] = distances[j];
+                tileIds[j + 1] = tileIds[j];
+                j--;
+            }
+            distances[j + 1] = distance;
+            tileIds[j + 1] = tileId;
+        }
+        return tileIds;
+    }
+
+    private static double wrapDelta(double dx) {
+        if (dx > 0.5) {
+            return dx - 1;
+        } else if (dx < -0.5) {
+            return dx + 1;
+        }
+        return dx;
+    }
+
+    private static double clampY(double y) {
+        return Math.max(0, Math.min(1, y));
+    }
+
+    private static double log2(double value) {
+        return Math.log(value) / Math.log(2);
+    }
+}
@@ -28,6 +28,7 @@ final class Transform implements MapView.OnMapChangedListener {
     private final MarkerViewManager markerViewManager;
     private final TrackingSettings trackingSettings;
     private final MyLocationView myLocationView;
+    private final TilePrefetcher tilePrefetcher;
 
     private CameraPosition cameraPosition;
     private MapboxMap.CancelableCallback cameraCancelableCallback;
@@ -38,6 +39,7 @@ final class Transform implements MapView.OnMapChangedListener {
         this.markerViewManager = markerViewManager;
         this.trackingSettings = trackingSettings;
         this.myLocationView = trackingSettings.getMyLocationView();
+        this.tilePrefetcher = new TilePrefetcher(mapView);
         mapView.addOnMapChangedListener(this);
     }
 
@@ -88,6 +90,8 @@ final class Transform implements MapView.OnMapChangedListener {
 
     @UiThread
     final void easeCamera(MapboxMap mapboxMap, CameraUpdate update, int durationMs, boolean easingInterpolator, boolean resetTrackingMode, final MapboxMap.CancelableCallback callback) {
+        LatLng startTarget = mapView.getLatLng();
+        double startZoom = mapView.getZoom();
         cameraPosition = update.getCameraPosition(mapboxMap);
         if (resetTrackingMode) {
             trackingSettings.resetTrackingModesIfRequired(cameraPosition);
@@ -108,11 +112,16 @@ final class Transform implements MapView.OnMapChangedListener {
             });
         }
 
+        if (durationMs > 0) {
+            tilePrefetcher.prefetchCameraPath(startTarget, startZoom, cameraPosition.target, cameraPosition.zoom, false);
+        }
         mapView.easeTo(cameraPosition.bearing, cameraPosition.target, getDurationNano(durationMs), cameraPosition.tilt, cameraPosition.zoom, easingInterpolator);
     }
 
     @UiThread
     final void animateCamera(MapboxMap mapboxMap, CameraUpdate update, int durationMs, final MapboxMap.CancelableCallback callback) {
+        LatLng startTarget = mapView.getLatLng();
+        double startZoom = mapView.getZoom();
         cameraPosition = update.getCameraPosition(mapboxMap);
         trackingSettings.resetTrackingModesIfRequired(cameraPosition);
 
@@ -131,6 +140,9 @@ final class Transform implements MapView.OnMapChangedListener {
             });
         }
 
+        if (durationMs > 0) {
+            tilePrefetcher.prefetchCameraPath(startTarget, startZoom, cameraPosition.target, cameraPosition.zoom, true);
+        }
         mapView.flyTo(cameraPosition.bearing, cameraPosition.target, getDurationNano(durationMs), cameraPosition.tilt, cameraPosition.zoom);
     }
 
@@ -153,6 +165,7 @@ final class Transform implements MapView.OnMapChangedListener {
             cameraCancelableCallback.onCancel();
             cameraCancelableCallback = null;
         }
+        tilePrefetcher.cancel();
         mapView.cancelTransitions();
     }
 
@@ -273,6 +286,14 @@ final class Transform implements MapView.OnMapChangedListener {
     }
 
     void moveBy(double offsetX, double offsetY, long duration) {
+        if (duration > 0) {
+            // A fling, its trajectory is known up front
+            tilePrefetcher.prefetchFling(mapView.getLatLng(), mapView.getZoom(), offsetX, offsetY);
+        }
         mapView.moveBy(offsetX, offsetY, duration);
     }
+
+    void setTilePrefetchBudget(int maxTiles, long maxBytes) {
+        tilePrefetcher.setBudget(maxTiles, maxBytes);
+    }
 }
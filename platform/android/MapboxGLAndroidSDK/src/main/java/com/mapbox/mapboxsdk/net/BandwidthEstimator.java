@@ -0,0 +1,206 @@
+package com.mapbox.mapboxsdk.net;
+
+import android.support.annotation.NonNull;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Estimates the throughput of the network from completed map requests, and picks the resolution
+ * of raster tiles from it: on slow links, @1x tiles are requested instead of @2x tiles, as they
+ * load about four times faster.
+ * <p>
+ * Tiles load in parallel, so the throughput isn't measured per request: the bytes of all transfers
+ * are divided by the time at least one of them was in flight. Samples of about a second of
+ * network activity are averaged.
+ * </p>
+ * <p>
+ * A moving average of the throughput is kept per network type, so switching from Wi-Fi to cellular
+ * doesn't start from the estimate of the other network. To avoid switching back and forth, tiles
+ * are downgraded below one threshold and only upgraded again above a higher one.
+ * </p>
+ */
+public final class BandwidthEstimator {
+
+    public static final int QUALITY_HIGH = 0;
+    public static final int QUALITY_LOW = 1;
+
+    public static final long DEFAULT_DOWNGRADE_BITS_PER_SECOND = 1000 * 1000;
+    public static final long DEFAULT_UPGRADE_BITS_PER_SECOND = 2500 * 1000;
+
+    /**
+     * Network type when it isn't known, ConnectivityManager types are positive.
+     */
+    public static final int NETWORK_UNKNOWN = -1;
+
+    // Smaller responses mostly measure latency
+    static final long MIN_SAMPLE_BYTES = 16 * 1024;
+    static final int MIN_SAMPLES = 3;
+    static final long SAMPLE_MILLIS = 1000;
+    private static final double SAMPLE_WEIGHT = 0.25;
+
+    private static final BandwidthEstimator instance = new BandwidthEstimator();
+
+    private final Map<Integer, Estimate> estimates = new HashMap<>();
+    private int networkType = NETWORK_UNKNOWN;
+    private long downgradeBitsPerSecond = DEFAULT_DOWNGRADE_BITS_PER_SECOND;
+    private long upgradeBitsPerSecond = DEFAULT_UPGRADE_BITS_PER_SECOND;
+    private boolean enabled = true;
+    private volatile int quality = QUALITY_HIGH;
+
+    // The sample being measured, and the end of the last transfer
+    private long sampleBytes;
+    private long sampleMillis;
+    private long busyUntil;
+
+    BandwidthEstimator() {
+    }
+
+    /**
+     * @return the estimator of all maps
+     */
+    public static BandwidthEstimator getInstance() {
+        return instance;
+    }
+
+    /**
+     * Enable or disable the selection of tile resolution. When disabled, tiles are always
+     * requested at the resolution of the screen.
+     *
+     * @param enabled false to disable, defaults to true
+     */
+    public synchronized void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+        updateQuality();
+    }
+
+    /**
+     * Set the throughputs at which tiles switch resolution.
+     *
+     * @param downgradeBitsPerSecond tiles are downgraded to @1x below this throughput
+     * @param upgradeBitsPerSecond   tiles are upgraded to @2x again above this throughput
+     */
+    public synchronized void setThresholds(long downgradeBitsPerSecond, long upgradeBitsPerSecond) {
+        if (downgradeBitsPerSecond <= 0 || upgradeBitsPerSecond < downgradeBitsPerSecond) {
+            throw new IllegalArgumentException("Invalid thresholds: " + downgradeBitsPerSecond + ", "
+                + upgradeBitsPerSecond);
+        }
+        this.downgradeBitsPerSecond = downgradeBitsPerSecond;
+        this.upgradeBitsPerSecond = upgradeBitsPerSecond;
+        updateQuality();
+    }
+
+    /**
+     * @return the estimated throughput of the current network in bits per second, or -1 while
+     * there are too few samples
+     */
+    public synchronized long getEstimate() {
+        Estimate estimate = estimates.get(networkType);
+        return estimate != null && estimate.samples >= MIN_SAMPLES ? (long) estimate.bitsPerSecond : -1;
+    }
+
+    /**
+     * @return the resolution raster tiles are currently requested at, {@link #QUALITY_HIGH} or
+     * {@link #QUALITY_LOW}
+     */
+    public int getTileQuality() {
+        return quality;
+    }
+
+    /**
+     * Internal use. Record a completed transfer on the current network.
+     *
+     * @param bytes            the size of the body
+     * @param sentAtMillis     the time the request was sent
+     * @param receivedAtMillis the time the whole body was received
+     */
+    public synchronized void onTransfer(long bytes, long sentAtMillis, long receivedAtMillis) {
+        if (bytes < MIN_SAMPLE_BYTES || receivedAtMillis <= sentAtMillis) {
+            return;
+        }
+
+        // Only the part of the transfer that didn't overlap earlier ones adds to the busy time
+        long busyFrom = Math.max(sentAtMillis, busyUntil);
+        if (receivedAtMillis > busyFrom) {
+            sampleMillis += receivedAtMillis - busyFrom;
+            busyUntil = receivedAtMillis;
+        }
+        sampleBytes += bytes;
+        if (sampleMillis < SAMPLE_MILLIS) {
+            return;
+        }
+
+        addSample(sampleBytes * 8 * 1000.0 / sampleMillis);
+        sampleBytes = 0;
+        sampleMillis = 0;
+    }
+
+    private void addSample(double bitsPerSecond) {
+        Estimate estimate = estimates.get(networkType);
+        if (estimate == null) {
+            estimate = new Estimate();
+            estimates.put(networkType, estimate);
+        }
+
+        estimate.bitsPerSecond = estimate.samples == 0
+            ? bitsPerSecond : SAMPLE_WEIGHT * bitsPerSecond + (1 - SAMPLE_WEIGHT) * estimate.bitsPerSecond;
+        estimate.samples++;
+        updateQuality();
+    }
+
+    /**
+     * Internal use. Switch to the estimate of another network.
+     *
+     * @param networkType the ConnectivityManager type of the active network, or
+     *                    {@link #NETWORK_UNKNOWN}
+     */
+    public synchronized void setNetworkType(int networkType) {
+        if (this.networkType != networkType) {
+            this.networkType = networkType;
+            sampleBytes = 0;
+            sampleMillis = 0;
+            // Hysteresis starts over from the last estimate of this network
+            quality = QUALITY_HIGH;
+            updateQuality();
+        }
+    }
+
+    /**
+     * Internal use. Rewrite the url of a tile for the current quality.
+     *
+     * @param url the url of a tile
+     * @return the url of the @1x tile for a @2x tile on a slow network, the url unchanged otherwise
+     */
+    @NonNull
+    public String selectTileUrl(@NonNull String url) {
+        if (quality != QUALITY_LOW) {
+            return url;
+        }
+
+        // Only in the file name, like {y}{ratio}.png, not in the query
+        int end = url.indexOf('?');
+        end = end != -1 ? end : url.length();
+        int start = url.lastIndexOf('/', end - 1) + 1;
+        int ratio = url.lastIndexOf("@2x.", end - 1);
+        if (ratio < start) {
+            return url;
+        }
+        return url.substring(0, ratio) + url.substring(ratio + 3);
+    }
+
+    private void updateQuality() {
+        long estimate = getEstimate();
+        if (!enabled || estimate < 0) {
+            quality = QUALITY_HIGH;
+        } else if (estimate < downgradeBitsPerSecond) {
+            quality = QUALITY_LOW;
+        } else if (estimate > upgradeBitsPerSecond) {
+            quality = QUALITY_HIGH;
+        }
+    }
+
+    private static class Estimate {
+        double bitsPerSecond;
+        int samples;
+    }
+}
@@ -10,6 +10,7 @@ import android.support.annotation.NonNull;
 import timber.log.Timber;
 
 import com.mapbox.mapboxsdk.MapboxAccountManager;
+import com.mapbox.mapboxsdk.http.HostBackoff;
 
 import java.util.List;
 import java.util.concurrent.CopyOnWriteArrayList;
@@ -32,6 +33,9 @@ public class ConnectivityReceiver extends BroadcastReceiver {
 
             //Add default listeners
             INSTANCE.addListener(new NativeConnectivityListener());
+            INSTANCE.addListener(HostBackoff.getInstance());
+
+            BandwidthEstimator.getInstance().setNetworkType(getNetworkType(context));
         }
 
         return INSTANCE;
@@ -50,6 +54,8 @@ public class ConnectivityReceiver extends BroadcastReceiver {
         boolean connected = isConnected(context);
         Timber.v("Connected: " + connected);
 
+        BandwidthEstimator.getInstance().setNetworkType(getNetworkType(context));
+
         //Loop over listeners
         for (ConnectivityListener listener : listeners) {
             listener.onNetworkStateChanged(connected);
@@ -92,4 +98,10 @@ public class ConnectivityReceiver extends BroadcastReceiver {
         return (activeNetwork != null && activeNetwork.isConnected());
     }
 
+    private static int getNetworkType(Context context) {
+        ConnectivityManager cm = (ConnectivityManager) context.getSystemService(Context.CONNECTIVITY_SERVICE);
+        NetworkInfo activeNetwork = cm.getActiveNetworkInfo();
+        return activeNetwork != null ? activeNetwork.getType() : BandwidthEstimator.NETWORK_UNKNOWN;
+    }
+
 }
@@ -0,0 +1,151 @@
+package com.mapbox.mapboxsdk.net;
+
+import android.support.annotation.NonNull;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import okhttp3.Headers;
+
+/**
+ * The file format shared by {@link HttpRecorder} and {@link HttpReplay}: a header followed by one
+ * record per exchange, each holding the request url and headers and the response status, headers
+ * and body. Records are appended as responses complete, so an archive cut short by a crash is still
+ * readable up to its last complete record.
+ */
+final class HttpArchive {
+
+    private static final int MAGIC = 0x4d424841; // "MBHA"
+    private static final int VERSION = 1;
+
+    private HttpArchive() {
+    }
+
+    /**
+     * A recorded request and its response.
+     */
+    static final class Entry {
+        final String method;
+        final String url;
+        final Headers requestHeaders;
+        final int code;
+        final String message;
+        final Headers responseHeaders;
+        final byte[] body;
+
+        Entry(String method, String url, Headers requestHeaders, int code, String message,
+              Headers responseHeaders, byte[] body) {
+            this.method = method;
+            this.url = url;
+            this.requestHeaders = requestHeaders;
+            this.code = code;
+            this.message = message;
+            this.responseHeaders = responseHeaders;
+            this.body = body;
+        }
+    }
+
+    /**
+     * Appends records to an archive file.
+     */
+    static final class Writer {
+        private final DataOutputStream output;
+        private boolean closed;
+
+        Writer(@NonNull File file) throws IOException {
+            boolean empty = !file.exists() || file.length() == 0;
+            output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file, true)));
+            if (empty) {
+                output.writeInt(MAGIC);
+                output.writeInt(VERSION);
+                output.flush();
+            }
+        }
+
+        synchronized void write(Entry entry) throws IOException {
+            if (closed) {
+                return;
+            }
+            output.writeUTF(entry.method);
+            output.writeUTF(entry.url);
+            writeHeaders(entry.requestHeaders);
+            output.writeInt(entry.code);
+            output.writeUTF(entry.message);
+            writeHeaders(entry.responseHeaders);
+            output.writeInt(entry.body.length);
+            output.write(entry.body);
+            output.flush();
+        }
+
+        synchronized void close() throws IOException {
+            closed = true;
+            output.close();
+        }
+
+        private void writeHeaders(Headers headers) throws IOException {
+            output.writeInt(headers.size());
+            for (int i = 0; i < headers.size(); i++) {
+                output.writeUTF(headers.name(i));
+                output.writeUTF(headers.value(i));
+            }
+        }
+    }
+
+    /**
+     * Read all complete records of an archive file.
+     *
+     * @param file the archive
+     * @return the records, in the order they were written
+     * @throws IOException when the file can't be read or isn't an archive
+     */
+    static List<Entry> read(@NonNull File file) throws IOException {
+        DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+        try {
+            if (input.readInt() != MAGIC) {
+                throw new IOException("Not an HTTP archive: " + file);
+            }
+            int version = input.readInt();
+            if (version != VERSION) {
+                throw new IOException("Unsupported HTTP archive version: " + version);
+            }
+
+            List<Entry> entries = new ArrayList<>();
+            while (true) {
+                try {
+                    String method = input.readUTF();
+                    String url = input.readUTF();
+                    Headers requestHeaders = readHeaders(input);
+                    int code = input.readInt();
+                    String message = input.readUTF();
+                    Headers responseHeaders = readHeaders(input);
+                    byte[] body = new byte[input.readInt()];
+                    input.readFully(body);
+                    entries.add(new Entry(method, url, requestHeaders, code, message, responseHeaders, body));
+                } catch (EOFException exception) {
+                    // End of the archive, or a record cut short
+                    return entries;
+                }
+            }
+        } finally {
+            input.close();
+        }
+    }
+
+    private static Headers readHeaders(DataInputStream input) throws IOException {
+        Headers.Builder builder = new Headers.Builder();
+        int count = input.readInt();
+        for (int i = 0; i < count; i++) {
+            builder.add(input.readUTF(), input.readUTF());
+        }
+        return builder.build();
+    }
+}
@@ -0,0 +1,291 @@
+package com.mapbox.mapboxsdk.net;
+
+import android.support.annotation.NonNull;
+
+import com.mapbox.mapboxsdk.http.CacheKey;
+import com.mapbox.mapboxsdk.http.RequestScheduler;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.Cache;
+import okhttp3.ConnectionPool;
+import okhttp3.Dispatcher;
+import okhttp3.Dns;
+import okhttp3.Interceptor;
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+
+/**
+ * The HTTP engine used for all map resource requests: styles, sources, tiles, glyphs and sprites.
+ * <p>
+ * A single engine is shared by all maps. The default engine allows more concurrent requests per
+ * host than OkHttp's default, as tiles are typically requested from one or two hosts. Install a
+ * differently configured engine with {@link #setInstance(HttpEngine)} before the first map is
+ * created:
+ * </p>
+ * <pre>
+ * HttpEngine.setInstance(new HttpEngine.Builder()
+ *     .setMaxRequestsPerHost(16)
+ *     .setConnectionPool(8, 5, TimeUnit.MINUTES)
+ *     .addInterceptor(loggingInterceptor)
+ *     .build());
+ * </pre>
+ * <p>
+ * Requests already in flight keep using the engine they were started with.
+ * </p>
+ */
+public final class HttpEngine {
+
+    public static final int DEFAULT_MAX_REQUESTS = 64;
+    public static final int DEFAULT_MAX_REQUESTS_PER_HOST = 20;
+    public static final int DEFAULT_MAX_IDLE_CONNECTIONS = 8;
+    public static final long DEFAULT_KEEP_ALIVE_MINUTES = 5;
+    public static final long DEFAULT_TIMEOUT_SECONDS = 30;
+
+    private static volatile HttpEngine instance;
+
+    private final OkHttpClient client;
+
+    private HttpEngine(OkHttpClient client) {
+        this.client = client;
+    }
+
+    /**
+     * Get the engine used for new requests, creating the default engine if none has been installed.
+     *
+     * @return the shared engine
+     */
+    @NonNull
+    public static HttpEngine getInstance() {
+        HttpEngine engine = instance;
+        if (engine == null) {
+            synchronized (HttpEngine.class) {
+                if (instance == null) {
+                    install(new Builder().build());
+                }
+                engine = instance;
+            }
+        }
+        return engine;
+    }
+
+    /**
+     * Install the engine used for new requests.
+     *
+     * @param engine the engine to share between all maps
+     */
+    public static void setInstance(@NonNull HttpEngine engine) {
+        synchronized (HttpEngine.class) {
+            install(engine);
+        }
+    }
+
+    private static void install(HttpEngine engine) {
+        instance = engine;
+        // The scheduler limits the requests of all hosts together, OkHttp's dispatcher limits them per host
+        RequestScheduler.getInstance().setMaxRunning(engine.getClient().dispatcher().getMaxRequests());
+    }
+
+    /**
+     * Get the underlying client, for example to share its connection pool with other requests
+     * made by the application.
+     *
+     * @return the OkHttp client
+     */
+    @NonNull
+    public OkHttpClient getClient() {
+        return client;
+    }
+
+    /**
+     * Builder for {@link HttpEngine}.
+     */
+    public static class Builder {
+
+        private OkHttpClient baseClient;
+        private int maxRequests = DEFAULT_MAX_REQUESTS;
+        private int maxRequestsPerHost = DEFAULT_MAX_REQUESTS_PER_HOST;
+        private boolean http2Enabled = true;
+        private ConnectionPool connectionPool;
+        private long connectTimeoutMillis = TimeUnit.SECONDS.toMillis(DEFAULT_TIMEOUT_SECONDS);
+        private long readTimeoutMillis = TimeUnit.SECONDS.toMillis(DEFAULT_TIMEOUT_SECONDS);
+        private long writeTimeoutMillis = TimeUnit.SECONDS.toMillis(DEFAULT_TIMEOUT_SECONDS);
+        private Cache cache;
+        private final List<Interceptor> interceptors = new ArrayList<>();
+        private final List<Interceptor> networkInterceptors = new ArrayList<>();
+
+        /**
+         * Start from an existing client, for example to share its connection pool, SSL and proxy
+         * configuration. The options of this builder are applied on top of it.
+         *
+         * @param client the client to derive from
+         * @return this builder
+         */
+        public Builder setBaseClient(@NonNull OkHttpClient client) {
+            this.baseClient = client;
+            return this;
+        }
+
+        /**
+         * @param maxRequests the maximum number of concurrent requests, defaults to 64
+         * @return this builder
+         */
+        public Builder setMaxRequests(int maxRequests) {
+            if (maxRequests < 1) {
+                throw new IllegalArgumentException("maxRequests < 1: " + maxRequests);
+            }
+            this.maxRequests = maxRequests;
+            return this;
+        }
+
+        /**
+         * Set the maximum number of concurrent requests to a single host. With HTTP/1.1 each
+         * request needs its own connection, so this bounds tile throughput on high-latency links.
+         *
+         * @param maxRequestsPerHost the maximum number of concurrent requests per host, defaults to 20
+         * @return this builder
+         */
+        public Builder setMaxRequestsPerHost(int maxRequestsPerHost) {
+            if (maxRequestsPerHost < 1) {
+                throw new IllegalArgumentException("maxRequestsPerHost < 1: " + maxRequestsPerHost);
+            }
+            this.maxRequestsPerHost = maxRequestsPerHost;
+            return this;
+        }
+
+        /**
+         * @param enabled false to only use HTTP/1.1, defaults to true
+         * @return this builder
+         */
+        public Builder setHttp2Enabled(boolean enabled) {
+            this.http2Enabled = enabled;
+            return this;
+        }
+
+        /**
+         * @param maxIdleConnections the maximum number of idle connections kept open, defaults to 8
+         * @param keepAliveDuration  how long idle connections are kept open, defaults to 5 minutes
+         * @param unit               the unit of the keep alive duration
+         * @return this builder
+         */
+        public Builder setConnectionPool(int maxIdleConnections, long keepAliveDuration, @NonNull TimeUnit unit) {
+            if (maxIdleConnections < 0 || keepAliveDuration <= 0) {
+                throw new IllegalArgumentException("Invalid connection pool configuration");
+            }
+            this.connectionPool = new ConnectionPool(maxIdleConnections, keepAliveDuration, unit);
+            return this;
+        }
+
+        /**
+         * @param timeout the connect timeout, 0 for none
+         * @param unit    the unit of the timeout
+         * @return this builder
+         */
+        public Builder setConnectTimeout(long timeout, @NonNull TimeUnit unit) {
+            this.connectTimeoutMillis = unit.toMillis(timeout);
+            return this;
+        }
+
+        /**
+         * @param timeout the read timeout, 0 for none
+         * @param unit    the unit of the timeout
+         * @return this builder
+         */
+        public Builder setReadTimeout(long timeout, @NonNull TimeUnit unit) {
+            this.readTimeoutMillis = unit.toMillis(timeout);
+            return this;
+        }
+
+        /**
+         * @param timeout the write timeout, 0 for none
+         * @param unit    the unit of the timeout
+         * @return this builder
+         */
+        public Builder setWriteTimeout(long timeout, @NonNull TimeUnit unit) {
+            this.writeTimeoutMillis = unit.toMillis(timeout);
+            return this;
+        }
+
+        /**
+         * Set an HTTP cache. Map resources are already cached by the map's own database, so this is
+         * mostly useful when the client is shared with other requests made by the application.
+         * Mapbox urls are cached without their access token, see {@link CacheKey}.
+         *
+         * @param cache the cache
+         * @return this builder
+         */
+        public Builder setCache(Cache cache) {
+            this.cache = cache;
+            return this;
+        }
+
+        /**
+         * @param interceptor an interceptor that observes each call once, before redirects and retries
+         * @return this builder
+         */
+        public Builder addInterceptor(@NonNull Interceptor interceptor) {
+            interceptors.add(interceptor);
+            return this;
+        }
+
+        /**
+         * @param interceptor an interceptor that observes each network request and response
+         * @return this builder
+         */
+        public Builder addNetworkInterceptor(@NonNull Interceptor interceptor) {
+            networkInterceptors.add(interceptor);
+            return this;
+        }
+
+        /**
+         * @return the engine
+         */
+        public HttpEngine build() {
+            OkHttpClient.Builder builder = baseClient != null ? baseClient.newBuilder() : new OkHttpClient.Builder();
+
+            // Each engine has its own dispatcher, the limits would otherwise leak into the base client
+            Dispatcher dispatcher = new Dispatcher();
+            dispatcher.setMaxRequests(maxRequests);
+            dispatcher.setMaxRequestsPerHost(maxRequestsPerHost);
+            builder.dispatcher(dispatcher);
+
+            if (connectionPool != null) {
+                builder.connectionPool(connectionPool);
+            } else if (baseClient == null) {
+                builder.connectionPool(new ConnectionPool(DEFAULT_MAX_IDLE_CONNECTIONS, DEFAULT_KEEP_ALIVE_MINUTES,
+                    TimeUnit.MINUTES));
+            }
+
+            builder.protocols(http2Enabled
+                ? Arrays.asList(Protocol.HTTP_2, Protocol.HTTP_1_1)
+                : Collections.singletonList(Protocol.HTTP_1_1));
+
+            builder.connectTimeout(connectTimeoutMillis, TimeUnit.MILLISECONDS)
+                .readTimeout(readTimeoutMillis, TimeUnit.MILLISECONDS)
+                .writeTimeout(writeTimeoutMillis, TimeUnit.MILLISECONDS);
+
+            if (cache != null) {
+                builder.cache(cache);
+            }
+            // Cache entries are keyed without access tokens, which are only added back on the wire
+            boolean cached = cache != null || (baseClient != null && baseClient.cache() != null);
+            // Metrics wrap the configured interceptors, so they measure what the map experiences
+            HttpMetrics metrics = HttpMetrics.getInstance();
+            builder.dns(metrics.wrapDns(baseClient != null ? baseClient.dns() : Dns.SYSTEM));
+            builder.interceptors().add(0, metrics.applicationInterceptor());
+            builder.interceptors().addAll(interceptors);
+            if (cached) {
+                builder.interceptors().add(CacheKey.applicationInterceptor());
+                builder.networkInterceptors().add(0, CacheKey.networkInterceptor());
+            }
+            builder.networkInterceptors().addAll(networkInterceptors);
+            builder.networkInterceptors().add(metrics.networkInterceptor());
+
+            return new HttpEngine(builder.build());
+        }
+    }
+}
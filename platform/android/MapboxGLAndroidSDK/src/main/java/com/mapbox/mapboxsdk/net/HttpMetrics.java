@@ -0,0 +1,489 @@
+package com.mapbox.mapboxsdk.net;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.List;
+import java.util.Locale;
+import java.util.Timer;
+import java.util.TimerTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import okhttp3.Dns;
+import okhttp3.Interceptor;
+import okhttp3.Response;
+import timber.log.Timber;
+
+/**
+ * Timings, sizes and outcomes of the HTTP requests made by maps, per resource type.
+ * <p>
+ * Values are aggregated into lock-free histograms with power of two buckets, cheap enough to stay
+ * enabled in production. Read them with {@link #getStats(int)} or log them periodically with
+ * {@link #startLogging(long, TimeUnit)}.
+ * </p>
+ * <ul>
+ * <li>DNS: time to resolve a host, for all resource types</li>
+ * <li>connect: time from the start of a call to the request being written, including DNS, TCP and
+ * TLS setup for new connections</li>
+ * <li>time to first byte: time from the request being written to the response headers</li>
+ * <li>total: time from the map making the request to the body being handed to it, including time
+ * spent queued</li>
+ * </ul>
+ */
+public final class HttpMetrics {
+
+    public static final int TYPE_OTHER = 0;
+    public static final int TYPE_STYLE = 1;
+    public static final int TYPE_SOURCE = 2;
+    public static final int TYPE_TILE = 3;
+    public static final int TYPE_GLYPHS = 4;
+    public static final int TYPE_SPRITE = 5;
+
+    private static final int TYPE_COUNT = 6;
+    private static final String[] TYPE_NAMES = {"other", "style", "source", "tile", "glyphs", "sprite"};
+
+    private static final HttpMetrics instance = new HttpMetrics();
+
+    private final Stats[] stats = new Stats[TYPE_COUNT];
+    private final Histogram dnsMillis = new Histogram();
+    private final AtomicLong compressedBytes = new AtomicLong();
+    private final AtomicLong decompressedBytes = new AtomicLong();
+    private final Histogram decompressMicros = new Histogram();
+    private Timer logTimer;
+
+    private HttpMetrics() {
+        for (int i = 0; i < TYPE_COUNT; i++) {
+            stats[i] = new Stats();
+        }
+    }
+
+    /**
+     * @return the metrics of all maps
+     */
+    public static HttpMetrics getInstance() {
+        return instance;
+    }
+
+    /**
+     * Map the kind of a map resource, as passed to HTTP requests by native code, to a resource type.
+     *
+     * @param kind the resource kind
+     * @return one of the TYPE constants
+     */
+    public static int typeOfResourceKind(int kind) {
+        // mbgl::Resource::Kind, sprite images and sprite JSON are both sprites
+        return kind >= TYPE_STYLE && kind <= TYPE_SPRITE + 1 ? Math.min(kind, TYPE_SPRITE) : TYPE_OTHER;
+    }
+
+    /**
+     * @param type one of the TYPE constants
+     * @return the statistics of the resource type
+     */
+    @NonNull
+    public Stats getStats(int type) {
+        return stats[type];
+    }
+
+    /**
+     * @return the DNS lookup times, in milliseconds
+     */
+    @NonNull
+    public Histogram getDnsMillis() {
+        return dnsMillis;
+    }
+
+    /**
+     * @return the size of gzip bodies as received, before decompression
+     */
+    public long getCompressedBytes() {
+        return compressedBytes.get();
+    }
+
+    /**
+     * @return the size of gzip bodies after decompression
+     */
+    public long getDecompressedBytes() {
+        return decompressedBytes.get();
+    }
+
+    /**
+     * @return the time spent decompressing each gzip body, in microseconds
+     */
+    @NonNull
+    public Histogram getDecompressMicros() {
+        return decompressMicros;
+    }
+
+    /**
+     * Reset all statistics.
+     */
+    public void reset() {
+        for (Stats typeStats : stats) {
+            typeStats.reset();
+        }
+        dnsMillis.reset();
+        compressedBytes.set(0);
+        decompressedBytes.set(0);
+        decompressMicros.reset();
+    }
+
+    /**
+     * Log a summary of the statistics periodically.
+     *
+     * @param period the logging period
+     * @param unit   the unit of the period
+     */
+    public synchronized void startLogging(long period, @NonNull TimeUnit unit) {
+        stopLogging();
+        logTimer = new Timer("HttpMetrics", true);
+        logTimer.schedule(new TimerTask() {
+            @Override
+            public void run() {
+                Timber.i(dump());
+            }
+        }, unit.toMillis(period), unit.toMillis(period));
+    }
+
+    /**
+     * Stop periodic logging.
+     */
+    public synchronized void stopLogging() {
+        if (logTimer != null) {
+            logTimer.cancel();
+            logTimer = null;
+        }
+    }
+
+    /**
+     * @return a human readable summary of the statistics
+     */
+    @NonNull
+    public String dump() {
+        StringBuilder builder = new StringBuilder("[HTTP] metrics");
+        builder.append(String.format(Locale.US, "\n  dns: %s", dnsMillis));
+        builder.append(String.format(Locale.US, "\n  gzip: %d bytes to %d bytes\n    decompress (us): %s",
+            compressedBytes.get(), decompressedBytes.get(), decompressMicros));
+        for (int type = 0; type < TYPE_COUNT; type++) {
+            Stats typeStats = stats[type];
+            if (typeStats.getRequestCount() == 0) {
+                continue;
+            }
+            builder.append(String.format(Locale.US,
+                "\n  %s: %d requests, %d not modified, %d cached, %d failed, %d cancelled, %d bytes"
+                    + "\n    connect: %s\n    ttfb: %s\n    total: %s\n    size: %s",
+                TYPE_NAMES[type], typeStats.getRequestCount(), typeStats.getNotModifiedCount(),
+                typeStats.getCacheHitCount(), typeStats.getFailureCount(), typeStats.getCancelledCount(),
+                typeStats.getBytes(), typeStats.getConnectMillis(), typeStats.getTimeToFirstByteMillis(),
+                typeStats.getTotalMillis(), typeStats.getSizeBytes()));
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Internal use.
+     *
+     * @param type one of the TYPE constants
+     * @return the timing of a call, to use as request tag so the interceptors can attribute it
+     */
+    public Call newCall(int type) {
+        return new Call(type);
+    }
+
+    /**
+     * Internal use. Records a response delivered to the map.
+     *
+     * @param call  the call timing
+     * @param code  the status code
+     * @param bytes the body size
+     */
+    public void onResponse(@NonNull Call call, int code, long bytes) {
+        Stats typeStats = stats[call.type];
+        typeStats.requests.incrementAndGet();
+        typeStats.statusClasses.incrementAndGet(Math.min(Math.max(code / 100, 0), 5));
+        if (code == 304) {
+            typeStats.notModified.incrementAndGet();
+        }
+        typeStats.bytes.addAndGet(bytes);
+        typeStats.sizeBytes.record(bytes);
+        typeStats.totalMillis.record(call.elapsedMillis());
+    }
+
+    /**
+     * Internal use. Records a failed request.
+     */
+    public void onFailure(@NonNull Call call) {
+        Stats typeStats = stats[call.type];
+        typeStats.requests.incrementAndGet();
+        typeStats.failures.incrementAndGet();
+        typeStats.totalMillis.record(call.elapsedMillis());
+    }
+
+    /**
+     * Internal use. Records a request cancelled by the map before it completed.
+     */
+    public void onCancel(@NonNull Call call) {
+        stats[call.type].cancelled.incrementAndGet();
+    }
+
+    /**
+     * Internal use. Records a decompressed body.
+     *
+     * @param compressed   the size before decompression
+     * @param decompressed the size after decompression
+     * @param micros       the time taken
+     */
+    public void onDecompressed(long compressed, long decompressed, long micros) {
+        compressedBytes.addAndGet(compressed);
+        decompressedBytes.addAndGet(decompressed);
+        decompressMicros.record(micros);
+    }
+
+    Dns wrapDns(@NonNull final Dns dns) {
+        return new Dns() {
+            @Override
+            public List<InetAddress> lookup(String hostname) throws UnknownHostException {
+                long start = System.nanoTime();
+                try {
+                    return dns.lookup(hostname);
+                } finally {
+                    dnsMillis.record(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+                }
+            }
+        };
+    }
+
+    Interceptor applicationInterceptor() {
+        return new Interceptor() {
+            @Override
+            public Response intercept(Chain chain) throws IOException {
+                Call call = callOf(chain);
+                if (call != null) {
+                    call.callStarted = System.nanoTime();
+                }
+
+                Response response = chain.proceed(chain.request());
+                if (call != null && response.cacheResponse() != null
+                    && (response.networkResponse() == null || response.networkResponse().code() == 304)) {
+                    stats[call.type].cacheHits.incrementAndGet();
+                }
+                return response;
+            }
+        };
+    }
+
+    Interceptor networkInterceptor() {
+        return new Interceptor() {
+            @Override
+            public Response intercept(Chain chain) throws IOException {
+                Call call = callOf(chain);
+                long start = System.nanoTime();
+                if (call != null && call.callStarted != 0) {
+                    // Only the first network request of a call, redirects reuse the connection setup
+                    stats[call.type].connectMillis.record(TimeUnit.NANOSECONDS.toMillis(start - call.callStarted));
+                    call.callStarted = 0;
+                }
+
+                Response response = chain.proceed(chain.request());
+                stats[call != null ? call.type : TYPE_OTHER].timeToFirstByteMillis.record(
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+                return response;
+            }
+        };
+    }
+
+    @Nullable
+    private static Call callOf(Interceptor.Chain chain) {
+        Object tag = chain.request().tag();
+        return tag instanceof Call ? (Call) tag : null;
+    }
+
+    /**
+     * Internal use. The timing of a single request.
+     */
+    public static final class Call {
+        private final int type;
+        private final long created = System.nanoTime();
+        private volatile long callStarted;
+
+        private Call(int type) {
+            this.type = type;
+        }
+
+        long elapsedMillis() {
+            return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - created);
+        }
+    }
+
+    /**
+     * Statistics of a resource type.
+     */
+    public static final class Stats {
+        private final AtomicLong requests = new AtomicLong();
+        private final AtomicLong notModified = new AtomicLong();
+        private final AtomicLong cacheHits = new AtomicLong();
+        private final AtomicLong failures = new AtomicLong();
+        private final AtomicLong cancelled = new AtomicLong();
+        private final AtomicLong bytes = new AtomicLong();
+        private final AtomicLongArray statusClasses = new AtomicLongArray(6);
+        private final Histogram connectMillis = new Histogram();
+        private final Histogram timeToFirstByteMillis = new Histogram();
+        private final Histogram totalMillis = new Histogram();
+        private final Histogram sizeBytes = new Histogram();
+
+        private Stats() {
+        }
+
+        /**
+         * @return the number of completed requests, including failures
+         */
+        public long getRequestCount() {
+            return requests.get();
+        }
+
+        /**
+         * @param statusClass the first digit of the status code, 1 to 5
+         * @return the number of responses with a status code in the class
+         */
+        public long getStatusCount(int statusClass) {
+            return statusClasses.get(statusClass);
+        }
+
+        /**
+         * @return the number of 304 responses to revalidations
+         */
+        public long getNotModifiedCount() {
+            return notModified.get();
+        }
+
+        /**
+         * @return the number of responses served by an HTTP cache configured on the engine
+         */
+        public long getCacheHitCount() {
+            return cacheHits.get();
+        }
+
+        /**
+         * @return the number of requests that failed without a response
+         */
+        public long getFailureCount() {
+            return failures.get();
+        }
+
+        /**
+         * @return the number of requests cancelled before completing
+         */
+        public long getCancelledCount() {
+            return cancelled.get();
+        }
+
+        /**
+         * @return the total size of the response bodies
+         */
+        public long getBytes() {
+            return bytes.get();
+        }
+
+        public Histogram getConnectMillis() {
+            return connectMillis;
+        }
+
+        public Histogram getTimeToFirstByteMillis() {
+            return timeToFirstByteMillis;
+        }
+
+        public Histogram getTotalMillis() {
+            return totalMillis;
+        }
+
+        public Histogram getSizeBytes() {
+            return sizeBytes;
+        }
+
+        private void reset() {
+            requests.set(0);
+            notModified.set(0);
+            cacheHits.set(0);
+            failures.set(0);
+            cancelled.set(0);
+            bytes.set(0);
+            for (int i = 0; i < statusClasses.length(); i++) {
+                statusClasses.set(i, 0);
+            }
+            connectMillis.reset();
+            timeToFirstByteMillis.reset();
+            totalMillis.reset();
+            sizeBytes.reset();
+        }
+    }
+
+    /**
+     * A lock-free histogram of non-negative values. Bucket {@code i} holds the values of bit length
+     * {@code i}, so percentiles are accurate to a factor of two.
+     */
+    public static final class Histogram {
+        private static final int BUCKET_COUNT = 64;
+
+        private final AtomicLongArray buckets = new AtomicLongArray(BUCKET_COUNT);
+        private final AtomicLong count = new AtomicLong();
+        private final AtomicLong sum = new AtomicLong();
+
+        Histogram() {
+        }
+
+        void record(long value) {
+            value = Math.max(0, value);
+            buckets.incrementAndGet(BUCKET_COUNT - Long.numberOfLeadingZeros(value));
+            count.incrementAndGet();
+            sum.addAndGet(value);
+        }
+
+        public long getCount() {
+            return count.get();
+        }
+
+        public double getMean() {
+            long n = count.get();
+            return n == 0 ? 0 : (double) sum.get() / n;
+        }
+
+        /**
+         * @param percentile the percentile, between 0 and 100
+         * @return an upper bound of the percentile, accurate to a factor of two
+         */
+        public long getPercentile(double percentile) {
+            long n = count.get();
+            if (n == 0) {
+                return 0;
+            }
+
+            long rank = (long) Math.ceil(n * Math.min(Math.max(percentile, 0), 100) / 100);
+            long seen = 0;
+            for (int i = 0; i < BUCKET_COUNT; i++) {
+                seen += buckets.get(i);
+                if (seen >= rank && seen > 0) {
+                    return i == 0 ? 0 : (1L << i) - 1;
+                }
+            }
+            return Long.MAX_VALUE;
+        }
+
+        void reset() {
+            for (int i = 0; i < BUCKET_COUNT; i++) {
+                buckets.set(i, 0);
+            }
+            count.set(0);
+            sum.set(0);
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.US, "n=%d mean=%.1f p50<=%d p90<=%d p99<=%d",
+                getCount(), getMean(), getPercentile(50), getPercentile(90), getPercentile(99));
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package com.mapbox.mapboxsdk.net;
+
+import android.support.annotation.NonNull;
+
+import com.mapbox.mapboxsdk.http.CacheKey;
+
+import java.io.File;
+import java.io.IOException;
+
+import okhttp3.Interceptor;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import timber.log.Timber;
+
+/**
+ * Records the requests made by maps, with their responses, to an archive that {@link HttpReplay}
+ * serves back without a network. Add it as an application interceptor, so bodies are stored as the
+ * map receives them:
+ * <pre>
+ * HttpRecorder recorder = new HttpRecorder(new File(context.getFilesDir(), "tiles.archive"));
+ * HttpEngine.setInstance(new HttpEngine.Builder().addInterceptor(recorder).build());
+ * </pre>
+ * <p>
+ * Responses are read completely before being passed on, which makes recording slower than normal
+ * loading. Don't measure performance while recording.
+ * </p>
+ */
+public final class HttpRecorder implements Interceptor {
+
+    private final HttpArchive.Writer writer;
+
+    /**
+     * Create a recorder, appending to the archive if it exists.
+     *
+     * @param archive the archive file
+     * @throws IOException when the archive can't be opened
+     */
+    public HttpRecorder(@NonNull File archive) throws IOException {
+        this.writer = new HttpArchive.Writer(archive);
+    }
+
+    @Override
+    public Response intercept(Chain chain) throws IOException {
+        Request request = chain.request();
+        Response response = chain.proceed(request);
+
+        ResponseBody body = response.body();
+        byte[] bytes = body.bytes();
+        try {
+            // Access tokens aren't written to the archive, replay matches normalized urls anyway
+            writer.write(new HttpArchive.Entry(request.method(), CacheKey.normalize(request.url()).toString(),
+                request.headers(), response.code(), response.message(), response.headers(), bytes));
+        } catch (IOException exception) {
+            // The request itself succeeded, only the recording is incomplete
+            Timber.e(exception, "Failed to record %s", request.url());
+        }
+
+        return response.newBuilder().body(ResponseBody.create(body.contentType(), bytes)).build();
+    }
+
+    /**
+     * Close the archive. Later responses are passed on without being recorded.
+     *
+     * @throws IOException when the archive can't be closed
+     */
+    public void close() throws IOException {
+        writer.close();
+    }
+}
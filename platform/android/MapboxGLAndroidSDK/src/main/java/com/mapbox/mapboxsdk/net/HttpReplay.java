@@ -0,0 +1,263 @@
+package com.mapbox.mapboxsdk.net;
+
+import android.support.annotation.NonNull;
+
+import com.mapbox.mapboxsdk.http.CacheKey;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import okhttp3.Interceptor;
+import okhttp3.MediaType;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import okio.Buffer;
+import okio.BufferedSource;
+import okio.ForwardingSource;
+import okio.Okio;
+import okio.Source;
+
+/**
+ * Serves the responses of an archive written by {@link HttpRecorder} instead of making network
+ * requests, so tile loading can be benchmarked deterministically without a network. Add it as an
+ * application interceptor:
+ * <pre>
+ * HttpReplay replay = new HttpReplay.Builder(archive)
+ *     .setLatency(80, TimeUnit.MILLISECONDS)
+ *     .setBandwidth(1024 * 1024)
+ *     .build();
+ * HttpEngine.setInstance(new HttpEngine.Builder().addInterceptor(replay).build());
+ * </pre>
+ * <p>
+ * Requests are matched by method and normalized url, so an archive can be replayed with another
+ * access token. When an url was recorded more than once, the last response is served. Responses
+ * to conditional requests (304 Not Modified) are skipped, they have no body to serve. Requests
+ * that weren't recorded get a 404 response, unless pass through is enabled.
+ * </p>
+ * <p>
+ * Latency delays the response headers of each request. Bandwidth is shared by all requests, like a
+ * single network link: bodies are delivered in chunks, each waiting for the chunks before it.
+ * </p>
+ */
+public final class HttpReplay implements Interceptor {
+
+    private static final int CHUNK_SIZE = 8 * 1024;
+    private static final int HTTP_NOT_MODIFIED = 304;
+    private static final MediaType TEXT = MediaType.parse("text/plain");
+
+    private final Map<String, HttpArchive.Entry> entries = new HashMap<>();
+    private final long latencyNanos;
+    private final long bytesPerSecond;
+    private final boolean passThrough;
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+
+    // The time the link finishes transferring the chunks reserved so far
+    private long linkFreeNanos;
+
+    private HttpReplay(List<HttpArchive.Entry> recorded, long latencyNanos, long bytesPerSecond,
+                       boolean passThrough) {
+        for (HttpArchive.Entry entry : recorded) {
+            if (entry.code == HTTP_NOT_MODIFIED) {
+                continue;
+            }
+            entries.put(key(entry.method, CacheKey.normalize(entry.url)), entry);
+        }
+        this.latencyNanos = latencyNanos;
+        this.bytesPerSecond = bytesPerSecond;
+        this.passThrough = passThrough;
+    }
+
+    @Override
+    public Response intercept(Chain chain) throws IOException {
+        Request request = chain.request();
+        HttpArchive.Entry entry = entries.get(key(request.method(), CacheKey.normalize(request.url()).toString()));
+        if (entry == null) {
+            missCount.incrementAndGet();
+            if (passThrough) {
+                return chain.proceed(request);
+            }
+            return new Response.Builder()
+                .request(request)
+                .protocol(Protocol.HTTP_1_1)
+                .code(404)
+                .message("Not recorded")
+                .body(ResponseBody.create(TEXT, "Not recorded"))
+                .build();
+        }
+
+        hitCount.incrementAndGet();
+        sleep(latencyNanos);
+
+        String contentType = entry.responseHeaders.get("Content-Type");
+        return new Response.Builder()
+            .request(request)
+            .protocol(Protocol.HTTP_1_1)
+            .code(entry.code)
+            .message(entry.message)
+            .headers(entry.responseHeaders)
+            .body(new ReplayBody(contentType != null ? MediaType.parse(contentType) : null, entry.body))
+            .build();
+    }
+
+    /**
+     * @return the number of requests served from the archive
+     */
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+    /**
+     * @return the number of requests that weren't recorded
+     */
+    public long getMissCount() {
+        return missCount.get();
+    }
+
+    /**
+     * Reserve the link for a chunk and wait until it has been transferred.
+     */
+    private void transfer(long byteCount) throws InterruptedIOException {
+        if (bytesPerSecond <= 0) {
+            return;
+        }
+
+        long done;
+        synchronized (this) {
+            long start = Math.max(System.nanoTime(), linkFreeNanos);
+            linkFreeNanos = start + byteCount * TimeUnit.SECONDS.toNanos(1) / bytesPerSecond;
+            done = linkFreeNanos;
+        }
+        sleep(done - System.nanoTime());
+    }
+
+    private static void sleep(long nanos) throws InterruptedIOException {
+        if (nanos <= 0) {
+            return;
+        }
+        try {
+            TimeUnit.NANOSECONDS.sleep(nanos);
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while replaying");
+        }
+    }
+
+    private static String key(String method, String url) {
+        return method + ' ' + url;
+    }
+
+    private class ReplayBody extends ResponseBody {
+        private final MediaType contentType;
+        private final byte[] body;
+        private BufferedSource source;
+
+        ReplayBody(MediaType contentType, byte[] body) {
+            this.contentType = contentType;
+            this.body = body;
+        }
+
+        @Override
+        public MediaType contentType() {
+            return contentType;
+        }
+
+        @Override
+        public long contentLength() {
+            return body.length;
+        }
+
+        @Override
+        public BufferedSource source() {
+            if (source == null) {
+                source = Okio.buffer(new ThrottledSource(new Buffer().write(body)));
+            }
+            return source;
+        }
+    }
+
+    private class ThrottledSource extends ForwardingSource {
+
+        ThrottledSource(Source delegate) {
+            super(delegate);
+        }
+
+        @Override
+        public long read(Buffer sink, long byteCount) throws IOException {
+            long read = super.read(sink, Math.min(byteCount, CHUNK_SIZE));
+            if (read > 0) {
+                transfer(read);
+            }
+            return read;
+        }
+    }
+
+    /**
+     * Builder for {@link HttpReplay}.
+     */
+    public static class Builder {
+
+        private final File archive;
+        private long latencyNanos;
+        private long bytesPerSecond;
+        private boolean passThrough;
+
+        /**
+         * @param archive an archive written by {@link HttpRecorder}
+         */
+        public Builder(@NonNull File archive) {
+            this.archive = archive;
+        }
+
+        /**
+         * @param latency the delay before the response headers of each request, defaults to none
+         * @param unit    the unit of the latency
+         * @return this builder
+         */
+        public Builder setLatency(long latency, @NonNull TimeUnit unit) {
+            if (latency < 0) {
+                throw new IllegalArgumentException("latency < 0: " + latency);
+            }
+            this.latencyNanos = unit.toNanos(latency);
+            return this;
+        }
+
+        /**
+         * @param bytesPerSecond the bandwidth shared by all requests, 0 for unlimited, the default
+         * @return this builder
+         */
+        public Builder setBandwidth(long bytesPerSecond) {
+            if (bytesPerSecond < 0) {
+                throw new IllegalArgumentException("bytesPerSecond < 0: " + bytesPerSecond);
+            }
+            this.bytesPerSecond = bytesPerSecond;
+            return this;
+        }
+
+        /**
+         * @param passThrough true to make network requests for urls that weren't recorded, defaults
+         *                    to false
+         * @return this builder
+         */
+        public Builder setPassThrough(boolean passThrough) {
+            this.passThrough = passThrough;
+            return this;
+        }
+
+        /**
+         * @return the replay interceptor
+         * @throws IOException when the archive can't be read
+         */
+        public HttpReplay build() throws IOException {
+            return new HttpReplay(HttpArchive.read(archive), latencyNanos, bytesPerSecond, passThrough);
+        }
+    }
+}
@@ -13,6 +13,7 @@ import com.mapbox.mapboxsdk.MapboxAccountManager;
 import com.mapbox.mapboxsdk.constants.MapboxConstants;
 
 import java.io.File;
+import java.util.concurrent.TimeUnit;
 
 /**
  * The offline manager is the main entry point for offline-related functionality.
@@ -31,6 +32,14 @@ public class OfflineManager {
     // Default database name
     private final static String DATABASE_NAME = "mbgl-offline.db";
 
+    // Resource kinds, as in mbgl::Resource::Kind
+    public static final int RESOURCE_KIND_STYLE = 1;
+    public static final int RESOURCE_KIND_SOURCE = 2;
+    public static final int RESOURCE_KIND_TILE = 3;
+    public static final int RESOURCE_KIND_GLYPHS = 4;
+    public static final int RESOURCE_KIND_SPRITE_IMAGE = 5;
+    public static final int RESOURCE_KIND_SPRITE_JSON = 6;
+
     /*
      * The maximumCacheSize parameter is a limit applied to non-offline resources only,
      * i.e. resources added to the database for the "ambient use" caching functionality.
@@ -305,6 +314,24 @@ public class OfflineManager {
         setOfflineMapboxTileCountLimit(mDefaultFileSourcePtr, limit);
     }
 
+    /**
+     * Set how long after expiring a cached resource is still shown while it is revalidated in
+     * the background. Resources that expired longer ago are only shown once the server confirms
+     * them, or when the server can't be reached. Styles and sources default to one day, tiles to
+     * a week and glyphs and sprites to thirty days.
+     *
+     * @param resourceKind      one of the RESOURCE_KIND constants
+     * @param maximumStaleness  the staleness, or a negative value to always show expired resources
+     * @param unit              the unit of the staleness
+     */
+    public void setMaximumStaleness(int resourceKind, long maximumStaleness, @NonNull TimeUnit unit) {
+        if (resourceKind < RESOURCE_KIND_STYLE || resourceKind > RESOURCE_KIND_SPRITE_JSON) {
+            throw new IllegalArgumentException("Unknown resource kind: " + resourceKind);
+        }
+        setMaximumStaleness(mDefaultFileSourcePtr, resourceKind,
+                maximumStaleness < 0 ? -1 : unit.toSeconds(maximumStaleness));
+    }
+
 
     /*
      * Native methods
@@ -327,4 +354,7 @@ public class OfflineManager {
     private native void setOfflineMapboxTileCountLimit(
             long defaultFileSourcePtr, long limit);
 
+    private native void setMaximumStaleness(
+            long defaultFileSourcePtr, int resourceKind, long seconds);
+
 }
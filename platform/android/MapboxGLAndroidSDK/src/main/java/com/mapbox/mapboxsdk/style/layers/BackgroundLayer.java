@@ -16,6 +16,13 @@ import static com.mapbox.mapboxsdk.utils.ColorUtils.*;
 @UiThread
 public class BackgroundLayer extends Layer {
 
+    private static final String[] PROPERTY_NAMES = {
+        "visibility",
+        "background-color",
+        "background-pattern",
+        "background-opacity",
+    };
+
     /**
      * Creates a BackgroundLayer.
      *
@@ -95,12 +102,23 @@ public class BackgroundLayer extends Layer {
         return (PropertyValue<Float>) new PropertyValue(nativeGetBackgroundOpacity());
     }
  
+    /**
+     * Get all properties of this layer in a single native call.
+     *
+     * @return the layer properties
+     */
+    @Override
+    public LayerProperties getProperties() {
+        return new LayerProperties(PROPERTY_NAMES, nativeGetProperties());
+    }
+
     private native Object nativeGetBackgroundColor();
 
     private native Object nativeGetBackgroundPattern();
 
     private native Object nativeGetBackgroundOpacity();
 
+    private native Object[] nativeGetProperties();
 
     @Override
     protected native void finalize() throws Throwable;
@@ -16,6 +16,20 @@ import static com.mapbox.mapboxsdk.utils.ColorUtils.*;
 @UiThread
 public class CircleLayer extends Layer {
 
+    private static final String[] PROPERTY_NAMES = {
+        "visibility",
+        "circle-radius",
+        "circle-color",
+        "circle-blur",
+        "circle-opacity",
+        "circle-translate",
+        "circle-translate-anchor",
+        "circle-pitch-scale",
+        "circle-stroke-width",
+        "circle-stroke-color",
+        "circle-stroke-opacity",
+    };
+
     /**
      * Creates a CircleLayer.
      *
@@ -242,6 +256,16 @@ public class CircleLayer extends Layer {
         return (PropertyValue<Float>) new PropertyValue(nativeGetCircleStrokeOpacity());
     }
  
+    /**
+     * Get all properties of this layer in a single native call.
+     *
+     * @return the layer properties
+     */
+    @Override
+    public LayerProperties getProperties() {
+        return new LayerProperties(PROPERTY_NAMES, nativeGetProperties());
+    }
+
     private native Object nativeGetCircleRadius();
 
     private native Object nativeGetCircleColor();
@@ -262,6 +286,7 @@ public class CircleLayer extends Layer {
 
     private native Object nativeGetCircleStrokeOpacity();
 
+    private native Object[] nativeGetProperties();
 
     @Override
     protected native void finalize() throws Throwable;
@@ -16,6 +16,17 @@ import static com.mapbox.mapboxsdk.utils.ColorUtils.*;
 @UiThread
 public class FillLayer extends Layer {
 
+    private static final String[] PROPERTY_NAMES = {
+        "visibility",
+        "fill-antialias",
+        "fill-opacity",
+        "fill-color",
+        "fill-outline-color",
+        "fill-translate",
+        "fill-translate-anchor",
+        "fill-pattern",
+    };
+
     /**
      * Creates a FillLayer.
      *
@@ -212,6 +223,16 @@ public class FillLayer extends Layer {
         return (PropertyValue<String>) new PropertyValue(nativeGetFillPattern());
     }
  
+    /**
+     * Get all properties of this layer in a single native call.
+     *
+     * @return the layer properties
+     */
+    @Override
+    public LayerProperties getProperties() {
+        return new LayerProperties(PROPERTY_NAMES, nativeGetProperties());
+    }
+
     private native Object nativeGetFillAntialias();
 
     private native Object nativeGetFillOpacity();
@@ -226,6 +247,7 @@ public class FillLayer extends Layer {
 
     private native Object nativeGetFillPattern();
 
+    private native Object[] nativeGetProperties();
 
     @Override
     protected native void finalize() throws Throwable;
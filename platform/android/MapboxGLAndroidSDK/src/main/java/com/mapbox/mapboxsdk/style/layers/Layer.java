@@ -40,6 +40,16 @@ public abstract class Layer {
         return new PropertyValue<>(nativeGetVisibility());
     }
 
+    /**
+     * Get all properties of this layer. Subclasses return all of their layout and paint
+     * properties, read in a single native call.
+     *
+     * @return the layer properties
+     */
+    public LayerProperties getProperties() {
+        return new LayerProperties(new String[] {"visibility"}, new Object[] {nativeGetVisibility()});
+    }
+
     public float getMinZoom() {
         return nativeGetMinZoom();
     }
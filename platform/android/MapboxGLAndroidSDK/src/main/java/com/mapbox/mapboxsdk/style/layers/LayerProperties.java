@@ -0,0 +1,93 @@
+package com.mapbox.mapboxsdk.style.layers;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+/**
+ * A snapshot of the layout and paint properties of a {@link Layer}, as returned by {@link Layer#getProperties()}.
+ * <p>
+ * All values are read in a single native call and kept as raw values. They are only wrapped
+ * in a {@link PropertyValue} when accessed.
+ * </p>
+ */
+public class LayerProperties {
+
+    private final String[] names;
+    private final Object[] values;
+    private final PropertyValue<?>[] wrapped;
+
+    /* package */ LayerProperties(@NonNull String[] names, @NonNull Object[] values) {
+        if (names.length != values.length) {
+            throw new IllegalArgumentException("Expected " + names.length + " property values, got " + values.length);
+        }
+        this.names = names;
+        this.values = values;
+        this.wrapped = new PropertyValue<?>[values.length];
+    }
+
+    /**
+     * @return the number of properties
+     */
+    public int size() {
+        return names.length;
+    }
+
+    /**
+     * Get the name of a property
+     *
+     * @param index the property index
+     * @return the property name as defined by the style specification, eg. {@code line-color}
+     */
+    public String getName(int index) {
+        return names[index];
+    }
+
+    /**
+     * Get the value of a property
+     *
+     * @param index the property index
+     * @return property wrapper value
+     */
+    public PropertyValue<?> get(int index) {
+        if (wrapped[index] == null) {
+            wrapped[index] = new PropertyValue<>(values[index]);
+        }
+        return wrapped[index];
+    }
+
+    /**
+     * Get the value of a property by name
+     *
+     * @param name the property name as defined by the style specification, eg. {@code line-color}
+     * @param <T>  the property value type
+     * @return property wrapper value or null if the layer has no such property
+     */
+    @Nullable
+    @SuppressWarnings("unchecked")
+    public <T> PropertyValue<T> get(String name) {
+        int index = indexOf(name);
+        return index >= 0 ? (PropertyValue<T>) get(index) : null;
+    }
+
+    /**
+     * @param name the property name as defined by the style specification
+     * @return true if the layer has the property
+     */
+    public boolean has(String name) {
+        return indexOf(name) >= 0;
+    }
+
+    private int indexOf(String name) {
+        for (int i = 0; i < names.length; i++) {
+            if (names[i].equals(name)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s (%d properties)", getClass().getSimpleName(), names.length);
+    }
+}
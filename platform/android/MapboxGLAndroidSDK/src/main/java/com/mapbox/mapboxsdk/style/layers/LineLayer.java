@@ -16,6 +16,24 @@ import static com.mapbox.mapboxsdk.utils.ColorUtils.*;
 @UiThread
 public class LineLayer extends Layer {
 
+    private static final String[] PROPERTY_NAMES = {
+        "visibility",
+        "line-cap",
+        "line-join",
+        "line-miter-limit",
+        "line-round-limit",
+        "line-opacity",
+        "line-color",
+        "line-translate",
+        "line-translate-anchor",
+        "line-width",
+        "line-gap-width",
+        "line-offset",
+        "line-blur",
+        "line-dasharray",
+        "line-pattern",
+    };
+
     /**
      * Creates a LineLayer.
      *
@@ -266,6 +284,16 @@ public class LineLayer extends Layer {
         return (PropertyValue<String>) new PropertyValue(nativeGetLinePattern());
     }
  
+    /**
+     * Get all properties of this layer in a single native call.
+     *
+     * @return the layer properties
+     */
+    @Override
+    public LayerProperties getProperties() {
+        return new LayerProperties(PROPERTY_NAMES, nativeGetProperties());
+    }
+
     private native Object nativeGetLineCap();
 
     private native Object nativeGetLineJoin();
@@ -294,6 +322,7 @@ public class LineLayer extends Layer {
 
     private native Object nativeGetLinePattern();
 
+    private native Object[] nativeGetProperties();
 
     @Override
     protected native void finalize() throws Throwable;
@@ -16,6 +16,17 @@ import static com.mapbox.mapboxsdk.utils.ColorUtils.*;
 @UiThread
 public class RasterLayer extends Layer {
 
+    private static final String[] PROPERTY_NAMES = {
+        "visibility",
+        "raster-opacity",
+        "raster-hue-rotate",
+        "raster-brightness-min",
+        "raster-brightness-max",
+        "raster-saturation",
+        "raster-contrast",
+        "raster-fade-duration",
+    };
+
     /**
      * Creates a RasterLayer.
      *
@@ -140,6 +151,16 @@ public class RasterLayer extends Layer {
         return (PropertyValue<Float>) new PropertyValue(nativeGetRasterFadeDuration());
     }
  
+    /**
+     * Get all properties of this layer in a single native call.
+     *
+     * @return the layer properties
+     */
+    @Override
+    public LayerProperties getProperties() {
+        return new LayerProperties(PROPERTY_NAMES, nativeGetProperties());
+    }
+
     private native Object nativeGetRasterOpacity();
 
     private native Object nativeGetRasterHueRotate();
@@ -154,6 +175,7 @@ public class RasterLayer extends Layer {
 
     private native Object nativeGetRasterFadeDuration();
 
+    private native Object[] nativeGetProperties();
 
     @Override
     protected native void finalize() throws Throwable;
@@ -16,6 +16,58 @@ import static com.mapbox.mapboxsdk.utils.ColorUtils.*;
 @UiThread
 public class SymbolLayer extends Layer {
 
+    private static final String[] PROPERTY_NAMES = {
+        "visibility",
+        "symbol-placement",
+        "symbol-spacing",
+        "symbol-avoid-edges",
+        "icon-allow-overlap",
+        "icon-ignore-placement",
+        "icon-optional",
+        "icon-rotation-alignment",
+        "icon-size",
+        "icon-text-fit",
+        "icon-text-fit-padding",
+        "icon-image",
+        "icon-rotate",
+        "icon-padding",
+        "icon-keep-upright",
+        "icon-offset",
+        "text-pitch-alignment",
+        "text-rotation-alignment",
+        "text-field",
+        "text-font",
+        "text-size",
+        "text-max-width",
+        "text-line-height",
+        "text-letter-spacing",
+        "text-justify",
+        "text-anchor",
+        "text-max-angle",
+        "text-rotate",
+        "text-padding",
+        "text-keep-upright",
+        "text-transform",
+        "text-offset",
+        "text-allow-overlap",
+        "text-ignore-placement",
+        "text-optional",
+        "icon-opacity",
+        "icon-color",
+        "icon-halo-color",
+        "icon-halo-width",
+        "icon-halo-blur",
+        "icon-translate",
+        "icon-translate-anchor",
+        "text-opacity",
+        "text-color",
+        "text-halo-color",
+        "text-halo-width",
+        "text-halo-blur",
+        "text-translate",
+        "text-translate-anchor",
+    };
+
     /**
      * Creates a SymbolLayer.
      *
@@ -654,6 +706,16 @@ public class SymbolLayer extends Layer {
         return (PropertyValue<String>) new PropertyValue(nativeGetTextTranslateAnchor());
     }
  
+    /**
+     * Get all properties of this layer in a single native call.
+     *
+     * @return the layer properties
+     */
+    @Override
+    public LayerProperties getProperties() {
+        return new LayerProperties(PROPERTY_NAMES, nativeGetProperties());
+    }
+
     private native Object nativeGetSymbolPlacement();
 
     private native Object nativeGetSymbolSpacing();
@@ -750,6 +812,7 @@ public class SymbolLayer extends Layer {
 
     private native Object nativeGetTextTranslateAnchor();
 
+    private native Object[] nativeGetProperties();
 
     @Override
     protected native void finalize() throws Throwable;
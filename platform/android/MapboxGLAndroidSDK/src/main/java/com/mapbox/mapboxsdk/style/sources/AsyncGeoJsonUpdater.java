@@ -0,0 +1,221 @@
+package com.mapbox.mapboxsdk.style.sources;
+
+import android.annotation.TargetApi;
+import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.support.annotation.Nullable;
+import android.view.Choreographer;
+
+import com.mapbox.services.commons.geojson.FeatureCollection;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import timber.log.Timber;
+
+/**
+ * Applies feature collections to a {@link GeoJsonSource} off the main thread.
+ * <p>
+ * Features are encoded on a background thread shared by all sources and applied on the main
+ * thread at the start of the next frame. Only the latest encoded update is applied: updates that
+ * are superseded by a newer encoded update or cancelled before they are applied are dropped and
+ * counted as coalesced.
+ * </p>
+ */
+final class AsyncGeoJsonUpdater {
+
+    private static final ExecutorService ENCODER = Executors.newSingleThreadExecutor(new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "GeoJsonSourceEncoder");
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
+
+    private final GeoJsonSource source;
+    private final Executor encoder;
+    private final Executor mainThread;
+
+    // Bumped for every cancellation, updates submitted before it are dropped
+    private final AtomicInteger cancellations = new AtomicInteger();
+    private final AtomicReference<Update> pending = new AtomicReference<>();
+    private final AtomicReference<Update> encoded = new AtomicReference<>();
+    private final AtomicBoolean encodeScheduled = new AtomicBoolean();
+    private final AtomicBoolean applyScheduled = new AtomicBoolean();
+
+    // Only accessed on the main thread
+    private long appliedCount;
+    private long coalescedCount;
+
+    private volatile GeoJsonSource.UpdateMetricsListener metricsListener;
+
+    AsyncGeoJsonUpdater(GeoJsonSource source) {
+        this(source, ENCODER, new Executor() {
+            private final Handler handler = new Handler(Looper.getMainLooper());
+
+            @Override
+            public void execute(Runnable runnable) {
+                handler.post(runnable);
+            }
+        });
+    }
+
+    AsyncGeoJsonUpdater(GeoJsonSource source, Executor encoder, Executor mainThread) {
+        this.source = source;
+        this.encoder = encoder;
+        this.mainThread = mainThread;
+    }
+
+    void setMetricsListener(@Nullable GeoJsonSource.UpdateMetricsListener listener) {
+        this.metricsListener = listener;
+    }
+
+    void submit(FeatureCollection features, @Nullable GeoJsonSource.UpdateCallback callback) {
+        Update update = new Update(cancellations.get(), features, callback);
+        drop(pending.getAndSet(update));
+        if (encodeScheduled.compareAndSet(false, true)) {
+            encoder.execute(encodeTask);
+        }
+    }
+
+    /**
+     * Drops all updates that have not been applied yet.
+     */
+    void cancel() {
+        cancellations.incrementAndGet();
+        drop(pending.getAndSet(null));
+        drop(encoded.getAndSet(null));
+    }
+
+    private final Runnable encodeTask = new Runnable() {
+        @Override
+        public void run() {
+            encodeScheduled.set(false);
+            final Update update = pending.getAndSet(null);
+            if (update == null) {
+                return;
+            }
+
+            try {
+                update.buffer = FeatureBuffer.fromFeatures(update.features.getFeatures());
+            } catch (final RuntimeException exception) {
+                Timber.e(exception, "Failed to encode features");
+                mainThread.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (update.callback != null) {
+                            update.callback.onError(exception.getMessage());
+                        }
+                    }
+                });
+                return;
+            }
+            update.features = null;
+
+            // Replaces an older encoded update that has not been applied yet
+            drop(encoded.getAndSet(update));
+            if (applyScheduled.compareAndSet(false, true)) {
+                mainThread.execute(scheduleApply);
+            }
+        }
+    };
+
+    private final Runnable scheduleApply = new Runnable() {
+        @Override
+        public void run() {
+            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN) {
+                postFrameCallback();
+            } else {
+                apply();
+            }
+        }
+    };
+
+    @TargetApi(Build.VERSION_CODES.JELLY_BEAN)
+    private void postFrameCallback() {
+        Choreographer.getInstance().postFrameCallback(new Choreographer.FrameCallback() {
+            @Override
+            public void doFrame(long frameTimeNanos) {
+                apply();
+            }
+        });
+    }
+
+    private void apply() {
+        applyScheduled.set(false);
+        Update update = encoded.getAndSet(null);
+        if (update == null) {
+            return;
+        }
+
+        // Updates still being submitted don't hold back the newest encoded one
+        if (update.cancellation != cancellations.get()) {
+            drop(update);
+            return;
+        }
+
+        try {
+            source.setFeatureBuffer(update.buffer);
+        } catch (RuntimeException exception) {
+            Timber.e(exception, "Failed to apply features");
+            if (update.callback != null) {
+                update.callback.onError(exception.getMessage());
+            }
+            return;
+        }
+
+        appliedCount++;
+        if (update.callback != null) {
+            update.callback.onApplied();
+        }
+        notifyMetrics(SystemClock.elapsedRealtime() - update.timestamp);
+    }
+
+    private void drop(@Nullable final Update update) {
+        if (update == null) {
+            return;
+        }
+
+        update.features = null;
+        update.buffer = null;
+        mainThread.execute(new Runnable() {
+            @Override
+            public void run() {
+                coalescedCount++;
+                if (update.callback != null) {
+                    update.callback.onDropped();
+                }
+                notifyMetrics(-1);
+            }
+        });
+    }
+
+    private void notifyMetrics(long latency) {
+        GeoJsonSource.UpdateMetricsListener listener = metricsListener;
+        if (listener != null) {
+            listener.onUpdateMetrics(appliedCount, coalescedCount, latency);
+        }
+    }
+
+    private static class Update {
+        final int cancellation;
+        final GeoJsonSource.UpdateCallback callback;
+        final long timestamp = SystemClock.elapsedRealtime();
+        volatile FeatureCollection features;
+        volatile FeatureBuffer buffer;
+
+        Update(int cancellation, FeatureCollection features, GeoJsonSource.UpdateCallback callback) {
+            this.cancellation = cancellation;
+            this.features = features;
+            this.callback = callback;
+        }
+    }
+}
@@ -0,0 +1,207 @@
+package com.mapbox.mapboxsdk.style.sources;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.io.IOException;
+import java.lang.ref.WeakReference;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import timber.log.Timber;
+
+/**
+ * Internal use.
+ * <p>
+ * Runs the {@link TileProvider}s of {@link CustomTileSource}s for tile requests made by the map. Tile
+ * urls have the form {@code custom://<provider>/<z>/<x>/<y>}.
+ * </p>
+ * <p>
+ * Providers are only weakly referenced here, the {@link CustomTileSource} holds on to its provider
+ * and the map holds on to the source while it is added. A provider, and whatever it references, can
+ * be collected once its source is removed from the map and no longer used.
+ * </p>
+ * <p>
+ * Providers run on a bounded pool of worker threads. Pending requests are ordered newest first, as
+ * older requests are the most likely to have left the viewport, and are removed from the queue
+ * when the map cancels them.
+ * </p>
+ */
+public final class CustomTileDispatcher {
+
+    static final String SCHEME = "custom://";
+
+    private static final int WORKER_COUNT = Math.max(2, Math.min(4, Runtime.getRuntime().availableProcessors()));
+    private static final long KEEP_ALIVE_SECONDS = 30;
+
+    private static final Map<String, WeakReference<TileProvider>> providers = new ConcurrentHashMap<>();
+    private static final AtomicInteger providerIds = new AtomicInteger();
+    private static final AtomicLong requestSequence = new AtomicLong();
+
+    private static final ThreadPoolExecutor executor;
+
+    static {
+        executor = new ThreadPoolExecutor(WORKER_COUNT, WORKER_COUNT, KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+            new PriorityBlockingQueue<Runnable>(), new ThreadFactory() {
+                private final AtomicInteger count = new AtomicInteger();
+
+                @Override
+                public Thread newThread(Runnable runnable) {
+                    Thread thread = new Thread(runnable, "CustomTileProvider-" + count.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        executor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Receives the result of a tile request, on a worker thread.
+     */
+    public interface Callback {
+
+        /**
+         * @param data the tile, or null if the provider has no data for it
+         */
+        void onTile(@Nullable byte[] data);
+
+        void onError(IOException error);
+    }
+
+    /**
+     * A tile request that can be cancelled.
+     */
+    public interface Request {
+
+        void cancel();
+    }
+
+    private CustomTileDispatcher() {
+    }
+
+    /**
+     * @param url the resource url
+     * @return true if the url refers to a custom tile provider
+     */
+    public static boolean accepts(@NonNull String url) {
+        return url.startsWith(SCHEME);
+    }
+
+    /**
+     * Queues a tile request.
+     *
+     * @param url      the tile url
+     * @param callback the callback, not invoked after the request is cancelled
+     * @return the request
+     * @throws IOException when the url is malformed or refers to an unknown provider
+     */
+    public static Request request(@NonNull String url, @NonNull Callback callback) throws IOException {
+        String[] parts = url.substring(SCHEME.length()).split("[/?#]");
+        if (parts.length < 4) {
+            throw new IOException("Malformed custom tile url: " + url);
+        }
+
+        WeakReference<TileProvider> reference = providers.get(parts[0]);
+        TileProvider provider = reference != null ? reference.get() : null;
+        if (provider == null) {
+            throw new IOException("No tile provider for " + url);
+        }
+
+        try {
+            Task task = new Task(provider, Integer.parseInt(parts[1]), Integer.parseInt(parts[2]),
+                Integer.parseInt(parts[3]), callback);
+            executor.execute(task);
+            return task;
+        } catch (NumberFormatException exception) {
+            throw new IOException("Malformed custom tile url: " + url, exception);
+        }
+    }
+
+    /**
+     * @return the url template to use in a tile set
+     */
+    static String register(TileProvider provider) {
+        // Forget the providers that have been collected since
+        Iterator<WeakReference<TileProvider>> iterator = providers.values().iterator();
+        while (iterator.hasNext()) {
+            if (iterator.next().get() == null) {
+                iterator.remove();
+            }
+        }
+
+        String id = Integer.toString(providerIds.incrementAndGet());
+        providers.put(id, new WeakReference<>(provider));
+        return SCHEME + id + "/{z}/{x}/{y}";
+    }
+
+    static void unregister(String urlTemplate) {
+        providers.remove(urlTemplate.substring(SCHEME.length(), urlTemplate.indexOf('/', SCHEME.length())));
+    }
+
+    private static class Task implements Runnable, Comparable<Task>, Request {
+        private final TileProvider provider;
+        private final int z;
+        private final int x;
+        private final int y;
+        private final Callback callback;
+        private final long sequence = requestSequence.incrementAndGet();
+        private final AtomicBoolean cancelled = new AtomicBoolean();
+
+        Task(TileProvider provider, int z, int x, int y, Callback callback) {
+            this.provider = provider;
+            this.z = z;
+            this.x = x;
+            this.y = y;
+            this.callback = callback;
+        }
+
+        @Override
+        public void run() {
+            if (cancelled.get()) {
+                return;
+            }
+
+            byte[] data;
+            try {
+                data = provider.getTile(z, x, y);
+            } catch (IOException exception) {
+                if (!cancelled.get()) {
+                    callback.onError(exception);
+                }
+                return;
+            } catch (RuntimeException exception) {
+                Timber.e(exception, "Tile provider failed for %d/%d/%d", z, x, y);
+                if (!cancelled.get()) {
+                    callback.onError(new IOException(exception));
+                }
+                return;
+            }
+
+            if (!cancelled.get()) {
+                callback.onTile(data);
+            }
+        }
+
+        @Override
+        public void cancel() {
+            if (cancelled.compareAndSet(false, true)) {
+                // Frees the queue slot right away instead of when the task comes up
+                executor.remove(this);
+            }
+        }
+
+        @Override
+        public int compareTo(@NonNull Task other) {
+            // Newest first
+            return sequence > other.sequence ? -1 : sequence < other.sequence ? 1 : 0;
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package com.mapbox.mapboxsdk.style.sources;
+
+import android.support.annotation.NonNull;
+
+/**
+ * A vector source with tiles supplied by application code, for example tiles generated on the
+ * device or read from an encrypted store.
+ * <p>
+ * Tiles are requested from the {@link TileProvider} on a pool of worker threads and go through
+ * the same loading pipeline as tiles from the network, but are never written to the tile cache.
+ * Requests for tiles that leave the viewport before they are processed are dropped.
+ * </p>
+ * <pre>
+ * mapboxMap.addSource(new CustomTileSource("generated", new TileProvider() {
+ *     public byte[] getTile(int z, int x, int y) {
+ *         return encodeVectorTile(z, x, y);
+ *     }
+ * }));
+ * </pre>
+ */
+public class CustomTileSource extends VectorSource {
+
+    // The dispatcher only references the provider weakly
+    private final TileProvider provider;
+    private final String urlTemplate;
+
+    /**
+     * Create a custom tile source for zoom levels 0 to 22
+     *
+     * @param id       the source id
+     * @param provider the tile provider
+     */
+    public CustomTileSource(String id, @NonNull TileProvider provider) {
+        this(id, provider, 0, 22);
+    }
+
+    /**
+     * Create a custom tile source. Tiles above the maximum zoom level are overscaled from the tiles
+     * at the maximum zoom level.
+     *
+     * @param id       the source id
+     * @param provider the tile provider
+     * @param minZoom  the minimum zoom level for which tiles are requested
+     * @param maxZoom  the maximum zoom level for which tiles are requested
+     */
+    public CustomTileSource(String id, @NonNull TileProvider provider, int minZoom, int maxZoom) {
+        this(id, provider, CustomTileDispatcher.register(provider), minZoom, maxZoom);
+    }
+
+    private CustomTileSource(String id, TileProvider provider, String urlTemplate, int minZoom, int maxZoom) {
+        super(id, createTileSet(urlTemplate, minZoom, maxZoom));
+        this.provider = provider;
+        this.urlTemplate = urlTemplate;
+    }
+
+    private static TileSet createTileSet(String urlTemplate, int minZoom, int maxZoom) {
+        TileSet tileSet = new TileSet("2.1.0", urlTemplate);
+        tileSet.setMinZoom(minZoom);
+        tileSet.setMaxZoom(maxZoom);
+        return tileSet;
+    }
+
+    /**
+     * @return the tile provider
+     */
+    @NonNull
+    public TileProvider getProvider() {
+        return provider;
+    }
+
+    /**
+     * Unregisters the tile provider right away. Tiles that are not loaded yet can't be loaded
+     * afterwards. This is optional: the provider is released anyway once the source has been
+     * removed from the map and is no longer referenced.
+     */
+    public void release() {
+        CustomTileDispatcher.unregister(urlTemplate);
+    }
+}
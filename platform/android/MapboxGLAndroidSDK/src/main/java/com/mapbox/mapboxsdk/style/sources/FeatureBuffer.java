@@ -0,0 +1,661 @@
+package com.mapbox.mapboxsdk.style.sources;
+
+import android.support.annotation.Nullable;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.google.gson.JsonPrimitive;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.mapbox.services.commons.geojson.Feature;
+import com.mapbox.services.commons.geojson.Geometry;
+import com.mapbox.services.commons.geojson.GeometryCollection;
+import com.mapbox.services.commons.geojson.LineString;
+import com.mapbox.services.commons.geojson.MultiLineString;
+import com.mapbox.services.commons.geojson.MultiPoint;
+import com.mapbox.services.commons.geojson.MultiPolygon;
+import com.mapbox.services.commons.geojson.Point;
+import com.mapbox.services.commons.geojson.Polygon;
+import com.mapbox.services.commons.models.Position;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Packs features into a direct buffer and a string table that are handed to the native
+ * GeoJSON source without a JSON round trip. See feature_buffer.hpp for the other half.
+ * <p>
+ * Layout (native byte order), repeated for every feature or property patch:
+ * <pre>
+ * feature    := int id (string index or -1), geometry, properties
+ * patch      := int id (string index), properties
+ * properties := int count, (int key, value) * count
+ * geometry   := byte type, payload
+ * value      := byte type, payload
+ * </pre>
+ * Strings (ids, keys and string values) are de-duplicated and referenced by their index in
+ * the string table.
+ * </p>
+ */
+final class FeatureBuffer {
+
+    static final byte GEOMETRY_NULL = 0;
+    static final byte GEOMETRY_POINT = 1;
+    static final byte GEOMETRY_MULTI_POINT = 2;
+    static final byte GEOMETRY_LINE_STRING = 3;
+    static final byte GEOMETRY_MULTI_LINE_STRING = 4;
+    static final byte GEOMETRY_POLYGON = 5;
+    static final byte GEOMETRY_MULTI_POLYGON = 6;
+    static final byte GEOMETRY_COLLECTION = 7;
+
+    static final byte VALUE_NULL = 0;
+    static final byte VALUE_FALSE = 1;
+    static final byte VALUE_TRUE = 2;
+    static final byte VALUE_UINT = 3;
+    static final byte VALUE_INT = 4;
+    static final byte VALUE_DOUBLE = 5;
+    static final byte VALUE_STRING = 6;
+    static final byte VALUE_ARRAY = 7;
+    static final byte VALUE_OBJECT = 8;
+
+    private static final int MIN_CAPACITY = 1024;
+
+    private final JsonParser jsonParser = new JsonParser();
+    private ByteBuffer buffer;
+    private final List<String> strings = new ArrayList<>();
+    private final Map<String, Integer> stringIndices = new HashMap<>();
+    private int featureCount;
+
+    // Extent of the coordinates read by the last readFeature call
+    private double west;
+    private double south;
+    private double east;
+    private double north;
+
+    FeatureBuffer() {
+        this(MIN_CAPACITY);
+    }
+
+    FeatureBuffer(int capacity) {
+        buffer = allocate(Math.max(capacity, MIN_CAPACITY));
+    }
+
+    /**
+     * Creates a buffer sized for the given features and encodes them.
+     *
+     * @param features the features to encode
+     * @return the encoded features
+     */
+    static FeatureBuffer fromFeatures(List<Feature> features) {
+        // A point feature with a couple of properties takes roughly 64 bytes
+        FeatureBuffer buffer = new FeatureBuffer(features.size() * 64);
+        buffer.addFeatures(features);
+        return buffer;
+    }
+
+    void addFeatures(List<Feature> features) {
+        for (Feature feature : features) {
+            addFeature(feature);
+        }
+    }
+
+    void addFeature(Feature feature) {
+        String id = feature.getId();
+        putInt(id != null ? string(id) : -1);
+        putGeometry(feature.getGeometry());
+        putProperties(feature.getProperties());
+        featureCount++;
+    }
+
+    /**
+     * Adds a property patch instead of a feature: the feature id followed by the properties.
+     * Patches and features can't be mixed in one buffer.
+     *
+     * @param id         the feature id
+     * @param properties the properties to merge into the feature
+     */
+    void addProperties(String id, JsonObject properties) {
+        putInt(string(id));
+        putProperties(properties);
+        featureCount++;
+    }
+
+    /**
+     * Reads a GeoJSON feature object from a json stream and adds it. Coordinates are written to
+     * the buffer as they are read, only the properties of the feature are kept in memory.
+     *
+     * @param reader     the reader, positioned at the start of the feature object
+     * @param filter     optional filter, rejected features are not added
+     * @param properties optional names of the properties to keep, null keeps all properties
+     * @return true if the feature was added
+     * @throws IOException when reading fails or the feature is malformed
+     */
+    boolean readFeature(JsonReader reader, @Nullable GeoJsonStreamLoader.Filter filter,
+                        @Nullable Set<String> properties) throws IOException {
+        final int start = buffer.position();
+        String id = null;
+        JsonObject featureProperties = null;
+        boolean hasGeometry = false;
+        west = south = Double.MAX_VALUE;
+        east = north = -Double.MAX_VALUE;
+
+        // The id is only known once the object has been read, reserve space for it
+        putInt(-1);
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            if ("id".equals(name) && reader.peek() != JsonToken.NULL) {
+                id = reader.nextString();
+            } else if ("properties".equals(name) && reader.peek() == JsonToken.BEGIN_OBJECT) {
+                featureProperties = jsonParser.parse(reader).getAsJsonObject();
+            } else if ("geometry".equals(name) && !hasGeometry) {
+                readGeometry(reader);
+                hasGeometry = true;
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+
+        if (!hasGeometry) {
+            putByte(GEOMETRY_NULL);
+        }
+
+        if (filter != null && !filter.accept(id, featureProperties)) {
+            buffer.position(start);
+            return false;
+        }
+
+        if (id != null) {
+            buffer.putInt(start, string(id));
+        }
+
+        if (featureProperties != null && properties != null) {
+            JsonObject projected = new JsonObject();
+            for (String key : properties) {
+                JsonElement value = featureProperties.get(key);
+                if (value != null) {
+                    projected.add(key, value);
+                }
+            }
+            featureProperties = projected;
+        }
+        putProperties(featureProperties);
+        featureCount++;
+        return true;
+    }
+
+    /**
+     * @return the extent of the coordinates of the feature last read by
+     * {@link #readFeature(JsonReader, GeoJsonStreamLoader.Filter, Set)} as west, south, east and
+     * north, or null if it has no coordinates
+     */
+    @Nullable
+    double[] getFeatureBounds() {
+        return west <= east ? new double[] {west, south, east, north} : null;
+    }
+
+    /**
+     * Copies the features of another buffer to the end of this one, their strings are added to
+     * the string table of this buffer. Property patches can't be copied.
+     *
+     * @param other the features to copy
+     */
+    void appendFeatures(FeatureBuffer other) {
+        int[] indices = new int[other.strings.size()];
+        for (int i = 0; i < indices.length; i++) {
+            indices[i] = string(other.strings.get(i));
+        }
+
+        ByteBuffer features = other.buffer.duplicate();
+        features.flip();
+        ensureCapacity(features.remaining());
+        final int start = buffer.position();
+        buffer.put(features);
+
+        // Rewrite the string indices of the copy to the ones of this buffer
+        ByteBuffer copy = buffer.duplicate().order(buffer.order());
+        copy.limit(copy.position());
+        copy.position(start);
+        for (int i = 0; i < other.featureCount; i++) {
+            remapString(copy, indices);
+            skipGeometry(copy);
+            remapProperties(copy, indices);
+        }
+        featureCount += other.featureCount;
+    }
+
+    /**
+     * @return the encoded features, from position 0 to {@link #getLength()}
+     */
+    ByteBuffer getBuffer() {
+        return buffer;
+    }
+
+    int getLength() {
+        return buffer.position();
+    }
+
+    String[] getStrings() {
+        return strings.toArray(new String[strings.size()]);
+    }
+
+    int getFeatureCount() {
+        return featureCount;
+    }
+
+    /**
+     * Resets the buffer so it can be reused, keeping the allocated capacity.
+     */
+    void clear() {
+        buffer.clear();
+        strings.clear();
+        stringIndices.clear();
+        featureCount = 0;
+    }
+
+    private int string(String value) {
+        Integer index = stringIndices.get(value);
+        if (index == null) {
+            index = strings.size();
+            strings.add(value);
+            stringIndices.put(value, index);
+        }
+        return index;
+    }
+
+    private void putGeometry(Geometry geometry) {
+        if (geometry == null) {
+            putByte(GEOMETRY_NULL);
+        } else if (geometry instanceof Point) {
+            putByte(GEOMETRY_POINT);
+            putPosition(((Point) geometry).getCoordinates());
+        } else if (geometry instanceof MultiPoint) {
+            putByte(GEOMETRY_MULTI_POINT);
+            putPositions(((MultiPoint) geometry).getCoordinates());
+        } else if (geometry instanceof LineString) {
+            putByte(GEOMETRY_LINE_STRING);
+            putPositions(((LineString) geometry).getCoordinates());
+        } else if (geometry instanceof MultiLineString) {
+            putByte(GEOMETRY_MULTI_LINE_STRING);
+            putRings(((MultiLineString) geometry).getCoordinates());
+        } else if (geometry instanceof Polygon) {
+            putByte(GEOMETRY_POLYGON);
+            putRings(((Polygon) geometry).getCoordinates());
+        } else if (geometry instanceof MultiPolygon) {
+            putByte(GEOMETRY_MULTI_POLYGON);
+            List<List<List<Position>>> polygons = ((MultiPolygon) geometry).getCoordinates();
+            putInt(polygons.size());
+            for (List<List<Position>> polygon : polygons) {
+                putRings(polygon);
+            }
+        } else if (geometry instanceof GeometryCollection) {
+            putByte(GEOMETRY_COLLECTION);
+            List<Geometry> geometries = ((GeometryCollection) geometry).getGeometries();
+            putInt(geometries.size());
+            for (Geometry child : geometries) {
+                putGeometry(child);
+            }
+        } else {
+            throw new IllegalArgumentException("Unsupported geometry type: " + geometry.getType());
+        }
+    }
+
+    private void readGeometry(JsonReader reader) throws IOException {
+        if (reader.peek() == JsonToken.NULL) {
+            reader.nextNull();
+            putByte(GEOMETRY_NULL);
+            return;
+        }
+
+        // Members can come in any order, the type is filled in after reading the coordinates
+        final int typePosition = buffer.position();
+        putByte(GEOMETRY_NULL);
+
+        String type = null;
+        // 0 until the coordinates are read
+        int depth = 0;
+        boolean hasGeometries = false;
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            if ("type".equals(name)) {
+                type = reader.nextString();
+            } else if ("coordinates".equals(name) && depth == 0 && !hasGeometries) {
+                depth = readCoordinates(reader);
+            } else if ("geometries".equals(name) && depth == 0 && !hasGeometries) {
+                readGeometries(reader);
+                hasGeometries = true;
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+
+        byte geometryType = geometryType(type);
+        boolean valid;
+        if (geometryType == GEOMETRY_COLLECTION) {
+            valid = hasGeometries;
+        } else {
+            // Empty arrays only tell how deep they are nested at least
+            int expectedDepth = coordinatesDepth(geometryType);
+            valid = depth == expectedDepth || (depth < 0 && -depth <= expectedDepth);
+        }
+        if (!valid) {
+            throw new IOException("Invalid " + type + " geometry");
+        }
+        buffer.put(typePosition, geometryType);
+    }
+
+    private void readGeometries(JsonReader reader) throws IOException {
+        final int countPosition = buffer.position();
+        putInt(0);
+
+        int count = 0;
+        reader.beginArray();
+        while (reader.hasNext()) {
+            readGeometry(reader);
+            count++;
+        }
+        reader.endArray();
+        buffer.putInt(countPosition, count);
+    }
+
+    /**
+     * Writes nested coordinate arrays as they are read. All elements of an array must be nested
+     * equally deep.
+     *
+     * @return the nesting depth, 1 for a position and 2 for a list of positions, or the negated
+     * minimum depth when the arrays are empty
+     */
+    private int readCoordinates(JsonReader reader) throws IOException {
+        reader.beginArray();
+        if (reader.peek() == JsonToken.NUMBER) {
+            double longitude = reader.nextDouble();
+            double latitude = reader.nextDouble();
+            ensureCapacity(16);
+            buffer.putDouble(longitude);
+            buffer.putDouble(latitude);
+            west = Math.min(west, longitude);
+            south = Math.min(south, latitude);
+            east = Math.max(east, longitude);
+            north = Math.max(north, latitude);
+            // Altitude is not supported
+            while (reader.hasNext()) {
+                reader.skipValue();
+            }
+            reader.endArray();
+            return 1;
+        }
+
+        final int countPosition = buffer.position();
+        putInt(0);
+
+        int count = 0;
+        int depth = 0;
+        int minimumDepth = 1;
+        while (reader.hasNext()) {
+            int elementDepth = readCoordinates(reader);
+            if (elementDepth < 0) {
+                minimumDepth = Math.max(minimumDepth, -elementDepth);
+            } else if (depth == 0) {
+                depth = elementDepth;
+            } else if (depth != elementDepth) {
+                throw new IOException("Mixed coordinate nesting");
+            }
+            count++;
+        }
+        reader.endArray();
+
+        if (depth != 0 && depth < minimumDepth) {
+            throw new IOException("Mixed coordinate nesting");
+        }
+        buffer.putInt(countPosition, count);
+        return depth != 0 ? depth + 1 : -(minimumDepth + 1);
+    }
+
+    private static byte geometryType(String type) throws IOException {
+        if ("Point".equals(type)) {
+            return GEOMETRY_POINT;
+        } else if ("MultiPoint".equals(type)) {
+            return GEOMETRY_MULTI_POINT;
+        } else if ("LineString".equals(type)) {
+            return GEOMETRY_LINE_STRING;
+        } else if ("MultiLineString".equals(type)) {
+            return GEOMETRY_MULTI_LINE_STRING;
+        } else if ("Polygon".equals(type)) {
+            return GEOMETRY_POLYGON;
+        } else if ("MultiPolygon".equals(type)) {
+            return GEOMETRY_MULTI_POLYGON;
+        } else if ("GeometryCollection".equals(type)) {
+            return GEOMETRY_COLLECTION;
+        }
+        throw new IOException("Unsupported geometry type: " + type);
+    }
+
+    private static int coordinatesDepth(byte geometryType) {
+        switch (geometryType) {
+            case GEOMETRY_POINT:
+                return 1;
+            case GEOMETRY_MULTI_POINT:
+            case GEOMETRY_LINE_STRING:
+                return 2;
+            case GEOMETRY_MULTI_LINE_STRING:
+            case GEOMETRY_POLYGON:
+                return 3;
+            case GEOMETRY_MULTI_POLYGON:
+                return 4;
+            default:
+                return -1;
+        }
+    }
+
+    private static void remapString(ByteBuffer features, int[] indices) {
+        final int position = features.position();
+        int index = features.getInt();
+        if (index >= 0) {
+            features.putInt(position, indices[index]);
+        }
+    }
+
+    private static void remapProperties(ByteBuffer features, int[] indices) {
+        int count = features.getInt();
+        for (int i = 0; i < count; i++) {
+            remapString(features, indices);
+            remapValue(features, indices);
+        }
+    }
+
+    private static void remapValue(ByteBuffer features, int[] indices) {
+        byte type = features.get();
+        switch (type) {
+            case VALUE_UINT:
+            case VALUE_INT:
+            case VALUE_DOUBLE:
+                skip(features, 8);
+                break;
+            case VALUE_STRING:
+                remapString(features, indices);
+                break;
+            case VALUE_ARRAY:
+                int count = features.getInt();
+                for (int i = 0; i < count; i++) {
+                    remapValue(features, indices);
+                }
+                break;
+            case VALUE_OBJECT:
+                remapProperties(features, indices);
+                break;
+            default:
+                // Null and booleans have no payload
+                break;
+        }
+    }
+
+    private static void skipGeometry(ByteBuffer features) {
+        byte type = features.get();
+        switch (type) {
+            case GEOMETRY_POINT:
+                skip(features, 16);
+                break;
+            case GEOMETRY_MULTI_POINT:
+            case GEOMETRY_LINE_STRING:
+                skip(features, features.getInt() * 16);
+                break;
+            case GEOMETRY_MULTI_LINE_STRING:
+            case GEOMETRY_POLYGON:
+                skipRings(features);
+                break;
+            case GEOMETRY_MULTI_POLYGON:
+                int polygons = features.getInt();
+                for (int i = 0; i < polygons; i++) {
+                    skipRings(features);
+                }
+                break;
+            case GEOMETRY_COLLECTION:
+                int geometries = features.getInt();
+                for (int i = 0; i < geometries; i++) {
+                    skipGeometry(features);
+                }
+                break;
+            default:
+                break;
+        }
+    }
+
+    private static void skipRings(ByteBuffer features) {
+        int rings = features.getInt();
+        for (int i = 0; i < rings; i++) {
+            skip(features, features.getInt() * 16);
+        }
+    }
+
+    private static void skip(ByteBuffer features, int bytes) {
+        features.position(features.position() + bytes);
+    }
+
+    private void putPosition(Position position) {
+        ensureCapacity(16);
+        buffer.putDouble(position.getLongitude());
+        buffer.putDouble(position.getLatitude());
+    }
+
+    private void putPositions(List<Position> positions) {
+        putInt(positions.size());
+        ensureCapacity(positions.size() * 16);
+        for (Position position : positions) {
+            buffer.putDouble(position.getLongitude());
+            buffer.putDouble(position.getLatitude());
+        }
+    }
+
+    private void putRings(List<List<Position>> rings) {
+        putInt(rings.size());
+        for (List<Position> ring : rings) {
+            putPositions(ring);
+        }
+    }
+
+    private void putProperties(JsonObject properties) {
+        if (properties == null) {
+            putInt(0);
+            return;
+        }
+
+        putInt(properties.entrySet().size());
+        for (Map.Entry<String, JsonElement> property : properties.entrySet()) {
+            putInt(string(property.getKey()));
+            putValue(property.getValue());
+        }
+    }
+
+    private void putValue(JsonElement element) {
+        if (element == null || element.isJsonNull()) {
+            putByte(VALUE_NULL);
+        } else if (element.isJsonPrimitive()) {
+            putPrimitive(element.getAsJsonPrimitive());
+        } else if (element.isJsonArray()) {
+            JsonArray array = element.getAsJsonArray();
+            putByte(VALUE_ARRAY);
+            putInt(array.size());
+            for (JsonElement child : array) {
+                putValue(child);
+            }
+        } else {
+            putByte(VALUE_OBJECT);
+            putProperties(element.getAsJsonObject());
+        }
+    }
+
+    private void putPrimitive(JsonPrimitive primitive) {
+        if (primitive.isBoolean()) {
+            putByte(primitive.getAsBoolean() ? VALUE_TRUE : VALUE_FALSE);
+        } else if (primitive.isString()) {
+            putByte(VALUE_STRING);
+            putInt(string(primitive.getAsString()));
+        } else {
+            putNumber(primitive.getAsNumber());
+        }
+    }
+
+    private void putNumber(Number number) {
+        // Mirror the JSON parser: integers stay integral, everything else becomes a double
+        Long integer = null;
+        if (number instanceof Integer || number instanceof Long || number instanceof Short || number instanceof Byte) {
+            integer = number.longValue();
+        } else if (number instanceof BigInteger) {
+            integer = ((BigInteger) number).bitLength() < 64 ? number.longValue() : null;
+        } else if (!(number instanceof Double || number instanceof Float || number instanceof BigDecimal)) {
+            // Lazily parsed numbers from a json document
+            try {
+                integer = Long.parseLong(number.toString());
+            } catch (NumberFormatException exception) {
+                integer = null;
+            }
+        }
+
+        ensureCapacity(9);
+        if (integer == null) {
+            buffer.put(VALUE_DOUBLE);
+            buffer.putDouble(number.doubleValue());
+        } else {
+            buffer.put(integer < 0 ? VALUE_INT : VALUE_UINT);
+            buffer.putLong(integer);
+        }
+    }
+
+    private void putByte(byte value) {
+        ensureCapacity(1);
+        buffer.put(value);
+    }
+
+    private void putInt(int value) {
+        ensureCapacity(4);
+        buffer.putInt(value);
+    }
+
+    private void ensureCapacity(int bytes) {
+        if (buffer.remaining() < bytes) {
+            ByteBuffer grown = allocate(Math.max(buffer.capacity() * 2, buffer.position() + bytes));
+            buffer.flip();
+            grown.put(buffer);
+            buffer = grown;
+        }
+    }
+
+    private static ByteBuffer allocate(int capacity) {
+        return ByteBuffer.allocateDirect(capacity).order(ByteOrder.nativeOrder());
+    }
+}
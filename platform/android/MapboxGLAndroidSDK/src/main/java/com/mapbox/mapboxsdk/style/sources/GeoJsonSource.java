@@ -1,11 +1,19 @@
 package com.mapbox.mapboxsdk.style.sources;
 
+import android.support.annotation.Nullable;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
 import com.mapbox.services.commons.geojson.Feature;
 import com.mapbox.services.commons.geojson.FeatureCollection;
 
 import java.net.URL;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
 /**
  * A GeoJson source. Exposes a {@link FeatureCollection} from Json.
@@ -14,6 +22,45 @@ import java.util.HashMap;
  */
 public class GeoJsonSource extends Source {
 
+    /**
+     * Callback for {@link #setGeoJsonAsync(FeatureCollection, UpdateCallback)}, invoked on the main thread.
+     */
+    public interface UpdateCallback {
+
+        /**
+         * Invoked when the features have been applied to the source.
+         */
+        void onApplied();
+
+        /**
+         * Invoked when the update was superseded by a newer update before it could be applied.
+         */
+        void onDropped();
+
+        /**
+         * Invoked when the features could not be applied.
+         *
+         * @param error the error message
+         */
+        void onError(String error);
+    }
+
+    /**
+     * Reports statistics on asynchronous updates, invoked on the main thread.
+     */
+    public interface UpdateMetricsListener {
+
+        /**
+         * @param applied       the total number of asynchronous updates applied
+         * @param coalesced     the total number of updates dropped in favour of a newer update
+         * @param latencyMillis the time it took to apply the last update, or -1 if an update was dropped
+         */
+        void onUpdateMetrics(long applied, long coalesced, long latencyMillis);
+    }
+
+    private FeatureBuffer propertyBuffer;
+    private AsyncGeoJsonUpdater asyncUpdater;
+
     /**
      * Internal use
      *
@@ -121,12 +168,42 @@ public class GeoJsonSource extends Source {
 
     /**
      * Updates the GeoJson
+     * <p>
+     * The features are handed to the native source in a packed binary form, skipping the
+     * serialization to and parsing of json.
+     * </p>
      *
      * @param features the GeoJSON {@link FeatureCollection}
      */
     public void setGeoJson(FeatureCollection features) {
         checkValidity();
-        setGeoJson(features.toJson());
+        cancelAsyncUpdates();
+        setFeatureBuffer(FeatureBuffer.fromFeatures(features.getFeatures()));
+    }
+
+    /**
+     * Updates the GeoJson without blocking the calling thread.
+     * <p>
+     * The features are encoded on a background thread and applied on the main thread at the start
+     * of the next frame. When updates arrive faster than they can be applied, only the latest one is
+     * applied and the others are dropped. The collection must not be modified after passing it in.
+     * </p>
+     *
+     * @param features the GeoJSON {@link FeatureCollection}
+     * @param callback optional callback, invoked on the main thread
+     */
+    public void setGeoJsonAsync(FeatureCollection features, @Nullable UpdateCallback callback) {
+        checkValidity();
+        getAsyncUpdater().submit(features, callback);
+    }
+
+    /**
+     * Sets a listener for statistics on {@link #setGeoJsonAsync(FeatureCollection, UpdateCallback)}.
+     *
+     * @param listener the listener, or null to remove it
+     */
+    public void setUpdateMetricsListener(@Nullable UpdateMetricsListener listener) {
+        getAsyncUpdater().setMetricsListener(listener);
     }
 
     /**
@@ -136,9 +213,159 @@ public class GeoJsonSource extends Source {
      */
     public void setGeoJson(String json) {
         checkValidity();
+        cancelAsyncUpdates();
         setRawJson(json);
     }
 
+    /**
+     * Adds features to the source. Features with the same id as an existing feature replace it.
+     * <p>
+     * Only tiles that contain the added or replaced features are reloaded, which makes this a lot
+     * cheaper than setting the complete data set when a few features change.
+     * </p>
+     *
+     * @param features the features to add
+     */
+    public void addFeatures(List<Feature> features) {
+        checkValidity();
+        FeatureBuffer buffer = FeatureBuffer.fromFeatures(features);
+        nativeAddFeatureBuffer(buffer.getBuffer(), buffer.getLength(), buffer.getStrings());
+    }
+
+    /**
+     * Replaces existing features with the same id. Features without a matching feature in the
+     * source are ignored.
+     *
+     * @param features the updated features
+     * @see #addFeatures(List)
+     */
+    public void updateFeatures(List<Feature> features) {
+        checkValidity();
+        FeatureBuffer buffer = FeatureBuffer.fromFeatures(features);
+        nativeUpdateFeatureBuffer(buffer.getBuffer(), buffer.getLength(), buffer.getStrings());
+    }
+
+    /**
+     * Removes the features with the given ids.
+     *
+     * @param ids the feature ids
+     */
+    public void removeFeatures(String... ids) {
+        checkValidity();
+        nativeRemoveFeatures(ids);
+    }
+
+    /**
+     * Sets a property on the feature with the given id, leaving its geometry and other properties
+     * untouched. Only tiles that contain the feature are reloaded.
+     *
+     * @param id    the feature id
+     * @param key   the property name
+     * @param value the property value
+     */
+    public void setFeatureProperty(String id, String key, JsonElement value) {
+        JsonObject properties = new JsonObject();
+        properties.add(key, value);
+        setFeatureProperties(id, properties);
+    }
+
+    /**
+     * Merges properties into the feature with the given id.
+     *
+     * @param id         the feature id
+     * @param properties the properties to set
+     * @see #setFeatureProperty(String, String, JsonElement)
+     */
+    public void setFeatureProperties(String id, JsonObject properties) {
+        setFeatureProperties(Collections.singletonMap(id, properties));
+    }
+
+    /**
+     * Merges properties into multiple features at once.
+     *
+     * @param properties the properties to set, keyed by feature id
+     * @see #setFeatureProperty(String, String, JsonElement)
+     */
+    public void setFeatureProperties(Map<String, JsonObject> properties) {
+        checkValidity();
+        // Reused, property updates tend to be frequent (hover, selection)
+        if (propertyBuffer == null) {
+            propertyBuffer = new FeatureBuffer();
+        }
+        propertyBuffer.clear();
+        for (Map.Entry<String, JsonObject> entry : properties.entrySet()) {
+            propertyBuffer.addProperties(entry.getKey(), entry.getValue());
+        }
+        nativeSetFeatureProperties(propertyBuffer.getBuffer(), propertyBuffer.getLength(), propertyBuffer.getStrings());
+    }
+
+    /**
+     * Returns the clusters and points one zoom level below a cluster. Only for sources created with
+     * {@link GeoJsonOptions#withCluster(boolean)}.
+     * <p>
+     * The cluster id is the id of a cluster feature, also available as its "cluster_id" property,
+     * for example on features returned by queryRenderedFeatures.
+     * </p>
+     *
+     * @param clusterId the cluster id
+     * @return the children, empty for an unknown cluster
+     */
+    public List<Feature> getClusterChildren(long clusterId) {
+        checkValidity();
+        if (!isClusterId(clusterId)) {
+            return Collections.emptyList();
+        }
+        return toFeatureList(nativeGetClusterChildren(clusterId));
+    }
+
+    /**
+     * Returns the points of a cluster, a page at a time.
+     *
+     * @param clusterId the cluster id
+     * @param limit     the maximum number of points to return
+     * @param offset    the number of points to skip
+     * @return the points, empty for an unknown cluster
+     * @see #getClusterChildren(long)
+     */
+    public List<Feature> getClusterLeaves(long clusterId, int limit, int offset) {
+        checkValidity();
+        if (limit < 0 || offset < 0) {
+            throw new IllegalArgumentException("Limit and offset can't be negative");
+        }
+        if (!isClusterId(clusterId) || limit == 0) {
+            return Collections.emptyList();
+        }
+        return toFeatureList(nativeGetClusterLeaves(clusterId, limit, offset));
+    }
+
+    /**
+     * Returns the zoom level at which a cluster splits into several children, to zoom into it.
+     *
+     * @param clusterId the cluster id
+     * @return the expansion zoom, or -1 for an unknown cluster
+     * @see #getClusterChildren(long)
+     */
+    public int getClusterExpansionZoom(long clusterId) {
+        checkValidity();
+        if (!isClusterId(clusterId)) {
+            return -1;
+        }
+        return nativeGetClusterExpansionZoom(clusterId);
+    }
+
+    private static boolean isClusterId(long clusterId) {
+        // Cluster ids are unsigned 32 bit numbers
+        return clusterId > 0 && clusterId <= 0xffffffffL;
+    }
+
+    private static List<Feature> toFeatureList(Object[] features) {
+        List<Feature> list = new ArrayList<>(features.length);
+        for (Object feature : features) {
+            list.add((Feature) feature);
+        }
+        return list;
+    }
+
     /**
      * Updates the url
      *
@@ -167,12 +394,85 @@ public class GeoJsonSource extends Source {
         nativeSetGeoJson(wrapper);
     }
 
+    private AsyncGeoJsonUpdater getAsyncUpdater() {
+        if (asyncUpdater == null) {
+            asyncUpdater = new AsyncGeoJsonUpdater(this);
+        }
+        return asyncUpdater;
+    }
+
+    private void cancelAsyncUpdates() {
+        // A synchronous update wins over pending asynchronous updates
+        if (asyncUpdater != null) {
+            asyncUpdater.cancel();
+        }
+    }
+
+    void setFeatureBuffer(FeatureBuffer features) {
+        nativeSetFeatureBuffer(features.getBuffer(), features.getLength(), features.getStrings());
+    }
+
+    /**
+     * Stages features without touching the source data, can be called from any thread.
+     *
+     * @return false if the features could not be decoded
+     */
+    boolean appendFeatureBuffer(FeatureBuffer features) {
+        return nativeAppendFeatureBuffer(features.getBuffer(), features.getLength(), features.getStrings());
+    }
+
+    /**
+     * Stages features that are already packed in the {@link FeatureBuffer} layout.
+     *
+     * @param buffer  a direct buffer, read from its start
+     * @param length  the number of bytes to read
+     * @param strings the string table
+     * @return false if the features could not be decoded
+     */
+    boolean appendFeatures(ByteBuffer buffer, int length, String[] strings) {
+        return nativeAppendFeatureBuffer(buffer, length, strings);
+    }
+
+    /**
+     * Replaces the source data with the staged features.
+     */
+    void commitFeatures() {
+        checkValidity();
+        nativeCommitFeatures();
+    }
+
+    void discardFeatures() {
+        nativeDiscardFeatures();
+    }
+
     protected native void initialize(String layerId, Object options);
 
     protected native void nativeSetUrl(String url);
 
     private native void nativeSetGeoJson(Object geoJson);
 
+    private native void nativeSetFeatureBuffer(ByteBuffer buffer, int length, String[] strings);
+
+    private native void nativeAddFeatureBuffer(ByteBuffer buffer, int length, String[] strings);
+
+    private native void nativeUpdateFeatureBuffer(ByteBuffer buffer, int length, String[] strings);
+
+    private native void nativeRemoveFeatures(String[] ids);
+
+    private native boolean nativeAppendFeatureBuffer(ByteBuffer buffer, int length, String[] strings);
+
+    private native void nativeCommitFeatures();
+
+    private native void nativeDiscardFeatures();
+
+    private native void nativeSetFeatureProperties(ByteBuffer buffer, int length, String[] strings);
+
+    private native Object[] nativeGetClusterChildren(long clusterId);
+
+    private native Object[] nativeGetClusterLeaves(long clusterId, int limit, int offset);
+
+    private native int nativeGetClusterExpansionZoom(long clusterId);
+
     @Override
     protected native void finalize() throws Throwable;
 
@@ -0,0 +1,198 @@
+package com.mapbox.mapboxsdk.style.sources;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.annotation.UiThread;
+import android.support.annotation.WorkerThread;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Loads a GeoJSON FeatureCollection into a {@link GeoJsonSource} from a stream, without reading the
+ * whole document into memory.
+ * <p>
+ * Features are parsed one at a time and handed to the native source in chunks of
+ * {@link #withChunkSize(int)} features, so the Java heap used does not depend on the size of the
+ * file. Features can be filtered and their properties reduced while reading.
+ * </p>
+ * <p>
+ * Reading can happen on a background thread with {@link #read(InputStream)}, after which the
+ * features are applied to the source on the main thread with {@link #commit()}:
+ * </p>
+ * <pre>
+ * GeoJsonStreamLoader loader = new GeoJsonStreamLoader(source).withProperties("name", "type");
+ * loader.read(inputStream);        // worker thread
+ * loader.commit();                 // main thread
+ * </pre>
+ */
+public class GeoJsonStreamLoader {
+
+    /**
+     * Decides which features to load.
+     */
+    public interface Filter {
+
+        /**
+         * Called for every feature, before its properties are reduced.
+         *
+         * @param id         the feature id, if any
+         * @param properties the feature properties, if any
+         * @return true to load the feature
+         */
+        boolean accept(@Nullable String id, @Nullable JsonObject properties);
+    }
+
+    private static final int DEFAULT_CHUNK_SIZE = 1000;
+
+    private final GeoJsonSource source;
+    private Filter filter;
+    private Set<String> properties;
+    private int chunkSize = DEFAULT_CHUNK_SIZE;
+
+    /**
+     * @param source the source to load the features into
+     */
+    public GeoJsonStreamLoader(@NonNull GeoJsonSource source) {
+        this.source = source;
+    }
+
+    /**
+     * Only load features accepted by the filter.
+     *
+     * @param filter the filter
+     * @return this
+     */
+    public GeoJsonStreamLoader withFilter(@Nullable Filter filter) {
+        this.filter = filter;
+        return this;
+    }
+
+    /**
+     * Only keep the given properties of the loaded features.
+     *
+     * @param properties the property names
+     * @return this
+     */
+    public GeoJsonStreamLoader withProperties(String... properties) {
+        this.properties = properties != null ? new HashSet<>(Arrays.asList(properties)) : null;
+        return this;
+    }
+
+    /**
+     * @param chunkSize the number of features parsed before they are handed to the native source
+     * @return this
+     */
+    public GeoJsonStreamLoader withChunkSize(int chunkSize) {
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("Chunk size must be positive");
+        }
+        this.chunkSize = chunkSize;
+        return this;
+    }
+
+    /**
+     * Reads the features of a GeoJSON FeatureCollection. The features only become visible after
+     * {@link #commit()}. The stream is not closed.
+     *
+     * @param inputStream the UTF-8 encoded GeoJSON
+     * @return the number of features read
+     * @throws IOException when reading fails or the document is malformed, nothing is loaded then
+     */
+    @WorkerThread
+    public int read(@NonNull InputStream inputStream) throws IOException {
+        // Features staged by an earlier read that was never committed are not part of this one
+        source.discardFeatures();
+
+        FeatureBuffer buffer = new FeatureBuffer();
+        JsonReader reader = new JsonReader(new InputStreamReader(inputStream, "UTF-8"));
+        int count = 0;
+
+        try {
+            reader.beginObject();
+            while (reader.hasNext()) {
+                if (!"features".equals(reader.nextName()) || reader.peek() != JsonToken.BEGIN_ARRAY) {
+                    reader.skipValue();
+                    continue;
+                }
+
+                reader.beginArray();
+                while (reader.hasNext()) {
+                    if (buffer.readFeature(reader, filter, properties)) {
+                        count++;
+                    }
+                    if (buffer.getFeatureCount() >= chunkSize) {
+                        append(buffer);
+                    }
+                }
+                reader.endArray();
+            }
+            reader.endObject();
+
+            if (buffer.getFeatureCount() > 0) {
+                append(buffer);
+            }
+        } catch (IllegalStateException | JsonParseException | NumberFormatException exception) {
+            source.discardFeatures();
+            throw new IOException("Malformed GeoJSON", exception);
+        } catch (IOException exception) {
+            source.discardFeatures();
+            throw exception;
+        }
+
+        return count;
+    }
+
+    private void append(FeatureBuffer buffer) throws IOException {
+        if (!source.appendFeatureBuffer(buffer)) {
+            throw new IOException("Could not load features");
+        }
+        buffer.clear();
+    }
+
+    /**
+     * Reads the features of a GeoJSON FeatureCollection from a file channel.
+     *
+     * @param channel the channel to read from, from its current position
+     * @return the number of features read
+     * @throws IOException when reading fails or the document is malformed, nothing is loaded then
+     * @see #read(InputStream)
+     */
+    @WorkerThread
+    public int read(@NonNull FileChannel channel) throws IOException {
+        return read(Channels.newInputStream(channel));
+    }
+
+    /**
+     * Replaces the data of the source with the features read so far.
+     */
+    @UiThread
+    public void commit() {
+        source.commitFeatures();
+    }
+
+    /**
+     * Reads and commits in one go, for small files or when already on the main thread.
+     *
+     * @param inputStream the UTF-8 encoded GeoJSON
+     * @return the number of features loaded
+     * @throws IOException when reading fails or the document is malformed
+     */
+    @UiThread
+    public int load(@NonNull InputStream inputStream) throws IOException {
+        int count = read(inputStream);
+        commit();
+        return count;
+    }
+}
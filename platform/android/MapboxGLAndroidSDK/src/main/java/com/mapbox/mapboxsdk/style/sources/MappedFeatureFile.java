@@ -0,0 +1,176 @@
+package com.mapbox.mapboxsdk.style.sources;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Read access to a file written by {@link MappedFeatureWriter}. Only the index is memory mapped
+ * up front, every bucket is mapped on its own when it is read. Offsets are 64 bit, so files can be
+ * larger than a single mapping.
+ * <p>
+ * Layout (little endian):
+ * <pre>
+ * header := int magic, int version, int zoom, int bucketCount, long indexOffset
+ * bucket := int stringCount, (int byteCount, utf-8 bytes) * stringCount, features
+ * index  := (int x, int y, double west, double south, double east, double north,
+ *            long offset, int length) * bucketCount
+ * </pre>
+ * The features of a bucket are stored in the {@link FeatureBuffer} layout and fill the
+ * remainder of the bucket. A tile can have more than one bucket.
+ * </p>
+ */
+final class MappedFeatureFile {
+
+    static final int MAGIC = 0x3142464d; // "MFB1"
+    static final int VERSION = 2;
+    static final int HEADER_SIZE = 24;
+    static final int INDEX_ENTRY_SIZE = 52;
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private final File file;
+    private final long size;
+    private final MappedByteBuffer index;
+    private final int zoom;
+    private final int bucketCount;
+
+    /**
+     * A bucket that is ready to be handed to the native source.
+     */
+    static class Bucket {
+        final int index;
+        final ByteBuffer features;
+        final String[] strings;
+
+        Bucket(int index, ByteBuffer features, String[] strings) {
+            this.index = index;
+            this.features = features;
+            this.strings = strings;
+        }
+    }
+
+    MappedFeatureFile(File file) throws IOException {
+        if (ByteOrder.nativeOrder() != ByteOrder.LITTLE_ENDIAN) {
+            throw new IOException("Mapped feature files require a little endian platform");
+        }
+        this.file = file;
+
+        RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r");
+        try {
+            FileChannel channel = randomAccessFile.getChannel();
+            size = channel.size();
+
+            if (size < HEADER_SIZE) {
+                throw new IOException("Not a mapped feature file: " + file);
+            }
+            ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE);
+            header.order(ByteOrder.LITTLE_ENDIAN);
+            if (header.getInt(0) != MAGIC) {
+                throw new IOException("Not a mapped feature file: " + file);
+            }
+            if (header.getInt(4) != VERSION) {
+                throw new IOException("Unsupported mapped feature file version: " + header.getInt(4));
+            }
+            zoom = header.getInt(8);
+            bucketCount = header.getInt(12);
+            long indexOffset = header.getLong(16);
+            long indexSize = (long) bucketCount * INDEX_ENTRY_SIZE;
+            if (bucketCount < 0 || indexSize > Integer.MAX_VALUE
+                || indexOffset < HEADER_SIZE || indexOffset + indexSize > size) {
+                throw new IOException("Corrupt mapped feature file index: " + file);
+            }
+
+            // The mapping stays valid after the channel is closed
+            index = channel.map(FileChannel.MapMode.READ_ONLY, indexOffset, indexSize);
+        } finally {
+            randomAccessFile.close();
+        }
+        index.order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    int getZoom() {
+        return zoom;
+    }
+
+    int getBucketCount() {
+        return bucketCount;
+    }
+
+    /**
+     * Finds the buckets with features that intersect the given bounds. Bounds crossing the
+     * antimeridian have west &gt; east.
+     *
+     * @return the bucket indices, in file order
+     */
+    List<Integer> findBuckets(double west, double south, double east, double north) {
+        List<Integer> buckets = new ArrayList<>();
+        for (int i = 0; i < bucketCount; i++) {
+            int entry = i * INDEX_ENTRY_SIZE;
+            double bucketWest = index.getDouble(entry + 8);
+            double bucketSouth = index.getDouble(entry + 16);
+            double bucketEast = index.getDouble(entry + 24);
+            double bucketNorth = index.getDouble(entry + 32);
+
+            if (bucketSouth > north || bucketNorth < south) {
+                continue;
+            }
+            boolean intersects = west <= east
+                ? bucketWest <= east && bucketEast >= west
+                : bucketWest <= east || bucketEast >= west;
+            if (intersects) {
+                buckets.add(i);
+            }
+        }
+        return buckets;
+    }
+
+    /**
+     * Maps a bucket, reads its string table and slices its features out of the mapping, the
+     * features themselves are not copied. Can be called from any thread.
+     */
+    Bucket readBucket(int index) throws IOException {
+        int entry = index * INDEX_ENTRY_SIZE;
+        long offset = this.index.getLong(entry + 40);
+        int length = this.index.getInt(entry + 48);
+        if (offset < HEADER_SIZE || length < 4 || offset + length > size) {
+            throw new IOException("Corrupt bucket " + index);
+        }
+
+        ByteBuffer bucket;
+        RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r");
+        try {
+            bucket = randomAccessFile.getChannel().map(FileChannel.MapMode.READ_ONLY, offset, length);
+        } finally {
+            randomAccessFile.close();
+        }
+        bucket.order(ByteOrder.LITTLE_ENDIAN);
+
+        int stringCount = bucket.getInt();
+        if (stringCount < 0 || stringCount > bucket.remaining() / 4) {
+            throw new IOException("Corrupt bucket " + index);
+        }
+        String[] strings = new String[stringCount];
+        byte[] bytes = new byte[0];
+        for (int i = 0; i < stringCount; i++) {
+            int byteCount = bucket.getInt();
+            if (byteCount < 0 || byteCount > bucket.remaining()) {
+                throw new IOException("Corrupt bucket " + index);
+            }
+            if (bytes.length < byteCount) {
+                bytes = new byte[byteCount];
+            }
+            bucket.get(bytes, 0, byteCount);
+            strings[i] = new String(bytes, 0, byteCount, UTF_8);
+        }
+
+        return new Bucket(index, bucket.slice(), strings);
+    }
+}
@@ -0,0 +1,183 @@
+package com.mapbox.mapboxsdk.style.sources;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.support.annotation.Nullable;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import timber.log.Timber;
+
+/**
+ * Loads the buckets of a {@link MappedFeatureFile} into a {@link GeoJsonSource} off the main
+ * thread.
+ * <p>
+ * Buckets are looked up, mapped and staged on a background thread shared by all sources, the
+ * staged features are committed on the main thread. Only the latest requested bounds are
+ * loaded: loads that are superseded before they are committed are dropped.
+ * </p>
+ */
+final class MappedFeatureLoader {
+
+    private static final ExecutorService LOADER = Executors.newSingleThreadExecutor(new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "MappedFeatureLoader");
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
+
+    private final GeoJsonSource source;
+    private final MappedFeatureFile file;
+    private final Executor loader;
+    private final Executor mainThread;
+
+    // Bumped for every request, loads of older requests are dropped
+    private final AtomicInteger requests = new AtomicInteger();
+
+    // Written on the main thread, read by the loader to skip loading the same buckets again
+    private volatile Set<Integer> loadedBuckets = Collections.emptySet();
+
+    MappedFeatureLoader(GeoJsonSource source, MappedFeatureFile file) {
+        this(source, file, LOADER, new Executor() {
+            private final Handler handler = new Handler(Looper.getMainLooper());
+
+            @Override
+            public void execute(Runnable runnable) {
+                handler.post(runnable);
+            }
+        });
+    }
+
+    MappedFeatureLoader(GeoJsonSource source, MappedFeatureFile file, Executor loader, Executor mainThread) {
+        this.source = source;
+        this.file = file;
+        this.loader = loader;
+        this.mainThread = mainThread;
+    }
+
+    int getLoadedBucketCount() {
+        return loadedBuckets.size();
+    }
+
+    void load(final double west, final double south, final double east, final double north,
+              @Nullable final GeoJsonSource.UpdateCallback callback) {
+        final int request = requests.incrementAndGet();
+        loader.execute(new Runnable() {
+            @Override
+            public void run() {
+                if (request != requests.get()) {
+                    dropped(callback);
+                    return;
+                }
+
+                List<Integer> bucketList = file.findBuckets(west, south, east, north);
+                Set<Integer> buckets = new HashSet<>(bucketList);
+                if (buckets.equals(loadedBuckets)) {
+                    commit(request, null, callback);
+                    return;
+                }
+
+                try {
+                    if (!stage(request, bucketList)) {
+                        dropped(callback);
+                        return;
+                    }
+                } catch (final IOException exception) {
+                    Timber.e(exception, "Failed to load mapped features");
+                    source.discardFeatures();
+                    mainThread.execute(new Runnable() {
+                        @Override
+                        public void run() {
+                            if (callback != null) {
+                                callback.onError(exception.getMessage());
+                            }
+                        }
+                    });
+                    return;
+                }
+                commit(request, buckets, callback);
+            }
+        });
+    }
+
+    /**
+     * @return false if a newer request arrived while staging
+     */
+    private boolean stage(int request, List<Integer> buckets) throws IOException {
+        source.discardFeatures();
+        for (int index : buckets) {
+            if (request != requests.get()) {
+                source.discardFeatures();
+                return false;
+            }
+
+            MappedFeatureFile.Bucket bucket = file.readBucket(index);
+            if (!source.appendFeatures(bucket.features, bucket.features.remaining(), bucket.strings)) {
+                throw new IOException("Could not load bucket " + index);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Commits the staged features on the main thread, unless a newer request arrived.
+     *
+     * @param buckets the staged buckets, null if the loaded buckets did not change
+     */
+    private void commit(final int request, @Nullable final Set<Integer> buckets,
+                        @Nullable final GeoJsonSource.UpdateCallback callback) {
+        mainThread.execute(new Runnable() {
+            @Override
+            public void run() {
+                // Requests are made on the main thread, a newer one may be staging already
+                if (request != requests.get()) {
+                    if (callback != null) {
+                        callback.onDropped();
+                    }
+                    return;
+                }
+
+                if (buckets != null) {
+                    try {
+                        source.commitFeatures();
+                    } catch (RuntimeException exception) {
+                        Timber.e(exception, "Failed to apply mapped features");
+                        if (callback != null) {
+                            callback.onError(exception.getMessage());
+                        }
+                        return;
+                    }
+                    loadedBuckets = buckets;
+                }
+
+                if (callback != null) {
+                    callback.onApplied();
+                }
+            }
+        });
+    }
+
+    private void dropped(@Nullable final GeoJsonSource.UpdateCallback callback) {
+        if (callback == null) {
+            return;
+        }
+
+        mainThread.execute(new Runnable() {
+            @Override
+            public void run() {
+                callback.onDropped();
+            }
+        });
+    }
+}
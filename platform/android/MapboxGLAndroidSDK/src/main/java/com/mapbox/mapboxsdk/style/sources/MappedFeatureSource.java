@@ -0,0 +1,94 @@
+package com.mapbox.mapboxsdk.style.sources;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.annotation.UiThread;
+
+import com.mapbox.mapboxsdk.geometry.LatLngBounds;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * A GeoJson source backed by a memory mapped file written by {@link MappedFeatureWriter}.
+ * <p>
+ * The file is not parsed up front. Only the buckets of features that intersect the bounds passed to
+ * {@link #setBounds(LatLngBounds)} are mapped and handed to the map, straight from the file, so large
+ * datasets can be shown without holding them on the Java heap. Buckets are loaded on a background
+ * thread.
+ * </p>
+ * <pre>
+ * MappedFeatureSource source = new MappedFeatureSource("parcels", file);
+ * mapboxMap.addSource(source);
+ * source.setBounds(mapboxMap.getProjection().getVisibleRegion().latLngBounds);
+ * </pre>
+ */
+@UiThread
+public class MappedFeatureSource extends GeoJsonSource {
+
+    private final MappedFeatureFile file;
+    private final MappedFeatureLoader loader;
+
+    /**
+     * Create an empty source over a mapped feature file
+     *
+     * @param id   the source id
+     * @param file the file, written by {@link MappedFeatureWriter}
+     * @throws IOException when the file can't be read or is not a mapped feature file
+     */
+    public MappedFeatureSource(String id, @NonNull File file) throws IOException {
+        this(id, file, null);
+    }
+
+    /**
+     * Create an empty source over a mapped feature file, with non-default {@link GeoJsonOptions}
+     *
+     * @param id      the source id
+     * @param file    the file, written by {@link MappedFeatureWriter}
+     * @param options options
+     * @throws IOException when the file can't be read or is not a mapped feature file
+     */
+    public MappedFeatureSource(String id, @NonNull File file, GeoJsonOptions options) throws IOException {
+        super(id, options);
+        this.file = new MappedFeatureFile(file);
+        this.loader = new MappedFeatureLoader(this, this.file);
+    }
+
+    /**
+     * Loads the features that intersect the given bounds, features of other parts of the file
+     * are released. Nothing happens when the same buckets are already loaded.
+     *
+     * @param bounds the bounds, usually the visible region with some padding
+     */
+    public void setBounds(@NonNull LatLngBounds bounds) {
+        setBounds(bounds, null);
+    }
+
+    /**
+     * Loads the features that intersect the given bounds without blocking the calling thread,
+     * features of other parts of the file are released. When the bounds change faster than the
+     * features can be loaded, only the latest bounds are loaded and the others are dropped.
+     *
+     * @param bounds   the bounds, usually the visible region with some padding
+     * @param callback optional callback, invoked on the main thread. On errors, such as a corrupt
+     *                 file, the previous features stay loaded.
+     */
+    public void setBounds(@NonNull LatLngBounds bounds, @Nullable UpdateCallback callback) {
+        checkValidity();
+        loader.load(bounds.getLonWest(), bounds.getLatSouth(), bounds.getLonEast(), bounds.getLatNorth(), callback);
+    }
+
+    /**
+     * @return the number of buckets in the file
+     */
+    public int getBucketCount() {
+        return file.getBucketCount();
+    }
+
+    /**
+     * @return the number of buckets currently loaded
+     */
+    public int getLoadedBucketCount() {
+        return loader.getLoadedBucketCount();
+    }
+}
@@ -0,0 +1,345 @@
+package com.mapbox.mapboxsdk.style.sources;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import com.google.gson.JsonParseException;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Converts GeoJSON into the file format read by {@link MappedFeatureSource}.
+ * <p>
+ * Features are grouped into buckets, one per tile at {@link #withZoom(int)} that contains the
+ * center of the feature. Every bucket stores the extent of its features, so a
+ * {@link MappedFeatureSource} only has to read the buckets that intersect the visible region.
+ * </p>
+ * <p>
+ * The converter is meant to run ahead of time, on a device or on a desktop JVM:
+ * </p>
+ * <pre>
+ * java -cp ... com.mapbox.mapboxsdk.style.sources.MappedFeatureWriter input.geojson output.mfb [zoom]
+ * </pre>
+ * <p>
+ * Features are encoded straight from the json stream. Buckets are written to the file as soon
+ * as the encoded features held in memory exceed {@link #DEFAULT_BUFFER_SIZE}, largest first, so
+ * a tile can end up in more than one bucket. Features without a geometry are skipped.
+ * </p>
+ */
+public class MappedFeatureWriter {
+
+    /**
+     * The default bucket zoom level.
+     */
+    public static final int DEFAULT_ZOOM = 6;
+
+    /**
+     * The default number of bytes of encoded features kept in memory.
+     */
+    public static final int DEFAULT_BUFFER_SIZE = 16 * 1024 * 1024;
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private int zoom = DEFAULT_ZOOM;
+    private GeoJsonStreamLoader.Filter filter;
+    private Set<String> properties;
+    private int bufferSize = DEFAULT_BUFFER_SIZE;
+
+    /**
+     * @param zoom the zoom level of the bucket grid, between 0 and 14
+     * @return this
+     */
+    public MappedFeatureWriter withZoom(int zoom) {
+        if (zoom < 0 || zoom > 14) {
+            throw new IllegalArgumentException("Zoom must be between 0 and 14");
+        }
+        this.zoom = zoom;
+        return this;
+    }
+
+    /**
+     * Only write features accepted by the filter.
+     *
+     * @param filter the filter
+     * @return this
+     */
+    public MappedFeatureWriter withFilter(@Nullable GeoJsonStreamLoader.Filter filter) {
+        this.filter = filter;
+        return this;
+    }
+
+    /**
+     * Only keep the given properties of the written features.
+     *
+     * @param properties the property names
+     * @return this
+     */
+    public MappedFeatureWriter withProperties(String... properties) {
+        this.properties = properties != null ? new HashSet<>(Arrays.asList(properties)) : null;
+        return this;
+    }
+
+    /**
+     * @param bufferSize the number of bytes of encoded features to keep in memory before buckets
+     *                   are written to the file
+     * @return this
+     */
+    public MappedFeatureWriter withBufferSize(int bufferSize) {
+        if (bufferSize <= 0) {
+            throw new IllegalArgumentException("Buffer size must be positive");
+        }
+        this.bufferSize = bufferSize;
+        return this;
+    }
+
+    /**
+     * Converts a GeoJSON FeatureCollection.
+     *
+     * @param geoJson the UTF-8 encoded GeoJSON, not closed
+     * @param output  the file to write
+     * @return the number of features written
+     * @throws IOException when reading or writing fails, or the GeoJSON is malformed
+     */
+    public int write(@NonNull InputStream geoJson, @NonNull File output) throws IOException {
+        if (ByteOrder.nativeOrder() != ByteOrder.LITTLE_ENDIAN) {
+            throw new IOException("Mapped feature files can only be written on a little endian platform");
+        }
+
+        FileOutputStream outputStream = new FileOutputStream(output);
+        try {
+            BucketOutput buckets = new BucketOutput(outputStream.getChannel());
+            int count;
+            try {
+                count = readFeatures(geoJson, buckets);
+            } catch (IllegalStateException | JsonParseException | NumberFormatException exception) {
+                throw new IOException("Malformed GeoJSON", exception);
+            }
+            buckets.finish();
+            return count;
+        } finally {
+            outputStream.close();
+        }
+    }
+
+    private int readFeatures(InputStream geoJson, BucketOutput buckets) throws IOException {
+        JsonReader reader = new JsonReader(new InputStreamReader(geoJson, "UTF-8"));
+        FeatureBuffer feature = new FeatureBuffer();
+        int count = 0;
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            if (!"features".equals(reader.nextName()) || reader.peek() != JsonToken.BEGIN_ARRAY) {
+                reader.skipValue();
+                continue;
+            }
+
+            reader.beginArray();
+            while (reader.hasNext()) {
+                // The bucket is only known once the coordinates are read, encode into a scratch buffer
+                feature.clear();
+                if (!feature.readFeature(reader, filter, properties)) {
+                    continue;
+                }
+                double[] bounds = feature.getFeatureBounds();
+                if (bounds == null) {
+                    continue;
+                }
+
+                buckets.add(bucketKey((bounds[0] + bounds[2]) / 2, (bounds[1] + bounds[3]) / 2), bounds, feature);
+                count++;
+            }
+            reader.endArray();
+        }
+        reader.endObject();
+        return count;
+    }
+
+    private static ByteBuffer encodeStrings(String[] strings) {
+        byte[][] encoded = new byte[strings.length][];
+        int size = 4;
+        for (int i = 0; i < strings.length; i++) {
+            encoded[i] = strings[i].getBytes(UTF_8);
+            size += 4 + encoded[i].length;
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate(size).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(strings.length);
+        for (byte[] bytes : encoded) {
+            buffer.putInt(bytes.length);
+            buffer.put(bytes);
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    private long bucketKey(double longitude, double latitude) {
+        int tiles = 1 << zoom;
+        double sine = Math.sin(Math.toRadians(Math.max(-85.0511, Math.min(85.0511, latitude))));
+        double y = 0.5 - 0.25 * Math.log((1 + sine) / (1 - sine)) / Math.PI;
+        int tileX = Math.max(0, Math.min(tiles - 1, (int) Math.floor((longitude + 180) / 360 * tiles)));
+        int tileY = Math.max(0, Math.min(tiles - 1, (int) Math.floor(y * tiles)));
+        return ((long) tileY << zoom) + tileX;
+    }
+
+    /**
+     * Writes buckets to the file, the index and header are written by {@link #finish()}.
+     */
+    private class BucketOutput {
+        private final FileChannel channel;
+        private final Map<Long, Bucket> buckets = new TreeMap<>();
+        private ByteBuffer index = ByteBuffer.allocate(64 * MappedFeatureFile.INDEX_ENTRY_SIZE)
+            .order(ByteOrder.LITTLE_ENDIAN);
+        private long offset = MappedFeatureFile.HEADER_SIZE;
+        private long bufferedBytes;
+        private int bucketCount;
+
+        BucketOutput(FileChannel channel) throws IOException {
+            this.channel = channel;
+            channel.position(offset);
+        }
+
+        void add(long key, double[] bounds, FeatureBuffer feature) throws IOException {
+            Bucket bucket = buckets.get(key);
+            if (bucket == null) {
+                bucket = new Bucket(key);
+                buckets.put(key, bucket);
+            }
+
+            int length = bucket.features.getLength();
+            bucket.features.appendFeatures(feature);
+            bucket.extend(bounds);
+            bufferedBytes += bucket.features.getLength() - length;
+
+            if (bufferedBytes > bufferSize) {
+                // Write the largest buckets until half of the buffer is free again
+                while (bufferedBytes > bufferSize / 2) {
+                    Bucket largest = null;
+                    for (Bucket candidate : buckets.values()) {
+                        if (largest == null || candidate.features.getLength() > largest.features.getLength()) {
+                            largest = candidate;
+                        }
+                    }
+                    write(largest);
+                }
+            }
+        }
+
+        void finish() throws IOException {
+            while (!buckets.isEmpty()) {
+                write(buckets.values().iterator().next());
+            }
+
+            ByteBuffer header = ByteBuffer.allocate(MappedFeatureFile.HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            header.putInt(MappedFeatureFile.MAGIC);
+            header.putInt(MappedFeatureFile.VERSION);
+            header.putInt(zoom);
+            header.putInt(bucketCount);
+            header.putLong(offset);
+            header.flip();
+
+            index.flip();
+            writeFully(channel, index);
+            channel.position(0);
+            writeFully(channel, header);
+        }
+
+        private void write(Bucket bucket) throws IOException {
+            buckets.remove(bucket.key);
+            bufferedBytes -= bucket.features.getLength();
+
+            ByteBuffer strings = encodeStrings(bucket.features.getStrings());
+            ByteBuffer features = bucket.features.getBuffer().duplicate();
+            features.flip();
+            int length = strings.remaining() + features.remaining();
+
+            if (index.remaining() < MappedFeatureFile.INDEX_ENTRY_SIZE) {
+                ByteBuffer grown = ByteBuffer.allocate(index.capacity() * 2).order(ByteOrder.LITTLE_ENDIAN);
+                index.flip();
+                grown.put(index);
+                index = grown;
+            }
+            index.putInt((int) (bucket.key % (1L << zoom)));
+            index.putInt((int) (bucket.key >> zoom));
+            index.putDouble(bucket.west);
+            index.putDouble(bucket.south);
+            index.putDouble(bucket.east);
+            index.putDouble(bucket.north);
+            index.putLong(offset);
+            index.putInt(length);
+            bucketCount++;
+
+            writeFully(channel, strings);
+            writeFully(channel, features);
+            offset += length;
+        }
+    }
+
+    private static class Bucket {
+        final long key;
+        final FeatureBuffer features = new FeatureBuffer();
+        double west = Double.MAX_VALUE;
+        double south = Double.MAX_VALUE;
+        double east = -Double.MAX_VALUE;
+        double north = -Double.MAX_VALUE;
+
+        Bucket(long key) {
+            this.key = key;
+        }
+
+        void extend(double[] bounds) {
+            west = Math.min(west, bounds[0]);
+            south = Math.min(south, bounds[1]);
+            east = Math.max(east, bounds[2]);
+            north = Math.max(north, bounds[3]);
+        }
+    }
+
+    /**
+     * Command line entry point: {@code input.geojson output.mfb [zoom]}
+     *
+     * @param args the arguments
+     * @throws IOException when the conversion fails
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: MappedFeatureWriter input.geojson output.mfb [zoom]");
+            System.exit(1);
+        }
+
+        MappedFeatureWriter writer = new MappedFeatureWriter();
+        if (args.length > 2) {
+            writer.withZoom(Integer.parseInt(args[2]));
+        }
+
+        InputStream input = new BufferedInputStream(new FileInputStream(args[0]));
+        try {
+            int count = writer.write(input, new File(args[1]));
+            System.out.println("Wrote " + count + " features to " + args[1]);
+        } finally {
+            input.close();
+        }
+    }
+}
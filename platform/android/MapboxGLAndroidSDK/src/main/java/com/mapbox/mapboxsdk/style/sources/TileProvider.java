@@ -0,0 +1,26 @@
+package com.mapbox.mapboxsdk.style.sources;
+
+import android.support.annotation.Nullable;
+import android.support.annotation.WorkerThread;
+
+import java.io.IOException;
+
+/**
+ * Supplies the tiles of a {@link CustomTileSource}.
+ */
+public interface TileProvider {
+
+    /**
+     * Called on a worker thread for every tile the map needs. Calls for different tiles can run
+     * concurrently, implementations must be thread safe.
+     *
+     * @param z the zoom level
+     * @param x the tile column
+     * @param y the tile row, counted from the top (XYZ scheme)
+     * @return the encoded tile, or null if there is no data for the tile
+     * @throws IOException when the tile could not be produced, the map retries it later
+     */
+    @WorkerThread
+    @Nullable
+    byte[] getTile(int z, int x, int y) throws IOException;
+}
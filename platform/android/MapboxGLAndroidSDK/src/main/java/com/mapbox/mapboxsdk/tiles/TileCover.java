@@ -0,0 +1,354 @@
+package com.mapbox.mapboxsdk.tiles;
+
+import android.support.annotation.NonNull;
+
+import com.mapbox.mapboxsdk.geometry.LatLng;
+import com.mapbox.mapboxsdk.geometry.LatLngBounds;
+import com.mapbox.mapboxsdk.geometry.VisibleRegion;
+
+import java.util.Arrays;
+
+/**
+ * Computes the tiles covering an area at a zoom level, written as packed {@link TileId}s into a
+ * caller provided array.
+ * <p>
+ * Polygons are filled with a scanline per row of tiles: a tile is part of the cover when the polygon
+ * overlaps it by more than its edge. Consecutive vertices are joined the shorter way around the
+ * globe, so polygons crossing the antimeridian cover the tiles on both sides. Rows are written from
+ * north to south, tiles within a row from west to east.
+ * </p>
+ * <p>
+ * The cover methods write as many tiles as fit in the array and return their number; the count
+ * methods return the size of the whole cover, to size the array beforehand.
+ * </p>
+ */
+public final class TileCover {
+
+    private TileCover() {
+        // Static methods only
+    }
+
+    /**
+     * Cover the area visible on the map, a trapezoid when the map is tilted.
+     *
+     * @param region the region, from {@link com.mapbox.mapboxsdk.maps.Projection#getVisibleRegion()}
+     * @param zoom   the zoom, from 0 to {@link TileId#MAX_ZOOM}
+     * @param out    the array to write the tile ids to
+     * @param offset the index of the first tile id in the array
+     * @return the number of tile ids written
+     */
+    public static int cover(@NonNull VisibleRegion region, int zoom, @NonNull long[] out, int offset) {
+        return written(scan(toRing(region), zoom, out, offset), out, offset);
+    }
+
+    /**
+     * Cover a polygon.
+     *
+     * @param polygon the vertices of the polygon, in order, the last one connects to the first one
+     * @param zoom    the zoom, from 0 to {@link TileId#MAX_ZOOM}
+     * @param out     the array to write the tile ids to
+     * @param offset  the index of the first tile id in the array
+     * @return the number of tile ids written
+     */
+    public static int cover(@NonNull LatLng[] polygon, int zoom, @NonNull long[] out, int offset) {
+        return written(scan(toRing(polygon), zoom, out, offset), out, offset);
+    }
+
+    /**
+     * Cover a polygon given in world coordinates, see {@link TileMath}.
+     *
+     * @param ring   the x and y coordinates of the vertices, interleaved
+     * @param zoom   the zoom, from 0 to {@link TileId#MAX_ZOOM}
+     * @param out    the array to write the tile ids to
+     * @param offset the index of the first tile id in the array
+     * @return the number of tile ids written
+     */
+    public static int cover(@NonNull double[] ring, int zoom, @NonNull long[] out, int offset) {
+        return written(scan(ring, zoom, out, offset), out, offset);
+    }
+
+    /**
+     * Cover a rectangle.
+     *
+     * @param bounds the rectangle
+     * @param zoom   the zoom, from 0 to {@link TileId#MAX_ZOOM}
+     * @param out    the array to write the tile ids to
+     * @param offset the index of the first tile id in the array
+     * @return the number of tile ids written
+     */
+    public static int cover(@NonNull LatLngBounds bounds, int zoom, @NonNull long[] out, int offset) {
+        checkZoom(zoom);
+        int max = (1 << zoom) - 1;
+        int minX = firstTile(TileMath.worldX(bounds.getLonWest()), zoom, max);
+        int maxX = lastTile(TileMath.worldX(bounds.getLonEast()), zoom, minX, max);
+        int minY = firstTile(TileMath.worldY(bounds.getLatNorth()), zoom, max);
+        int maxY = lastTile(TileMath.worldY(bounds.getLatSouth()), zoom, minY, max);
+
+        int written = 0;
+        for (int y = minY; y <= maxY; y++) {
+            for (int x = minX; x <= maxX; x++) {
+                if (offset + written >= out.length) {
+                    return written;
+                }
+                out[offset + written++] = TileId.pack(zoom, x, y);
+            }
+        }
+        return written;
+    }
+
+    /**
+     * @param region the region, from {@link com.mapbox.mapboxsdk.maps.Projection#getVisibleRegion()}
+     * @param zoom   the zoom, from 0 to {@link TileId#MAX_ZOOM}
+     * @return the number of tiles covering the region
+     */
+    public static long count(@NonNull VisibleRegion region, int zoom) {
+        return scan(toRing(region), zoom, null, 0);
+    }
+
+    /**
+     * @param polygon the vertices of the polygon, in order
+     * @param zoom    the zoom, from 0 to {@link TileId#MAX_ZOOM}
+     * @return the number of tiles covering the polygon
+     */
+    public static long count(@NonNull LatLng[] polygon, int zoom) {
+        return scan(toRing(polygon), zoom, null, 0);
+    }
+
+    /**
+     * @param ring the x and y world coordinates of the vertices, interleaved
+     * @param zoom the zoom, from 0 to {@link TileId#MAX_ZOOM}
+     * @return the number of tiles covering the polygon
+     */
+    public static long count(@NonNull double[] ring, int zoom) {
+        return scan(ring, zoom, null, 0);
+    }
+
+    /**
+     * Count the tiles covering a rectangle over a range of zoom levels, as an offline download of
+     * the rectangle would.
+     *
+     * @param bounds  the rectangle
+     * @param minZoom the lowest zoom, from 0 to {@link TileId#MAX_ZOOM}
+     * @param maxZoom the highest zoom, from minZoom to {@link TileId#MAX_ZOOM}
+     * @return the number of tiles
+     */
+    public static long count(@NonNull LatLngBounds bounds, int minZoom, int maxZoom) {
+        checkZoom(minZoom);
+        checkZoom(maxZoom);
+        long count = 0;
+        for (int zoom = minZoom; zoom <= maxZoom; zoom++) {
+            int max = (1 << zoom) - 1;
+            int minX = firstTile(TileMath.worldX(bounds.getLonWest()), zoom, max);
+            int maxX = lastTile(TileMath.worldX(bounds.getLonEast()), zoom, minX, max);
+            int minY = firstTile(TileMath.worldY(bounds.getLatNorth()), zoom, max);
+            int maxY = lastTile(TileMath.worldY(bounds.getLatSouth()), zoom, minY, max);
+            count += (long) (maxX - minX + 1) * (maxY - minY + 1);
+        }
+        return count;
+    }
+
+    private static int written(long count, long[] out, int offset) {
+        return (int) Math.min(count, Math.max(0, out.length - offset));
+    }
+
+    private static double[] toRing(VisibleRegion region) {
+        return toRing(new LatLng[] {region.nearLeft, region.nearRight, region.farRight, region.farLeft});
+    }
+
+    private static double[] toRing(LatLng[] polygon) {
+        double[] ring = new double[polygon.length * 2];
+        double previous = 0;
+        for (int i = 0; i < polygon.length; i++) {
+            double longitude = polygon[i].getLongitude();
+            if (i > 0) {
+                // Takes the shorter way, which crosses the antimeridian when needed
+                longitude = previous + ((longitude - previous) % 360 + 540) % 360 - 180;
+            }
+            previous = longitude;
+            ring[i * 2] = TileMath.worldX(longitude);
+            ring[i * 2 + 1] = TileMath.worldY(polygon[i].getLatitude());
+        }
+        return ring;
+    }
+
+    /**
+     * Fill a polygon row by row. Each row is the union of the spans of the edges crossing it, for the
+     * tiles along the outline, and the spans between pairs of edges at its center, for the tiles
+     * inside.
+     *
+     * @param out the array to write to, or null to only count
+     * @return the number of tiles in the cover, of which those fitting in the array are written
+     */
+    private static long scan(double[] ring, int zoom, long[] out, int offset) {
+        checkZoom(zoom);
+        int points = ring.length / 2;
+        if (points == 0) {
+            return 0;
+        }
+
+        int tiles = 1 << zoom;
+        double[] xs = new double[points];
+        double[] ys = new double[points];
+        double minY = Double.MAX_VALUE;
+        double maxY = -Double.MAX_VALUE;
+        for (int i = 0; i < points; i++) {
+            xs[i] = ring[i * 2] * tiles;
+            ys[i] = Math.max(0, Math.min(tiles, ring[i * 2 + 1] * tiles));
+            minY = Math.min(minY, ys[i]);
+            maxY = Math.max(maxY, ys[i]);
+        }
+
+        int firstRow = firstTile(minY / tiles, zoom, tiles - 1);
+        int lastRow = lastTile(maxY / tiles, zoom, firstRow, tiles - 1);
+
+        // Spans as pairs of x coordinates, merged before they are turned into tiles
+        double[] spans = new double[points * 8];
+        double[] crossings = new double[points];
+        long count = 0;
+
+        for (int row = firstRow; row <= lastRow; row++) {
+            int spanCount = 0;
+
+            for (int i = 0; i < points; i++) {
+                int j = (i + 1) % points;
+                double top = Math.max(Math.min(ys[i], ys[j]), row);
+                double bottom = Math.min(Math.max(ys[i], ys[j]), row + 1);
+                // Edges only touching the row, on its top or bottom, don't overlap it
+                if (top > bottom || (top == bottom && (top == row || top == row + 1))) {
+                    continue;
+                }
+                double x0 = xs[i];
+                double x1 = xs[j];
+                if (ys[i] != ys[j]) {
+                    double slope = (xs[j] - xs[i]) / (ys[j] - ys[i]);
+                    x0 = xs[i] + (top - ys[i]) * slope;
+                    x1 = xs[i] + (bottom - ys[i]) * slope;
+                }
+                spanCount = addSpan(spans, spanCount, Math.min(x0, x1), Math.max(x0, x1), tiles);
+            }
+
+            double center = row + 0.5;
+            int crossingCount = 0;
+            for (int i = 0; i < points; i++) {
+                int j = (i + 1) % points;
+                if ((ys[i] <= center) != (ys[j] <= center)) {
+                    crossings[crossingCount++] = xs[i] + (center - ys[i]) * (xs[j] - xs[i]) / (ys[j] - ys[i]);
+                }
+            }
+            Arrays.sort(crossings, 0, crossingCount);
+            for (int i = 0; i + 1 < crossingCount; i += 2) {
+                spanCount = addSpan(spans, spanCount, crossings[i], crossings[i + 1], tiles);
+            }
+
+            count += emitRow(spans, spanCount, zoom, row, out, offset + count);
+        }
+        return count;
+    }
+
+    /**
+     * Add a span, moved into the world and split at the antimeridian, so spans of unwrapped
+     * coordinates don't cover a tile twice.
+     */
+    private static int addSpan(double[] spans, int spanCount, double from, double to, int tiles) {
+        if (to - from >= tiles) {
+            from = 0;
+            to = tiles;
+        } else {
+            double shift = Math.floor(from / tiles) * tiles;
+            from -= shift;
+            to -= shift;
+            if (to > tiles) {
+                spans[spanCount * 2] = 0;
+                spans[spanCount * 2 + 1] = to - tiles;
+                spanCount++;
+                to = tiles;
+            }
+        }
+        spans[spanCount * 2] = from;
+        spans[spanCount * 2 + 1] = to;
+        return spanCount + 1;
+    }
+
+    /**
+     * Merge the spans of a row and write their tiles.
+     * <p>
+     * Spans are merged as coordinates, so an edge on a tile boundary doesn't add the tile beyond it.
+     * </p>
+     */
+    private static long emitRow(double[] spans, int spanCount, int zoom, int row, long[] out, long offset) {
+        if (spanCount == 0) {
+            return 0;
+        }
+        sortSpans(spans, spanCount);
+
+        long count = 0;
+        int previous = -1;
+        double from = spans[0];
+        double to = spans[1];
+        for (int i = 1; i <= spanCount; i++) {
+            if (i < spanCount && spans[i * 2] <= to) {
+                to = Math.max(to, spans[i * 2 + 1]);
+                continue;
+            }
+            // Distinct spans within the same tile share it
+            int first = Math.max((int) Math.floor(from), previous + 1);
+            int last = Math.min((1 << zoom) - 1, Math.max((int) Math.floor(from), (int) Math.ceil(to) - 1));
+            if (first <= last) {
+                count += emitTiles(first, last, zoom, row, out, offset, count);
+                previous = last;
+            }
+            if (i < spanCount) {
+                from = spans[i * 2];
+                to = spans[i * 2 + 1];
+            }
+        }
+        return count;
+    }
+
+    private static long emitTiles(int first, int last, int zoom, int row, long[] out, long offset, long written) {
+        if (out != null) {
+            for (int x = first; x <= last; x++) {
+                long index = offset + written + (x - first);
+                if (index >= out.length) {
+                    break;
+                }
+                out[(int) index] = TileId.pack(zoom, x, row);
+            }
+        }
+        return last - first + 1;
+    }
+
+    private static void sortSpans(double[] spans, int spanCount) {
+        // Insertion sort by start, rows have a handful of spans
+        for (int i = 1; i < spanCount; i++) {
+            double from = spans[i * 2];
+            double to = spans[i * 2 + 1];
+            int j = i - 1;
+            while (j >= 0 && spans[j * 2] > from) {
+                spans[(j + 1) * 2] = spans[j * 2];
+                spans[(j + 1) * 2 + 1] = spans[j * 2 + 1];
+                j--;
+            }
+            spans[(j + 1) * 2] = from;
+            spans[(j + 1) * 2 + 1] = to;
+        }
+    }
+
+    private static int firstTile(double world, int zoom, int max) {
+        return TileMath.clampTile(world * (1 << zoom), max);
+    }
+
+    /**
+     * The last tile of a range ending at a world coordinate, which doesn't include the next tile when
+     * the range ends on its edge.
+     */
+    private static int lastTile(double world, int zoom, int first, int max) {
+        return Math.max(first, Math.min(max, (int) Math.ceil(world * (1 << zoom)) - 1));
+    }
+
+    private static void checkZoom(int zoom) {
+        if (zoom < 0 || zoom > TileId.MAX_ZOOM) {
+            throw new IllegalArgumentException("Zoom out of range: " + zoom);
+        }
+    }
+}
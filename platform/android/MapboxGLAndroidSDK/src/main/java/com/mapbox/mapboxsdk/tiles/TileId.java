@@ -0,0 +1,139 @@
+package com.mapbox.mapboxsdk.tiles;
+
+import android.support.annotation.NonNull;
+
+/**
+ * Tile ids packed into a single long, so covers of thousands of tiles fit in a {@code long[]}
+ * without an object per tile.
+ * <p>
+ * The zoom takes the upper 6 bits, x and y 29 bits each: {@code z << 58 | x << 29 | y}. Ids sort by
+ * zoom, then x, then y. Tiles follow the XYZ scheme, with y growing southwards.
+ * </p>
+ */
+public final class TileId {
+
+    /**
+     * The maximum zoom of a packed tile id.
+     */
+    public static final int MAX_ZOOM = 29;
+
+    private static final int COORDINATE_BITS = 29;
+    private static final long COORDINATE_MASK = (1L << COORDINATE_BITS) - 1;
+
+    private TileId() {
+        // Static methods only
+    }
+
+    /**
+     * Pack a tile id.
+     *
+     * @param z the zoom, from 0 to {@link #MAX_ZOOM}
+     * @param x the column, from 0 to 2^z - 1
+     * @param y the row, from 0 to 2^z - 1
+     * @return the packed tile id
+     */
+    public static long pack(int z, int x, int y) {
+        if (z < 0 || z > MAX_ZOOM) {
+            throw new IllegalArgumentException("Zoom out of range: " + z);
+        }
+        int max = 1 << z;
+        if (x < 0 || x >= max || y < 0 || y >= max) {
+            throw new IllegalArgumentException("Tile out of range: " + z + "/" + x + "/" + y);
+        }
+        return ((long) z << (2 * COORDINATE_BITS)) | ((long) x << COORDINATE_BITS) | y;
+    }
+
+    public static int getZoom(long tileId) {
+        return (int) (tileId >>> (2 * COORDINATE_BITS));
+    }
+
+    public static int getX(long tileId) {
+        return (int) ((tileId >>> COORDINATE_BITS) & COORDINATE_MASK);
+    }
+
+    public static int getY(long tileId) {
+        return (int) (tileId & COORDINATE_MASK);
+    }
+
+    /**
+     * @param tileId a tile id
+     * @return the tile containing it at the previous zoom, or the tile itself at zoom 0
+     */
+    public static long getParent(long tileId) {
+        int z = getZoom(tileId);
+        if (z == 0) {
+            return tileId;
+        }
+        return pack(z - 1, getX(tileId) >> 1, getY(tileId) >> 1);
+    }
+
+    /**
+     * Write the four tiles of the next zoom a tile contains.
+     *
+     * @param tileId a tile id, below {@link #MAX_ZOOM}
+     * @param out    the array to write to
+     * @param offset the index of the first child in the array
+     */
+    public static void getChildren(long tileId, @NonNull long[] out, int offset) {
+        int z = getZoom(tileId) + 1;
+        int x = getX(tileId) << 1;
+        int y = getY(tileId) << 1;
+        out[offset] = pack(z, x, y);
+        out[offset + 1] = pack(z, x + 1, y);
+        out[offset + 2] = pack(z, x, y + 1);
+        out[offset + 3] = pack(z, x + 1, y + 1);
+    }
+
+    /**
+     * Convert a tile id to a quadkey, as used by Bing Maps. Tile 0/0/0 is the empty string.
+     *
+     * @param tileId a tile id
+     * @return the quadkey, one digit per zoom level
+     */
+    @NonNull
+    public static String toQuadKey(long tileId) {
+        int z = getZoom(tileId);
+        int x = getX(tileId);
+        int y = getY(tileId);
+        char[] digits = new char[z];
+        for (int i = 0; i < z; i++) {
+            int bit = z - 1 - i;
+            digits[i] = (char) ('0' + ((x >> bit) & 1) + (((y >> bit) & 1) << 1));
+        }
+        return new String(digits);
+    }
+
+    /**
+     * Convert a quadkey to a tile id.
+     *
+     * @param quadKey the quadkey, with digits from 0 to 3
+     * @return the tile id
+     * @throws IllegalArgumentException if the quadkey is invalid or too long
+     */
+    public static long fromQuadKey(@NonNull String quadKey) {
+        int z = quadKey.length();
+        if (z > MAX_ZOOM) {
+            throw new IllegalArgumentException("Quadkey too long: " + quadKey);
+        }
+        int x = 0;
+        int y = 0;
+        for (int i = 0; i < z; i++) {
+            int digit = quadKey.charAt(i) - '0';
+            if (digit < 0 || digit > 3) {
+                throw new IllegalArgumentException("Invalid quadkey: " + quadKey);
+            }
+            x = (x << 1) | (digit & 1);
+            y = (y << 1) | (digit >> 1);
+        }
+        return pack(z, x, y);
+    }
+
+    /**
+     * @param tileId a tile id
+     * @return the tile as z/x/y
+     */
+    @NonNull
+    public static String toString(long tileId) {
+        return getZoom(tileId) + "/" + getX(tileId) + "/" + getY(tileId);
+    }
+}
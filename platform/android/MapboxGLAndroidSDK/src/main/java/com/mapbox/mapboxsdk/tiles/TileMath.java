@@ -0,0 +1,95 @@
+package com.mapbox.mapboxsdk.tiles;
+
+import android.support.annotation.NonNull;
+
+import com.mapbox.mapboxsdk.constants.GeoConstants;
+import com.mapbox.mapboxsdk.geometry.LatLng;
+import com.mapbox.mapboxsdk.geometry.LatLngBounds;
+import com.mapbox.mapboxsdk.utils.MathUtils;
+
+/**
+ * Conversions between geographic coordinates and Web Mercator tile coordinates.
+ * <p>
+ * World coordinates range from 0 to 1, from the antimeridian eastwards and from the maximum
+ * latitude southwards. Tile coordinates are world coordinates scaled by 2^zoom, their integer part
+ * is the tile.
+ * </p>
+ */
+public final class TileMath {
+
+    private TileMath() {
+        // Static methods only
+    }
+
+    /**
+     * @param longitude the longitude, unwrapped values are kept outside the world
+     * @return the world x coordinate
+     */
+    public static double worldX(double longitude) {
+        return (longitude + 180) / 360;
+    }
+
+    /**
+     * @param latitude the latitude, clamped to the latitudes of the Web Mercator projection
+     * @return the world y coordinate, from 0 to 1
+     */
+    public static double worldY(double latitude) {
+        double sin = Math.sin(Math.toRadians(MathUtils.clamp(latitude, GeoConstants.MIN_LATITUDE, GeoConstants.MAX_LATITUDE)));
+        return MathUtils.clamp(0.5 - Math.log((1 + sin) / (1 - sin)) / (4 * Math.PI), 0, 1);
+    }
+
+    /**
+     * @param worldX the world x coordinate
+     * @return the longitude
+     */
+    public static double longitude(double worldX) {
+        return worldX * 360 - 180;
+    }
+
+    /**
+     * @param worldY the world y coordinate
+     * @return the latitude
+     */
+    public static double latitude(double worldY) {
+        return Math.toDegrees(Math.atan(Math.sinh(Math.PI * (1 - 2 * worldY))));
+    }
+
+    /**
+     * @param latLng a location
+     * @param zoom   the zoom, from 0 to {@link TileId#MAX_ZOOM}
+     * @return the tile containing the location
+     */
+    public static long tileAt(@NonNull LatLng latLng, int zoom) {
+        return tileAt(worldX(MathUtils.wrap(latLng.getLongitude(), -180, 180)), worldY(latLng.getLatitude()), zoom);
+    }
+
+    /**
+     * @param worldX the world x coordinate, from 0 to 1
+     * @param worldY the world y coordinate, from 0 to 1
+     * @param zoom   the zoom, from 0 to {@link TileId#MAX_ZOOM}
+     * @return the tile containing the point
+     */
+    public static long tileAt(double worldX, double worldY, int zoom) {
+        int max = (1 << zoom) - 1;
+        return TileId.pack(zoom, clampTile(worldX * (1 << zoom), max), clampTile(worldY * (1 << zoom), max));
+    }
+
+    /**
+     * @param tileId a tile id
+     * @return the area of the tile
+     */
+    @NonNull
+    public static LatLngBounds getBounds(long tileId) {
+        double scale = 1 << TileId.getZoom(tileId);
+        int x = TileId.getX(tileId);
+        int y = TileId.getY(tileId);
+        return new LatLngBounds.Builder()
+            .include(new LatLng(latitude(y / scale), longitude(x / scale)))
+            .include(new LatLng(latitude((y + 1) / scale), longitude((x + 1) / scale)))
+            .build();
+    }
+
+    static int clampTile(double tileCoordinate, int max) {
+        return (int) Math.max(0, Math.min(max, Math.floor(tileCoordinate)));
+    }
+}
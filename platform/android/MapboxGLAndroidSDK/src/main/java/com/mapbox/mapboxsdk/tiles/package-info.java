@@ -0,0 +1,4 @@
+/**
+ * Contains the Mapbox Maps Android Tile Math API classes.
+ */
+package com.mapbox.mapboxsdk.tiles;
@@ -0,0 +1,80 @@
+package com.mapbox.mapboxsdk.http;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests for ByteBufferPool
+ */
+public class ByteBufferPoolTest {
+
+    @Test
+    public void testReuse() {
+        ByteBufferPool pool = new ByteBufferPool(1024 * 1024);
+        ByteBuffer buffer = pool.acquire(20000);
+        assertTrue(buffer.isDirect());
+        assertEquals(32 * 1024, buffer.capacity());
+
+        pool.release(buffer);
+        assertEquals(32 * 1024, pool.getPooledBytes());
+        assertSame(buffer, pool.acquire(17000));
+        assertEquals(0, pool.getPooledBytes());
+    }
+
+    @Test
+    public void testPoolLimit() {
+        ByteBufferPool pool = new ByteBufferPool(16 * 1024);
+        pool.release(pool.acquire(16 * 1024));
+        pool.release(pool.acquire(16 * 1024 + 1));
+        assertEquals(16 * 1024, pool.getPooledBytes());
+    }
+
+    @Test
+    public void testReadUnknownSize() throws IOException {
+        ByteBufferPool pool = new ByteBufferPool(1024 * 1024);
+        byte[] data = new byte[100000];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = (byte) i;
+        }
+
+        ByteBuffer buffer = pool.read(new ByteArrayInputStream(data), -1);
+        assertEquals(data.length, buffer.remaining());
+        for (int i = 0; i < data.length; i++) {
+            assertEquals(data[i], buffer.get(i));
+        }
+    }
+
+    @Test
+    public void testReadKnownSize() throws IOException {
+        ByteBufferPool pool = new ByteBufferPool(1024 * 1024);
+        ByteBuffer buffer = pool.read(new ByteArrayInputStream(new byte[]{1, 2, 3}), 3);
+        assertEquals(3, buffer.remaining());
+        assertEquals(3, buffer.get(2));
+    }
+
+    @Test
+    public void testReadFailure() {
+        ByteBufferPool pool = new ByteBufferPool(1024 * 1024);
+        try {
+            pool.read(new InputStream() {
+                @Override
+                public int read() throws IOException {
+                    throw new IOException("reset");
+                }
+            }, -1);
+            fail();
+        } catch (IOException exception) {
+            assertEquals("reset", exception.getMessage());
+        }
+        assertEquals(16 * 1024, pool.getPooledBytes());
+    }
+}
@@ -0,0 +1,133 @@
+package com.mapbox.mapboxsdk.http;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.UnknownHostException;
+import java.nio.charset.Charset;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import okhttp3.Cache;
+import okhttp3.Dns;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for CacheKey
+ */
+public class CacheKeyTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final List<String> requestLines = new CopyOnWriteArrayList<>();
+    private ServerSocket server;
+
+    @Before
+    public void setUp() throws IOException {
+        // A minimal HTTP server, so requests go through the cache and network interceptors
+        server = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+        Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                while (!server.isClosed()) {
+                    try {
+                        serve(server.accept());
+                    } catch (IOException exception) {
+                        // Closed
+                    }
+                }
+            }
+        });
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        server.close();
+    }
+
+    @Test
+    public void testNormalize() {
+        assertEquals("https://a.tiles.mapbox.com/v4/mapbox.streets/1/0/0.vector.pbf?style=x",
+            CacheKey.normalize("https://a.tiles.mapbox.com/v4/mapbox.streets/1/0/0.vector.pbf"
+                + "?access_token=pk.abc&style=x&events=true#fragment"));
+        assertEquals("https://api.mapbox.cn/styles/v1/mapbox/streets-v9",
+            CacheKey.normalize("https://api.mapbox.cn/styles/v1/mapbox/streets-v9?access_token=pk.abc"));
+        assertEquals("https://example.com/tiles/1/0/0.png?access_token=secret",
+            CacheKey.normalize("https://example.com/tiles/1/0/0.png?access_token=secret"));
+        assertEquals("not an url", CacheKey.normalize("not an url"));
+    }
+
+    @Test
+    public void testMapboxHost() {
+        assertTrue(CacheKey.isMapboxHost("mapbox.com"));
+        assertTrue(CacheKey.isMapboxHost("api.mapbox.cn"));
+        assertFalse(CacheKey.isMapboxHost("notmapbox.com"));
+    }
+
+    @Test
+    public void testDiskCache() throws IOException {
+        OkHttpClient client = new OkHttpClient.Builder()
+            .cache(new Cache(folder.getRoot(), 1024 * 1024))
+            .dns(new Dns() {
+                @Override
+                public List<InetAddress> lookup(String hostname) throws UnknownHostException {
+                    return Collections.singletonList(InetAddress.getLoopbackAddress());
+                }
+            })
+            .addInterceptor(CacheKey.applicationInterceptor())
+            .addNetworkInterceptor(CacheKey.networkInterceptor())
+            .build();
+
+        String url = "http://a.tiles.mapbox.com:" + server.getLocalPort() + "/v4/1/0/0.pbf?access_token=";
+        assertEquals("tile", get(client, url + "first&events=true"));
+        assertEquals("tile", get(client, url + "second&events=true"));
+
+        // The token reached the server, the second token was served from the cache
+        assertEquals(1, requestLines.size());
+        assertEquals("GET /v4/1/0/0.pbf?access_token=first&events=true HTTP/1.1", requestLines.get(0));
+    }
+
+    private static String get(OkHttpClient client, String url) throws IOException {
+        Response response = client.newCall(new Request.Builder().url(url).build()).execute();
+        return response.body().string();
+    }
+
+    private void serve(Socket socket) throws IOException {
+        try {
+            BufferedReader reader = new BufferedReader(new InputStreamReader(socket.getInputStream(),
+                Charset.forName("UTF-8")));
+            requestLines.add(reader.readLine());
+            String line;
+            do {
+                line = reader.readLine();
+            } while (line != null && !line.isEmpty());
+
+            OutputStream output = socket.getOutputStream();
+            output.write(("HTTP/1.1 200 OK\r\nCache-Control: max-age=60\r\nContent-Length: 4\r\n"
+                + "Connection: close\r\n\r\ntile").getBytes(Charset.forName("UTF-8")));
+            output.flush();
+        } finally {
+            socket.close();
+        }
+    }
+}
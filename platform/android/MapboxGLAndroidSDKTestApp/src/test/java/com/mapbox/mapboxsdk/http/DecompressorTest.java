@@ -0,0 +1,116 @@
+package com.mapbox.mapboxsdk.http;
+
+import com.mapbox.mapboxsdk.net.HttpMetrics;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Random;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests for Decompressor
+ */
+public class DecompressorTest {
+
+    private ByteBufferPool bufferPool;
+    private Decompressor decompressor;
+
+    @Before
+    public void setUp() {
+        bufferPool = new ByteBufferPool(16 * 1024 * 1024);
+        decompressor = new Decompressor(bufferPool, Decompressor.newExecutor(1, 4));
+        HttpMetrics.getInstance().reset();
+    }
+
+    @Test
+    public void testGunzip() throws IOException {
+        // Larger than a chunk and than the initial output estimate
+        byte[] data = new byte[100 * 1024];
+        new Random(1).nextBytes(data);
+        for (int i = 0; i < data.length; i += 2) {
+            data[i] = 0;
+        }
+
+        byte[] compressed = gzip(data);
+        ByteBuffer body = decompressor.gunzip(bufferPool.wrap(compressed));
+        byte[] result = new byte[body.remaining()];
+        body.get(result);
+        assertArrayEquals(data, result);
+
+        assertEquals(compressed.length, HttpMetrics.getInstance().getCompressedBytes());
+        assertEquals(data.length, HttpMetrics.getInstance().getDecompressedBytes());
+        assertEquals(1, HttpMetrics.getInstance().getDecompressMicros().getCount());
+    }
+
+    @Test
+    public void testHeaderFields() throws IOException {
+        // gzip -N style header with a file name and a comment
+        byte[] compressed = gzip(new byte[]{4, 5, 6});
+        byte[] named = new byte[compressed.length + 8];
+        System.arraycopy(compressed, 0, named, 0, 10);
+        named[3] = 8 | 16;
+        System.arraycopy(new byte[]{'a', '.', 'p', 0, 'c', 'o', 'm', 0}, 0, named, 10, 8);
+        System.arraycopy(compressed, 10, named, 18, compressed.length - 10);
+
+        ByteBuffer body = decompressor.gunzip(bufferPool.wrap(named));
+        byte[] result = new byte[body.remaining()];
+        body.get(result);
+        assertArrayEquals(new byte[]{4, 5, 6}, result);
+    }
+
+    @Test
+    public void testInvalid() {
+        byte[] compressed = gzip(new byte[1000]);
+
+        byte[] truncated = new byte[compressed.length - 4];
+        System.arraycopy(compressed, 0, truncated, 0, truncated.length);
+        assertInvalid(truncated);
+
+        byte[] corrupt = compressed.clone();
+        corrupt[corrupt.length - 8] ^= 1;
+        assertInvalid(corrupt);
+
+        assertInvalid(new byte[]{1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11});
+    }
+
+    @Test
+    public void testPooling() throws IOException {
+        ByteBuffer body = decompressor.gunzip(bufferPool.wrap(gzip(new byte[]{1})));
+        // The compressed input went back to the pool
+        assertEquals(16 * 1024, bufferPool.getPooledBytes());
+        bufferPool.release(body);
+        assertEquals(2 * 16 * 1024, bufferPool.getPooledBytes());
+
+        decompressor.gunzip(bufferPool.wrap(gzip(new byte[]{1})));
+        assertEquals(16 * 1024, bufferPool.getPooledBytes());
+    }
+
+    private void assertInvalid(byte[] compressed) {
+        try {
+            decompressor.gunzip(bufferPool.wrap(compressed));
+            fail("Expected an IOException");
+        } catch (IOException expected) {
+            // Expected
+        }
+    }
+
+    static byte[] gzip(byte[] data) {
+        try {
+            ByteArrayOutputStream output = new ByteArrayOutputStream();
+            GZIPOutputStream gzip = new GZIPOutputStream(output);
+            gzip.write(data);
+            gzip.close();
+            return output.toByteArray();
+        } catch (IOException exception) {
+            throw new AssertionError(exception);
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package com.mapbox.mapboxsdk.http;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for HostBackoff
+ */
+public class HostBackoffTest {
+
+    private static final String HOST = "tiles.example.com";
+
+    private long now = 1000000000L;
+    private HostBackoff backoff;
+
+    @Before
+    public void setUp() {
+        backoff = new HostBackoff(new HostBackoff.Clock() {
+            @Override
+            public long currentTimeMillis() {
+                return now;
+            }
+        }, new Random(42));
+    }
+
+    @Test
+    public void testHealthyHost() {
+        assertEquals(0, backoff.admit(HOST));
+        backoff.onSuccess(HOST);
+        assertEquals(0, backoff.admit(HOST));
+    }
+
+    @Test
+    public void testBackoffWithJitter() {
+        backoff.onFailure(HOST, now);
+        backoff.onFailure(HOST, now);
+        for (int i = 0; i < 20; i++) {
+            long delay = backoff.admit(HOST);
+            assertTrue(delay >= 0 && delay < 500);
+        }
+        assertEquals(0, backoff.admit("other.example.com"));
+
+        backoff.onSuccess(HOST);
+        assertEquals(0, backoff.admit(HOST));
+    }
+
+    @Test
+    public void testCircuitBreaker() {
+        for (int i = 0; i < HostBackoff.CIRCUIT_THRESHOLD; i++) {
+            backoff.onFailure(HOST, now);
+        }
+        assertEquals(HostBackoff.REJECT, backoff.admit(HOST));
+
+        // Half open: a single probe
+        now += 10000;
+        assertEquals(0, backoff.admit(HOST));
+        assertEquals(HostBackoff.REJECT, backoff.admit(HOST));
+
+        // The probe succeeds and closes the circuit
+        backoff.onSuccess(HOST);
+        assertEquals(0, backoff.admit(HOST));
+    }
+
+    @Test
+    public void testFailedProbe() {
+        for (int i = 0; i < HostBackoff.CIRCUIT_THRESHOLD; i++) {
+            backoff.onFailure(HOST, now);
+        }
+        now += 10000;
+        assertEquals(0, backoff.admit(HOST));
+        backoff.onFailure(HOST, now);
+        assertEquals(HostBackoff.REJECT, backoff.admit(HOST));
+    }
+
+    @Test
+    public void testCallsInFlightDontExtendCooldown() {
+        long startedAt = now;
+        for (int i = 0; i < HostBackoff.CIRCUIT_THRESHOLD; i++) {
+            backoff.onFailure(HOST, startedAt);
+        }
+
+        // Dozens of requests started before the blip keep failing after the circuit opened
+        now += 100;
+        for (int i = 0; i < 50; i++) {
+            backoff.onConnectionFailure(HOST, startedAt);
+        }
+        assertEquals(HostBackoff.REJECT, backoff.admit(HOST));
+
+        // The first cooldown is at most the base cooldown, not the two minute cap
+        now += 5000;
+        assertEquals(0, backoff.admit(HOST));
+    }
+
+    @Test
+    public void testOfflineFailuresIgnored() {
+        backoff.onNetworkStateChanged(false);
+        for (int i = 0; i < HostBackoff.CIRCUIT_THRESHOLD * 2; i++) {
+            backoff.onConnectionFailure(HOST, now);
+        }
+        assertEquals(0, backoff.admit(HOST));
+
+        // Server errors still count
+        backoff.onFailure(HOST, now);
+        assertTrue(backoff.admit(HOST) >= 0);
+        assertTrue(backoff.admit(HOST) < 250);
+    }
+
+    @Test
+    public void testReconnectClosesCircuits() {
+        for (int i = 0; i < HostBackoff.CIRCUIT_THRESHOLD; i++) {
+            backoff.onConnectionFailure(HOST, now);
+        }
+        backoff.onRateLimited("limited.example.com", "30", null);
+        assertEquals(HostBackoff.REJECT, backoff.admit(HOST));
+
+        backoff.onNetworkStateChanged(false);
+        backoff.onNetworkStateChanged(true);
+        assertEquals(0, backoff.admit(HOST));
+        assertTrue(backoff.admit("limited.example.com") >= 30000);
+    }
+
+    @Test
+    public void testRateLimitRetryAfter() {
+        backoff.onRateLimited(HOST, "30", null);
+        long delay = backoff.admit(HOST);
+        assertTrue(delay >= 30000 && delay < 31000);
+
+        now += 31000;
+        assertEquals(0, backoff.admit(HOST));
+    }
+
+    @Test
+    public void testRateLimitReset() {
+        backoff.onRateLimited(HOST, null, String.valueOf(now / 1000 + 60));
+        long delay = backoff.admit(HOST);
+        assertTrue(delay >= 60000 && delay < 61000);
+    }
+
+    @Test
+    public void testParseRetryTime() {
+        assertEquals(5000, HostBackoff.parseRetryTime("5", null, 0));
+        assertEquals(784111777000L, HostBackoff.parseRetryTime("Sun, 06 Nov 1994 08:49:37 GMT", null, 0));
+        assertEquals(7000, HostBackoff.parseRetryTime(null, "7", 0));
+        assertEquals(0, HostBackoff.parseRetryTime("soon", null, 0));
+    }
+}
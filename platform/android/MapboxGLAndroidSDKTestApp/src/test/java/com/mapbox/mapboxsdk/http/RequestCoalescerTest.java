@@ -0,0 +1,212 @@
+package com.mapbox.mapboxsdk.http;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import okhttp3.Interceptor;
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import okio.Buffer;
+import okio.Okio;
+import okio.Source;
+import okio.Timeout;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for RequestCoalescer
+ */
+public class RequestCoalescerTest {
+
+    private final AtomicInteger networkCalls = new AtomicInteger();
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    private OkHttpClient client;
+    private HostBackoff hostBackoff;
+    private RequestCoalescer coalescer;
+
+    @Before
+    public void setUp() {
+        client = new OkHttpClient.Builder().addInterceptor(new Interceptor() {
+            @Override
+            public Response intercept(Chain chain) throws IOException {
+                networkCalls.incrementAndGet();
+                try {
+                    release.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException exception) {
+                    throw new IOException(exception);
+                }
+                Response.Builder response = new Response.Builder()
+                    .request(chain.request())
+                    .protocol(Protocol.HTTP_1_1)
+                    .code(200)
+                    .header("ETag", "abc");
+                if ("gzip".equals(chain.request().header("Accept-Encoding"))) {
+                    return response.header("Content-Encoding", "gzip")
+                        .body(ResponseBody.create(MediaType.parse("application/octet-stream"),
+                            DecompressorTest.gzip(new byte[]{1, 2, 3})))
+                        .build();
+                }
+                return response
+                    .body(ResponseBody.create(MediaType.parse("application/octet-stream"), new byte[]{1, 2, 3}))
+                    .build();
+            }
+        }).build();
+        ByteBufferPool bufferPool = new ByteBufferPool(1024 * 1024);
+        hostBackoff = new HostBackoff();
+        coalescer = new RequestCoalescer(bufferPool, hostBackoff,
+            new Decompressor(bufferPool, Decompressor.newExecutor(1, 4)));
+    }
+
+    @Test
+    public void testKey() {
+        assertEquals(RequestCoalescer.key(request("HTTPS://Example.com:443/a.pbf")),
+            RequestCoalescer.key(request("https://example.com/a.pbf#fragment")));
+        assertNotEquals(RequestCoalescer.key(request("https://example.com/a.pbf")),
+            RequestCoalescer.key(new Request.Builder().url("https://example.com/a.pbf")
+                .header("If-None-Match", "abc").build()));
+    }
+
+    @Test
+    public void testCoalesce() throws Exception {
+        ResultListener first = new ResultListener();
+        ResultListener second = new ResultListener();
+        coalescer.enqueue(client, request("https://example.com/a.pbf"), first);
+        coalescer.enqueue(client, request("https://example.com/a.pbf"), second);
+        assertEquals(1, coalescer.getCallCount());
+
+        release.countDown();
+        assertTrue(first.latch.await(5, TimeUnit.SECONDS));
+        assertTrue(second.latch.await(5, TimeUnit.SECONDS));
+        assertArrayEquals(new byte[]{1, 2, 3}, first.body);
+        assertArrayEquals(new byte[]{1, 2, 3}, second.body);
+        assertEquals("abc", second.etag);
+        assertEquals(1, networkCalls.get());
+        assertEquals(0, coalescer.getCallCount());
+    }
+
+    @Test
+    public void testCancelOne() throws Exception {
+        ResultListener first = new ResultListener();
+        ResultListener second = new ResultListener();
+        RequestCoalescer.Subscription subscription = coalescer.enqueue(client, request("https://example.com/a.pbf"), first);
+        coalescer.enqueue(client, request("https://example.com/a.pbf"), second);
+
+        subscription.cancel();
+        release.countDown();
+
+        assertTrue(second.latch.await(5, TimeUnit.SECONDS));
+        assertArrayEquals(new byte[]{1, 2, 3}, second.body);
+        assertEquals(1, first.latch.getCount());
+    }
+
+    @Test
+    public void testCancelAll() throws Exception {
+        ResultListener first = new ResultListener();
+        ResultListener second = new ResultListener();
+        coalescer.enqueue(client, request("https://example.com/a.pbf"), first).cancel();
+        coalescer.enqueue(client, request("https://example.com/a.pbf"), second).cancel();
+        assertEquals(0, coalescer.getCallCount());
+        release.countDown();
+
+        assertFalse(first.latch.await(200, TimeUnit.MILLISECONDS));
+        assertEquals(1, second.latch.getCount());
+    }
+
+    @Test
+    public void testGzip() throws Exception {
+        ResultListener listener = new ResultListener();
+        coalescer.enqueue(client, new Request.Builder().url("https://example.com/a.pbf")
+            .header("Accept-Encoding", "gzip").build(), listener);
+        release.countDown();
+
+        assertTrue(listener.latch.await(5, TimeUnit.SECONDS));
+        assertArrayEquals(new byte[]{1, 2, 3}, listener.body);
+        assertTrue(listener.thread.startsWith("HTTPDecompress"));
+    }
+
+    @Test
+    public void testFailedBodyRecordedOnce() throws Exception {
+        OkHttpClient failingClient = new OkHttpClient.Builder().addInterceptor(new Interceptor() {
+            @Override
+            public Response intercept(Chain chain) throws IOException {
+                return new Response.Builder()
+                    .request(chain.request())
+                    .protocol(Protocol.HTTP_1_1)
+                    .code(200)
+                    .body(ResponseBody.create(MediaType.parse("application/octet-stream"), 3,
+                        Okio.buffer(new FailingSource())))
+                    .build();
+            }
+        }).build();
+
+        // One more failure opens the circuit, unless the 200 response also counts as a success
+        for (int i = 1; i < HostBackoff.CIRCUIT_THRESHOLD; i++) {
+            hostBackoff.onFailure("example.com", hostBackoff.currentTimeMillis());
+        }
+
+        ResultListener listener = new ResultListener();
+        coalescer.enqueue(failingClient, request("https://example.com/a.pbf"), listener);
+        assertTrue(listener.latch.await(5, TimeUnit.SECONDS));
+        assertTrue(listener.failed);
+        assertEquals(HostBackoff.REJECT, hostBackoff.admit("example.com"));
+    }
+
+    private static Request request(String url) {
+        return new Request.Builder().url(url).build();
+    }
+
+    private static class ResultListener implements RequestCoalescer.Listener {
+        final CountDownLatch latch = new CountDownLatch(1);
+        String etag;
+        byte[] body;
+        String thread;
+        boolean failed;
+
+        @Override
+        public void onResponse(RequestCoalescer.Result result) {
+            // The body buffer goes back to the pool after the call
+            etag = result.etag;
+            body = new byte[result.body.remaining()];
+            result.body.duplicate().get(body);
+            thread = Thread.currentThread().getName();
+            latch.countDown();
+        }
+
+        @Override
+        public void onFailure(IOException error) {
+            failed = true;
+            latch.countDown();
+        }
+    }
+
+    private static class FailingSource implements Source {
+
+        @Override
+        public long read(Buffer sink, long byteCount) throws IOException {
+            throw new IOException("Connection reset");
+        }
+
+        @Override
+        public Timeout timeout() {
+            return Timeout.NONE;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
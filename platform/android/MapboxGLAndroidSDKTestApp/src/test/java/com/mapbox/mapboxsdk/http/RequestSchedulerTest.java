@@ -0,0 +1,127 @@
+package com.mapbox.mapboxsdk.http;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for RequestScheduler
+ */
+public class RequestSchedulerTest {
+
+    private final List<String> started = new ArrayList<>();
+    private final List<String> preempted = new ArrayList<>();
+
+    @Test
+    public void testPriorityOrder() {
+        RequestScheduler scheduler = new RequestScheduler(1, 60000);
+        RequestScheduler.Ticket first = scheduler.submit(new NamedTask("first"), RequestScheduler.PRIORITY_VISIBLE);
+        scheduler.submit(new NamedTask("offline"), RequestScheduler.PRIORITY_OFFLINE);
+        scheduler.submit(new NamedTask("visible"), RequestScheduler.PRIORITY_VISIBLE);
+        scheduler.submit(new NamedTask("style"), RequestScheduler.PRIORITY_RESOURCE);
+        assertEquals(3, scheduler.getMetrics().getQueueDepth());
+
+        first.release();
+        assertEquals("style", started.get(started.size() - 1));
+    }
+
+    @Test
+    public void testFifoWithinPriority() {
+        RequestScheduler scheduler = new RequestScheduler(1, 60000);
+        RequestScheduler.Ticket first = scheduler.submit(new NamedTask("first"), RequestScheduler.PRIORITY_VISIBLE);
+        scheduler.submit(new NamedTask("second"), RequestScheduler.PRIORITY_VISIBLE);
+        scheduler.submit(new NamedTask("third"), RequestScheduler.PRIORITY_VISIBLE);
+
+        first.release();
+        assertEquals("second", started.get(started.size() - 1));
+    }
+
+    @Test
+    public void testAging() throws Exception {
+        RequestScheduler scheduler = new RequestScheduler(1, 10);
+        RequestScheduler.Ticket first = scheduler.submit(new NamedTask("first"), RequestScheduler.PRIORITY_RESOURCE);
+        scheduler.submit(new NamedTask("offline"), RequestScheduler.PRIORITY_OFFLINE);
+        Thread.sleep(50);
+        scheduler.submit(new NamedTask("visible"), RequestScheduler.PRIORITY_VISIBLE);
+
+        first.release();
+        assertEquals("offline", started.get(started.size() - 1));
+    }
+
+    @Test
+    public void testPreemption() {
+        RequestScheduler scheduler = new RequestScheduler(1, 60000);
+        scheduler.submit(new NamedTask("offline"), RequestScheduler.PRIORITY_OFFLINE);
+        RequestScheduler.Ticket visible = scheduler.submit(new NamedTask("visible"), RequestScheduler.PRIORITY_VISIBLE);
+
+        assertEquals(1, preempted.size());
+        assertEquals("visible", started.get(started.size() - 1));
+        assertEquals(1, scheduler.getMetrics().getPreemptedCount());
+        assertEquals(1, scheduler.getMetrics().getQueueDepth(RequestScheduler.PRIORITY_OFFLINE));
+
+        // The preempted request resumes once the slot is free
+        visible.release();
+        assertEquals("offline", started.get(started.size() - 1));
+        assertEquals(1, scheduler.getMetrics().getStartedCount(RequestScheduler.PRIORITY_OFFLINE));
+    }
+
+    @Test
+    public void testNoPreemptionOfVisible() {
+        RequestScheduler scheduler = new RequestScheduler(1, 60000);
+        scheduler.submit(new NamedTask("first"), RequestScheduler.PRIORITY_VISIBLE);
+        scheduler.submit(new NamedTask("style"), RequestScheduler.PRIORITY_RESOURCE);
+
+        assertTrue(preempted.isEmpty());
+        assertEquals(1, started.size());
+    }
+
+    @Test
+    public void testReleaseQueued() {
+        RequestScheduler scheduler = new RequestScheduler(1, 60000);
+        RequestScheduler.Ticket first = scheduler.submit(new NamedTask("first"), RequestScheduler.PRIORITY_VISIBLE);
+        RequestScheduler.Ticket stale = scheduler.submit(new NamedTask("stale"), RequestScheduler.PRIORITY_VISIBLE);
+
+        stale.release();
+        stale.release();
+        assertEquals(0, scheduler.getMetrics().getQueueDepth());
+
+        first.release();
+        assertFalse(started.contains("stale"));
+        assertEquals(0, scheduler.getMetrics().getRunningCount());
+    }
+
+    @Test
+    public void testMaxRunning() {
+        RequestScheduler scheduler = new RequestScheduler(1, 60000);
+        scheduler.submit(new NamedTask("first"), RequestScheduler.PRIORITY_VISIBLE);
+        scheduler.submit(new NamedTask("second"), RequestScheduler.PRIORITY_VISIBLE);
+        assertEquals(1, started.size());
+
+        scheduler.setMaxRunning(2);
+        assertEquals(2, started.size());
+        assertEquals(2, scheduler.getMetrics().getStartedCount(RequestScheduler.PRIORITY_VISIBLE));
+    }
+
+    private class NamedTask implements RequestScheduler.Task {
+        private final String name;
+
+        NamedTask(String name) {
+            this.name = name;
+        }
+
+        @Override
+        public void start(RequestScheduler.Ticket ticket) {
+            started.add(name);
+        }
+
+        @Override
+        public void preempt() {
+            preempted.add(name);
+        }
+    }
+}
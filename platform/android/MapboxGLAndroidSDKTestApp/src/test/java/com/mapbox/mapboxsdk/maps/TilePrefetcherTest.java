@@ -0,0 +1,70 @@
+package com.mapbox.mapboxsdk.maps;
+
+import com.mapbox.mapboxsdk.tiles.TileId;
+
+import org.junit.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class TilePrefetcherTest {
+
+    @Test
+    public void testViewportCoverNearestFirst() {
+        // A 512 point square centered in tile 2/1/1 reaches into its neighbours
+        long[] tiles = TilePrefetcher.viewportCover(0.375, 0.375, 2, 512, 512);
+        assertEquals(TileId.pack(2, 1, 1), tiles[0]);
+        assertEquals(9, tiles.length);
+    }
+
+    @Test
+    public void testViewportCoverWrapsAntimeridian() {
+        Set<Long> tiles = toSet(TilePrefetcher.viewportCover(0, 0.5, 3, 256, 256));
+        assertTrue(tiles.contains(TileId.pack(3, 0, 4)));
+        assertTrue(tiles.contains(TileId.pack(3, 7, 4)));
+        for (long tileId : tiles) {
+            assertEquals(3, TileId.getZoom(tileId));
+        }
+    }
+
+    @Test
+    public void testPathCoverDestinationFirstWithoutVisibleTiles() {
+        long[] tiles = TilePrefetcher.pathCover(0.1, 0.51, 10, 0.9, 0.51, 10, false, 512, 512, 12);
+        assertEquals(12, tiles.length);
+
+        long destination = TileId.pack(10, (int) (0.9 * 1024), (int) (0.51 * 1024));
+        assertEquals(destination, tiles[0]);
+
+        Set<Long> visible = toSet(TilePrefetcher.viewportCover(0.1, 0.51, 10, 512, 512));
+        for (long tileId : tiles) {
+            assertFalse(visible.contains(tileId));
+        }
+    }
+
+    @Test
+    public void testPathCoverFlightZoomsOut() {
+        long[] tiles = TilePrefetcher.pathCover(0.2, 0.5, 12, 0.4, 0.5, 12, true, 512, 512, 256);
+        boolean zoomedOut = false;
+        for (long tileId : tiles) {
+            zoomedOut |= TileId.getZoom(tileId) < 4;
+        }
+        assertTrue(zoomedOut);
+    }
+
+    @Test
+    public void testPathCoverStaysStill() {
+        assertEquals(0, TilePrefetcher.pathCover(0.5, 0.5, 5, 0.5, 0.5, 5, false, 512, 512, 64).length);
+    }
+
+    private static Set<Long> toSet(long[] tileIds) {
+        Set<Long> set = new HashSet<>();
+        for (long tileId : tileIds) {
+            set.add(tileId);
+        }
+        return set;
+    }
+}
@@ -0,0 +1,143 @@
+package com.mapbox.mapboxsdk.net;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Tests for BandwidthEstimator
+ */
+public class BandwidthEstimatorTest {
+
+    private static final String TILE_URL = "https://a.tiles.mapbox.com/v4/mapbox.satellite/1/0/0@2x.png?access_token=a@2x.b";
+
+    private BandwidthEstimator estimator;
+    private long now;
+
+    @Before
+    public void setUp() {
+        estimator = new BandwidthEstimator();
+        estimator.setNetworkType(1);
+        now = 1000 * 1000;
+    }
+
+    @Test
+    public void testEstimate() {
+        assertEquals(-1, estimator.getEstimate());
+
+        for (int i = 0; i < BandwidthEstimator.MIN_SAMPLES; i++) {
+            sample(8000 * 1000);
+        }
+        assertEquals(8000 * 1000, estimator.getEstimate());
+
+        // Too small to count
+        estimator.onTransfer(1000, now, now + BandwidthEstimator.SAMPLE_MILLIS);
+        now += BandwidthEstimator.SAMPLE_MILLIS;
+        assertEquals(8000 * 1000, estimator.getEstimate());
+
+        sample(4000 * 1000);
+        assertEquals(7000 * 1000, estimator.getEstimate());
+    }
+
+    @Test
+    public void testShortTransfersAddUp() {
+        // 100KB in 100ms, 8 Mbit/s, a sample takes several of them
+        for (int i = 0; i < 10 * BandwidthEstimator.MIN_SAMPLES; i++) {
+            estimator.onTransfer(100 * 1000, now, now + 100);
+            now += 100;
+        }
+        assertEquals(8000 * 1000, estimator.getEstimate());
+    }
+
+    @Test
+    public void testIdleTimeNotCounted() {
+        for (int i = 0; i < 10 * BandwidthEstimator.MIN_SAMPLES; i++) {
+            estimator.onTransfer(100 * 1000, now, now + 100);
+            now += 5000;
+        }
+        assertEquals(8000 * 1000, estimator.getEstimate());
+    }
+
+    @Test
+    public void testParallelTransfers() {
+        // 20 tiles of 31.25KB at a time over a 10 Mbit/s link: each takes about 500ms, so a single
+        // transfer measures 0.5 Mbit/s
+        for (int batch = 0; batch < 20; batch++) {
+            for (int i = 0; i < 20; i++) {
+                estimator.onTransfer(31250, now, now + 480 + i);
+            }
+            now += 500;
+        }
+        assertEquals(10000 * 1000, estimator.getEstimate(), 2000 * 1000);
+        assertEquals(BandwidthEstimator.QUALITY_HIGH, estimator.getTileQuality());
+    }
+
+    @Test
+    public void testHysteresis() {
+        assertEquals(BandwidthEstimator.QUALITY_HIGH, estimator.getTileQuality());
+
+        for (int i = 0; i < BandwidthEstimator.MIN_SAMPLES; i++) {
+            sample(400 * 1000);
+        }
+        assertEquals(BandwidthEstimator.QUALITY_LOW, estimator.getTileQuality());
+
+        // Between the thresholds, stays low
+        for (int i = 0; i < 20; i++) {
+            sample(1600 * 1000);
+        }
+        assertEquals(1600 * 1000, estimator.getEstimate(), 10 * 1000);
+        assertEquals(BandwidthEstimator.QUALITY_LOW, estimator.getTileQuality());
+
+        for (int i = 0; i < 20; i++) {
+            sample(4000 * 1000);
+        }
+        assertEquals(BandwidthEstimator.QUALITY_HIGH, estimator.getTileQuality());
+
+        // Back between the thresholds, stays high
+        for (int i = 0; i < 20; i++) {
+            sample(1600 * 1000);
+        }
+        assertEquals(BandwidthEstimator.QUALITY_HIGH, estimator.getTileQuality());
+    }
+
+    @Test
+    public void testNetworkType() {
+        for (int i = 0; i < BandwidthEstimator.MIN_SAMPLES; i++) {
+            sample(400 * 1000);
+        }
+        assertEquals(BandwidthEstimator.QUALITY_LOW, estimator.getTileQuality());
+
+        estimator.setNetworkType(0);
+        assertEquals(-1, estimator.getEstimate());
+        assertEquals(BandwidthEstimator.QUALITY_HIGH, estimator.getTileQuality());
+
+        estimator.setNetworkType(1);
+        assertEquals(BandwidthEstimator.QUALITY_LOW, estimator.getTileQuality());
+
+        estimator.setEnabled(false);
+        assertEquals(BandwidthEstimator.QUALITY_HIGH, estimator.getTileQuality());
+    }
+
+    @Test
+    public void testSelectTileUrl() {
+        assertEquals(TILE_URL, estimator.selectTileUrl(TILE_URL));
+
+        for (int i = 0; i < BandwidthEstimator.MIN_SAMPLES; i++) {
+            sample(400 * 1000);
+        }
+        assertEquals("https://a.tiles.mapbox.com/v4/mapbox.satellite/1/0/0.png?access_token=a@2x.b",
+            estimator.selectTileUrl(TILE_URL));
+        assertEquals("https://example.com/1/0/0.png", estimator.selectTileUrl("https://example.com/1/0/0.png"));
+        assertEquals("https://example.com/a@2x.b/0.png", estimator.selectTileUrl("https://example.com/a@2x.b/0.png"));
+    }
+
+    /**
+     * Records a single transfer that makes up a whole sample.
+     */
+    private void sample(long bitsPerSecond) {
+        long bytes = bitsPerSecond / 8 * BandwidthEstimator.SAMPLE_MILLIS / 1000;
+        estimator.onTransfer(bytes, now, now + BandwidthEstimator.SAMPLE_MILLIS);
+        now += BandwidthEstimator.SAMPLE_MILLIS;
+    }
+}
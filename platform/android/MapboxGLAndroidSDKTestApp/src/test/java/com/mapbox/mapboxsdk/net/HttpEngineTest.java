@@ -0,0 +1,102 @@
+package com.mapbox.mapboxsdk.net;
+
+import com.mapbox.mapboxsdk.http.RequestScheduler;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.Interceptor;
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+import okhttp3.Response;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for HttpEngine
+ */
+public class HttpEngineTest {
+
+    private HttpEngine previousInstance;
+
+    @Before
+    public void setUp() {
+        previousInstance = HttpEngine.getInstance();
+    }
+
+    @After
+    public void tearDown() {
+        // The engine is shared, don't leak the one installed by a test into others
+        HttpEngine.setInstance(previousInstance);
+    }
+
+    @Test
+    public void testDefaults() {
+        OkHttpClient client = new HttpEngine.Builder().build().getClient();
+        assertEquals(HttpEngine.DEFAULT_MAX_REQUESTS, client.dispatcher().getMaxRequests());
+        assertEquals(HttpEngine.DEFAULT_MAX_REQUESTS_PER_HOST, client.dispatcher().getMaxRequestsPerHost());
+        assertTrue(client.protocols().contains(Protocol.HTTP_2));
+    }
+
+    @Test
+    public void testInstallSizesScheduler() {
+        HttpEngine.setInstance(new HttpEngine.Builder().setMaxRequests(40).setMaxRequestsPerHost(10).build());
+        // Per host limits are left to OkHttp, the scheduler allows the total
+        assertEquals(40, RequestScheduler.getInstance().getMaxRunning());
+    }
+
+    @Test
+    public void testBuilder() {
+        Interceptor interceptor = new Interceptor() {
+            @Override
+            public Response intercept(Chain chain) throws IOException {
+                return chain.proceed(chain.request());
+            }
+        };
+
+        OkHttpClient client = new HttpEngine.Builder()
+            .setMaxRequests(32)
+            .setMaxRequestsPerHost(12)
+            .setHttp2Enabled(false)
+            .setConnectTimeout(5, TimeUnit.SECONDS)
+            .setReadTimeout(6, TimeUnit.SECONDS)
+            .addInterceptor(interceptor)
+            .build()
+            .getClient();
+
+        assertEquals(32, client.dispatcher().getMaxRequests());
+        assertEquals(12, client.dispatcher().getMaxRequestsPerHost());
+        assertEquals(Collections.singletonList(Protocol.HTTP_1_1), client.protocols());
+        assertEquals(5000, client.connectTimeoutMillis());
+        assertEquals(6000, client.readTimeoutMillis());
+        assertTrue(client.interceptors().contains(interceptor));
+    }
+
+    @Test
+    public void testBaseClient() {
+        OkHttpClient base = new OkHttpClient();
+        OkHttpClient client = new HttpEngine.Builder().setBaseClient(base).build().getClient();
+        assertSame(base.connectionPool(), client.connectionPool());
+        assertNotSame(base.dispatcher(), client.dispatcher());
+    }
+
+    @Test
+    public void testSetInstance() {
+        HttpEngine engine = new HttpEngine.Builder().build();
+        HttpEngine.setInstance(engine);
+        assertSame(engine, HttpEngine.getInstance());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidMaxRequestsPerHost() {
+        new HttpEngine.Builder().setMaxRequestsPerHost(0);
+    }
+}
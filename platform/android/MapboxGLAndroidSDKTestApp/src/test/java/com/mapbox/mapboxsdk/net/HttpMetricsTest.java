@@ -0,0 +1,74 @@
+package com.mapbox.mapboxsdk.net;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for HttpMetrics
+ */
+public class HttpMetricsTest {
+
+    private HttpMetrics metrics;
+
+    @Before
+    public void setUp() {
+        metrics = HttpMetrics.getInstance();
+        metrics.reset();
+    }
+
+    @Test
+    public void testHistogram() {
+        HttpMetrics.Histogram histogram = new HttpMetrics.Histogram();
+        assertEquals(0, histogram.getPercentile(50));
+
+        for (int i = 1; i <= 100; i++) {
+            histogram.record(i);
+        }
+        assertEquals(100, histogram.getCount());
+        assertEquals(50.5, histogram.getMean(), 0.001);
+        // 50 falls in the bucket of 32..63, 99 in the bucket of 64..127
+        assertEquals(63, histogram.getPercentile(50));
+        assertEquals(127, histogram.getPercentile(99));
+        assertEquals(1, histogram.getPercentile(0));
+
+        histogram.record(-5);
+        assertEquals(101, histogram.getCount());
+        histogram.reset();
+        assertEquals(0, histogram.getCount());
+    }
+
+    @Test
+    public void testResourceKinds() {
+        assertEquals(HttpMetrics.TYPE_OTHER, HttpMetrics.typeOfResourceKind(0));
+        assertEquals(HttpMetrics.TYPE_STYLE, HttpMetrics.typeOfResourceKind(1));
+        assertEquals(HttpMetrics.TYPE_TILE, HttpMetrics.typeOfResourceKind(3));
+        assertEquals(HttpMetrics.TYPE_SPRITE, HttpMetrics.typeOfResourceKind(5));
+        assertEquals(HttpMetrics.TYPE_SPRITE, HttpMetrics.typeOfResourceKind(6));
+        assertEquals(HttpMetrics.TYPE_OTHER, HttpMetrics.typeOfResourceKind(7));
+    }
+
+    @Test
+    public void testRecord() {
+        HttpMetrics.Call tile = metrics.newCall(HttpMetrics.TYPE_TILE);
+        metrics.onResponse(tile, 200, 1000);
+        metrics.onResponse(metrics.newCall(HttpMetrics.TYPE_TILE), 304, 0);
+        metrics.onFailure(metrics.newCall(HttpMetrics.TYPE_TILE));
+        metrics.onCancel(metrics.newCall(HttpMetrics.TYPE_TILE));
+
+        HttpMetrics.Stats stats = metrics.getStats(HttpMetrics.TYPE_TILE);
+        assertEquals(3, stats.getRequestCount());
+        assertEquals(1, stats.getStatusCount(2));
+        assertEquals(1, stats.getStatusCount(3));
+        assertEquals(1, stats.getNotModifiedCount());
+        assertEquals(1, stats.getFailureCount());
+        assertEquals(1, stats.getCancelledCount());
+        assertEquals(1000, stats.getBytes());
+        assertEquals(3, stats.getTotalMillis().getCount());
+        assertEquals(0, metrics.getStats(HttpMetrics.TYPE_STYLE).getRequestCount());
+
+        assertTrue(metrics.dump().contains("tile: 3 requests, 1 not modified"));
+    }
+}
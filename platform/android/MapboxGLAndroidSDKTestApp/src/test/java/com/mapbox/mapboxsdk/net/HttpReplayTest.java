@@ -0,0 +1,172 @@
+package com.mapbox.mapboxsdk.net;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.Interceptor;
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for HttpRecorder and HttpReplay
+ */
+public class HttpReplayTest {
+
+    private static final String TILE_URL = "https://a.tiles.mapbox.com/v4/mapbox.streets/1/0/0.vector.pbf";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private File archive;
+    private int networkCount;
+
+    @Before
+    public void setUp() throws IOException {
+        archive = new File(folder.getRoot(), "tiles.archive");
+        Response response = record(new Request.Builder().url(TILE_URL).build());
+        assertEquals(64 * 1024, response.body().bytes().length);
+    }
+
+    private Response record(Request request) throws IOException {
+        HttpRecorder recorder = new HttpRecorder(archive);
+        OkHttpClient client = new OkHttpClient.Builder()
+            .addInterceptor(recorder)
+            .addInterceptor(new Interceptor() {
+                @Override
+                public Response intercept(Chain chain) throws IOException {
+                    networkCount++;
+                    Response.Builder builder = new Response.Builder()
+                        .request(chain.request())
+                        .protocol(Protocol.HTTP_1_1)
+                        .header("ETag", "\"tile\"");
+                    if (chain.request().header("If-None-Match") != null) {
+                        return builder
+                            .code(304)
+                            .message("Not Modified")
+                            .body(ResponseBody.create(null, new byte[0]))
+                            .build();
+                    }
+                    return builder
+                        .code(200)
+                        .message("OK")
+                        .header("Content-Type", "application/x-protobuf")
+                        .body(ResponseBody.create(MediaType.parse("application/x-protobuf"), new byte[64 * 1024]))
+                        .build();
+                }
+            })
+            .build();
+
+        try {
+            return client.newCall(request).execute();
+        } finally {
+            recorder.close();
+        }
+    }
+
+    @Test
+    public void testReplay() throws IOException {
+        HttpReplay replay = new HttpReplay.Builder(archive).build();
+        OkHttpClient client = new OkHttpClient.Builder().addInterceptor(replay).build();
+
+        Response response = client.newCall(new Request.Builder().url(TILE_URL).build()).execute();
+        assertEquals(200, response.code());
+        assertEquals("\"tile\"", response.header("ETag"));
+        assertEquals("application/x-protobuf", response.body().contentType().toString());
+        assertArrayEquals(new byte[64 * 1024], response.body().bytes());
+        assertEquals(1, networkCount);
+        assertEquals(1, replay.getHitCount());
+    }
+
+    @Test
+    public void testMiss() throws IOException {
+        HttpReplay replay = new HttpReplay.Builder(archive).build();
+        OkHttpClient client = new OkHttpClient.Builder().addInterceptor(replay).build();
+
+        Response response = client.newCall(new Request.Builder().url(TILE_URL + "?fresh=true").build()).execute();
+        assertEquals(404, response.code());
+        response.body().close();
+        assertEquals(1, replay.getMissCount());
+    }
+
+    @Test
+    public void testShaping() throws IOException {
+        HttpReplay replay = new HttpReplay.Builder(archive)
+            .setLatency(50, TimeUnit.MILLISECONDS)
+            .setBandwidth(640 * 1024)
+            .build();
+        OkHttpClient client = new OkHttpClient.Builder().addInterceptor(replay).build();
+
+        long start = System.nanoTime();
+        Response response = client.newCall(new Request.Builder().url(TILE_URL).build()).execute();
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) >= 50);
+
+        // 64KB at 640KB/s
+        start = System.nanoTime();
+        response.body().bytes();
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) >= 90);
+    }
+
+    @Test
+    public void testNotModifiedSkipped() throws IOException {
+        Response revalidation = record(new Request.Builder()
+            .url(TILE_URL)
+            .header("If-None-Match", "\"tile\"")
+            .build());
+        assertEquals(304, revalidation.code());
+
+        // The recorded 304 has no body, the full response recorded before is served instead
+        HttpReplay replay = new HttpReplay.Builder(archive).build();
+        OkHttpClient client = new OkHttpClient.Builder().addInterceptor(replay).build();
+        Response response = client.newCall(new Request.Builder().url(TILE_URL).build()).execute();
+        assertEquals(200, response.code());
+        assertArrayEquals(new byte[64 * 1024], response.body().bytes());
+    }
+
+    @Test
+    public void testAccessTokenNotRecorded() throws IOException {
+        record(new Request.Builder().url(TILE_URL + "?access_token=secret").build()).body().close();
+
+        for (HttpArchive.Entry entry : HttpArchive.read(archive)) {
+            assertFalse(entry.url, entry.url.contains("secret"));
+        }
+
+        // Replayed with another token
+        HttpReplay replay = new HttpReplay.Builder(archive).build();
+        OkHttpClient client = new OkHttpClient.Builder().addInterceptor(replay).build();
+        Response response = client.newCall(new Request.Builder().url(TILE_URL + "?access_token=other").build()).execute();
+        assertEquals(200, response.code());
+        response.body().close();
+        assertEquals(1, replay.getHitCount());
+    }
+
+    @Test
+    public void testTruncatedArchive() throws IOException {
+        HttpRecorder recorder = new HttpRecorder(archive);
+        recorder.close();
+        RandomAccessFile file = new RandomAccessFile(archive, "rw");
+        file.setLength(file.length() - 10);
+        file.close();
+
+        HttpReplay replay = new HttpReplay.Builder(archive).build();
+        OkHttpClient client = new OkHttpClient.Builder().addInterceptor(replay).build();
+        Response response = client.newCall(new Request.Builder().url(TILE_URL).build()).execute();
+        assertEquals(404, response.code());
+        response.body().close();
+    }
+}
@@ -0,0 +1,120 @@
+package com.mapbox.mapboxsdk.style.sources;
+
+import com.mapbox.services.commons.geojson.Feature;
+import com.mapbox.services.commons.geojson.FeatureCollection;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.Executor;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Tests for AsyncGeoJsonUpdater
+ */
+public class AsyncGeoJsonUpdaterTest {
+
+    private GeoJsonSource source;
+    private QueueExecutor encoder;
+    private QueueExecutor mainThread;
+    private AsyncGeoJsonUpdater updater;
+
+    @Before
+    public void setUp() {
+        source = mock(GeoJsonSource.class);
+        encoder = new QueueExecutor();
+        mainThread = new QueueExecutor();
+        updater = new AsyncGeoJsonUpdater(source, encoder, mainThread);
+    }
+
+    @Test
+    public void testSteadyFeedApplies() {
+        CountingCallback callback = new CountingCallback();
+        updater.submit(features(), callback);
+        for (int i = 0; i < 10; i++) {
+            encoder.runAll();
+            // A newer update arrives before the encoded one is applied
+            updater.submit(features(), callback);
+            mainThread.runAll();
+        }
+
+        verify(source, times(10)).setFeatureBuffer(any(FeatureBuffer.class));
+        assertEquals(10, callback.applied);
+        assertEquals(0, callback.dropped);
+    }
+
+    @Test
+    public void testNewestEncodedWins() {
+        CountingCallback first = new CountingCallback();
+        CountingCallback second = new CountingCallback();
+        updater.submit(features(), first);
+        encoder.runAll();
+        updater.submit(features(), second);
+        encoder.runAll();
+        mainThread.runAll();
+
+        verify(source, times(1)).setFeatureBuffer(any(FeatureBuffer.class));
+        assertEquals(1, first.dropped);
+        assertEquals(1, second.applied);
+    }
+
+    @Test
+    public void testCancelDropsEncoding() {
+        CountingCallback callback = new CountingCallback();
+        updater.submit(features(), callback);
+        encoder.runAll();
+        updater.cancel();
+        mainThread.runAll();
+
+        verify(source, never()).setFeatureBuffer(any(FeatureBuffer.class));
+        assertEquals(1, callback.dropped);
+    }
+
+    private static FeatureCollection features() {
+        return FeatureCollection.fromFeatures(new Feature[0]);
+    }
+
+    private static class QueueExecutor implements Executor {
+        private final Queue<Runnable> tasks = new ArrayDeque<>();
+
+        @Override
+        public void execute(Runnable runnable) {
+            tasks.add(runnable);
+        }
+
+        void runAll() {
+            Runnable task;
+            while ((task = tasks.poll()) != null) {
+                task.run();
+            }
+        }
+    }
+
+    private static class CountingCallback implements GeoJsonSource.UpdateCallback {
+        int applied;
+        int dropped;
+
+        @Override
+        public void onApplied() {
+            applied++;
+        }
+
+        @Override
+        public void onDropped() {
+            dropped++;
+        }
+
+        @Override
+        public void onError(String error) {
+            throw new AssertionError(error);
+        }
+    }
+}
@@ -0,0 +1,149 @@
+package com.mapbox.mapboxsdk.style.sources;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for CustomTileDispatcher
+ */
+public class CustomTileDispatcherTest {
+
+    // Providers are weakly referenced by the dispatcher, as by a source in the tests
+    private TileProvider provider;
+
+    @Test
+    public void testRequest() throws Exception {
+        String template = CustomTileDispatcher.register(provider = new TileProvider() {
+            @Override
+            public byte[] getTile(int z, int x, int y) {
+                return z == 0 ? null : new byte[]{(byte) z, (byte) x, (byte) y};
+            }
+        });
+        assertTrue(CustomTileDispatcher.accepts(template));
+        assertFalse(CustomTileDispatcher.accepts("https://example.com/1/2/3.pbf"));
+
+        assertArrayEquals(new byte[]{3, 2, 1}, await(url(template, 3, 2, 1)));
+        assertNull(await(url(template, 0, 0, 0)));
+
+        CustomTileDispatcher.unregister(template);
+    }
+
+    @Test(expected = IOException.class)
+    public void testUnknownProvider() throws IOException {
+        String template = CustomTileDispatcher.register(provider = new TileProvider() {
+            @Override
+            public byte[] getTile(int z, int x, int y) {
+                return null;
+            }
+        });
+        CustomTileDispatcher.unregister(template);
+        CustomTileDispatcher.request(url(template, 1, 0, 0), new ResultCallback());
+    }
+
+    @Test
+    public void testProviderCollected() throws InterruptedException {
+        String template = CustomTileDispatcher.register(new TileProvider() {
+            @Override
+            public byte[] getTile(int z, int x, int y) {
+                return null;
+            }
+        });
+
+        // Nothing but the dispatcher references the provider
+        for (int i = 0; i < 50; i++) {
+            System.gc();
+            try {
+                CustomTileDispatcher.request(url(template, 1, 0, 0), new ResultCallback());
+            } catch (IOException exception) {
+                return;
+            }
+            Thread.sleep(20);
+        }
+        throw new AssertionError("Provider was not released");
+    }
+
+    @Test(expected = IOException.class)
+    public void testMalformedUrl() throws IOException {
+        CustomTileDispatcher.request(CustomTileDispatcher.SCHEME + "1/a/b", new ResultCallback());
+    }
+
+    @Test
+    public void testProviderError() throws Exception {
+        String template = CustomTileDispatcher.register(provider = new TileProvider() {
+            @Override
+            public byte[] getTile(int z, int x, int y) throws IOException {
+                throw new IOException("unavailable");
+            }
+        });
+
+        ResultCallback callback = new ResultCallback();
+        CustomTileDispatcher.request(url(template, 1, 1, 1), callback);
+        assertTrue(callback.latch.await(5, TimeUnit.SECONDS));
+        assertEquals("unavailable", callback.error.get().getMessage());
+
+        CustomTileDispatcher.unregister(template);
+    }
+
+    @Test
+    public void testCancel() throws Exception {
+        final CountDownLatch blocked = new CountDownLatch(1);
+        String template = CustomTileDispatcher.register(provider = new TileProvider() {
+            @Override
+            public byte[] getTile(int z, int x, int y) {
+                try {
+                    blocked.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException exception) {
+                    Thread.currentThread().interrupt();
+                }
+                return new byte[]{1};
+            }
+        });
+
+        ResultCallback callback = new ResultCallback();
+        CustomTileDispatcher.Request request = CustomTileDispatcher.request(url(template, 1, 0, 0), callback);
+        request.cancel();
+        blocked.countDown();
+
+        assertFalse(callback.latch.await(200, TimeUnit.MILLISECONDS));
+        CustomTileDispatcher.unregister(template);
+    }
+
+    private static String url(String template, int z, int x, int y) {
+        return template.replace("{z}", String.valueOf(z)).replace("{x}", String.valueOf(x)).replace("{y}", String.valueOf(y));
+    }
+
+    private static byte[] await(String url) throws Exception {
+        ResultCallback callback = new ResultCallback();
+        CustomTileDispatcher.request(url, callback);
+        assertTrue(callback.latch.await(5, TimeUnit.SECONDS));
+        return callback.data.get();
+    }
+
+    private static class ResultCallback implements CustomTileDispatcher.Callback {
+        final CountDownLatch latch = new CountDownLatch(1);
+        final AtomicReference<byte[]> data = new AtomicReference<>();
+        final AtomicReference<IOException> error = new AtomicReference<>();
+
+        @Override
+        public void onTile(byte[] tile) {
+            data.set(tile);
+            latch.countDown();
+        }
+
+        @Override
+        public void onError(IOException exception) {
+            error.set(exception);
+            latch.countDown();
+        }
+    }
+}
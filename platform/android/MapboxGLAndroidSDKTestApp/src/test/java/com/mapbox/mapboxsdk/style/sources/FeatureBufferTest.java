@@ -0,0 +1,191 @@
+package com.mapbox.mapboxsdk.style.sources;
+
+import com.google.gson.JsonObject;
+import com.google.gson.stream.JsonReader;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.util.Collections;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for FeatureBuffer
+ */
+public class FeatureBufferTest {
+
+    @Test
+    public void testReadPoint() throws IOException {
+        FeatureBuffer features = new FeatureBuffer();
+        assertTrue(features.readFeature(
+                reader("{\"type\":\"Feature\",\"id\":7,\"geometry\":{\"type\":\"Point\",\"coordinates\":[1.5,2.5,100]},"
+                        + "\"properties\":{\"name\":\"a\",\"rank\":3}}"), null, null));
+
+        assertEquals(1, features.getFeatureCount());
+        assertArrayEquals(new String[]{"7", "name", "a", "rank"}, features.getStrings());
+
+        ByteBuffer buffer = buffer(features);
+        assertEquals(0, buffer.getInt());
+        assertEquals(FeatureBuffer.GEOMETRY_POINT, buffer.get());
+        assertEquals(1.5, buffer.getDouble(), 0);
+        assertEquals(2.5, buffer.getDouble(), 0);
+        assertEquals(2, buffer.getInt());
+        assertEquals(1, buffer.getInt());
+        assertEquals(FeatureBuffer.VALUE_STRING, buffer.get());
+        assertEquals(2, buffer.getInt());
+        assertEquals(3, buffer.getInt());
+        assertEquals(FeatureBuffer.VALUE_UINT, buffer.get());
+        assertEquals(3, buffer.getLong());
+        assertFalse(buffer.hasRemaining());
+    }
+
+    @Test
+    public void testReadGeometryTypeAfterCoordinates() throws IOException {
+        FeatureBuffer features = new FeatureBuffer();
+        assertTrue(features.readFeature(
+                reader("{\"geometry\":{\"coordinates\":[[[0,0],[1,0],[1,1],[0,0]]],\"type\":\"Polygon\"}}"), null, null));
+
+        ByteBuffer buffer = buffer(features);
+        assertEquals(-1, buffer.getInt());
+        assertEquals(FeatureBuffer.GEOMETRY_POLYGON, buffer.get());
+        assertEquals(1, buffer.getInt());
+        assertEquals(4, buffer.getInt());
+        buffer.position(buffer.position() + 4 * 16);
+        assertEquals(0, buffer.getInt());
+        assertFalse(buffer.hasRemaining());
+    }
+
+    @Test
+    public void testReadEmptyMultiPolygon() throws IOException {
+        FeatureBuffer features = new FeatureBuffer();
+        assertTrue(features.readFeature(
+                reader("{\"geometry\":{\"type\":\"MultiPolygon\",\"coordinates\":[]}}"), null, null));
+        assertEquals(1, features.getFeatureCount());
+    }
+
+    @Test(expected = IOException.class)
+    public void testReadInvalidNesting() throws IOException {
+        new FeatureBuffer().readFeature(
+                reader("{\"geometry\":{\"type\":\"Point\",\"coordinates\":[[1,2]]}}"), null, null);
+    }
+
+    @Test(expected = IOException.class)
+    public void testReadMixedNesting() throws IOException {
+        new FeatureBuffer().readFeature(
+                reader("{\"geometry\":{\"type\":\"MultiLineString\",\"coordinates\":[[1,2],[[3,4]]]}}"), null, null);
+    }
+
+    @Test(expected = IOException.class)
+    public void testReadMixedNestingWithEmptyArray() throws IOException {
+        new FeatureBuffer().readFeature(
+                reader("{\"geometry\":{\"type\":\"MultiPoint\",\"coordinates\":[[1,2],[]]}}"), null, null);
+    }
+
+    @Test
+    public void testReadPolygonWithEmptyRing() throws IOException {
+        FeatureBuffer features = new FeatureBuffer();
+        assertTrue(features.readFeature(
+                reader("{\"geometry\":{\"type\":\"Polygon\",\"coordinates\":[[[0,0],[1,0],[1,1],[0,0]],[]]}}"),
+                null, null));
+        assertEquals(1, features.getFeatureCount());
+    }
+
+    @Test
+    public void testReadFiltered() throws IOException {
+        FeatureBuffer features = new FeatureBuffer();
+        GeoJsonStreamLoader.Filter filter = new GeoJsonStreamLoader.Filter() {
+            @Override
+            public boolean accept(String id, JsonObject properties) {
+                return properties != null && properties.get("rank").getAsInt() > 2;
+            }
+        };
+
+        assertFalse(features.readFeature(reader("{\"properties\":{\"rank\":1},"
+                + "\"geometry\":{\"type\":\"LineString\",\"coordinates\":[[0,0],[1,1]]}}"), filter, null));
+        assertEquals(0, features.getFeatureCount());
+        assertEquals(0, features.getLength());
+
+        assertTrue(features.readFeature(reader("{\"properties\":{\"rank\":3,\"name\":\"b\"},"
+                + "\"geometry\":{\"type\":\"LineString\",\"coordinates\":[[0,0],[1,1]]}}"), filter,
+                Collections.singleton("name")));
+        assertEquals(1, features.getFeatureCount());
+
+        ByteBuffer buffer = buffer(features);
+        assertEquals(-1, buffer.getInt());
+        assertEquals(FeatureBuffer.GEOMETRY_LINE_STRING, buffer.get());
+        assertEquals(2, buffer.getInt());
+        buffer.position(buffer.position() + 2 * 16);
+        assertEquals(1, buffer.getInt());
+        assertEquals("name", features.getStrings()[buffer.getInt()]);
+    }
+
+    @Test
+    public void testFeatureBounds() throws IOException {
+        FeatureBuffer features = new FeatureBuffer();
+        assertTrue(features.readFeature(reader("{\"geometry\":{\"type\":\"GeometryCollection\",\"geometries\":["
+                + "{\"type\":\"Point\",\"coordinates\":[4,52]},"
+                + "{\"type\":\"LineString\",\"coordinates\":[[-3,50],[5,51]]}]}}"), null, null));
+        assertArrayEquals(new double[]{-3, 50, 5, 52}, features.getFeatureBounds(), 0);
+
+        assertTrue(features.readFeature(reader("{\"geometry\":null}"), null, null));
+        assertNull(features.getFeatureBounds());
+    }
+
+    @Test
+    public void testAppendFeatures() throws IOException {
+        FeatureBuffer features = new FeatureBuffer();
+        assertTrue(features.readFeature(reader("{\"id\":\"a\",\"properties\":{\"name\":\"x\"},"
+                + "\"geometry\":{\"type\":\"Point\",\"coordinates\":[1,2]}}"), null, null));
+
+        FeatureBuffer other = new FeatureBuffer();
+        assertTrue(other.readFeature(reader("{\"id\":\"b\",\"properties\":{\"tags\":[\"y\",1.5],"
+                + "\"meta\":{\"name\":\"x\"}},\"geometry\":{\"type\":\"MultiPolygon\","
+                + "\"coordinates\":[[[[0,0],[1,0],[0,0]]]]}}"), null, null));
+        features.appendFeatures(other);
+
+        assertEquals(2, features.getFeatureCount());
+        String[] strings = features.getStrings();
+        assertArrayEquals(new String[]{"a", "name", "x", "b", "tags", "y", "meta"}, strings);
+
+        ByteBuffer buffer = buffer(features);
+        buffer.position(4 + 1 + 16 + 4 + 4 + 1 + 4);
+        assertEquals("b", strings[buffer.getInt()]);
+        assertEquals(FeatureBuffer.GEOMETRY_MULTI_POLYGON, buffer.get());
+        assertEquals(1, buffer.getInt());
+        assertEquals(1, buffer.getInt());
+        assertEquals(3, buffer.getInt());
+        buffer.position(buffer.position() + 3 * 16);
+        assertEquals(2, buffer.getInt());
+        assertEquals("tags", strings[buffer.getInt()]);
+        assertEquals(FeatureBuffer.VALUE_ARRAY, buffer.get());
+        assertEquals(2, buffer.getInt());
+        assertEquals(FeatureBuffer.VALUE_STRING, buffer.get());
+        assertEquals("y", strings[buffer.getInt()]);
+        assertEquals(FeatureBuffer.VALUE_DOUBLE, buffer.get());
+        assertEquals(1.5, buffer.getDouble(), 0);
+        assertEquals("meta", strings[buffer.getInt()]);
+        assertEquals(FeatureBuffer.VALUE_OBJECT, buffer.get());
+        assertEquals(1, buffer.getInt());
+        assertEquals("name", strings[buffer.getInt()]);
+        assertEquals(FeatureBuffer.VALUE_STRING, buffer.get());
+        assertEquals("x", strings[buffer.getInt()]);
+        assertFalse(buffer.hasRemaining());
+    }
+
+    private static JsonReader reader(String json) {
+        return new JsonReader(new StringReader(json));
+    }
+
+    private static ByteBuffer buffer(FeatureBuffer features) {
+        ByteBuffer buffer = features.getBuffer().duplicate().order(features.getBuffer().order());
+        buffer.flip();
+        return buffer;
+    }
+}
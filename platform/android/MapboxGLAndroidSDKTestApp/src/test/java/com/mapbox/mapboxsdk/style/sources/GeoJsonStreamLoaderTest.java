@@ -0,0 +1,88 @@
+package com.mapbox.mapboxsdk.style.sources;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.InOrder;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Tests for GeoJsonStreamLoader
+ */
+public class GeoJsonStreamLoaderTest {
+
+    private static final String POINT =
+            "{\"type\":\"Feature\",\"geometry\":{\"type\":\"Point\",\"coordinates\":[1,2]}}";
+
+    private GeoJsonSource source;
+
+    @Before
+    public void setUp() {
+        source = mock(GeoJsonSource.class);
+        when(source.appendFeatureBuffer(any(FeatureBuffer.class))).thenReturn(true);
+    }
+
+    @Test
+    public void testReadDiscardsStagedFeaturesFirst() throws IOException {
+        GeoJsonStreamLoader loader = new GeoJsonStreamLoader(source).withChunkSize(1);
+        assertEquals(2, loader.read(stream(POINT, POINT)));
+
+        InOrder order = inOrder(source);
+        order.verify(source).discardFeatures();
+        order.verify(source, times(2)).appendFeatureBuffer(any(FeatureBuffer.class));
+        verify(source, never()).commitFeatures();
+    }
+
+    @Test
+    public void testReadAgainWithoutCommit() throws IOException {
+        GeoJsonStreamLoader loader = new GeoJsonStreamLoader(source);
+        loader.read(stream(POINT));
+        loader.read(stream(POINT));
+        loader.commit();
+
+        // The features of the first read are discarded before the second one is staged
+        InOrder order = inOrder(source);
+        order.verify(source).discardFeatures();
+        order.verify(source).appendFeatureBuffer(any(FeatureBuffer.class));
+        order.verify(source).discardFeatures();
+        order.verify(source).appendFeatureBuffer(any(FeatureBuffer.class));
+        order.verify(source).commitFeatures();
+    }
+
+    @Test
+    public void testMalformedDiscards() {
+        GeoJsonStreamLoader loader = new GeoJsonStreamLoader(source);
+        try {
+            loader.read(stream("{\"type\":\"Feature\",\"geometry\":"
+                    + "{\"type\":\"MultiLineString\",\"coordinates\":[[1,2],[[3,4]]]}}"));
+            fail();
+        } catch (IOException exception) {
+            // Once before reading and once for the failure
+            verify(source, times(2)).discardFeatures();
+            verify(source, never()).appendFeatureBuffer(any(FeatureBuffer.class));
+        }
+    }
+
+    private static InputStream stream(String... features) {
+        StringBuilder json = new StringBuilder("{\"type\":\"FeatureCollection\",\"features\":[");
+        for (int i = 0; i < features.length; i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            json.append(features[i]);
+        }
+        return new ByteArrayInputStream(json.append("]}").toString().getBytes());
+    }
+}
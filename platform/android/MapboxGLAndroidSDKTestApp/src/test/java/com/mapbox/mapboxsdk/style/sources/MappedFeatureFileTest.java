@@ -0,0 +1,166 @@
+package com.mapbox.mapboxsdk.style.sources;
+
+import com.google.gson.JsonObject;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for MappedFeatureWriter and MappedFeatureFile
+ */
+public class MappedFeatureFileTest {
+
+    private static final String GEOJSON = "{\"type\":\"FeatureCollection\",\"features\":["
+            + "{\"type\":\"Feature\",\"id\":\"a\",\"geometry\":{\"type\":\"Point\",\"coordinates\":[4.9,52.4]},"
+            + "\"properties\":{\"name\":\"Amsterdam\"}},"
+            + "{\"type\":\"Feature\",\"id\":\"b\",\"geometry\":{\"type\":\"Point\",\"coordinates\":[-122.4,37.8]},"
+            + "\"properties\":{\"name\":\"San Francisco\"}},"
+            + "{\"type\":\"Feature\",\"id\":\"c\",\"geometry\":{\"type\":\"LineString\",\"coordinates\":[[4.8,52.3],[5.1,52.1]]},"
+            + "\"properties\":{\"name\":\"A2\"}},"
+            + "{\"type\":\"Feature\",\"id\":\"d\",\"geometry\":null}"
+            + "]}";
+
+    private File file;
+
+    @Before
+    public void setUp() throws IOException {
+        file = File.createTempFile("features", ".mfb");
+    }
+
+    @After
+    public void tearDown() {
+        file.delete();
+    }
+
+    @Test
+    public void testWriteAndRead() throws IOException {
+        assertEquals(3, new MappedFeatureWriter().withZoom(4).write(stream(GEOJSON), file));
+
+        MappedFeatureFile mappedFile = new MappedFeatureFile(file);
+        assertEquals(4, mappedFile.getZoom());
+        assertEquals(2, mappedFile.getBucketCount());
+
+        List<Integer> europe = mappedFile.findBuckets(0, 50, 10, 55);
+        assertEquals(1, europe.size());
+        MappedFeatureFile.Bucket bucket = mappedFile.readBucket(europe.get(0));
+        assertArrayEquals(new String[]{"a", "name", "Amsterdam", "c", "A2"}, bucket.strings);
+        assertTrue(bucket.features.isDirect());
+        assertTrue(bucket.features.remaining() > 0);
+
+        List<Integer> america = mappedFile.findBuckets(-130, 30, -110, 40);
+        assertEquals(1, america.size());
+        assertArrayEquals(new String[]{"b", "name", "San Francisco"}, mappedFile.readBucket(america.get(0)).strings);
+
+        assertEquals(Arrays.asList(0, 1), mappedFile.findBuckets(-180, -90, 180, 90));
+        assertEquals(0, mappedFile.findBuckets(100, -10, 120, 10).size());
+    }
+
+    @Test
+    public void testFindBucketsAcrossAntimeridian() throws IOException {
+        new MappedFeatureWriter().write(stream(GEOJSON), file);
+
+        MappedFeatureFile mappedFile = new MappedFeatureFile(file);
+        assertEquals(1, mappedFile.findBuckets(170, 30, -120, 40).size());
+        assertEquals(0, mappedFile.findBuckets(170, 50, -170, 55).size());
+    }
+
+    @Test
+    public void testFilterAndProperties() throws IOException {
+        MappedFeatureWriter writer = new MappedFeatureWriter()
+                .withProperties()
+                .withFilter(new GeoJsonStreamLoader.Filter() {
+                    @Override
+                    public boolean accept(String id, JsonObject properties) {
+                        return !"b".equals(id);
+                    }
+                });
+        assertEquals(2, writer.write(stream(GEOJSON), file));
+
+        MappedFeatureFile mappedFile = new MappedFeatureFile(file);
+        assertEquals(1, mappedFile.getBucketCount());
+        assertArrayEquals(new String[]{"a", "c"}, mappedFile.readBucket(0).strings);
+    }
+
+    @Test
+    public void testSmallBufferSplitsBuckets() throws IOException {
+        assertEquals(3, new MappedFeatureWriter().withZoom(4).withBufferSize(1).write(stream(GEOJSON), file));
+
+        // Every feature is written as soon as it is read, Amsterdam and the A2 get a bucket each
+        MappedFeatureFile mappedFile = new MappedFeatureFile(file);
+        assertEquals(3, mappedFile.getBucketCount());
+        List<Integer> europe = mappedFile.findBuckets(0, 50, 10, 55);
+        assertEquals(2, europe.size());
+        assertArrayEquals(new String[]{"a", "name", "Amsterdam"}, mappedFile.readBucket(europe.get(0)).strings);
+        assertArrayEquals(new String[]{"c", "name", "A2"}, mappedFile.readBucket(europe.get(1)).strings);
+    }
+
+    @Test
+    public void testBucketBeyondTwoGigabytes() throws IOException {
+        new MappedFeatureWriter().withZoom(4).withProperties().write(stream(GEOJSON), file);
+        MappedFeatureFile mappedFile = new MappedFeatureFile(file);
+        MappedFeatureFile.Bucket bucket = mappedFile.readBucket(mappedFile.findBuckets(-130, 30, -110, 40).get(0));
+        ByteBuffer features = ByteBuffer.allocate(bucket.features.remaining());
+        features.put(bucket.features).flip();
+
+        // A sparse copy of the bucket, past the range of an int offset
+        long offset = 3L << 30;
+        ByteBuffer strings = ByteBuffer.allocate(9).order(ByteOrder.LITTLE_ENDIAN);
+        strings.putInt(1).putInt(1).put((byte) 'b').flip();
+        int length = strings.remaining() + features.remaining();
+
+        ByteBuffer header = ByteBuffer.allocate(MappedFeatureFile.HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        header.putInt(MappedFeatureFile.MAGIC).putInt(MappedFeatureFile.VERSION).putInt(4).putInt(1)
+            .putLong(offset + length).flip();
+        ByteBuffer index = ByteBuffer.allocate(MappedFeatureFile.INDEX_ENTRY_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        index.putInt(2).putInt(6).putDouble(-122.4).putDouble(37.8).putDouble(-122.4).putDouble(37.8)
+            .putLong(offset).putInt(length).flip();
+
+        RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw");
+        try {
+            FileChannel channel = randomAccessFile.getChannel();
+            channel.truncate(0);
+            channel.write(header, 0);
+            channel.write(strings, offset);
+            channel.write(features, offset + 9);
+            channel.write(index, offset + length);
+        } finally {
+            randomAccessFile.close();
+        }
+
+        mappedFile = new MappedFeatureFile(file);
+        assertEquals(Collections.singletonList(0), mappedFile.findBuckets(-130, 30, -110, 40));
+        bucket = mappedFile.readBucket(0);
+        assertArrayEquals(new String[]{"b"}, bucket.strings);
+        features.rewind();
+        assertEquals(features, bucket.features);
+    }
+
+    @Test(expected = IOException.class)
+    public void testRejectsOtherFiles() throws IOException {
+        FileOutputStream outputStream = new FileOutputStream(file);
+        outputStream.write("{\"type\":\"FeatureCollection\"}".getBytes("UTF-8"));
+        outputStream.close();
+        new MappedFeatureFile(file);
+    }
+
+    private static ByteArrayInputStream stream(String json) throws IOException {
+        return new ByteArrayInputStream(json.getBytes("UTF-8"));
+    }
+}
@@ -0,0 +1,172 @@
+package com.mapbox.mapboxsdk.style.sources;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.InOrder;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.Executor;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Tests for MappedFeatureLoader
+ */
+public class MappedFeatureLoaderTest {
+
+    private static final String GEOJSON = "{\"type\":\"FeatureCollection\",\"features\":["
+            + "{\"type\":\"Feature\",\"geometry\":{\"type\":\"Point\",\"coordinates\":[4.9,52.4]}},"
+            + "{\"type\":\"Feature\",\"geometry\":{\"type\":\"Point\",\"coordinates\":[-122.4,37.8]}}"
+            + "]}";
+
+    private File file;
+    private GeoJsonSource source;
+    private QueueExecutor loaderThread;
+    private QueueExecutor mainThread;
+    private MappedFeatureLoader loader;
+
+    @Before
+    public void setUp() throws IOException {
+        file = File.createTempFile("features", ".mfb");
+        new MappedFeatureWriter().withZoom(4).write(new ByteArrayInputStream(GEOJSON.getBytes("UTF-8")), file);
+
+        source = mock(GeoJsonSource.class);
+        when(source.appendFeatures(any(ByteBuffer.class), anyInt(), any(String[].class))).thenReturn(true);
+        loaderThread = new QueueExecutor();
+        mainThread = new QueueExecutor();
+        loader = new MappedFeatureLoader(source, new MappedFeatureFile(file), loaderThread, mainThread);
+    }
+
+    @After
+    public void tearDown() {
+        file.delete();
+    }
+
+    @Test
+    public void testLoadStagesOffMainThread() {
+        CountingCallback callback = new CountingCallback();
+        loader.load(-180, -85, 180, 85, callback);
+        loaderThread.runAll();
+
+        InOrder order = inOrder(source);
+        order.verify(source).discardFeatures();
+        order.verify(source, times(2)).appendFeatures(any(ByteBuffer.class), anyInt(), any(String[].class));
+        verify(source, never()).commitFeatures();
+
+        mainThread.runAll();
+        verify(source).commitFeatures();
+        assertEquals(1, callback.applied);
+        assertEquals(2, loader.getLoadedBucketCount());
+    }
+
+    @Test
+    public void testSameBucketsNotReloaded() {
+        CountingCallback callback = new CountingCallback();
+        loader.load(0, 50, 10, 55, callback);
+        loaderThread.runAll();
+        mainThread.runAll();
+        loader.load(1, 51, 9, 54, callback);
+        loaderThread.runAll();
+        mainThread.runAll();
+
+        verify(source, times(1)).appendFeatures(any(ByteBuffer.class), anyInt(), any(String[].class));
+        verify(source, times(1)).commitFeatures();
+        assertEquals(2, callback.applied);
+    }
+
+    @Test
+    public void testNewestBoundsWin() {
+        CountingCallback first = new CountingCallback();
+        CountingCallback second = new CountingCallback();
+        loader.load(0, 50, 10, 55, first);
+        loaderThread.runAll();
+        loader.load(-130, 30, -110, 40, second);
+        loaderThread.runAll();
+        mainThread.runAll();
+
+        verify(source, times(1)).commitFeatures();
+        assertEquals(1, first.dropped);
+        assertEquals(1, second.applied);
+        assertEquals(1, loader.getLoadedBucketCount());
+    }
+
+    @Test
+    public void testSupersededLoadSkipped() {
+        CountingCallback first = new CountingCallback();
+        CountingCallback second = new CountingCallback();
+        loader.load(0, 50, 10, 55, first);
+        loader.load(-130, 30, -110, 40, second);
+        loaderThread.runAll();
+        mainThread.runAll();
+
+        // The first load never reads its bucket
+        verify(source, times(1)).appendFeatures(any(ByteBuffer.class), anyInt(), any(String[].class));
+        assertEquals(1, first.dropped);
+        assertEquals(1, second.applied);
+    }
+
+    @Test
+    public void testFailedBucketKeepsPreviousFeatures() {
+        when(source.appendFeatures(any(ByteBuffer.class), anyInt(), any(String[].class))).thenReturn(false);
+        CountingCallback callback = new CountingCallback();
+        loader.load(0, 50, 10, 55, callback);
+        loaderThread.runAll();
+        mainThread.runAll();
+
+        verify(source, times(2)).discardFeatures();
+        verify(source, never()).commitFeatures();
+        assertEquals(1, callback.errors);
+        assertEquals(0, loader.getLoadedBucketCount());
+    }
+
+    private static class QueueExecutor implements Executor {
+        private final Queue<Runnable> tasks = new ArrayDeque<>();
+
+        @Override
+        public void execute(Runnable runnable) {
+            tasks.add(runnable);
+        }
+
+        void runAll() {
+            Runnable task;
+            while ((task = tasks.poll()) != null) {
+                task.run();
+            }
+        }
+    }
+
+    private static class CountingCallback implements GeoJsonSource.UpdateCallback {
+        int applied;
+        int dropped;
+        int errors;
+
+        @Override
+        public void onApplied() {
+            applied++;
+        }
+
+        @Override
+        public void onDropped() {
+            dropped++;
+        }
+
+        @Override
+        public void onError(String error) {
+            errors++;
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package com.mapbox.mapboxsdk.tiles;
+
+import com.mapbox.mapboxsdk.geometry.LatLng;
+import com.mapbox.mapboxsdk.geometry.LatLngBounds;
+import com.mapbox.mapboxsdk.geometry.VisibleRegion;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public class TileCoverTest {
+
+    @Test
+    public void testWorld() {
+        long[] tiles = new long[4];
+        assertEquals(4, TileCover.cover(new double[] {0, 0, 1, 0, 1, 1, 0, 1}, 1, tiles, 0));
+        assertArrayEquals(new long[] {
+            TileId.pack(1, 0, 0), TileId.pack(1, 1, 0), TileId.pack(1, 0, 1), TileId.pack(1, 1, 1)
+        }, tiles);
+    }
+
+    @Test
+    public void testEdgesOnTileBoundaries() {
+        // Exactly tile 2/1/1, the neighbours it touches are left out
+        double[] square = new double[] {0.25, 0.25, 0.5, 0.25, 0.5, 0.5, 0.25, 0.5};
+        assertEquals(1, TileCover.count(square, 2));
+        assertEquals(4, TileCover.count(square, 3));
+    }
+
+    @Test
+    public void testTriangle() {
+        // Half of the world, below its diagonal
+        double[] triangle = new double[] {0, 0, 1, 1, 0, 1};
+        long[] tiles = new long[16];
+        int count = TileCover.cover(triangle, 2, tiles, 0);
+        // 4 tiles along the diagonal, 6 below it
+        assertEquals(10, count);
+        long[] sorted = Arrays.copyOf(tiles, count);
+        Arrays.sort(sorted);
+        for (long tileId : sorted) {
+            assertEquals(true, TileId.getX(tileId) <= TileId.getY(tileId));
+        }
+    }
+
+    @Test
+    public void testConcave() {
+        // A U shape, the notch at the top of columns 1 and 2 isn't covered
+        double[] shape = new double[] {
+            0, 0, 0.25, 0, 0.25, 0.5, 0.75, 0.5, 0.75, 0, 1, 0, 1, 1, 0, 1
+        };
+        long[] tiles = new long[16];
+        int count = TileCover.cover(shape, 2, tiles, 0);
+        assertEquals(12, count);
+        for (int i = 0; i < count; i++) {
+            int x = TileId.getX(tiles[i]);
+            int y = TileId.getY(tiles[i]);
+            assertEquals(false, y < 2 && (x == 1 || x == 2));
+        }
+    }
+
+    @Test
+    public void testAntimeridian() {
+        LatLng[] polygon = new LatLng[] {
+            new LatLng(10, 170), new LatLng(10, -170), new LatLng(-10, -170), new LatLng(-10, 170)
+        };
+        long[] tiles = new long[8];
+        int count = TileCover.cover(polygon, 2, tiles, 0);
+        assertEquals(4, count);
+        for (int i = 0; i < count; i++) {
+            int x = TileId.getX(tiles[i]);
+            assertEquals(true, x == 0 || x == 3);
+        }
+    }
+
+    @Test
+    public void testPitchedVisibleRegion() {
+        // A trapezoid, wider far away
+        VisibleRegion region = new VisibleRegion(
+            new LatLng(60, -80), new LatLng(60, 80), new LatLng(1, -1), new LatLng(1, 1), null);
+        long[] tiles = new long[64];
+        int count = TileCover.cover(region, 4, tiles, 0);
+        assertEquals(TileCover.count(region, 4), count);
+
+        int northernRow = 0;
+        int southernRow = 0;
+        for (int i = 0; i < count; i++) {
+            if (TileId.getY(tiles[i]) == 4) {
+                northernRow++;
+            } else if (TileId.getY(tiles[i]) == 7) {
+                southernRow++;
+            }
+        }
+        assertEquals(8, northernRow);
+        assertEquals(4, southernRow);
+    }
+
+    @Test
+    public void testPartialOutput() {
+        long[] tiles = new long[6];
+        Arrays.fill(tiles, -1);
+        assertEquals(16, TileCover.count(new double[] {0, 0, 1, 0, 1, 1, 0, 1}, 2));
+        assertEquals(4, TileCover.cover(new double[] {0, 0, 1, 0, 1, 1, 0, 1}, 2, tiles, 2));
+        assertEquals(-1, tiles[1]);
+        assertEquals(TileId.pack(2, 0, 0), tiles[2]);
+        assertEquals(TileId.pack(2, 3, 0), tiles[5]);
+    }
+
+    @Test
+    public void testBounds() {
+        LatLngBounds bounds = new LatLngBounds.Builder()
+            .include(new LatLng(52.6, 13.2))
+            .include(new LatLng(52.4, 13.6))
+            .build();
+        long[] tiles = new long[16];
+        int count = TileCover.cover(bounds, 10, tiles, 0);
+        assertEquals(TileCover.count(bounds, 10, 10), count);
+        assertEquals(TileMath.tileAt(new LatLng(52.6, 13.2), 10), tiles[0]);
+        assertEquals(TileMath.tileAt(new LatLng(52.4, 13.6), 10), tiles[count - 1]);
+
+        // One tile per zoom until the bounds straddle tile edges
+        assertEquals(3, TileCover.count(bounds, 0, 2));
+    }
+}
@@ -0,0 +1,56 @@
+package com.mapbox.mapboxsdk.tiles;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class TileIdTest {
+
+    @Test
+    public void testPack() {
+        long tileId = TileId.pack(TileId.MAX_ZOOM, (1 << TileId.MAX_ZOOM) - 1, 5);
+        assertEquals(TileId.MAX_ZOOM, TileId.getZoom(tileId));
+        assertEquals((1 << TileId.MAX_ZOOM) - 1, TileId.getX(tileId));
+        assertEquals(5, TileId.getY(tileId));
+        assertEquals("3/2/1", TileId.toString(TileId.pack(3, 2, 1)));
+    }
+
+    @Test
+    public void testOrder() {
+        assertTrue(TileId.pack(1, 1, 1) < TileId.pack(2, 0, 0));
+        assertTrue(TileId.pack(2, 0, 3) < TileId.pack(2, 1, 0));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testPackOutOfRange() {
+        TileId.pack(2, 4, 0);
+    }
+
+    @Test
+    public void testParentAndChildren() {
+        long tileId = TileId.pack(5, 10, 11);
+        long[] children = new long[5];
+        TileId.getChildren(tileId, children, 1);
+        assertEquals(TileId.pack(6, 20, 22), children[1]);
+        assertEquals(TileId.pack(6, 21, 23), children[4]);
+        for (int i = 1; i < children.length; i++) {
+            assertEquals(tileId, TileId.getParent(children[i]));
+        }
+        assertEquals(TileId.pack(0, 0, 0), TileId.getParent(TileId.pack(0, 0, 0)));
+    }
+
+    @Test
+    public void testQuadKey() {
+        // The example of the Bing Maps tile system documentation
+        assertEquals("213", TileId.toQuadKey(TileId.pack(3, 3, 5)));
+        assertEquals(TileId.pack(3, 3, 5), TileId.fromQuadKey("213"));
+        assertEquals("", TileId.toQuadKey(TileId.pack(0, 0, 0)));
+        assertEquals(TileId.pack(0, 0, 0), TileId.fromQuadKey(""));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidQuadKey() {
+        TileId.fromQuadKey("0124");
+    }
+}
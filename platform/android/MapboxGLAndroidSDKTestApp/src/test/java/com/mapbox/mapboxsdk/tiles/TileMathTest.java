@@ -0,0 +1,47 @@
+package com.mapbox.mapboxsdk.tiles;
+
+import com.mapbox.mapboxsdk.geometry.LatLng;
+import com.mapbox.mapboxsdk.geometry.LatLngBounds;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class TileMathTest {
+
+    private static final double DELTA = 1e-9;
+
+    @Test
+    public void testWorldCoordinates() {
+        assertEquals(0, TileMath.worldX(-180), DELTA);
+        assertEquals(0.5, TileMath.worldX(0), DELTA);
+        assertEquals(0.5, TileMath.worldY(0), DELTA);
+        assertEquals(0, TileMath.worldY(90), 1e-6);
+        assertEquals(1, TileMath.worldY(-90), 1e-6);
+    }
+
+    @Test
+    public void testRoundTrip() {
+        assertEquals(52.52, TileMath.latitude(TileMath.worldY(52.52)), DELTA);
+        assertEquals(13.405, TileMath.longitude(TileMath.worldX(13.405)), DELTA);
+    }
+
+    @Test
+    public void testTileAt() {
+        // Berlin
+        assertEquals(TileId.pack(10, 550, 335), TileMath.tileAt(new LatLng(52.52, 13.405), 10));
+        // Wrapped longitudes
+        assertEquals(TileId.pack(10, 550, 335), TileMath.tileAt(new LatLng(52.52, 13.405 + 360), 10));
+        // Edges of the world stay inside it
+        assertEquals(TileId.pack(2, 3, 3), TileMath.tileAt(1, 1, 2));
+    }
+
+    @Test
+    public void testBounds() {
+        LatLngBounds bounds = TileMath.getBounds(TileId.pack(1, 1, 0));
+        assertEquals(0, bounds.getLonWest(), DELTA);
+        assertEquals(180, bounds.getLonEast(), DELTA);
+        assertEquals(0, bounds.getLatSouth(), DELTA);
+        assertEquals(85.0511287798066, bounds.getLatNorth(), 1e-9);
+    }
+}
@@ -62,6 +62,7 @@ macro(mbgl_platform_core)
         PRIVATE platform/android/src/http_file_source.cpp
         PRIVATE platform/default/default_file_source.cpp
         PRIVATE platform/default/local_file_source.cpp
+        PRIVATE platform/default/mbtiles_file_source.cpp
         PRIVATE platform/default/online_file_source.cpp
 
         # Offline
@@ -121,6 +122,8 @@ macro(mbgl_platform_core)
         platform/android/src/style/layers/raster_layer.hpp
         platform/android/src/style/layers/symbol_layer.cpp
         platform/android/src/style/layers/symbol_layer.hpp
+        platform/android/src/style/sources/feature_buffer.cpp
+        platform/android/src/style/sources/feature_buffer.hpp
         platform/android/src/style/sources/geojson_source.cpp
         platform/android/src/style/sources/geojson_source.hpp
         platform/android/src/style/sources/source.cpp
@@ -131,6 +134,8 @@ macro(mbgl_platform_core)
         platform/android/src/style/sources/raster_source.hpp
         platform/android/src/style/sources/vector_source.cpp
         platform/android/src/style/sources/vector_source.hpp
+        platform/android/src/style/style_diff.cpp
+        platform/android/src/style/style_diff.hpp
 
         # Connectivity
         platform/android/src/connectivity_listener.cpp
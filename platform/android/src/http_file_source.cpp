@@ -10,6 +10,7 @@
 
 #include <jni/jni.hpp>
 #include "attach_env.hpp"
+#include "java_types.hpp"
 
 namespace mbgl {
 
@@ -30,7 +31,7 @@ public:
                     jni::String etag, jni::String modified,
                     jni::String cacheControl, jni::String expires,
                     jni::String retryAfter, jni::String xRateLimitReset,
-                    jni::Array<jni::jbyte> body);
+                    jni::Object<java::ByteBuffer> body, jni::jint length);
 
     static jni::Class<HTTPRequest> javaClass;
     jni::UniqueObject<HTTPRequest> javaRequest;
@@ -83,13 +84,15 @@ HTTPRequest::HTTPRequest(jni::JNIEnv& env, const Resource& resource_, FileSource
     jni::UniqueLocalFrame frame = jni::PushLocalFrame(env, 10);
 
     static auto constructor =
-        javaClass.GetConstructor<jni::jlong, jni::String, jni::String, jni::String>(env);
+        javaClass.GetConstructor<jni::jlong, jni::String, jni::String, jni::String, jni::jint, jni::jint>(env);
 
     javaRequest = javaClass.New(env, constructor,
         reinterpret_cast<jlong>(this),
         jni::Make<jni::String>(env, resource.url),
         jni::Make<jni::String>(env, etagStr),
-        jni::Make<jni::String>(env, modifiedStr)).NewGlobalRef(env);
+        jni::Make<jni::String>(env, modifiedStr),
+        jni::jint(resource.kind),
+        jni::jint(resource.priority)).NewGlobalRef(env);
 }
 
 HTTPRequest::~HTTPRequest() {
@@ -104,7 +107,7 @@ void HTTPRequest::onResponse(jni::JNIEnv& env, int code,
                              jni::String etag, jni::String modified,
                              jni::String cacheControl, jni::String expires,
                              jni::String jRetryAfter, jni::String jXRateLimitReset,
-                             jni::Array<jni::jbyte> body) {
+                             jni::Object<java::ByteBuffer> body, jni::jint length) {
 
     using Error = Response::Error;
 
@@ -125,10 +128,10 @@ void HTTPRequest::onResponse(jni::JNIEnv& env, int code,
     }
 
     if (code == 200) {
-        if (body) {
-            auto data = std::make_shared<std::string>(body.Length(env), char());
-            jni::GetArrayRegion(env, *body, 0, data->size(), reinterpret_cast<jbyte*>(&(*data)[0]));
-            response.data = data;
+        // The body is a pooled direct buffer, only valid during this call, so it is copied
+        auto address = body ? reinterpret_cast<const char*>(env.GetDirectBufferAddress(body.Get())) : nullptr;
+        if (address && length >= 0 && length <= env.GetDirectBufferCapacity(body.Get())) {
+            response.data = std::make_shared<std::string>(address, std::size_t(length));
         } else {
             response.data = std::make_shared<std::string>();
         }
@@ -187,7 +190,9 @@ std::unique_ptr<AsyncRequest> HTTPFileSource::request(const Resource& resource,
 }
 
 uint32_t HTTPFileSource::maximumConcurrentRequests() {
-    return 20;
+    // Requests are queued by priority in RequestScheduler, which limits the number of
+    // requests actually on the network.
+    return 64;
 }
 
 } // namespace mbgl
@@ -29,6 +29,10 @@ namespace java {
         static jni::jmethodID* getMethodId;
     };
 
+    struct ByteBuffer {
+        static constexpr auto Name() { return "java/nio/ByteBuffer"; };
+    };
+
     void registerNatives(JNIEnv&);
 }
 }
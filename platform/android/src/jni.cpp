@@ -25,6 +25,7 @@
 #include <mbgl/style/layer.hpp>
 #include <mbgl/style/source.hpp>
 #include <mbgl/sprite/sprite_image.hpp>
+#include <mbgl/tile/tile_id.hpp>
 #include <mbgl/util/event.hpp>
 #include <mbgl/util/logging.hpp>
 #include <mbgl/storage/network_status.hpp>
@@ -428,7 +429,7 @@ void nativeSetAPIBaseURL(JNIEnv *env, jni::jobject* obj, jlong nativeMapViewPtr,
 void nativeSetStyleUrl(JNIEnv *env, jni::jobject* obj, jlong nativeMapViewPtr, jni::jstring* url) {
     assert(nativeMapViewPtr != 0);
     NativeMapView *nativeMapView = reinterpret_cast<NativeMapView *>(nativeMapViewPtr);
-    nativeMapView->getMap().setStyleURL(std_string_from_jstring(env, url));
+    nativeMapView->setStyleURL(std_string_from_jstring(env, url));
 }
 
 jni::jstring* nativeGetStyleUrl(JNIEnv *env, jni::jobject* obj, jlong nativeMapViewPtr){
@@ -440,7 +441,19 @@ jni::jstring* nativeGetStyleUrl(JNIEnv *env, jni::jobject* obj, jlong nativeMapV
 void nativeSetStyleJson(JNIEnv *env, jni::jobject* obj, jlong nativeMapViewPtr, jni::jstring* newStyleJson) {
     assert(nativeMapViewPtr != 0);
     NativeMapView *nativeMapView = reinterpret_cast<NativeMapView *>(nativeMapViewPtr);
-    nativeMapView->getMap().setStyleJSON(std_string_from_jstring(env, newStyleJson));
+    nativeMapView->setStyleJSON(std_string_from_jstring(env, newStyleJson));
+}
+
+void nativeUpdateStyleUrl(JNIEnv *env, jni::jobject* obj, jlong nativeMapViewPtr, jni::jstring* url) {
+    assert(nativeMapViewPtr != 0);
+    NativeMapView *nativeMapView = reinterpret_cast<NativeMapView *>(nativeMapViewPtr);
+    nativeMapView->updateStyleURL(std_string_from_jstring(env, url));
+}
+
+void nativeUpdateStyleJson(JNIEnv *env, jni::jobject* obj, jlong nativeMapViewPtr, jni::jstring* newStyleJson) {
+    assert(nativeMapViewPtr != 0);
+    NativeMapView *nativeMapView = reinterpret_cast<NativeMapView *>(nativeMapViewPtr);
+    nativeMapView->updateStyleJSON(std_string_from_jstring(env, newStyleJson));
 }
 
 jni::jstring* nativeGetStyleJson(JNIEnv *env, jni::jobject* obj, jlong nativeMapViewPtr) {
@@ -467,6 +480,32 @@ void nativeCancelTransitions(JNIEnv *env, jni::jobject* obj, jlong nativeMapView
     nativeMapView->getMap().cancelTransitions();
 }
 
+void nativePrefetchTiles(JNIEnv *env, jni::jobject* obj, jlong nativeMapViewPtr, jni::jarray<jlong>* jarray, jint maximumTiles, jlong maximumBytes) {
+    assert(nativeMapViewPtr != 0);
+    NativeMapView *nativeMapView = reinterpret_cast<NativeMapView *>(nativeMapViewPtr);
+
+    NullCheck(*env, jarray);
+    std::size_t len = jni::GetArrayLength(*env, *jarray);
+    auto elements = jni::GetArrayElements(*env, *jarray);
+    jlong* jids = std::get<0>(elements).get();
+
+    // Tile IDs are packed as z << 58 | x << 29 | y
+    std::vector<mbgl::CanonicalTileID> tileIDs;
+    tileIDs.reserve(len);
+    for (std::size_t i = 0; i < len; i++) {
+        const uint64_t id = jids[i];
+        tileIDs.emplace_back(id >> 58, (id >> 29) & 0x1FFFFFFF, id & 0x1FFFFFFF);
+    }
+
+    nativeMapView->getMap().prefetchTiles(tileIDs, maximumTiles, maximumBytes);
+}
+
+void nativeCancelPrefetch(JNIEnv *env, jni::jobject* obj, jlong nativeMapViewPtr) {
+    assert(nativeMapViewPtr != 0);
+    NativeMapView *nativeMapView = reinterpret_cast<NativeMapView *>(nativeMapViewPtr);
+    nativeMapView->getMap().cancelPrefetch();
+}
+
 void nativeSetGestureInProgress(JNIEnv *env, jni::jobject* obj, jlong nativeMapViewPtr, jboolean inProgress) {
     assert(nativeMapViewPtr != 0);
     NativeMapView *nativeMapView = reinterpret_cast<NativeMapView *>(nativeMapViewPtr);
@@ -1403,6 +1442,21 @@ void setOfflineMapboxTileCountLimit(JNIEnv *env, jni::jobject* obj, jlong defaul
     defaultFileSource->setOfflineMapboxTileCountLimit(limit);
 }
 
+void setMaximumStaleness(JNIEnv *env, jni::jobject* obj, jlong defaultFileSourcePtr, jint resourceKind, jlong seconds) {
+    // Checks
+    assert(defaultFileSourcePtr != 0);
+    assert(resourceKind > mbgl::Resource::Unknown && resourceKind <= mbgl::Resource::SpriteJSON);
+
+    // A negative staleness never withholds expired resources
+    mbgl::optional<mbgl::Duration> maximumStaleness;
+    if (seconds >= 0) {
+        maximumStaleness = mbgl::Duration(mbgl::Seconds(seconds));
+    }
+
+    mbgl::DefaultFileSource *defaultFileSource = reinterpret_cast<mbgl::DefaultFileSource *>(defaultFileSourcePtr);
+    defaultFileSource->setMaximumStaleness(mbgl::Resource::Kind(resourceKind), maximumStaleness);
+}
+
 mbgl::OfflineRegion* getOfflineRegionPeer(JNIEnv *env, jni::jobject* offlineRegion_) {
     jlong offlineRegionPtr = jni::GetField<jlong>(*env, offlineRegion_, *offlineRegionPtrId);
     if (!offlineRegionPtr) {
@@ -1825,9 +1879,13 @@ void registerNatives(JavaVM *vm) {
         MAKE_NATIVE_METHOD(nativeGetStyleUrl, "(J)Ljava/lang/String;"),
         MAKE_NATIVE_METHOD(nativeSetStyleJson, "(JLjava/lang/String;)V"),
         MAKE_NATIVE_METHOD(nativeGetStyleJson, "(J)Ljava/lang/String;"),
+        MAKE_NATIVE_METHOD(nativeUpdateStyleUrl, "(JLjava/lang/String;)V"),
+        MAKE_NATIVE_METHOD(nativeUpdateStyleJson, "(JLjava/lang/String;)V"),
         MAKE_NATIVE_METHOD(nativeSetAccessToken, "(JLjava/lang/String;)V"),
         MAKE_NATIVE_METHOD(nativeGetAccessToken, "(J)Ljava/lang/String;"),
         MAKE_NATIVE_METHOD(nativeCancelTransitions, "(J)V"),
+        MAKE_NATIVE_METHOD(nativePrefetchTiles, "(J[JIJ)V"),
+        MAKE_NATIVE_METHOD(nativeCancelPrefetch, "(J)V"),
         MAKE_NATIVE_METHOD(nativeSetGestureInProgress, "(JZ)V"),
         MAKE_NATIVE_METHOD(nativeMoveBy, "(JDDJ)V"),
         MAKE_NATIVE_METHOD(nativeSetLatLng, "(JDDJ)V"),
@@ -1920,7 +1978,8 @@ void registerNatives(JavaVM *vm) {
         MAKE_NATIVE_METHOD(getAccessToken, "(J)Ljava/lang/String;"),
         MAKE_NATIVE_METHOD(listOfflineRegions, "(JLcom/mapbox/mapboxsdk/offline/OfflineManager$ListOfflineRegionsCallback;)V"),
         MAKE_NATIVE_METHOD(createOfflineRegion, "(JLcom/mapbox/mapboxsdk/offline/OfflineRegionDefinition;[BLcom/mapbox/mapboxsdk/offline/OfflineManager$CreateOfflineRegionCallback;)V"),
-        MAKE_NATIVE_METHOD(setOfflineMapboxTileCountLimit, "(JJ)V")
+        MAKE_NATIVE_METHOD(setOfflineMapboxTileCountLimit, "(JJ)V"),
+        MAKE_NATIVE_METHOD(setMaximumStaleness, "(JIJ)V")
     );
 
     jni::Class<OfflineManager::ListOfflineRegionsCallback> listOfflineRegionsCallbackClass = jni::Class<OfflineManager::ListOfflineRegionsCallback>::Find(env);
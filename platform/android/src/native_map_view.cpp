@@ -1,5 +1,6 @@
 #include "native_map_view.hpp"
 #include "jni.hpp"
+#include "style/style_diff.hpp"
 
 #include <cstdlib>
 #include <ctime>
@@ -86,6 +87,7 @@ NativeMapView::~NativeMapView() {
     assert(vm != nullptr);
     assert(obj != nullptr);
 
+    styleDiffRequest.reset();
     map.reset();
     fileSource.reset();
 
@@ -449,6 +451,63 @@ void NativeMapView::scheduleTakeSnapshot() {
     snapshot = true;
 }
 
+void NativeMapView::setStyleJSON(const std::string& json) {
+    // A style response still pending for a diff must not be diffed over this style
+    styleDiffRequest.reset();
+    map->setStyleJSON(json);
+}
+
+void NativeMapView::setStyleURL(const std::string& url) {
+    styleDiffRequest.reset();
+    map->setStyleURL(url);
+}
+
+void NativeMapView::updateStyleJSON(const std::string& json) {
+    styleDiffRequest.reset();
+    applyStyle("", json);
+}
+
+void NativeMapView::updateStyleURL(const std::string& url) {
+    styleDiffRequest.reset();
+    if (map->getStyleJSON().empty()) {
+        // Nothing loaded yet to diff against
+        map->setStyleURL(url);
+        return;
+    }
+
+    styleDiffRequest = fileSource->request(mbgl::Resource::style(url), [this, url](mbgl::Response res) {
+        if (res.notModified) {
+            return;
+        }
+
+        // Resetting the request destroys this callback, copy what we need first
+        const std::string styleURL = url;
+        styleDiffRequest.reset();
+
+        if (res.error || res.noContent) {
+            map->setStyleURL(styleURL);
+        } else {
+            applyStyle(styleURL, *res.data);
+        }
+    });
+}
+
+void NativeMapView::applyStyle(const std::string& url, const std::string& json) {
+    // Diffs record the new style on the map, so it always holds the style that is on screen
+    const std::string currentJSON = map->getStyleJSON();
+    if (!currentJSON.empty() && mbgl::android::applyStyleDiff(*map, currentJSON, json)) {
+        map->setStyleIdentity(url, json);
+        return;
+    }
+
+    mbgl::Log::Debug(mbgl::Event::Android, "Style diff not applicable, reloading style");
+    map->setStyleJSON(json);
+    if (!url.empty()) {
+        // Loaded from the response we already have, but still known by its url
+        map->setStyleIdentity(url, json);
+    }
+}
+
 // Speed
 /*
 typedef enum {
@@ -6,6 +6,7 @@
 #include <mbgl/util/noncopyable.hpp>
 #include <mbgl/util/default_thread_pool.hpp>
 #include <mbgl/storage/default_file_source.hpp>
+#include <mbgl/storage/file_source.hpp>
 
 #include <string>
 #include <jni.h>
@@ -54,8 +55,14 @@ public:
 
     void scheduleTakeSnapshot();
 
+    void setStyleJSON(const std::string&);
+    void setStyleURL(const std::string&);
+    void updateStyleJSON(const std::string&);
+    void updateStyleURL(const std::string&);
+
 private:
     EGLConfig chooseConfig(const EGLConfig configs[], EGLint numConfigs);
+    void applyStyle(const std::string& url, const std::string& json);
 
 private:
     JavaVM *vm = nullptr;
@@ -79,6 +86,9 @@ private:
     std::string styleUrl;
     std::string apiKey;
 
+    // Style diffing: the request for the style to diff to
+    std::unique_ptr<mbgl::AsyncRequest> styleDiffRequest;
+
     bool firstTime = false;
     bool fpsEnabled = false;
     bool snapshot = false;
@@ -39,6 +39,25 @@ namespace android {
         return jni::Object<jni::ObjectTag>(*converted);
     }
 
+    jni::Array<jni::Object<>> BackgroundLayer::getProperties(jni::JNIEnv& env) {
+        using namespace mbgl::android::conversion;
+        static jni::jclass* objectClass = jni::NewGlobalRef(env, &jni::FindClass(env, "java/lang/Object")).release();
+
+        auto& coreLayer = *layer.as<mbgl::style::BackgroundLayer>();
+        jni::jarray<jni::jobject>& properties = jni::NewObjectArray(env, 4, *objectClass);
+        auto set = [&] (std::size_t index, Result<jni::jobject*> converted) {
+            jni::SetObjectArrayElement(env, properties, index, *converted);
+            jni::DeleteLocalRef(env, *converted);
+        };
+
+        // Same order as PROPERTY_NAMES in BackgroundLayer.java
+        set(0, convert<jni::jobject*>(env, coreLayer.getVisibility()));
+        set(1, convert<jni::jobject*>(env, coreLayer.getBackgroundColor()));
+        set(2, convert<jni::jobject*>(env, coreLayer.getBackgroundPattern()));
+        set(3, convert<jni::jobject*>(env, coreLayer.getBackgroundOpacity()));
+        return jni::Array<jni::Object<>>(&properties);
+    }
+
     jni::Class<BackgroundLayer> BackgroundLayer::javaClass;
 
     jni::jobject* BackgroundLayer::createJavaPeer(jni::JNIEnv& env) {
@@ -58,6 +77,7 @@ namespace android {
             std::make_unique<BackgroundLayer, JNIEnv&, jni::String>,
             "initialize",
             "finalize",
+            METHOD(&BackgroundLayer::getProperties, "nativeGetProperties"),
             METHOD(&BackgroundLayer::getBackgroundColor, "nativeGetBackgroundColor"),
             METHOD(&BackgroundLayer::getBackgroundPattern, "nativeGetBackgroundPattern"),
             METHOD(&BackgroundLayer::getBackgroundOpacity, "nativeGetBackgroundOpacity"));
@@ -31,6 +31,8 @@ public:
 
     jni::Object<jni::ObjectTag> getBackgroundOpacity(jni::JNIEnv&);
 
+    jni::Array<jni::Object<>> getProperties(jni::JNIEnv&);
+
     jni::jobject* createJavaPeer(jni::JNIEnv&);
 
 }; // class BackgroundLayer
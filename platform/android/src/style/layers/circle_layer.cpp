@@ -81,6 +81,32 @@ namespace android {
         return jni::Object<jni::ObjectTag>(*converted);
     }
 
+    jni::Array<jni::Object<>> CircleLayer::getProperties(jni::JNIEnv& env) {
+        using namespace mbgl::android::conversion;
+        static jni::jclass* objectClass = jni::NewGlobalRef(env, &jni::FindClass(env, "java/lang/Object")).release();
+
+        auto& coreLayer = *layer.as<mbgl::style::CircleLayer>();
+        jni::jarray<jni::jobject>& properties = jni::NewObjectArray(env, 11, *objectClass);
+        auto set = [&] (std::size_t index, Result<jni::jobject*> converted) {
+            jni::SetObjectArrayElement(env, properties, index, *converted);
+            jni::DeleteLocalRef(env, *converted);
+        };
+
+        // Same order as PROPERTY_NAMES in CircleLayer.java
+        set(0, convert<jni::jobject*>(env, coreLayer.getVisibility()));
+        set(1, convert<jni::jobject*>(env, coreLayer.getCircleRadius()));
+        set(2, convert<jni::jobject*>(env, coreLayer.getCircleColor()));
+        set(3, convert<jni::jobject*>(env, coreLayer.getCircleBlur()));
+        set(4, convert<jni::jobject*>(env, coreLayer.getCircleOpacity()));
+        set(5, convert<jni::jobject*>(env, coreLayer.getCircleTranslate()));
+        set(6, convert<jni::jobject*>(env, coreLayer.getCircleTranslateAnchor()));
+        set(7, convert<jni::jobject*>(env, coreLayer.getCirclePitchScale()));
+        set(8, convert<jni::jobject*>(env, coreLayer.getCircleStrokeWidth()));
+        set(9, convert<jni::jobject*>(env, coreLayer.getCircleStrokeColor()));
+        set(10, convert<jni::jobject*>(env, coreLayer.getCircleStrokeOpacity()));
+        return jni::Array<jni::Object<>>(&properties);
+    }
+
     jni::Class<CircleLayer> CircleLayer::javaClass;
 
     jni::jobject* CircleLayer::createJavaPeer(jni::JNIEnv& env) {
@@ -100,6 +126,7 @@ namespace android {
             std::make_unique<CircleLayer, JNIEnv&, jni::String, jni::String>,
             "initialize",
             "finalize",
+            METHOD(&CircleLayer::getProperties, "nativeGetProperties"),
             METHOD(&CircleLayer::getCircleRadius, "nativeGetCircleRadius"),
             METHOD(&CircleLayer::getCircleColor, "nativeGetCircleColor"),
             METHOD(&CircleLayer::getCircleBlur, "nativeGetCircleBlur"),
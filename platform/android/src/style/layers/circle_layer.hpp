@@ -45,6 +45,8 @@ public:
 
     jni::Object<jni::ObjectTag> getCircleStrokeOpacity(jni::JNIEnv&);
 
+    jni::Array<jni::Object<>> getProperties(jni::JNIEnv&);
+
     jni::jobject* createJavaPeer(jni::JNIEnv&);
 
 }; // class CircleLayer
@@ -63,6 +63,29 @@ namespace android {
         return jni::Object<jni::ObjectTag>(*converted);
     }
 
+    jni::Array<jni::Object<>> FillLayer::getProperties(jni::JNIEnv& env) {
+        using namespace mbgl::android::conversion;
+        static jni::jclass* objectClass = jni::NewGlobalRef(env, &jni::FindClass(env, "java/lang/Object")).release();
+
+        auto& coreLayer = *layer.as<mbgl::style::FillLayer>();
+        jni::jarray<jni::jobject>& properties = jni::NewObjectArray(env, 8, *objectClass);
+        auto set = [&] (std::size_t index, Result<jni::jobject*> converted) {
+            jni::SetObjectArrayElement(env, properties, index, *converted);
+            jni::DeleteLocalRef(env, *converted);
+        };
+
+        // Same order as PROPERTY_NAMES in FillLayer.java
+        set(0, convert<jni::jobject*>(env, coreLayer.getVisibility()));
+        set(1, convert<jni::jobject*>(env, coreLayer.getFillAntialias()));
+        set(2, convert<jni::jobject*>(env, coreLayer.getFillOpacity()));
+        set(3, convert<jni::jobject*>(env, coreLayer.getFillColor()));
+        set(4, convert<jni::jobject*>(env, coreLayer.getFillOutlineColor()));
+        set(5, convert<jni::jobject*>(env, coreLayer.getFillTranslate()));
+        set(6, convert<jni::jobject*>(env, coreLayer.getFillTranslateAnchor()));
+        set(7, convert<jni::jobject*>(env, coreLayer.getFillPattern()));
+        return jni::Array<jni::Object<>>(&properties);
+    }
+
     jni::Class<FillLayer> FillLayer::javaClass;
 
     jni::jobject* FillLayer::createJavaPeer(jni::JNIEnv& env) {
@@ -82,6 +105,7 @@ namespace android {
             std::make_unique<FillLayer, JNIEnv&, jni::String, jni::String>,
             "initialize",
             "finalize",
+            METHOD(&FillLayer::getProperties, "nativeGetProperties"),
             METHOD(&FillLayer::getFillAntialias, "nativeGetFillAntialias"),
             METHOD(&FillLayer::getFillOpacity, "nativeGetFillOpacity"),
             METHOD(&FillLayer::getFillColor, "nativeGetFillColor"),
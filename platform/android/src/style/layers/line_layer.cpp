@@ -105,6 +105,36 @@ namespace android {
         return jni::Object<jni::ObjectTag>(*converted);
     }
 
+    jni::Array<jni::Object<>> LineLayer::getProperties(jni::JNIEnv& env) {
+        using namespace mbgl::android::conversion;
+        static jni::jclass* objectClass = jni::NewGlobalRef(env, &jni::FindClass(env, "java/lang/Object")).release();
+
+        auto& coreLayer = *layer.as<mbgl::style::LineLayer>();
+        jni::jarray<jni::jobject>& properties = jni::NewObjectArray(env, 15, *objectClass);
+        auto set = [&] (std::size_t index, Result<jni::jobject*> converted) {
+            jni::SetObjectArrayElement(env, properties, index, *converted);
+            jni::DeleteLocalRef(env, *converted);
+        };
+
+        // Same order as PROPERTY_NAMES in LineLayer.java
+        set(0, convert<jni::jobject*>(env, coreLayer.getVisibility()));
+        set(1, convert<jni::jobject*>(env, coreLayer.getLineCap()));
+        set(2, convert<jni::jobject*>(env, coreLayer.getLineJoin()));
+        set(3, convert<jni::jobject*>(env, coreLayer.getLineMiterLimit()));
+        set(4, convert<jni::jobject*>(env, coreLayer.getLineRoundLimit()));
+        set(5, convert<jni::jobject*>(env, coreLayer.getLineOpacity()));
+        set(6, convert<jni::jobject*>(env, coreLayer.getLineColor()));
+        set(7, convert<jni::jobject*>(env, coreLayer.getLineTranslate()));
+        set(8, convert<jni::jobject*>(env, coreLayer.getLineTranslateAnchor()));
+        set(9, convert<jni::jobject*>(env, coreLayer.getLineWidth()));
+        set(10, convert<jni::jobject*>(env, coreLayer.getLineGapWidth()));
+        set(11, convert<jni::jobject*>(env, coreLayer.getLineOffset()));
+        set(12, convert<jni::jobject*>(env, coreLayer.getLineBlur()));
+        set(13, convert<jni::jobject*>(env, coreLayer.getLineDasharray()));
+        set(14, convert<jni::jobject*>(env, coreLayer.getLinePattern()));
+        return jni::Array<jni::Object<>>(&properties);
+    }
+
     jni::Class<LineLayer> LineLayer::javaClass;
 
     jni::jobject* LineLayer::createJavaPeer(jni::JNIEnv& env) {
@@ -124,6 +154,7 @@ namespace android {
             std::make_unique<LineLayer, JNIEnv&, jni::String, jni::String>,
             "initialize",
             "finalize",
+            METHOD(&LineLayer::getProperties, "nativeGetProperties"),
             METHOD(&LineLayer::getLineCap, "nativeGetLineCap"),
             METHOD(&LineLayer::getLineJoin, "nativeGetLineJoin"),
             METHOD(&LineLayer::getLineMiterLimit, "nativeGetLineMiterLimit"),
@@ -53,6 +53,8 @@ public:
 
     jni::Object<jni::ObjectTag> getLinePattern(jni::JNIEnv&);
 
+    jni::Array<jni::Object<>> getProperties(jni::JNIEnv&);
+
     jni::jobject* createJavaPeer(jni::JNIEnv&);
 
 }; // class LineLayer
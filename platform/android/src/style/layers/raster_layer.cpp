@@ -63,6 +63,29 @@ namespace android {
         return jni::Object<jni::ObjectTag>(*converted);
     }
 
+    jni::Array<jni::Object<>> RasterLayer::getProperties(jni::JNIEnv& env) {
+        using namespace mbgl::android::conversion;
+        static jni::jclass* objectClass = jni::NewGlobalRef(env, &jni::FindClass(env, "java/lang/Object")).release();
+
+        auto& coreLayer = *layer.as<mbgl::style::RasterLayer>();
+        jni::jarray<jni::jobject>& properties = jni::NewObjectArray(env, 8, *objectClass);
+        auto set = [&] (std::size_t index, Result<jni::jobject*> converted) {
+            jni::SetObjectArrayElement(env, properties, index, *converted);
+            jni::DeleteLocalRef(env, *converted);
+        };
+
+        // Same order as PROPERTY_NAMES in RasterLayer.java
+        set(0, convert<jni::jobject*>(env, coreLayer.getVisibility()));
+        set(1, convert<jni::jobject*>(env, coreLayer.getRasterOpacity()));
+        set(2, convert<jni::jobject*>(env, coreLayer.getRasterHueRotate()));
+        set(3, convert<jni::jobject*>(env, coreLayer.getRasterBrightnessMin()));
+        set(4, convert<jni::jobject*>(env, coreLayer.getRasterBrightnessMax()));
+        set(5, convert<jni::jobject*>(env, coreLayer.getRasterSaturation()));
+        set(6, convert<jni::jobject*>(env, coreLayer.getRasterContrast()));
+        set(7, convert<jni::jobject*>(env, coreLayer.getRasterFadeDuration()));
+        return jni::Array<jni::Object<>>(&properties);
+    }
+
     jni::Class<RasterLayer> RasterLayer::javaClass;
 
     jni::jobject* RasterLayer::createJavaPeer(jni::JNIEnv& env) {
@@ -82,6 +105,7 @@ namespace android {
             std::make_unique<RasterLayer, JNIEnv&, jni::String, jni::String>,
             "initialize",
             "finalize",
+            METHOD(&RasterLayer::getProperties, "nativeGetProperties"),
             METHOD(&RasterLayer::getRasterOpacity, "nativeGetRasterOpacity"),
             METHOD(&RasterLayer::getRasterHueRotate, "nativeGetRasterHueRotate"),
             METHOD(&RasterLayer::getRasterBrightnessMin, "nativeGetRasterBrightnessMin"),
@@ -39,6 +39,8 @@ public:
 
     jni::Object<jni::ObjectTag> getRasterFadeDuration(jni::JNIEnv&);
 
+    jni::Array<jni::Object<>> getProperties(jni::JNIEnv&);
+
     jni::jobject* createJavaPeer(jni::JNIEnv&);
 
 }; // class RasterLayer
@@ -309,6 +309,70 @@ namespace android {
         return jni::Object<jni::ObjectTag>(*converted);
     }
 
+    jni::Array<jni::Object<>> SymbolLayer::getProperties(jni::JNIEnv& env) {
+        using namespace mbgl::android::conversion;
+        static jni::jclass* objectClass = jni::NewGlobalRef(env, &jni::FindClass(env, "java/lang/Object")).release();
+
+        auto& coreLayer = *layer.as<mbgl::style::SymbolLayer>();
+        jni::jarray<jni::jobject>& properties = jni::NewObjectArray(env, 49, *objectClass);
+        auto set = [&] (std::size_t index, Result<jni::jobject*> converted) {
+            jni::SetObjectArrayElement(env, properties, index, *converted);
+            jni::DeleteLocalRef(env, *converted);
+        };
+
+        // Same order as PROPERTY_NAMES in SymbolLayer.java
+        set(0, convert<jni::jobject*>(env, coreLayer.getVisibility()));
+        set(1, convert<jni::jobject*>(env, coreLayer.getSymbolPlacement()));
+        set(2, convert<jni::jobject*>(env, coreLayer.getSymbolSpacing()));
+        set(3, convert<jni::jobject*>(env, coreLayer.getSymbolAvoidEdges()));
+        set(4, convert<jni::jobject*>(env, coreLayer.getIconAllowOverlap()));
+        set(5, convert<jni::jobject*>(env, coreLayer.getIconIgnorePlacement()));
+        set(6, convert<jni::jobject*>(env, coreLayer.getIconOptional()));
+        set(7, convert<jni::jobject*>(env, coreLayer.getIconRotationAlignment()));
+        set(8, convert<jni::jobject*>(env, coreLayer.getIconSize()));
+        set(9, convert<jni::jobject*>(env, coreLayer.getIconTextFit()));
+        set(10, convert<jni::jobject*>(env, coreLayer.getIconTextFitPadding()));
+        set(11, convert<jni::jobject*>(env, coreLayer.getIconImage()));
+        set(12, convert<jni::jobject*>(env, coreLayer.getIconRotate()));
+        set(13, convert<jni::jobject*>(env, coreLayer.getIconPadding()));
+        set(14, convert<jni::jobject*>(env, coreLayer.getIconKeepUpright()));
+        set(15, convert<jni::jobject*>(env, coreLayer.getIconOffset()));
+        set(16, convert<jni::jobject*>(env, coreLayer.getTextPitchAlignment()));
+        set(17, convert<jni::jobject*>(env, coreLayer.getTextRotationAlignment()));
+        set(18, convert<jni::jobject*>(env, coreLayer.getTextField()));
+        set(19, convert<jni::jobject*>(env, coreLayer.getTextFont()));
+        set(20, convert<jni::jobject*>(env, coreLayer.getTextSize()));
+        set(21, convert<jni::jobject*>(env, coreLayer.getTextMaxWidth()));
+        set(22, convert<jni::jobject*>(env, coreLayer.getTextLineHeight()));
+        set(23, convert<jni::jobject*>(env, coreLayer.getTextLetterSpacing()));
+        set(24, convert<jni::jobject*>(env, coreLayer.getTextJustify()));
+        set(25, convert<jni::jobject*>(env, coreLayer.getTextAnchor()));
+        set(26, convert<jni::jobject*>(env, coreLayer.getTextMaxAngle()));
+        set(27, convert<jni::jobject*>(env, coreLayer.getTextRotate()));
+        set(28, convert<jni::jobject*>(env, coreLayer.getTextPadding()));
+        set(29, convert<jni::jobject*>(env, coreLayer.getTextKeepUpright()));
+        set(30, convert<jni::jobject*>(env, coreLayer.getTextTransform()));
+        set(31, convert<jni::jobject*>(env, coreLayer.getTextOffset()));
+        set(32, convert<jni::jobject*>(env, coreLayer.getTextAllowOverlap()));
+        set(33, convert<jni::jobject*>(env, coreLayer.getTextIgnorePlacement()));
+        set(34, convert<jni::jobject*>(env, coreLayer.getTextOptional()));
+        set(35, convert<jni::jobject*>(env, coreLayer.getIconOpacity()));
+        set(36, convert<jni::jobject*>(env, coreLayer.getIconColor()));
+        set(37, convert<jni::jobject*>(env, coreLayer.getIconHaloColor()));
+        set(38, convert<jni::jobject*>(env, coreLayer.getIconHaloWidth()));
+        set(39, convert<jni::jobject*>(env, coreLayer.getIconHaloBlur()));
+        set(40, convert<jni::jobject*>(env, coreLayer.getIconTranslate()));
+        set(41, convert<jni::jobject*>(env, coreLayer.getIconTranslateAnchor()));
+        set(42, convert<jni::jobject*>(env, coreLayer.getTextOpacity()));
+        set(43, convert<jni::jobject*>(env, coreLayer.getTextColor()));
+        set(44, convert<jni::jobject*>(env, coreLayer.getTextHaloColor()));
+        set(45, convert<jni::jobject*>(env, coreLayer.getTextHaloWidth()));
+        set(46, convert<jni::jobject*>(env, coreLayer.getTextHaloBlur()));
+        set(47, convert<jni::jobject*>(env, coreLayer.getTextTranslate()));
+        set(48, convert<jni::jobject*>(env, coreLayer.getTextTranslateAnchor()));
+        return jni::Array<jni::Object<>>(&properties);
+    }
+
     jni::Class<SymbolLayer> SymbolLayer::javaClass;
 
     jni::jobject* SymbolLayer::createJavaPeer(jni::JNIEnv& env) {
@@ -328,6 +392,7 @@ namespace android {
             std::make_unique<SymbolLayer, JNIEnv&, jni::String, jni::String>,
             "initialize",
             "finalize",
+            METHOD(&SymbolLayer::getProperties, "nativeGetProperties"),
             METHOD(&SymbolLayer::getSymbolPlacement, "nativeGetSymbolPlacement"),
             METHOD(&SymbolLayer::getSymbolSpacing, "nativeGetSymbolSpacing"),
             METHOD(&SymbolLayer::getSymbolAvoidEdges, "nativeGetSymbolAvoidEdges"),
@@ -121,6 +121,8 @@ public:
 
     jni::Object<jni::ObjectTag> getTextTranslateAnchor(jni::JNIEnv&);
 
+    jni::Array<jni::Object<>> getProperties(jni::JNIEnv&);
+
     jni::jobject* createJavaPeer(jni::JNIEnv&);
 
 }; // class SymbolLayer
@@ -0,0 +1,268 @@
+#include "feature_buffer.hpp"
+
+#include <cctype>
+#include <cerrno>
+#include <cstdlib>
+#include <cstring>
+#include <stdexcept>
+#include <string>
+
+namespace mbgl {
+namespace android {
+
+namespace {
+
+// Same values as the constants in FeatureBuffer.java
+enum class GeometryType : uint8_t {
+    Null = 0,
+    Point = 1,
+    MultiPoint = 2,
+    LineString = 3,
+    MultiLineString = 4,
+    Polygon = 5,
+    MultiPolygon = 6,
+    GeometryCollection = 7
+};
+
+enum class ValueType : uint8_t {
+    Null = 0,
+    False = 1,
+    True = 2,
+    UInt = 3,
+    Int = 4,
+    Double = 5,
+    String = 6,
+    Array = 7,
+    Object = 8
+};
+
+} // namespace
+
+mapbox::geometry::identifier featureIdentifier(std::string id) {
+    const std::size_t digit = !id.empty() && id[0] == '-' ? 1 : 0;
+    if (id.size() <= digit || !std::isdigit(static_cast<unsigned char>(id[digit]))) {
+        return { std::move(id) };
+    }
+
+    // Only the canonical form converts, "07" and "-0" stay strings
+    char* end = nullptr;
+    errno = 0;
+    if (digit == 0) {
+        const uint64_t value = std::strtoull(id.c_str(), &end, 10);
+        if (errno == 0 && *end == '\0' && std::to_string(value) == id) {
+            return { value };
+        }
+    } else {
+        const int64_t value = std::strtoll(id.c_str(), &end, 10);
+        if (errno == 0 && *end == '\0' && value < 0 && std::to_string(value) == id) {
+            return { value };
+        }
+    }
+    return { std::move(id) };
+}
+
+FeatureBufferReader::FeatureBufferReader(const uint8_t* data_, std::size_t length_, std::vector<std::string> strings_)
+    : data(data_), length(length_), strings(std::move(strings_)) {
+}
+
+FeatureBufferReader FeatureBufferReader::fromJava(jni::JNIEnv& env, jni::Object<java::ByteBuffer> buffer, jni::jint length, jni::Array<jni::String> jstrings) {
+    auto data = reinterpret_cast<const uint8_t*>(env.GetDirectBufferAddress(buffer.Get()));
+    if (!data || length < 0 || length > env.GetDirectBufferCapacity(buffer.Get())) {
+        throw std::runtime_error("Expected a direct buffer");
+    }
+
+    std::vector<std::string> strings;
+    std::size_t size = jstrings.Length(env);
+    strings.reserve(size);
+    for (std::size_t i = 0; i < size; i++) {
+        jni::String string = jstrings.Get(env, i);
+        strings.push_back(jni::Make<std::string>(env, string));
+        jni::DeleteLocalRef(env, string.Get());
+    }
+
+    return FeatureBufferReader(data, std::size_t(length), std::move(strings));
+}
+
+bool FeatureBufferReader::hasNext() const {
+    return offset < length;
+}
+
+mapbox::geometry::feature<double> FeatureBufferReader::next() {
+    mapbox::geometry::feature<double> feature;
+
+    int32_t id = read<int32_t>();
+    if (id >= 0) {
+        feature.id = featureIdentifier(string(id));
+    }
+    feature.geometry = readGeometry();
+    feature.properties = readProperties();
+
+    return feature;
+}
+
+mapbox::geometry::feature_collection<double> FeatureBufferReader::readAll() {
+    mapbox::geometry::feature_collection<double> features;
+    while (hasNext()) {
+        features.push_back(next());
+    }
+    return features;
+}
+
+std::pair<mapbox::geometry::identifier, mapbox::geometry::property_map> FeatureBufferReader::nextProperties() {
+    mapbox::geometry::identifier id = featureIdentifier(string(read<int32_t>()));
+    return { std::move(id), readProperties() };
+}
+
+template <class T>
+T FeatureBufferReader::read() {
+    if (length - offset < sizeof(T)) {
+        throw std::runtime_error("Unexpected end of feature buffer");
+    }
+    // Values are packed without padding
+    T value;
+    std::memcpy(&value, data + offset, sizeof(T));
+    offset += sizeof(T);
+    return value;
+}
+
+const std::string& FeatureBufferReader::string(int32_t index) {
+    if (index < 0 || std::size_t(index) >= strings.size()) {
+        throw std::runtime_error("Invalid string index in feature buffer");
+    }
+    return strings[index];
+}
+
+mapbox::geometry::point<double> FeatureBufferReader::readPoint() {
+    double x = read<double>();
+    double y = read<double>();
+    return { x, y };
+}
+
+template <class Container>
+Container FeatureBufferReader::readPoints() {
+    int32_t count = read<int32_t>();
+    if (count < 0 || std::size_t(count) > (length - offset) / (2 * sizeof(double))) {
+        throw std::runtime_error("Invalid coordinate count in feature buffer");
+    }
+
+    Container points;
+    points.reserve(count);
+    for (int32_t i = 0; i < count; i++) {
+        points.push_back(readPoint());
+    }
+    return points;
+}
+
+template <class Container>
+Container FeatureBufferReader::readLines() {
+    int32_t count = read<int32_t>();
+    if (count < 0 || std::size_t(count) > (length - offset) / sizeof(int32_t)) {
+        throw std::runtime_error("Invalid ring count in feature buffer");
+    }
+
+    Container lines;
+    lines.reserve(count);
+    for (int32_t i = 0; i < count; i++) {
+        lines.push_back(readPoints<typename Container::value_type>());
+    }
+    return lines;
+}
+
+mapbox::geometry::geometry<double> FeatureBufferReader::readGeometry() {
+    using namespace mapbox::geometry;
+
+    switch (GeometryType(read<uint8_t>())) {
+    case GeometryType::Null:
+        // No "null" alternative in mapbox::geometry, an empty collection is the closest match
+        return geometry_collection<double>();
+    case GeometryType::Point:
+        return readPoint();
+    case GeometryType::MultiPoint:
+        return readPoints<multi_point<double>>();
+    case GeometryType::LineString:
+        return readPoints<line_string<double>>();
+    case GeometryType::MultiLineString:
+        return readLines<multi_line_string<double>>();
+    case GeometryType::Polygon:
+        return readLines<polygon<double>>();
+    case GeometryType::MultiPolygon: {
+        int32_t count = read<int32_t>();
+        if (count < 0) {
+            throw std::runtime_error("Invalid polygon count in feature buffer");
+        }
+        multi_polygon<double> polygons;
+        polygons.reserve(count);
+        for (int32_t i = 0; i < count; i++) {
+            polygons.push_back(readLines<polygon<double>>());
+        }
+        return polygons;
+    }
+    case GeometryType::GeometryCollection: {
+        int32_t count = read<int32_t>();
+        if (count < 0) {
+            throw std::runtime_error("Invalid geometry count in feature buffer");
+        }
+        geometry_collection<double> geometries;
+        geometries.reserve(count);
+        for (int32_t i = 0; i < count; i++) {
+            geometries.push_back(readGeometry());
+        }
+        return geometries;
+    }
+    }
+
+    throw std::runtime_error("Unknown geometry type in feature buffer");
+}
+
+mapbox::geometry::value FeatureBufferReader::readValue() {
+    switch (ValueType(read<uint8_t>())) {
+    case ValueType::Null:
+        return mapbox::geometry::null_value_t();
+    case ValueType::False:
+        return false;
+    case ValueType::True:
+        return true;
+    case ValueType::UInt:
+        return uint64_t(read<int64_t>());
+    case ValueType::Int:
+        return read<int64_t>();
+    case ValueType::Double:
+        return read<double>();
+    case ValueType::String:
+        return string(read<int32_t>());
+    case ValueType::Array: {
+        int32_t count = read<int32_t>();
+        if (count < 0) {
+            throw std::runtime_error("Invalid array length in feature buffer");
+        }
+        std::vector<mapbox::geometry::value> values;
+        values.reserve(count);
+        for (int32_t i = 0; i < count; i++) {
+            values.push_back(readValue());
+        }
+        return values;
+    }
+    case ValueType::Object:
+        return readProperties();
+    }
+
+    throw std::runtime_error("Unknown value type in feature buffer");
+}
+
+mapbox::geometry::property_map FeatureBufferReader::readProperties() {
+    int32_t count = read<int32_t>();
+    if (count < 0) {
+        throw std::runtime_error("Invalid property count in feature buffer");
+    }
+
+    mapbox::geometry::property_map properties;
+    properties.reserve(count);
+    for (int32_t i = 0; i < count; i++) {
+        const std::string& key = string(read<int32_t>());
+        properties.emplace(key, readValue());
+    }
+    return properties;
+}
+
+} // namespace android
+} // namespace mbgl
@@ -0,0 +1,71 @@
+#pragma once
+
+#include "../../java_types.hpp"
+
+#include <mapbox/geometry.hpp>
+#include <jni/jni.hpp>
+
+#include <cstdint>
+#include <string>
+#include <utility>
+#include <vector>
+
+namespace mbgl {
+namespace android {
+
+/**
+ * Converts a feature id from Java, where ids are strings.
+ *
+ * Ids that are the decimal form of an integer, such as "7" but not "07" or "7.0", are passed on as
+ * numbers so that they match numeric ids parsed from GeoJSON. Other ids stay strings.
+ */
+mapbox::geometry::identifier featureIdentifier(std::string);
+
+/**
+ * Decodes features packed by FeatureBuffer.java.
+ *
+ * Throws std::runtime_error when the buffer is malformed.
+ */
+class FeatureBufferReader {
+public:
+    FeatureBufferReader(const uint8_t* data, std::size_t length, std::vector<std::string> strings);
+
+    bool hasNext() const;
+
+    mapbox::geometry::feature<double> next();
+
+    mapbox::geometry::feature_collection<double> readAll();
+
+    /**
+     * Reads the next property patch (see FeatureBuffer#addProperties)
+     */
+    std::pair<mapbox::geometry::identifier, mapbox::geometry::property_map> nextProperties();
+
+    /**
+     * Creates a reader over a direct ByteBuffer and the string table that accompanies it.
+     * The buffer must outlive the reader.
+     */
+    static FeatureBufferReader fromJava(jni::JNIEnv&, jni::Object<java::ByteBuffer> buffer, jni::jint length, jni::Array<jni::String> strings);
+
+private:
+    template <class T>
+    T read();
+
+    const std::string& string(int32_t index);
+    mapbox::geometry::point<double> readPoint();
+    template <class Container>
+    Container readPoints();
+    template <class Container>
+    Container readLines();
+    mapbox::geometry::geometry<double> readGeometry();
+    mapbox::geometry::value readValue();
+    mapbox::geometry::property_map readProperties();
+
+    const uint8_t* data;
+    std::size_t length;
+    std::size_t offset = 0;
+    std::vector<std::string> strings;
+};
+
+} // namespace android
+} // namespace mbgl
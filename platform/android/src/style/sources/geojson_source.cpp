@@ -2,14 +2,34 @@
 
 #include "../android_conversion.hpp"
 #include "../conversion/geojson.hpp"
+#include "../../geometry/conversion/feature.hpp"
+#include "feature_buffer.hpp"
 #include <mbgl/style/conversion.hpp>
 #include <mbgl/style/conversion/geojson_options.hpp>
+#include <mbgl/util/logging.hpp>
 
+#include <algorithm>
+#include <iterator>
 #include <string>
+#include <vector>
 
 namespace mbgl {
 namespace android {
 
+    namespace {
+
+    bool readFeatures(jni::JNIEnv& env, jni::Object<java::ByteBuffer> buffer, jni::jint length, jni::Array<jni::String> strings, mbgl::FeatureCollection& features) {
+        try {
+            features = FeatureBufferReader::fromJava(env, buffer, length, strings).readAll();
+            return true;
+        } catch (const std::exception& error) {
+            mbgl::Log::Error(mbgl::Event::JNI, "Error reading features: %s", error.what());
+            return false;
+        }
+    }
+
+    } // namespace
+
     GeoJSONSource::GeoJSONSource(jni::JNIEnv& env, jni::String sourceId, jni::Object<> options)
         : Source(env, std::make_unique<mbgl::style::GeoJSONSource>(
                 jni::Make<std::string>(env, sourceId),
@@ -35,7 +55,114 @@ namespace android {
         }
 
         //Update the core source
-        source.as<mbgl::style::GeoJSONSource>()->GeoJSONSource::setGeoJSON(*converted);
+        source.as<mbgl::style::GeoJSONSource>()->GeoJSONSource::setGeoJSON(std::move(*converted));
+    }
+
+    void GeoJSONSource::setFeatureBuffer(jni::JNIEnv& env, jni::Object<java::ByteBuffer> buffer, jni::jint length, jni::Array<jni::String> strings) {
+        mbgl::FeatureCollection features;
+        if (!readFeatures(env, buffer, length, strings, features)) {
+            return;
+        }
+
+        //Update the core source
+        source.as<mbgl::style::GeoJSONSource>()->GeoJSONSource::setGeoJSON(mbgl::GeoJSON { std::move(features) });
+    }
+
+    void GeoJSONSource::addFeatureBuffer(jni::JNIEnv& env, jni::Object<java::ByteBuffer> buffer, jni::jint length, jni::Array<jni::String> strings) {
+        mbgl::FeatureCollection features;
+        if (!readFeatures(env, buffer, length, strings, features)) {
+            return;
+        }
+
+        //Update the core source
+        source.as<mbgl::style::GeoJSONSource>()->GeoJSONSource::addFeatures(features);
+    }
+
+    void GeoJSONSource::updateFeatureBuffer(jni::JNIEnv& env, jni::Object<java::ByteBuffer> buffer, jni::jint length, jni::Array<jni::String> strings) {
+        mbgl::FeatureCollection features;
+        if (!readFeatures(env, buffer, length, strings, features)) {
+            return;
+        }
+
+        //Update the core source
+        source.as<mbgl::style::GeoJSONSource>()->GeoJSONSource::updateFeatures(features);
+    }
+
+    void GeoJSONSource::removeFeatures(jni::JNIEnv& env, jni::Array<jni::String> jids) {
+        std::vector<mbgl::FeatureIdentifier> ids;
+        std::size_t size = jids.Length(env);
+        for (std::size_t i = 0; i < size; i++) {
+            jni::String jid = jids.Get(env, i);
+            ids.push_back(featureIdentifier(jni::Make<std::string>(env, jid)));
+            jni::DeleteLocalRef(env, jid.Get());
+        }
+
+        //Update the core source
+        source.as<mbgl::style::GeoJSONSource>()->GeoJSONSource::removeFeatures(ids);
+    }
+
+    jni::jboolean GeoJSONSource::appendFeatureBuffer(jni::JNIEnv& env, jni::Object<java::ByteBuffer> buffer, jni::jint length, jni::Array<jni::String> strings) {
+        mbgl::FeatureCollection features;
+        if (!readFeatures(env, buffer, length, strings, features)) {
+            return jni::jni_false;
+        }
+
+        std::lock_guard<std::mutex> lock(stagedFeaturesMutex);
+        stagedFeatures.reserve(stagedFeatures.size() + features.size());
+        std::move(features.begin(), features.end(), std::back_inserter(stagedFeatures));
+        return jni::jni_true;
+    }
+
+    void GeoJSONSource::commitFeatures(jni::JNIEnv&) {
+        mbgl::FeatureCollection features;
+        {
+            std::lock_guard<std::mutex> lock(stagedFeaturesMutex);
+            std::swap(features, stagedFeatures);
+        }
+
+        //Update the core source
+        source.as<mbgl::style::GeoJSONSource>()->GeoJSONSource::setGeoJSON(mbgl::GeoJSON { std::move(features) });
+    }
+
+    void GeoJSONSource::discardFeatures(jni::JNIEnv&) {
+        std::lock_guard<std::mutex> lock(stagedFeaturesMutex);
+        stagedFeatures = {};
+    }
+
+    void GeoJSONSource::setFeatureProperties(jni::JNIEnv& env, jni::Object<java::ByteBuffer> buffer, jni::jint length, jni::Array<jni::String> strings) {
+        std::vector<std::pair<mbgl::FeatureIdentifier, mbgl::PropertyMap>> updates;
+        try {
+            FeatureBufferReader reader = FeatureBufferReader::fromJava(env, buffer, length, strings);
+            while (reader.hasNext()) {
+                std::pair<mbgl::FeatureIdentifier, mbgl::PropertyMap> patch = reader.nextProperties();
+                updates.emplace_back(std::move(patch.first), std::move(patch.second));
+            }
+        } catch (const std::exception& error) {
+            mbgl::Log::Error(mbgl::Event::JNI, "Error reading feature properties: %s", error.what());
+            return;
+        }
+
+        //Update the core source
+        source.as<mbgl::style::GeoJSONSource>()->GeoJSONSource::setFeatureProperties(updates);
+    }
+
+    jni::Array<jni::Object<>> GeoJSONSource::getClusterChildren(jni::JNIEnv& env, jni::jlong clusterId) {
+        using namespace mbgl::android::conversion;
+
+        auto features = source.as<mbgl::style::GeoJSONSource>()->GeoJSONSource::getClusterChildren(clusterId);
+        return jni::Array<jni::Object<>>(*convert<jni::jarray<jni::jobject>*, std::vector<mbgl::Feature>>(env, features));
+    }
+
+    jni::Array<jni::Object<>> GeoJSONSource::getClusterLeaves(jni::JNIEnv& env, jni::jlong clusterId, jni::jint limit, jni::jint offset) {
+        using namespace mbgl::android::conversion;
+
+        auto features = source.as<mbgl::style::GeoJSONSource>()->GeoJSONSource::getClusterLeaves(clusterId, limit, offset);
+        return jni::Array<jni::Object<>>(*convert<jni::jarray<jni::jobject>*, std::vector<mbgl::Feature>>(env, features));
+    }
+
+    jni::jint GeoJSONSource::getClusterExpansionZoom(jni::JNIEnv&, jni::jlong clusterId) {
+        auto zoom = source.as<mbgl::style::GeoJSONSource>()->GeoJSONSource::getClusterExpansionZoom(clusterId);
+        return zoom ? *zoom : -1;
     }
 
     void GeoJSONSource::setURL(jni::JNIEnv& env, jni::String url) {
@@ -63,6 +190,17 @@ namespace android {
             "initialize",
             "finalize",
             METHOD(&GeoJSONSource::setGeoJSON, "nativeSetGeoJson"),
+            METHOD(&GeoJSONSource::setFeatureBuffer, "nativeSetFeatureBuffer"),
+            METHOD(&GeoJSONSource::addFeatureBuffer, "nativeAddFeatureBuffer"),
+            METHOD(&GeoJSONSource::updateFeatureBuffer, "nativeUpdateFeatureBuffer"),
+            METHOD(&GeoJSONSource::removeFeatures, "nativeRemoveFeatures"),
+            METHOD(&GeoJSONSource::appendFeatureBuffer, "nativeAppendFeatureBuffer"),
+            METHOD(&GeoJSONSource::commitFeatures, "nativeCommitFeatures"),
+            METHOD(&GeoJSONSource::discardFeatures, "nativeDiscardFeatures"),
+            METHOD(&GeoJSONSource::setFeatureProperties, "nativeSetFeatureProperties"),
+            METHOD(&GeoJSONSource::getClusterChildren, "nativeGetClusterChildren"),
+            METHOD(&GeoJSONSource::getClusterLeaves, "nativeGetClusterLeaves"),
+            METHOD(&GeoJSONSource::getClusterExpansionZoom, "nativeGetClusterExpansionZoom"),
             METHOD(&GeoJSONSource::setURL, "nativeSetUrl")
         );
     }
@@ -4,6 +4,8 @@
 #include <mbgl/style/sources/geojson_source.hpp>
 #include <jni/jni.hpp>
 
+#include <mutex>
+
 namespace mbgl {
 namespace android {
 
@@ -24,10 +26,37 @@ public:
 
     void setGeoJSON(jni::JNIEnv&, jni::Object<>);
 
+    void setFeatureBuffer(jni::JNIEnv&, jni::Object<java::ByteBuffer>, jni::jint, jni::Array<jni::String>);
+
+    void addFeatureBuffer(jni::JNIEnv&, jni::Object<java::ByteBuffer>, jni::jint, jni::Array<jni::String>);
+
+    void updateFeatureBuffer(jni::JNIEnv&, jni::Object<java::ByteBuffer>, jni::jint, jni::Array<jni::String>);
+
+    void removeFeatures(jni::JNIEnv&, jni::Array<jni::String>);
+
+    jni::jboolean appendFeatureBuffer(jni::JNIEnv&, jni::Object<java::ByteBuffer>, jni::jint, jni::Array<jni::String>);
+
+    void commitFeatures(jni::JNIEnv&);
+
+    void discardFeatures(jni::JNIEnv&);
+
+    void setFeatureProperties(jni::JNIEnv&, jni::Object<java::ByteBuffer>, jni::jint, jni::Array<jni::String>);
+
+    jni::Array<jni::Object<>> getClusterChildren(jni::JNIEnv&, jni::jlong);
+
+    jni::Array<jni::Object<>> getClusterLeaves(jni::JNIEnv&, jni::jlong, jni::jint, jni::jint);
+
+    jni::jint getClusterExpansionZoom(jni::JNIEnv&, jni::jlong);
+
     void setURL(jni::JNIEnv&, jni::String);
 
     jni::jobject* createJavaPeer(jni::JNIEnv&);
 
+private:
+    // Features streamed in from a background thread, waiting to be committed
+    std::mutex stagedFeaturesMutex;
+    mbgl::FeatureCollection stagedFeatures;
+
 }; // class GeoJSONSource
 
 } // namespace android
@@ -0,0 +1,315 @@
+#include "style_diff.hpp"
+
+#include <mbgl/style/layer.hpp>
+#include <mbgl/style/layer_impl.hpp>
+#include <mbgl/style/source.hpp>
+#include <mbgl/style/rapidjson_conversion.hpp>
+#include <mbgl/style/conversion.hpp>
+#include <mbgl/style/conversion/layer.hpp>
+#include <mbgl/style/conversion/source.hpp>
+#include <mbgl/util/logging.hpp>
+#include <mbgl/util/rapidjson.hpp>
+
+#include <map>
+#include <set>
+#include <vector>
+
+namespace mbgl {
+namespace android {
+
+namespace {
+
+using namespace mbgl::style;
+
+// Top level members that may differ without requiring a full style reload
+const std::set<std::string> diffableStyleMembers = { "name", "metadata", "center", "zoom", "bearing", "pitch", "sources", "layers" };
+
+// Layer members that can be updated on an existing layer
+const std::set<std::string> patchableLayerMembers = { "paint", "layout" };
+
+bool parse(JSDocument& document, const std::string& json) {
+    document.Parse<0>(json.c_str());
+    return !document.HasParseError() && document.IsObject();
+}
+
+const JSValue* member(const JSValue& value, const std::string& name) {
+    if (!value.IsObject()) {
+        return nullptr;
+    }
+    auto it = value.FindMember(name.c_str());
+    return it == value.MemberEnd() ? nullptr : &it->value;
+}
+
+bool equal(const JSValue* a, const JSValue* b) {
+    if (!a || !b) {
+        return a == b;
+    }
+    return *a == *b;
+}
+
+std::set<std::string> memberNames(const JSValue* a, const JSValue* b) {
+    std::set<std::string> names;
+    for (const JSValue* value : { a, b }) {
+        if (value && value->IsObject()) {
+            for (const auto& property : value->GetObject()) {
+                names.emplace(property.name.GetString(), property.name.GetStringLength());
+            }
+        }
+    }
+    return names;
+}
+
+bool equalExcept(const JSValue& a, const JSValue& b, const std::set<std::string>& skipped) {
+    for (const auto& name : memberNames(&a, &b)) {
+        if (!skipped.count(name) && !equal(member(a, name), member(b, name))) {
+            return false;
+        }
+    }
+    return true;
+}
+
+bool collectSources(const JSValue& style, std::map<std::string, const JSValue*>& sources) {
+    const JSValue* value = member(style, "sources");
+    if (!value) {
+        return true;
+    }
+    if (!value->IsObject()) {
+        return false;
+    }
+    for (const auto& property : value->GetObject()) {
+        sources.emplace(std::string { property.name.GetString(), property.name.GetStringLength() }, &property.value);
+    }
+    return true;
+}
+
+bool collectLayers(const JSValue& style, std::vector<std::pair<std::string, const JSValue*>>& layers) {
+    const JSValue* value = member(style, "layers");
+    if (!value) {
+        return true;
+    }
+    if (!value->IsArray()) {
+        return false;
+    }
+    for (const auto& layer : value->GetArray()) {
+        const JSValue* id = member(layer, "id");
+        // Layer references are resolved at parse time and can't be updated individually
+        if (!id || !id->IsString() || member(layer, "ref")) {
+            return false;
+        }
+        layers.emplace_back(std::string { id->GetString(), id->GetStringLength() }, &layer);
+    }
+    return true;
+}
+
+optional<std::string> layerSource(const JSValue& layer) {
+    const JSValue* source = member(layer, "source");
+    if (source && source->IsString()) {
+        return std::string { source->GetString(), source->GetStringLength() };
+    }
+    return {};
+}
+
+template <class Setter>
+bool patchProperties(const JSValue* previous, const JSValue* next, Setter setter) {
+    static const JSValue undefined;
+    bool patched = true;
+    for (const auto& name : memberNames(previous, next)) {
+        const JSValue* previousValue = previous ? member(*previous, name) : nullptr;
+        const JSValue* nextValue = next ? member(*next, name) : nullptr;
+        if (!equal(previousValue, nextValue)) {
+            optional<conversion::Error> error = setter(name, nextValue ? *nextValue : undefined);
+            if (error) {
+                Log::Warning(Event::ParseStyle, "Error patching property %s: %s", name.c_str(), error->message.c_str());
+                patched = false;
+            }
+        }
+    }
+    return patched;
+}
+
+bool patchLayer(Layer& layer, const JSValue& previous, const JSValue& next) {
+    // Both, so every invalid property gets logged
+    const bool layout = patchProperties(member(previous, "layout"), member(next, "layout"),
+        [&] (const std::string& name, const JSValue& value) {
+            return conversion::setLayoutProperty(layer, name, value);
+        });
+    const bool paint = patchProperties(member(previous, "paint"), member(next, "paint"),
+        [&] (const std::string& name, const JSValue& value) {
+            return conversion::setPaintProperty(layer, name, value, optional<std::string>());
+        });
+    return layout && paint;
+}
+
+} // namespace
+
+bool applyStyleDiff(mbgl::Map& map, const std::string& previousJSON, const std::string& nextJSON) {
+    JSDocument previous;
+    JSDocument next;
+    if (!parse(previous, previousJSON) || !parse(next, nextJSON)) {
+        return false;
+    }
+
+    if (!equalExcept(previous, next, diffableStyleMembers)) {
+        return false;
+    }
+
+    std::map<std::string, const JSValue*> previousSources, nextSources;
+    std::vector<std::pair<std::string, const JSValue*>> previousLayers, nextLayers;
+    if (!collectSources(previous, previousSources) || !collectSources(next, nextSources) ||
+        !collectLayers(previous, previousLayers) || !collectLayers(next, nextLayers)) {
+        return false;
+    }
+
+    // The map must still contain the previous style, or the diff does not apply
+    for (const auto& source : previousSources) {
+        if (!map.getSource(source.first)) {
+            return false;
+        }
+    }
+    for (const auto& layer : previousLayers) {
+        if (!map.getLayer(layer.first)) {
+            return false;
+        }
+    }
+
+    // Sources
+    std::vector<std::string> removedSources;
+    std::vector<std::unique_ptr<Source>> addedSources;
+    std::set<std::string> replacedSourceIDs;
+
+    for (const auto& source : previousSources) {
+        auto it = nextSources.find(source.first);
+        if (it == nextSources.end() || !equal(source.second, it->second)) {
+            removedSources.push_back(source.first);
+            replacedSourceIDs.insert(source.first);
+        }
+    }
+
+    for (const auto& source : nextSources) {
+        auto it = previousSources.find(source.first);
+        if (it == previousSources.end() || replacedSourceIDs.count(source.first)) {
+            conversion::Result<std::unique_ptr<Source>> converted =
+                conversion::convert<std::unique_ptr<Source>>(*source.second, source.first);
+            if (!converted) {
+                Log::Warning(Event::ParseStyle, converted.error().message);
+                return false;
+            }
+            addedSources.push_back(std::move(*converted));
+        }
+    }
+
+    // Layers
+    std::map<std::string, const JSValue*> previousLayersByID(previousLayers.begin(), previousLayers.end());
+    std::map<std::string, std::unique_ptr<Layer>> addedLayers;
+    std::vector<std::pair<std::string, std::pair<const JSValue*, const JSValue*>>> patchedLayers;
+    std::vector<std::string> retainedOrder;
+
+    for (const auto& layer : nextLayers) {
+        auto it = previousLayersByID.find(layer.first);
+        optional<std::string> source = layerSource(*layer.second);
+        bool sourceReplaced = source && replacedSourceIDs.count(*source);
+
+        if (it != previousLayersByID.end() && !sourceReplaced &&
+            equalExcept(*it->second, *layer.second, patchableLayerMembers)) {
+            retainedOrder.push_back(layer.first);
+            if (!equal(it->second, layer.second)) {
+                patchedLayers.emplace_back(layer.first, std::make_pair(it->second, layer.second));
+            }
+            continue;
+        }
+
+        conversion::Result<std::unique_ptr<Layer>> converted = conversion::convert<std::unique_ptr<Layer>>(*layer.second);
+        if (!converted) {
+            Log::Warning(Event::ParseStyle, converted.error().message);
+            return false;
+        }
+        addedLayers.emplace(layer.first, std::move(*converted));
+    }
+
+    // Retained layers must keep their relative order, re-ordering requires a reload
+    std::vector<std::string> previousOrder;
+    std::set<std::string> retained(retainedOrder.begin(), retainedOrder.end());
+    for (const auto& layer : previousLayers) {
+        if (retained.count(layer.first)) {
+            previousOrder.push_back(layer.first);
+        }
+    }
+    if (previousOrder != retainedOrder) {
+        return false;
+    }
+
+    // Check everything that can fail before the map is changed, so the diff is either applied
+    // completely or the caller reloads the style from scratch
+
+    // Sources and layers added at runtime (eg annotations) can't be replaced
+    for (const auto& source : nextSources) {
+        if (!previousSources.count(source.first) && map.getSource(source.first)) {
+            return false;
+        }
+    }
+    for (const auto& layer : addedLayers) {
+        if (!previousLayersByID.count(layer.first) && map.getLayer(layer.first)) {
+            return false;
+        }
+    }
+
+    // Patch copies first, so an invalid property value doesn't leave a layer half updated. Copies
+    // share the observer of their original, detach them so the style isn't told about changes.
+    static LayerObserver detached;
+    for (const auto& patch : patchedLayers) {
+        std::unique_ptr<Layer> copy = map.getLayer(patch.first)->baseImpl->clone();
+        copy->baseImpl->setObserver(&detached);
+        if (!patchLayer(*copy, *patch.second.first, *patch.second.second)) {
+            return false;
+        }
+    }
+
+    // Layers added on top of the style (eg annotations) stay on top
+    optional<std::string> topLayer;
+    std::vector<mbgl::style::Layer*> mapLayers = map.getLayers();
+    for (auto it = mapLayers.rbegin(); it != mapLayers.rend(); ++it) {
+        if (previousLayersByID.count((*it)->getID())) {
+            break;
+        }
+        topLayer = (*it)->getID();
+    }
+
+    try {
+        for (const auto& layer : previousLayers) {
+            if (!retained.count(layer.first)) {
+                map.removeLayer(layer.first);
+            }
+        }
+
+        for (const auto& id : removedSources) {
+            map.removeSource(id);
+        }
+
+        for (auto& source : addedSources) {
+            map.addSource(std::move(source));
+        }
+
+        optional<std::string> before = topLayer;
+        for (auto it = nextLayers.rbegin(); it != nextLayers.rend(); ++it) {
+            auto added = addedLayers.find(it->first);
+            if (added != addedLayers.end()) {
+                map.addLayer(std::move(added->second), before);
+            }
+            before = it->first;
+        }
+
+        for (const auto& patch : patchedLayers) {
+            patchLayer(*map.getLayer(patch.first), *patch.second.first, *patch.second.second);
+        }
+    } catch (const std::exception& error) {
+        Log::Error(Event::ParseStyle, "Error applying style diff: %s", error.what());
+        return false;
+    }
+
+    Log::Debug(Event::ParseStyle, "Applied style diff: %d layers replaced, %d patched, %d sources replaced",
+               int(addedLayers.size()), int(patchedLayers.size()), int(addedSources.size()));
+    return true;
+}
+
+} // namespace android
+} // namespace mbgl
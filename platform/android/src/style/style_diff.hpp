@@ -0,0 +1,24 @@
+#pragma once
+
+#include <mbgl/map/map.hpp>
+
+#include <string>
+
+namespace mbgl {
+namespace android {
+
+/**
+ * Applies the difference between two style documents to the map in place.
+ *
+ * Sources whose definition did not change are kept (together with their tiles), layers that
+ * only differ in paint or layout properties are patched and all other layers are replaced.
+ *
+ * Returns false without touching the map when the styles differ in a way that cannot be
+ * expressed as runtime style operations (sprite, glyphs, layer references, ...) or when any
+ * part of the diff would fail (invalid sources, layers or property values). The caller is
+ * expected to fall back to a full style reload in that case.
+ */
+bool applyStyleDiff(mbgl::Map&, const std::string& previousJSON, const std::string& nextJSON);
+
+} // namespace android
+} // namespace mbgl
@@ -1,6 +1,8 @@
 #include <mbgl/storage/default_file_source.hpp>
 #include <mbgl/storage/asset_file_source.hpp>
+#include <mbgl/storage/http_file_source.hpp>
 #include <mbgl/storage/local_file_source.hpp>
+#include <mbgl/storage/mbtiles_file_source.hpp>
 #include <mbgl/storage/online_file_source.hpp>
 #include <mbgl/storage/offline_database.hpp>
 #include <mbgl/storage/offline_download.hpp>
@@ -10,6 +12,7 @@
 #include <mbgl/util/thread.hpp>
 #include <mbgl/util/work_request.hpp>
 
+#include <array>
 #include <cassert>
 
 namespace {
@@ -20,6 +23,13 @@ bool isAssetURL(const std::string& url) {
     return std::equal(assetProtocol.begin(), assetProtocol.end(), url.begin());
 }
 
+// Resources served by the application itself (e.g. custom tile providers) are not cached
+bool isCacheableURL(const std::string& url) {
+    return url.compare(0, 7, "http://") == 0 ||
+           url.compare(0, 8, "https://") == 0 ||
+           url.compare(0, 9, "mapbox://") == 0;
+}
+
 } // namespace
 
 namespace mbgl {
@@ -101,12 +111,49 @@ public:
     }
 
     void request(AsyncRequest* req, Resource resource, Callback callback) {
+        if (!isCacheableURL(resource.url)) {
+            if (resource.necessity == Resource::Optional) {
+                // Nothing is cached for these, so answer like a cache miss instead of asking the
+                // application for the same resource again when the required request follows.
+                Response response;
+                response.noContent = true;
+                response.error = std::make_unique<Response::Error>(
+                    Response::Error::Reason::NotFound, "Not found in offline database");
+                callback(response);
+            } else {
+                // Served on the device, so neither the network status nor the HTTP retry policy of
+                // the online file source apply. The platform HTTP bridge hands them to the
+                // application (e.g. CustomTileDispatcher on Android).
+                if (!applicationFileSource) {
+                    applicationFileSource = std::make_unique<HTTPFileSource>();
+                }
+                tasks[req] = applicationFileSource->request(resource, callback);
+            }
+            return;
+        }
+
         Resource revalidation = resource;
 
-        const bool hasPrior = resource.priorEtag || resource.priorModified || resource.priorExpires;
-        if (!hasPrior || resource.necessity == Resource::Optional) {
+        // Whether the caller still has no version of the resource. A cached version that was
+        // withheld for being too stale is then delivered when revalidation confirms it or fails.
+        auto needsData = std::make_shared<bool>(!resource.priorEtag && !resource.priorModified);
+
+        // Without validators, look up the cached version to revalidate it conditionally. This
+        // includes a required request that follows an optional one which found nothing usable:
+        // only its priorExpires is set, and the cached version may have been too stale to show.
+        if (!resource.priorEtag && !resource.priorModified) {
             auto offlineResponse = offlineDatabase.get(resource);
 
+            if (offlineResponse) {
+                revalidation.priorModified = offlineResponse->modified;
+                revalidation.priorExpires = offlineResponse->expires;
+                revalidation.priorEtag = offlineResponse->etag;
+
+                if (!isWithinStaleWindow(resource.kind, *offlineResponse)) {
+                    offlineResponse = {};
+                }
+            }
+
             if (resource.necessity == Resource::Optional && !offlineResponse) {
                 // Ensure there's always a response that we can send, so the caller knows that
                 // there's no optional data available in the cache.
@@ -116,10 +163,10 @@ public:
                     Response::Error::Reason::NotFound, "Not found in offline database");
             }
 
-            if (offlineResponse) {
-                revalidation.priorModified = offlineResponse->modified;
-                revalidation.priorExpires = offlineResponse->expires;
-                revalidation.priorEtag = offlineResponse->etag;
+            // The optional request that preceded a required one already answered from the cache.
+            const bool answered = resource.priorExpires && resource.necessity == Resource::Required;
+            if (offlineResponse && !answered) {
+                *needsData = false;
                 callback(*offlineResponse);
             }
         }
@@ -127,6 +174,23 @@ public:
         if (resource.necessity == Resource::Required) {
             tasks[req] = onlineFileSource.request(revalidation, [=] (Response onlineResponse) {
                 this->offlineDatabase.put(revalidation, onlineResponse);
+
+                if (*needsData) {
+                    const bool failed = onlineResponse.error &&
+                        onlineResponse.error->reason != Response::Error::Reason::NotFound;
+                    if (onlineResponse.notModified || failed) {
+                        // The cached version, with the expiration just updated if it was confirmed
+                        auto cachedResponse = this->offlineDatabase.get(resource);
+                        if (cachedResponse) {
+                            *needsData = false;
+                            callback(*cachedResponse);
+                            return;
+                        }
+                    } else if (!onlineResponse.error) {
+                        *needsData = false;
+                    }
+                }
+
                 callback(onlineResponse);
             });
         }
@@ -140,11 +204,20 @@ public:
         offlineDatabase.setOfflineMapboxTileCountLimit(limit);
     }
 
+    void setMaximumStaleness(Resource::Kind kind, optional<Duration> maximumStaleness_) {
+        maximumStaleness.at(kind) = maximumStaleness_;
+    }
+
     void put(const Resource& resource, const Response& response) {
         offlineDatabase.put(resource, response);
     }
 
 private:
+    bool isWithinStaleWindow(Resource::Kind kind, const Response& response) const {
+        const auto& window = maximumStaleness.at(kind);
+        return !window || !response.expires || *response.expires + *window >= util::now();
+    }
+
     OfflineDownload& getDownload(int64_t regionID) {
         auto it = downloads.find(regionID);
         if (it != downloads.end()) {
@@ -156,8 +229,21 @@ private:
 
     OfflineDatabase offlineDatabase;
     OnlineFileSource onlineFileSource;
+    // Created on the first request for a resource served by the application
+    std::unique_ptr<HTTPFileSource> applicationFileSource;
     std::unordered_map<AsyncRequest*, std::unique_ptr<AsyncRequest>> tasks;
     std::unordered_map<int64_t, std::unique_ptr<OfflineDownload>> downloads;
+
+    // Indexed by Resource::Kind
+    std::array<optional<Duration>, 7> maximumStaleness {{
+        {},                                     // Unknown
+        Duration(std::chrono::hours(24)),       // Style
+        Duration(std::chrono::hours(24)),       // Source
+        Duration(std::chrono::hours(24 * 7)),   // Tile
+        Duration(std::chrono::hours(24 * 30)),  // Glyphs
+        Duration(std::chrono::hours(24 * 30)),  // SpriteImage
+        Duration(std::chrono::hours(24 * 30)),  // SpriteJSON
+    }};
 };
 
 DefaultFileSource::DefaultFileSource(const std::string& cachePath,
@@ -207,6 +293,11 @@ std::unique_ptr<AsyncRequest> DefaultFileSource::request(const Resource& resourc
         return assetFileSource->request(resource, callback);
     } else if (LocalFileSource::acceptsURL(resource.url)) {
         return localFileSource->request(resource, callback);
+    } else if (MBTilesFileSource::acceptsURL(resource.url)) {
+        std::call_once(mbtilesFileSourceOnce, [this] {
+            mbtilesFileSource = std::make_unique<MBTilesFileSource>();
+        });
+        return mbtilesFileSource->request(resource, callback);
     } else {
         return std::make_unique<DefaultFileRequest>(resource, callback, *thread);
     }
@@ -248,6 +339,10 @@ void DefaultFileSource::setOfflineMapboxTileCountLimit(uint64_t limit) const {
     thread->invokeSync(&Impl::setOfflineMapboxTileCountLimit, limit);
 }
 
+void DefaultFileSource::setMaximumStaleness(Resource::Kind kind, optional<Duration> maximumStaleness) {
+    thread->invokeSync(&Impl::setMaximumStaleness, kind, maximumStaleness);
+}
+
 // For testing only:
 
 void DefaultFileSource::put(const Resource& resource, const Response& response) {
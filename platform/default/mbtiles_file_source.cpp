@@ -0,0 +1,280 @@
+#include <mbgl/storage/mbtiles_file_source.hpp>
+#include <mbgl/storage/response.hpp>
+#include <mbgl/util/compression.hpp>
+#include <mbgl/util/string.hpp>
+#include <mbgl/util/thread.hpp>
+#include <mbgl/util/url.hpp>
+
+#include "sqlite3.hpp"
+
+#include <rapidjson/stringbuffer.h>
+#include <rapidjson/writer.h>
+
+#include <sys/types.h>
+#include <sys/stat.h>
+
+#include <cstdlib>
+#include <list>
+#include <mutex>
+#include <unordered_map>
+
+namespace {
+
+const char* protocol = "mbtiles://";
+const std::size_t protocolLength = 10;
+
+// Decompressed tiles kept in memory, shared by all workers
+const std::size_t cacheSize = 16 * 1024 * 1024;
+const std::size_t workerCount = 2;
+
+bool isGzip(const std::string& data) {
+    return data.size() > 2 &&
+        static_cast<uint8_t>(data[0]) == 0x1F &&
+        static_cast<uint8_t>(data[1]) == 0x8B;
+}
+
+// Splits mbtiles:///path/file.mbtiles/z/x/y into the file path and the tile coordinates
+bool parseTileURL(const std::string& url, std::string& path, int32_t& z, int32_t& x, int32_t& y) {
+    std::size_t end = url.size();
+    int32_t coordinates[3];
+    for (int i = 2; i >= 0; i--) {
+        const std::size_t slash = url.rfind('/', end - 1);
+        if (slash == std::string::npos || slash < protocolLength || slash + 1 == end) {
+            return false;
+        }
+        const std::string part = url.substr(slash + 1, end - slash - 1);
+        char* partEnd = nullptr;
+        coordinates[i] = std::strtol(part.c_str(), &partEnd, 10);
+        if (*partEnd != '\0') {
+            return false;
+        }
+        end = slash;
+    }
+
+    path = mbgl::util::percentDecode(url.substr(protocolLength, end - protocolLength));
+    z = coordinates[0];
+    x = coordinates[1];
+    y = coordinates[2];
+    return true;
+}
+
+} // namespace
+
+namespace mbgl {
+
+class MBTilesFileSource::TileCache {
+public:
+    std::shared_ptr<const std::string> get(const std::string& key) {
+        std::lock_guard<std::mutex> lock(mutex);
+        auto it = index.find(key);
+        if (it == index.end()) {
+            return {};
+        }
+        entries.splice(entries.begin(), entries, it->second);
+        return it->second->second;
+    }
+
+    void put(const std::string& key, std::shared_ptr<const std::string> data) {
+        std::lock_guard<std::mutex> lock(mutex);
+        if (data->size() > cacheSize || index.count(key)) {
+            return;
+        }
+
+        entries.emplace_front(key, data);
+        index.emplace(key, entries.begin());
+        size += data->size();
+
+        while (size > cacheSize) {
+            size -= entries.back().second->size();
+            index.erase(entries.back().first);
+            entries.pop_back();
+        }
+    }
+
+private:
+    using Entry = std::pair<std::string, std::shared_ptr<const std::string>>;
+
+    std::mutex mutex;
+    std::list<Entry> entries;
+    std::unordered_map<std::string, std::list<Entry>::iterator> index;
+    std::size_t size = 0;
+};
+
+class MBTilesFileSource::Impl {
+public:
+    Impl(std::shared_ptr<TileCache> cache_)
+        : cache(std::move(cache_)) {
+    }
+
+    void request(const Resource& resource, FileSource::Callback callback) {
+        Response response;
+
+        std::string path;
+        int32_t z, x, y;
+        const bool isTile = resource.kind == Resource::Kind::Tile &&
+            parseTileURL(resource.url, path, z, x, y);
+        if (!isTile) {
+            path = util::percentDecode(resource.url.substr(protocolLength));
+        }
+
+        try {
+            if (isTile) {
+                readTile(path, z, x, y, response);
+            } else {
+                readTileJSON(resource.url, path, response);
+            }
+        } catch (const mapbox::sqlite::Exception& ex) {
+            response.error = std::make_unique<Response::Error>(Response::Error::Reason::Other, ex.what());
+        } catch (...) {
+            response.error = std::make_unique<Response::Error>(
+                Response::Error::Reason::Other, util::toString(std::current_exception()));
+        }
+
+        callback(response);
+    }
+
+private:
+    struct Connection {
+        Connection(const std::string& path)
+            : db(path, mapbox::sqlite::ReadOnly),
+              tileStatement(db.prepare(
+                  "SELECT tile_data FROM tiles WHERE zoom_level = ?1 AND tile_column = ?2 AND tile_row = ?3")) {
+        }
+
+        mapbox::sqlite::Database db;
+        mapbox::sqlite::Statement tileStatement;
+    };
+
+    // Connections stay open for the lifetime of the worker, one per file
+    Connection* getConnection(const std::string& path, Response& response) {
+        auto it = connections.find(path);
+        if (it != connections.end()) {
+            return it->second.get();
+        }
+
+        struct stat buf;
+        if (stat(path.c_str(), &buf) != 0 || !S_ISREG(buf.st_mode)) {
+            response.error = std::make_unique<Response::Error>(Response::Error::Reason::NotFound,
+                                                               "MBTiles file not found: " + path);
+            return nullptr;
+        }
+
+        return connections.emplace(path, std::make_unique<Connection>(path)).first->second.get();
+    }
+
+    void readTile(const std::string& path, int32_t z, int32_t x, int32_t y, Response& response) {
+        const std::string key = path + "/" + util::toString(z) + "/" + util::toString(x) + "/" + util::toString(y);
+        if (auto data = cache->get(key)) {
+            response.data = std::move(data);
+            return;
+        }
+
+        Connection* connection = getConnection(path, response);
+        if (!connection) {
+            return;
+        }
+
+        // MBTiles rows are numbered from the bottom (TMS)
+        auto& stmt = connection->tileStatement;
+        stmt.bind(1, z);
+        stmt.bind(2, x);
+        stmt.bind(3, (1 << z) - 1 - y);
+
+        if (!stmt.run()) {
+            stmt.reset();
+            response.noContent = true;
+            return;
+        }
+
+        std::string data = stmt.get<std::string>(0);
+        stmt.reset();
+
+        // Vector tiles are usually stored gzipped
+        auto result = std::make_shared<const std::string>(isGzip(data) ? util::decompress(data) : std::move(data));
+        cache->put(key, result);
+        response.data = std::move(result);
+    }
+
+    void readTileJSON(const std::string& url, const std::string& path, Response& response) {
+        Connection* connection = getConnection(path, response);
+        if (!connection) {
+            return;
+        }
+
+        std::unordered_map<std::string, std::string> metadata;
+        mapbox::sqlite::Statement stmt = connection->db.prepare("SELECT name, value FROM metadata");
+        while (stmt.run()) {
+            metadata[stmt.get<std::string>(0)] = stmt.get<std::string>(1);
+        }
+
+        rapidjson::StringBuffer buffer;
+        rapidjson::Writer<rapidjson::StringBuffer> writer(buffer);
+        writer.StartObject();
+
+        writer.Key("tilejson");
+        writer.String("2.1.0");
+
+        writer.Key("tiles");
+        writer.StartArray();
+        const std::string tiles = url + "/{z}/{x}/{y}";
+        writer.String(tiles.c_str(), tiles.size());
+        writer.EndArray();
+
+        for (const char* key : { "minzoom", "maxzoom" }) {
+            auto it = metadata.find(key);
+            if (it != metadata.end()) {
+                writer.Key(key);
+                writer.Int(std::atoi(it->second.c_str()));
+            }
+        }
+
+        auto bounds = metadata.find("bounds");
+        if (bounds != metadata.end()) {
+            writer.Key("bounds");
+            writer.StartArray();
+            const char* value = bounds->second.c_str();
+            for (int i = 0; i < 4 && *value; i++) {
+                char* end = nullptr;
+                writer.Double(std::strtod(value, &end));
+                value = *end == ',' ? end + 1 : end;
+            }
+            writer.EndArray();
+        }
+
+        for (const char* key : { "name", "attribution", "format" }) {
+            auto it = metadata.find(key);
+            if (it != metadata.end()) {
+                writer.Key(key);
+                writer.String(it->second.c_str(), it->second.size());
+            }
+        }
+
+        writer.EndObject();
+        response.data = std::make_shared<std::string>(buffer.GetString(), buffer.GetSize());
+    }
+
+    const std::shared_ptr<TileCache> cache;
+    std::unordered_map<std::string, std::unique_ptr<Connection>> connections;
+};
+
+MBTilesFileSource::MBTilesFileSource()
+    : cache(std::make_shared<TileCache>()) {
+    for (std::size_t i = 0; i < workerCount; i++) {
+        workers.push_back(std::make_unique<util::Thread<Impl>>(
+            util::ThreadContext{"MBTilesFileSource", util::ThreadPriority::Low}, cache));
+    }
+}
+
+MBTilesFileSource::~MBTilesFileSource() = default;
+
+std::unique_ptr<AsyncRequest> MBTilesFileSource::request(const Resource& resource, Callback callback) {
+    // Tiles of the same file are spread over all workers, each has its own connection
+    auto& worker = workers[nextWorker++ % workers.size()];
+    return worker->invokeWithCallback(&Impl::request, resource, callback);
+}
+
+bool MBTilesFileSource::acceptsURL(const std::string& url) {
+    return url.compare(0, protocolLength, protocol) == 0;
+}
+
+} // namespace mbgl
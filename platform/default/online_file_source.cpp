@@ -93,7 +93,12 @@ public:
     }
 
     void queueRequest(OnlineFileRequest* request) {
-        auto it = pendingRequestsList.insert(pendingRequestsList.end(), request);
+        // Requests go ahead of requests with a lower priority, in FIFO order within each priority
+        const auto priority = request->resource.priority;
+        auto position = std::find_if(pendingRequestsList.begin(), pendingRequestsList.end(), [&](OnlineFileRequest* pending) {
+            return pending->resource.priority > priority;
+        });
+        auto it = pendingRequestsList.insert(position, request);
         pendingRequestsMap.emplace(request, std::move(it));
         assert(pendingRequestsMap.size() == pendingRequestsList.size());
     }
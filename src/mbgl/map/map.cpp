@@ -7,6 +7,8 @@
 #include <mbgl/annotation/annotation_manager.hpp>
 #include <mbgl/style/style.hpp>
 #include <mbgl/style/source.hpp>
+#include <mbgl/style/source_impl.hpp>
+#include <mbgl/style/tile_source_impl.hpp>
 #include <mbgl/style/layer.hpp>
 #include <mbgl/style/observer.hpp>
 #include <mbgl/style/transition_options.hpp>
@@ -16,6 +18,7 @@
 #include <mbgl/storage/file_source.hpp>
 #include <mbgl/storage/resource.hpp>
 #include <mbgl/storage/response.hpp>
+#include <mbgl/tile/tile_id.hpp>
 #include <mbgl/util/projection.hpp>
 #include <mbgl/util/math.hpp>
 #include <mbgl/util/exception.hpp>
@@ -26,6 +29,10 @@
 #include <mbgl/util/logging.hpp>
 #include <mbgl/math/log2.hpp>
 
+#include <cmath>
+#include <list>
+#include <set>
+
 namespace mbgl {
 
 using namespace style;
@@ -96,6 +103,10 @@ public:
 
     std::unique_ptr<AsyncRequest> styleRequest;
 
+    std::list<std::unique_ptr<AsyncRequest>> prefetchRequests;
+    uint64_t prefetchBytes = 0;
+    uint64_t prefetchBudget = 0;
+
     std::unique_ptr<StillImageRequest> stillImageRequest;
     size_t sourceCacheSize;
     TimePoint timePoint;
@@ -414,6 +425,13 @@ std::string Map::getStyleJSON() const {
     return impl->styleJSON;
 }
 
+void Map::setStyleIdentity(const std::string& url, const std::string& json) {
+    // A revalidated response of the previous style must not replace the updated one
+    impl->styleRequest.reset();
+    impl->styleURL = url;
+    impl->styleJSON = json;
+}
+
 #pragma mark - Transitions
 
 void Map::cancelTransitions() {
@@ -1049,6 +1067,101 @@ std::vector<std::string> Map::getClasses() const {
     return {};
 }
 
+#pragma mark - Prefetching
+
+// The tiles of a source that show a 512 pixel tile
+static std::vector<CanonicalTileID> prefetchTileIDs(const CanonicalTileID& tileID, const Tileset& tileset, uint8_t extraZoom) {
+    const int32_t z = tileID.z + extraZoom;
+    if (z < tileset.zoomRange.min) {
+        return {};
+    }
+    if (z > tileset.zoomRange.max) {
+        // Overzoomed, the parent tile at the maximum zoom is shown instead
+        return { tileID.scaledTo(tileset.zoomRange.max) };
+    }
+    std::vector<CanonicalTileID> result;
+    const CanonicalTileID first = tileID.scaledTo(z);
+    for (uint32_t dy = 0; dy < (1u << extraZoom); ++dy) {
+        for (uint32_t dx = 0; dx < (1u << extraZoom); ++dx) {
+            result.emplace_back(z, first.x + dx, first.y + dy);
+        }
+    }
+    return result;
+}
+
+void Map::prefetchTiles(const std::vector<CanonicalTileID>& tileIDs, std::size_t maximumTiles, uint64_t maximumBytes) {
+    cancelPrefetch();
+    if (!impl->style) {
+        return;
+    }
+
+    impl->prefetchBudget = maximumBytes;
+
+    struct PrefetchSource {
+        const Tileset& tileset;
+        uint8_t extraZoom;
+        std::set<CanonicalTileID> requested;
+    };
+    std::vector<PrefetchSource> sources;
+
+    for (const auto& source : impl->style->getSources()) {
+        if (source->baseImpl->type != SourceType::Vector && source->baseImpl->type != SourceType::Raster) {
+            continue;
+        }
+        const auto& tileSource = static_cast<style::TileSourceImpl&>(*source->baseImpl);
+        const Tileset* tileset = tileSource.getTileset();
+        if (!tileset || tileset->tiles.empty()) {
+            continue;
+        }
+
+        // Sources with 256 pixel tiles cover a 512 pixel tile with four tiles of the next zoom
+        const uint8_t extraZoom = std::round(util::log2(util::tileSize / tileSource.getTileSize()));
+        sources.push_back({ *tileset, extraZoom, {} });
+    }
+
+    // The tiles come in the order they are needed. Each one is requested from every source before
+    // the next one, and the requests of all sources count towards the same maximum.
+    std::size_t count = 0;
+    for (const auto& tileID : tileIDs) {
+        for (auto& source : sources) {
+            for (const auto& sourceTileID : prefetchTileIDs(tileID, source.tileset, source.extraZoom)) {
+                if (count >= maximumTiles) {
+                    return;
+                }
+                if (!source.requested.insert(sourceTileID).second) {
+                    continue;
+                }
+                count++;
+
+                Resource resource = Resource::tile(source.tileset.tiles.at(0), impl->pixelRatio,
+                                                   sourceTileID.x, sourceTileID.y, sourceTileID.z, source.tileset.scheme);
+                resource.priority = Resource::Priority::Prefetch;
+
+                auto it = impl->prefetchRequests.emplace(impl->prefetchRequests.end());
+                *it = impl->fileSource.request(resource, [this, it](Response res) {
+                    // The first response is enough: it came from the cache, or from the network and
+                    // was cached. The request is freed last, as this callback belongs to it.
+                    if (res.data) {
+                        impl->prefetchBytes += res.data->size();
+                    }
+                    if (impl->prefetchBytes >= impl->prefetchBudget) {
+                        impl->prefetchRequests.clear();
+                    } else {
+                        impl->prefetchRequests.erase(it);
+                    }
+                });
+            }
+        }
+    }
+}
+
+void Map::cancelPrefetch() {
+    impl->prefetchRequests.clear();
+    impl->prefetchBytes = 0;
+}
+
+#pragma mark - Memory
+
 void Map::setSourceTileCacheSize(size_t size) {
     if (size != impl->sourceCacheSize) {
         impl->sourceCacheSize = size;
@@ -0,0 +1,38 @@
+#pragma once
+
+#include <mbgl/storage/file_source.hpp>
+
+#include <atomic>
+#include <vector>
+
+namespace mbgl {
+
+namespace util {
+template <typename T> class Thread;
+} // namespace util
+
+// Serves tiles straight from MBTiles (SQLite) files.
+//
+// A source url of the form mbtiles:///path/to/file.mbtiles returns a TileJSON built from the
+// metadata table of the file, with tile urls of the form mbtiles:///path/to/file.mbtiles/{z}/{x}/{y}.
+// Tiles are read on a small pool of worker threads, each with its own read-only connection and
+// prepared statement per file, and recently used tiles are kept decompressed in memory.
+class MBTilesFileSource : public FileSource {
+public:
+    MBTilesFileSource();
+    ~MBTilesFileSource() override;
+
+    std::unique_ptr<AsyncRequest> request(const Resource&, Callback) override;
+
+    static bool acceptsURL(const std::string& url);
+
+    class Impl;
+    class TileCache;
+
+private:
+    const std::shared_ptr<TileCache> cache;
+    std::vector<std::unique_ptr<util::Thread<Impl>>> workers;
+    std::atomic<std::size_t> nextWorker { 0 };
+};
+
+} // namespace mbgl
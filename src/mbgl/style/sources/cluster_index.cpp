@@ -0,0 +1,295 @@
+#include <mbgl/style/sources/cluster_index.hpp>
+#include <mbgl/math/clamp.hpp>
+#include <mbgl/util/constants.hpp>
+
+#include <kdbush.hpp>
+
+#include <cmath>
+#include <string>
+
+namespace mbgl {
+namespace style {
+
+namespace {
+
+double lngX(double lng) {
+    return lng / 360.0 + 0.5;
+}
+
+double latY(double lat) {
+    const double sine = std::sin(lat * util::DEG2RAD);
+    return util::clamp(0.5 - 0.25 * std::log((1 + sine) / (1 - sine)) / M_PI, 0.0, 1.0);
+}
+
+double xLng(double x) {
+    return (x - 0.5) * 360.0;
+}
+
+double yLat(double y) {
+    const double y2 = (180.0 - y * 360.0) * util::DEG2RAD;
+    return 360.0 * std::atan(std::exp(y2)) / M_PI - 90.0;
+}
+
+Value abbreviate(uint32_t count) {
+    if (count >= 10000) {
+        return std::to_string(static_cast<uint32_t>(std::round(count / 1000.0))) + "k";
+    } else if (count >= 1000) {
+        const uint32_t tenths = std::round(count / 100.0);
+        return std::to_string(tenths / 10) + (tenths % 10 ? "." + std::to_string(tenths % 10) : "") + "k";
+    }
+    return static_cast<uint64_t>(count);
+}
+
+PropertyMap clusterProperties(uint32_t clusterID, uint32_t numPoints) {
+    return {
+        { "cluster", true },
+        { "cluster_id", static_cast<uint64_t>(clusterID) },
+        { "point_count", static_cast<uint64_t>(numPoints) },
+        { "point_count_abbreviated", abbreviate(numPoints) }
+    };
+}
+
+} // namespace
+
+ClusterIndex::Zoom::Zoom(std::vector<Cluster> clusters_)
+    : clusters(std::move(clusters_)) {
+    std::vector<std::pair<double, double>> points;
+    points.reserve(clusters.size());
+    for (const auto& c : clusters) {
+        points.emplace_back(c.x, c.y);
+    }
+    tree = std::make_unique<Tree>(points);
+}
+
+ClusterIndex::Zoom::Zoom() = default;
+
+ClusterIndex::Zoom::Zoom(Zoom&&) = default;
+
+ClusterIndex::Zoom& ClusterIndex::Zoom::operator=(Zoom&&) = default;
+
+ClusterIndex::Zoom::~Zoom() = default;
+
+ClusterIndex::ClusterIndex(const FeatureCollection& features_, const Options& options_)
+    : features(features_), options(options_) {
+    std::vector<Cluster> clusters;
+    for (std::size_t i = 0; i < features.size(); i++) {
+        // Only points are clustered
+        if (!features[i].geometry.is<mapbox::geometry::point<double>>()) {
+            continue;
+        }
+        const auto& point = features[i].geometry.get<mapbox::geometry::point<double>>();
+        Cluster c;
+        c.x = lngX(point.x);
+        c.y = latY(point.y);
+        c.numPoints = 1;
+        c.id = static_cast<uint32_t>(i);
+        clusters.push_back(c);
+    }
+
+    // Cluster from the most detailed level up, zooms[z] holds the clusters of zoom level z
+    zooms.resize(options.maxZoom + 2);
+    zooms[options.maxZoom + 1] = Zoom(std::move(clusters));
+    for (int z = options.maxZoom; z >= options.minZoom; z--) {
+        zooms[z] = Zoom(cluster(zooms[z + 1], z));
+    }
+}
+
+ClusterIndex::~ClusterIndex() = default;
+
+std::vector<ClusterIndex::Cluster> ClusterIndex::cluster(Zoom& previous, uint8_t zoom) const {
+    std::vector<Cluster> clusters;
+    std::vector<Cluster>& points = previous.clusters;
+    const double r = options.radius / (options.extent * std::pow(2.0, zoom));
+
+    for (std::size_t i = 0; i < points.size(); i++) {
+        Cluster& p = points[i];
+        if (p.zoom <= zoom) {
+            continue;
+        }
+        p.zoom = zoom;
+
+        const uint32_t clusterID = (static_cast<uint32_t>(i) << 5) + (zoom + 1);
+        uint32_t numPoints = p.numPoints;
+        double wx = p.x * numPoints;
+        double wy = p.y * numPoints;
+
+        previous.tree->within(p.x, p.y, r, [&](uint32_t neighborID) {
+            Cluster& b = points[neighborID];
+            if (b.zoom <= zoom) {
+                return;
+            }
+            b.zoom = zoom;
+            wx += b.x * b.numPoints;
+            wy += b.y * b.numPoints;
+            numPoints += b.numPoints;
+            b.parentID = clusterID;
+        });
+
+        if (numPoints == p.numPoints) {
+            clusters.push_back(p);
+        } else {
+            p.parentID = clusterID;
+            Cluster c;
+            c.x = wx / numPoints;
+            c.y = wy / numPoints;
+            c.numPoints = numPoints;
+            c.id = clusterID;
+            clusters.push_back(c);
+        }
+    }
+
+    return clusters;
+}
+
+uint8_t ClusterIndex::limitZoom(uint8_t z) const {
+    return util::clamp<uint8_t>(z, options.minZoom, options.maxZoom + 1);
+}
+
+mapbox::geometry::feature_collection<int16_t> ClusterIndex::getTile(uint8_t z, uint32_t x_, uint32_t y) const {
+    mapbox::geometry::feature_collection<int16_t> result;
+    const Zoom& zoom = zooms[limitZoom(z)];
+    const double z2 = std::pow(2.0, z);
+    const double r = static_cast<double>(options.radius) / options.extent;
+    int64_t x = x_;
+
+    auto visitor = [&](uint32_t index) {
+        const Cluster& c = zoom.clusters[index];
+        mapbox::geometry::feature<int16_t> feature {
+            mapbox::geometry::point<int16_t>(std::round(options.extent * (c.x * z2 - x)),
+                                             std::round(options.extent * (c.y * z2 - y)))
+        };
+        if (c.numPoints == 1) {
+            feature.properties = features[c.id].properties;
+            feature.id = features[c.id].id;
+        } else {
+            feature.properties = clusterProperties(c.id, c.numPoints);
+            feature.id = static_cast<uint64_t>(c.id);
+        }
+        result.push_back(std::move(feature));
+    };
+
+    const double top = (y - r) / z2;
+    const double bottom = (y + 1 + r) / z2;
+    zoom.tree->range((x - r) / z2, top, (x + 1 + r) / z2, bottom, visitor);
+
+    // Points near the antimeridian also show up on the other side of the world
+    if (x_ == 0) {
+        x = z2;
+        zoom.tree->range(1 - r / z2, top, 1, bottom, visitor);
+    }
+    if (x_ == z2 - 1) {
+        x = -1;
+        zoom.tree->range(0, top, r / z2, bottom, visitor);
+    }
+
+    return result;
+}
+
+const ClusterIndex::Cluster* ClusterIndex::findCluster(uint32_t clusterID) const {
+    const uint32_t originID = clusterID >> 5;
+    const uint32_t originZoom = clusterID % 32;
+    if (originZoom < 1 || originZoom >= zooms.size() || originID >= zooms[originZoom].clusters.size()) {
+        return nullptr;
+    }
+    return &zooms[originZoom].clusters[originID];
+}
+
+FeatureCollection ClusterIndex::getChildren(uint32_t clusterID) const {
+    FeatureCollection children;
+    const Cluster* origin = findCluster(clusterID);
+    if (!origin || origin->parentID != clusterID) {
+        return children;
+    }
+
+    // The children of a cluster are within the cluster radius of its first point, one level below
+    const uint32_t originZoom = clusterID % 32;
+    const Zoom& zoom = zooms[originZoom];
+    const double r = options.radius / (options.extent * std::pow(2.0, originZoom - 1));
+    zoom.tree->within(origin->x, origin->y, r, [&](uint32_t index) {
+        const Cluster& c = zoom.clusters[index];
+        if (c.parentID == clusterID) {
+            children.push_back(toFeature(c));
+        }
+    });
+
+    return children;
+}
+
+FeatureCollection ClusterIndex::getLeaves(uint32_t clusterID, uint32_t limit, uint32_t offset) const {
+    FeatureCollection leaves;
+    uint32_t skipped = 0;
+    appendLeaves(leaves, clusterID, limit, offset, skipped);
+    return leaves;
+}
+
+void ClusterIndex::appendLeaves(FeatureCollection& leaves, uint32_t clusterID, uint32_t limit,
+                                uint32_t offset, uint32_t& skipped) const {
+    const Cluster* origin = findCluster(clusterID);
+    if (!origin || origin->parentID != clusterID) {
+        return;
+    }
+
+    const uint32_t originZoom = clusterID % 32;
+    const Zoom& zoom = zooms[originZoom];
+    const double r = options.radius / (options.extent * std::pow(2.0, originZoom - 1));
+
+    std::vector<uint32_t> children;
+    zoom.tree->within(origin->x, origin->y, r, [&](uint32_t index) {
+        if (zoom.clusters[index].parentID == clusterID) {
+            children.push_back(index);
+        }
+    });
+
+    for (uint32_t index : children) {
+        if (leaves.size() >= limit) {
+            return;
+        }
+
+        const Cluster& c = zoom.clusters[index];
+        if (c.numPoints > 1) {
+            if (skipped + c.numPoints <= offset) {
+                // Skip the whole cluster
+                skipped += c.numPoints;
+            } else {
+                appendLeaves(leaves, c.id, limit, offset, skipped);
+            }
+        } else if (skipped < offset) {
+            skipped++;
+        } else {
+            leaves.push_back(features[c.id]);
+        }
+    }
+}
+
+optional<uint8_t> ClusterIndex::getExpansionZoom(uint32_t clusterID) const {
+    const Cluster* origin = findCluster(clusterID);
+    if (!origin || origin->parentID != clusterID) {
+        return {};
+    }
+
+    uint8_t zoom = clusterID % 32 - 1;
+    while (zoom <= options.maxZoom) {
+        FeatureCollection children = getChildren(clusterID);
+        zoom++;
+        if (children.size() != 1 || !children[0].id || !children[0].id->is<uint64_t>() ||
+            children[0].properties.find("cluster") == children[0].properties.end()) {
+            break;
+        }
+        clusterID = static_cast<uint32_t>(children[0].id->get<uint64_t>());
+    }
+    return zoom;
+}
+
+Feature ClusterIndex::toFeature(const Cluster& c) const {
+    if (c.numPoints == 1) {
+        return features[c.id];
+    }
+
+    Feature feature { mapbox::geometry::point<double>(xLng(c.x), yLat(c.y)) };
+    feature.properties = clusterProperties(c.id, c.numPoints);
+    feature.id = static_cast<uint64_t>(c.id);
+    return feature;
+}
+
+} // namespace style
+} // namespace mbgl
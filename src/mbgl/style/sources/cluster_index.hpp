@@ -0,0 +1,91 @@
+#pragma once
+
+#include <mbgl/util/feature.hpp>
+#include <mbgl/util/geojson.hpp>
+#include <mbgl/util/optional.hpp>
+
+#include <mapbox/geometry/feature.hpp>
+
+#include <cstdint>
+#include <memory>
+#include <utility>
+#include <vector>
+
+namespace kdbush {
+template <class TPoint, class TIndex>
+class KDBush;
+} // namespace kdbush
+
+namespace mbgl {
+namespace style {
+
+// Clusters the point features of a GeoJSON source, using the same algorithm as supercluster.
+// Unlike supercluster, every cluster keeps its id and the id of the cluster it was merged into,
+// so the cluster hierarchy can be walked from a rendered cluster feature down to its points.
+//
+// Cluster ids are stored as the feature id and the "cluster_id" property of cluster features.
+// They encode the index of the first point of the cluster and the zoom level it was created at.
+//
+// The features are referenced, not copied: they must outlive the index and keep their positions.
+// Properties can be changed in place, points must not move.
+class ClusterIndex {
+public:
+    struct Options {
+        uint8_t minZoom = 0;
+        uint8_t maxZoom = 16;
+        uint16_t radius = 40;
+        uint16_t extent = 512;
+    };
+
+    ClusterIndex(const FeatureCollection&, const Options&);
+    ClusterIndex(FeatureCollection&&, const Options&) = delete;
+    ~ClusterIndex();
+
+    mapbox::geometry::feature_collection<int16_t> getTile(uint8_t z, uint32_t x, uint32_t y) const;
+
+    // Clusters and points one zoom level below the cluster, empty for unknown ids
+    FeatureCollection getChildren(uint32_t clusterID) const;
+
+    // Points of the cluster, in cluster order, empty for unknown ids
+    FeatureCollection getLeaves(uint32_t clusterID, uint32_t limit, uint32_t offset) const;
+
+    // Zoom level at which the cluster splits into several children
+    optional<uint8_t> getExpansionZoom(uint32_t clusterID) const;
+
+private:
+    struct Cluster {
+        double x;
+        double y;
+        uint32_t numPoints;
+        // Index of the source feature for points, the cluster id for clusters
+        uint32_t id;
+        uint32_t parentID = 0;
+        uint8_t zoom = UINT8_MAX;
+    };
+
+    using Tree = kdbush::KDBush<std::pair<double, double>, uint32_t>;
+
+    struct Zoom {
+        Zoom();
+        Zoom(std::vector<Cluster>);
+        Zoom(Zoom&&);
+        Zoom& operator=(Zoom&&);
+        ~Zoom();
+
+        std::vector<Cluster> clusters;
+        std::unique_ptr<Tree> tree;
+    };
+
+    std::vector<Cluster> cluster(Zoom& previous, uint8_t zoom) const;
+    const Cluster* findCluster(uint32_t clusterID) const;
+    void appendLeaves(FeatureCollection&, uint32_t clusterID, uint32_t limit, uint32_t offset, uint32_t& skipped) const;
+    Feature toFeature(const Cluster&) const;
+    uint8_t limitZoom(uint8_t) const;
+
+    const FeatureCollection& features;
+    const Options options;
+    std::vector<Zoom> zooms;
+};
+
+} // namespace style
+} // namespace mbgl
@@ -18,6 +18,42 @@ void GeoJSONSource::setGeoJSON(const mapbox::geojson::geojson& geoJSON) {
     impl->setGeoJSON(geoJSON);
 }
 
+void GeoJSONSource::setGeoJSON(mapbox::geojson::geojson&& geoJSON) {
+    impl->setGeoJSON(std::move(geoJSON));
+}
+
+void GeoJSONSource::addFeatures(const FeatureCollection& features) {
+    impl->addFeatures(features, true);
+}
+
+void GeoJSONSource::updateFeatures(const FeatureCollection& features) {
+    impl->addFeatures(features, false);
+}
+
+void GeoJSONSource::removeFeatures(const std::vector<FeatureIdentifier>& ids) {
+    impl->removeFeatures(ids);
+}
+
+void GeoJSONSource::setFeatureProperty(const FeatureIdentifier& id, const std::string& key, const Value& value) {
+    impl->setFeatureProperties({ { id, PropertyMap { { key, value } } } });
+}
+
+void GeoJSONSource::setFeatureProperties(const std::vector<std::pair<FeatureIdentifier, PropertyMap>>& properties) {
+    impl->setFeatureProperties(properties);
+}
+
+FeatureCollection GeoJSONSource::getClusterChildren(uint32_t clusterID) const {
+    return impl->getClusterChildren(clusterID);
+}
+
+FeatureCollection GeoJSONSource::getClusterLeaves(uint32_t clusterID, uint32_t limit, uint32_t offset) const {
+    return impl->getClusterLeaves(clusterID, limit, offset);
+}
+
+optional<uint8_t> GeoJSONSource::getClusterExpansionZoom(uint32_t clusterID) const {
+    return impl->getClusterExpansionZoom(clusterID);
+}
+
 optional<std::string> GeoJSONSource::getURL() {
     return impl->getURL();
 }
@@ -3,17 +3,22 @@
 #include <mbgl/style/conversion/geojson.hpp>
 #include <mbgl/style/source_observer.hpp>
 #include <mbgl/style/sources/geojson_source_impl.hpp>
+#include <mbgl/style/sources/cluster_index.hpp>
 #include <mbgl/tile/geojson_tile.hpp>
 #include <mbgl/util/rapidjson.hpp>
+#include <mbgl/util/constants.hpp>
+#include <mbgl/math/clamp.hpp>
 
 #include <mapbox/geojson.hpp>
 #include <mapbox/geojson/rapidjson.hpp>
 #include <mapbox/geojsonvt.hpp>
 #include <mapbox/geojsonvt/convert.hpp>
-#include <supercluster.hpp>
+#include <mapbox/geometry/envelope.hpp>
 
 #include <rapidjson/error/en.h>
 
+#include <algorithm>
+#include <cmath>
 #include <sstream>
 
 namespace mbgl {
@@ -30,6 +35,85 @@ Result<GeoJSON> convertGeoJSON(const JSValue& value) {
 }
 } // namespace conversion
 
+namespace {
+
+// Moves the features out of the GeoJSON
+struct ToFeatureCollection {
+    FeatureCollection operator()(mapbox::geometry::geometry<double>& geometry) const {
+        FeatureCollection features;
+        features.push_back(mapbox::geometry::feature<double> { std::move(geometry) });
+        return features;
+    }
+    FeatureCollection operator()(mapbox::geometry::feature<double>& feature) const {
+        FeatureCollection features;
+        features.push_back(std::move(feature));
+        return features;
+    }
+    FeatureCollection operator()(FeatureCollection& features) const {
+        return std::move(features);
+    }
+};
+
+// Numeric ids are matched by value: 7, int64_t(7) and 7.0 identify the same feature. Strings only
+// match the same string.
+struct NormalizeIdentifier {
+    FeatureIdentifier operator()(uint64_t value) const {
+        return value;
+    }
+    FeatureIdentifier operator()(int64_t value) const {
+        if (value >= 0) {
+            return static_cast<uint64_t>(value);
+        }
+        return value;
+    }
+    FeatureIdentifier operator()(double value) const {
+        if (std::trunc(value) == value) {
+            if (value >= 0 && value < 18446744073709551616.0) {
+                return static_cast<uint64_t>(value);
+            } else if (value < 0 && value >= -9223372036854775808.0) {
+                return static_cast<int64_t>(value);
+            }
+        }
+        return value;
+    }
+    FeatureIdentifier operator()(const std::string& value) const {
+        return value;
+    }
+};
+
+FeatureIdentifier normalizeIdentifier(const FeatureIdentifier& id) {
+    return FeatureIdentifier::visit(id, NormalizeIdentifier());
+}
+
+mapbox::geojsonvt::Options geoJSONVTOptions(const GeoJSONOptions& options) {
+    const double scale = util::EXTENT / util::tileSize;
+    mapbox::geojsonvt::Options vtOptions;
+    vtOptions.maxZoom = options.maxzoom;
+    vtOptions.extent = util::EXTENT;
+    vtOptions.buffer = std::round(scale * options.buffer);
+    vtOptions.tolerance = scale * options.tolerance;
+    return vtOptions;
+}
+
+// Tags the features given to geojson-vt with their position in the source data, so that tile
+// features can be traced back to the source feature when it changes
+const std::string featureIndexProperty = "mbgl:feature-index";
+
+// Bounds of a feature in web mercator coordinates, 0..1 across the world
+mapbox::geometry::box<double> projectedBounds(const mapbox::geometry::feature<double>& feature) {
+    const mapbox::geometry::box<double> bounds = mapbox::geometry::envelope(feature.geometry);
+    auto projectY = [] (double lat) {
+        const double sine = std::sin(lat * util::DEG2RAD);
+        return util::clamp(0.5 - 0.25 * std::log((1 + sine) / (1 - sine)) / M_PI, 0.0, 1.0);
+    };
+    return {
+        { bounds.min.x / 360.0 + 0.5, projectY(bounds.max.y) },
+        { bounds.max.x / 360.0 + 0.5, projectY(bounds.min.y) }
+    };
+}
+
+} // namespace
+
 GeoJSONSource::Impl::Impl(std::string id_, Source& base_, const GeoJSONOptions options_)
     : Source::Impl(SourceType::GeoJSON, std::move(id_), base_), options(options_) {
 }
@@ -52,53 +136,316 @@ optional<std::string> GeoJSONSource::Impl::getURL() {
 }
 
 
-void GeoJSONSource::Impl::setGeoJSON(const GeoJSON& geoJSON) {
+void GeoJSONSource::Impl::setGeoJSON(GeoJSON geoJSON) {
     req.reset();
-    _setGeoJSON(geoJSON);
+    _setGeoJSON(std::move(geoJSON));
+}
+
+void GeoJSONSource::Impl::addFeatures(const FeatureCollection& added, bool addMissing) {
+    prepareUpdates();
+    std::vector<mapbox::geometry::box<double>> changedBounds;
+
+    for (const auto& feature : added) {
+        auto it = feature.id ? featureIndices.find(normalizeIdentifier(*feature.id)) : featureIndices.end();
+        std::size_t index;
+        if (it != featureIndices.end()) {
+            index = it->second;
+            changedBounds.push_back(projectedBounds(features[index]));
+            features[index] = feature;
+        } else if (addMissing) {
+            index = features.size();
+            if (feature.id) {
+                featureIndices.emplace(normalizeIdentifier(*feature.id), index);
+            }
+            features.push_back(feature);
+            removed.push_back(false);
+        } else {
+            continue;
+        }
+        tagFeature(index);
+        changedFeatures.insert(index);
+        changedBounds.push_back(projectedBounds(features[index]));
+    }
+
+    if (!changedBounds.empty()) {
+        updateIndex(changedBounds);
+    }
+}
+
+void GeoJSONSource::Impl::removeFeatures(const std::vector<FeatureIdentifier>& ids) {
+    prepareUpdates();
+    std::vector<mapbox::geometry::box<double>> changedBounds;
+
+    for (const auto& id : ids) {
+        auto it = featureIndices.find(normalizeIdentifier(id));
+        if (it == featureIndices.end()) {
+            continue;
+        }
+
+        // Dropped from the source data by the next full build, to keep positions stable until then
+        changedBounds.push_back(projectedBounds(features[it->second]));
+        removed[it->second] = true;
+        removedCount++;
+        changedFeatures.insert(it->second);
+        featureIndices.erase(it);
+    }
+
+    if (!changedBounds.empty()) {
+        updateIndex(changedBounds);
+    }
+}
+
+void GeoJSONSource::Impl::setFeatureProperties(const std::vector<std::pair<FeatureIdentifier, PropertyMap>>& updates) {
+    prepareUpdates();
+    std::vector<mapbox::geometry::box<double>> changedBounds;
+
+    for (const auto& update : updates) {
+        auto it = featureIndices.find(normalizeIdentifier(update.first));
+        if (it == featureIndices.end()) {
+            continue;
+        }
+
+        auto& feature = features[it->second];
+        for (const auto& property : update.second) {
+            feature.properties[property.first] = property.second;
+        }
+        changedBounds.push_back(projectedBounds(feature));
+
+        // The geometry is unchanged, so the index is patched instead of being built again. The
+        // cluster index reads properties from the source data.
+        if (!options.cluster) {
+            patchedFeatures.insert(it->second);
+        }
+    }
+
+    if (!changedBounds.empty()) {
+        reloadTiles(changedBounds, false);
+    }
 }
 
 //Private implementation
-void GeoJSONSource::Impl::_setGeoJSON(const GeoJSON& geoJSON) {
-    double scale = util::EXTENT / util::tileSize;
+void GeoJSONSource::Impl::_setGeoJSON(GeoJSON geoJSON) {
+    features = GeoJSON::visit(geoJSON, ToFeatureCollection());
+
+    // Incremental updates need an index by id and tagged features, both are built when the first
+    // update comes in
+    updatable = false;
+    featureIndices.clear();
+    removed.clear();
+    removedCount = 0;
 
     cache.clear();
+    buildIndex();
+
+    for (auto const &item : tiles) {
+        GeoJSONTile* geoJSONTile = static_cast<GeoJSONTile*>(item.second.get());
+        setTileData(*geoJSONTile, geoJSONTile->id);
+    }
+}
+
+void GeoJSONSource::Impl::prepareUpdates() {
+    if (updatable) {
+        return;
+    }
 
+    updatable = true;
+    removed.assign(features.size(), false);
+    indexFeatures();
+
+    // Tiles of the untagged index can't be patched. The tiles stay the same, so loaded tiles keep
+    // their data.
     if (!options.cluster) {
-        mapbox::geojsonvt::Options vtOptions;
-        vtOptions.maxZoom = options.maxzoom;
-        vtOptions.extent = util::EXTENT;
-        vtOptions.buffer = std::round(scale * options.buffer);
-        vtOptions.tolerance = scale * options.tolerance;
-        geoJSONOrSupercluster = std::make_unique<mapbox::geojsonvt::GeoJSONVT>(geoJSON, vtOptions);
+        buildIndex();
+    }
+}
+
+void GeoJSONSource::Impl::indexFeatures() {
+    featureIndices.clear();
+    for (std::size_t i = 0; i < features.size(); i++) {
+        if (features[i].id && !removed[i]) {
+            featureIndices[normalizeIdentifier(*features[i].id)] = i;
+        }
+    }
+}
+
+void GeoJSONSource::Impl::tagFeature(std::size_t index) {
+    if (!options.cluster) {
+        features[index].properties[featureIndexProperty] = static_cast<uint64_t>(index);
+    }
+}
+
+void GeoJSONSource::Impl::buildIndex() {
+    if (removedCount > 0) {
+        std::size_t next = 0;
+        for (std::size_t i = 0; i < features.size(); i++) {
+            if (!removed[i]) {
+                if (next != i) {
+                    features[next] = std::move(features[i]);
+                }
+                next++;
+            }
+        }
+        features.erase(features.begin() + next, features.end());
+        removed.assign(features.size(), false);
+        removedCount = 0;
+        indexFeatures();
+    }
+
+    changedFeatures.clear();
+    changedIndex.reset();
+    patchedFeatures.clear();
+
+    if (!options.cluster) {
+        if (updatable) {
+            for (std::size_t i = 0; i < features.size(); i++) {
+                tagFeature(i);
+            }
+        }
+        geoJSONOrClusters = std::make_unique<mapbox::geojsonvt::GeoJSONVT>(features, geoJSONVTOptions(options));
 
     } else {
-        mapbox::supercluster::Options clusterOptions;
+        double scale = util::EXTENT / util::tileSize;
+        ClusterIndex::Options clusterOptions;
         clusterOptions.maxZoom = options.clusterMaxZoom;
         clusterOptions.extent = util::EXTENT;
         clusterOptions.radius = std::round(scale * options.clusterRadius);
 
-        const auto& features = geoJSON.get<mapbox::geometry::feature_collection<double>>();
-        geoJSONOrSupercluster =
-            std::make_unique<mapbox::supercluster::Supercluster>(features, clusterOptions);
+        geoJSONOrClusters = std::make_unique<ClusterIndex>(features, clusterOptions);
+    }
+}
+
+void GeoJSONSource::Impl::updateIndex(const std::vector<mapbox::geometry::box<double>>& changedBounds) {
+    // Neither geojson-vt nor the cluster index can change geometry in place. Clusters depend on
+    // all points, so the cluster index is built again. Otherwise only the changed features are
+    // tiled, by a second index drawn above the full one, until there are too many of them: with
+    // n features, tiling up to √n changed features costs about as much per update as a full
+    // build every √n updates.
+    const std::size_t maxChangedFeatures = std::max<std::size_t>(64, static_cast<std::size_t>(std::sqrt(features.size())));
+    if (options.cluster || changedFeatures.size() > maxChangedFeatures) {
+        buildIndex();
+    } else {
+        FeatureCollection changed;
+        for (std::size_t index : changedFeatures) {
+            if (!removed[index]) {
+                changed.push_back(features[index]);
+            }
+        }
+        if (changed.empty()) {
+            changedIndex.reset();
+        } else {
+            changedIndex = std::make_unique<mapbox::geojsonvt::GeoJSONVT>(changed, geoJSONVTOptions(options));
+        }
     }
 
+    reloadTiles(changedBounds, true);
+}
+
+void GeoJSONSource::Impl::reloadTiles(const std::vector<mapbox::geometry::box<double>>& changedBounds,
+                                      bool geometryChanged) {
+    // Cached tiles are not checked individually
+    cache.clear();
+
+    // Clusters span tile boundaries, so any change in geometry can affect any tile. Otherwise tiles
+    // that don't contain any of the changed features keep their data and aren't laid out again.
+    const bool reloadAll = geometryChanged && options.cluster;
+
     for (auto const &item : tiles) {
         GeoJSONTile* geoJSONTile = static_cast<GeoJSONTile*>(item.second.get());
-        setTileData(*geoJSONTile, geoJSONTile->id);
+        if (reloadAll || intersects(geoJSONTile->id.canonical, changedBounds)) {
+            setTileData(*geoJSONTile, geoJSONTile->id);
+        }
+    }
+}
+
+bool GeoJSONSource::Impl::intersects(const CanonicalTileID& tileID,
+                                     const std::vector<mapbox::geometry::box<double>>& bounds) const {
+    const double scale = std::pow(2.0, tileID.z);
+    const double buffer = double(options.buffer) / util::tileSize;
+
+    for (const auto& box : bounds) {
+        // geojson-vt copies features within the buffer across the antimeridian
+        for (int wrap = -1; wrap <= 1; wrap++) {
+            if ((box.max.x + wrap) * scale + buffer >= tileID.x &&
+                (box.min.x + wrap) * scale - buffer <= tileID.x + 1 &&
+                box.max.y * scale + buffer >= tileID.y &&
+                box.min.y * scale - buffer <= tileID.y + 1) {
+                return true;
+            }
+        }
     }
+
+    return false;
 }
 
 void GeoJSONSource::Impl::setTileData(GeoJSONTile& tile, const OverscaledTileID& tileID) {
-    if (geoJSONOrSupercluster.is<GeoJSONVTPointer>()) {
-        tile.updateData(geoJSONOrSupercluster.get<GeoJSONVTPointer>()->getTile(tileID.canonical.z,
-                                                                               tileID.canonical.x,
-                                                                               tileID.canonical.y).features);
-    } else {
-        assert(geoJSONOrSupercluster.is<SuperclusterPointer>());
-        tile.updateData(geoJSONOrSupercluster.get<SuperclusterPointer>()->getTile(tileID.canonical.z,
-                                                                                  tileID.canonical.x,
-                                                                                  tileID.canonical.y));
+    tile.updateData(getTileFeatures(tileID.canonical));
+}
+
+mapbox::geometry::feature_collection<int16_t> GeoJSONSource::Impl::getTileFeatures(const CanonicalTileID& tileID) {
+    if (geoJSONOrClusters.is<ClusterIndexPointer>()) {
+        return geoJSONOrClusters.get<ClusterIndexPointer>()->getTile(tileID.z, tileID.x, tileID.y);
+    }
+
+    assert(geoJSONOrClusters.is<GeoJSONVTPointer>());
+    const auto& indexed = geoJSONOrClusters.get<GeoJSONVTPointer>()->getTile(tileID.z, tileID.x, tileID.y).features;
+    if (!updatable) {
+        return indexed;
+    }
+
+    mapbox::geometry::feature_collection<int16_t> result;
+    result.reserve(indexed.size());
+
+    // Features of the full index that were replaced or removed since are skipped
+    auto append = [&] (const mapbox::geometry::feature<int16_t>& feature, bool changed) {
+        auto tag = feature.properties.find(featureIndexProperty);
+        if (tag == feature.properties.end() || !tag->second.is<uint64_t>()) {
+            result.push_back(feature);
+            return;
+        }
+
+        const std::size_t index = tag->second.get<uint64_t>();
+        if (!changed && changedFeatures.count(index)) {
+            return;
+        }
+
+        result.push_back(feature);
+        if (patchedFeatures.count(index)) {
+            result.back().properties = features[index].properties;
+        }
+        result.back().properties.erase(featureIndexProperty);
+    };
+
+    for (const auto& feature : indexed) {
+        append(feature, false);
+    }
+    if (changedIndex) {
+        for (const auto& feature : changedIndex->getTile(tileID.z, tileID.x, tileID.y).features) {
+            append(feature, true);
+        }
+    }
+
+    return result;
+}
+
+FeatureCollection GeoJSONSource::Impl::getClusterChildren(uint32_t clusterID) const {
+    if (!geoJSONOrClusters.is<ClusterIndexPointer>()) {
+        return {};
+    }
+    return geoJSONOrClusters.get<ClusterIndexPointer>()->getChildren(clusterID);
+}
+
+FeatureCollection GeoJSONSource::Impl::getClusterLeaves(uint32_t clusterID, uint32_t limit, uint32_t offset) const {
+    if (!geoJSONOrClusters.is<ClusterIndexPointer>()) {
+        return {};
+    }
+    return geoJSONOrClusters.get<ClusterIndexPointer>()->getLeaves(clusterID, limit, offset);
+}
+
+optional<uint8_t> GeoJSONSource::Impl::getClusterExpansionZoom(uint32_t clusterID) const {
+    if (!geoJSONOrClusters.is<ClusterIndexPointer>()) {
+        return {};
     }
+    return geoJSONOrClusters.get<ClusterIndexPointer>()->getExpansionZoom(clusterID);
 }
 
 void GeoJSONSource::Impl::loadDescription(FileSource& fileSource) {
@@ -143,7 +490,7 @@ void GeoJSONSource::Impl::loadDescription(FileSource& fileSource) {
                 // tiles to load.
                 _setGeoJSON(GeoJSON{ FeatureCollection{} });
             } else {
-                _setGeoJSON(*geoJSON);
+                _setGeoJSON(std::move(*geoJSON));
             }
 
             loaded = true;
@@ -5,6 +5,12 @@
 #include <mbgl/util/variant.hpp>
 #include <mbgl/tile/geojson_tile.hpp>
 
+#include <mapbox/geometry/box.hpp>
+
+#include <map>
+#include <set>
+#include <vector>
+
 namespace mbgl {
 
 class AsyncRequest;
@@ -19,8 +25,16 @@ public:
     void setURL(std::string);
     optional<std::string> getURL();
 
-    void setGeoJSON(const GeoJSON&);
+    void setGeoJSON(GeoJSON);
+    void addFeatures(const FeatureCollection&, bool addMissing);
+    void removeFeatures(const std::vector<FeatureIdentifier>&);
+    void setFeatureProperties(const std::vector<std::pair<FeatureIdentifier, PropertyMap>>&);
     void setTileData(GeoJSONTile&, const OverscaledTileID& tileID);
+    mapbox::geometry::feature_collection<int16_t> getTileFeatures(const CanonicalTileID&);
+
+    FeatureCollection getClusterChildren(uint32_t clusterID) const;
+    FeatureCollection getClusterLeaves(uint32_t clusterID, uint32_t limit, uint32_t offset) const;
+    optional<uint8_t> getClusterExpansionZoom(uint32_t clusterID) const;
 
     void loadDescription(FileSource&) final;
 
@@ -29,7 +43,14 @@ public:
     }
 
 private:
-    void _setGeoJSON(const GeoJSON&);
+    void _setGeoJSON(GeoJSON);
+    void prepareUpdates();
+    void indexFeatures();
+    void tagFeature(std::size_t index);
+    void buildIndex();
+    void updateIndex(const std::vector<mapbox::geometry::box<double>>& changedBounds);
+    void reloadTiles(const std::vector<mapbox::geometry::box<double>>& changedBounds, bool geometryChanged);
+    bool intersects(const CanonicalTileID&, const std::vector<mapbox::geometry::box<double>>&) const;
 
     Range<uint8_t> getZoomRange() final;
     std::unique_ptr<Tile> createTile(const OverscaledTileID&, const UpdateParameters&) final;
@@ -37,7 +58,27 @@ private:
     GeoJSONOptions options;
     optional<std::string> url;
     std::unique_ptr<AsyncRequest> req;
-    variant<GeoJSONVTPointer, SuperclusterPointer> geoJSONOrSupercluster;
+
+    // Source data, kept to allow incremental updates. The cluster index refers to it instead of
+    // keeping a copy.
+    FeatureCollection features;
+    variant<GeoJSONVTPointer, ClusterIndexPointer> geoJSONOrClusters;
+
+    // Whether features are indexed by id and tagged with their position, done on the first update
+    bool updatable = false;
+    // Positions by normalized feature id
+    std::map<FeatureIdentifier, std::size_t> featureIndices;
+    // Positions of removed features, dropped from the source data by the next full build
+    std::vector<bool> removed;
+    std::size_t removedCount = 0;
+
+    // Positions of features added, replaced or removed since the full index was built. Those still
+    // present are tiled by a separate index.
+    std::set<std::size_t> changedFeatures;
+    GeoJSONVTPointer changedIndex;
+
+    // Positions of features whose properties changed since they were indexed
+    std::set<std::size_t> patchedFeatures;
 };
 
 } // namespace style
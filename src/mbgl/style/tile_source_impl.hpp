@@ -36,6 +36,14 @@ public:
     
     optional<std::string> getAttribution() const override;
 
+    // The tileset, once loaded from the TileJSON, or as given by the style
+    const Tileset* getTileset() const {
+        if (loaded) {
+            return &tileset;
+        }
+        return urlOrTileset.is<Tileset>() ? &urlOrTileset.get<Tileset>() : nullptr;
+    }
+
 protected:
     Range<uint8_t> getZoomRange() final;
 
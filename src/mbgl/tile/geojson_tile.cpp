@@ -2,7 +2,6 @@
 #include <mbgl/tile/geometry_tile_data.hpp>
 
 #include <mapbox/geojsonvt.hpp>
-#include <supercluster.hpp>
 
 namespace mbgl {
 
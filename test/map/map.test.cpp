@@ -10,6 +10,7 @@
 #include <mbgl/sprite/sprite_image.hpp>
 #include <mbgl/storage/network_status.hpp>
 #include <mbgl/storage/default_file_source.hpp>
+#include <mbgl/tile/tile_id.hpp>
 #include <mbgl/util/image.hpp>
 #include <mbgl/util/io.hpp>
 #include <mbgl/util/run_loop.hpp>
@@ -271,6 +272,25 @@ TEST(Map, RemoveLayer) {
     test::checkImage("test/fixtures/map/remove_layer", test::render(map, test.view));
 }
 
+TEST(Map, SetStyleIdentity) {
+    MapTest test;
+
+    Map map(test.backend, test.view.size, 1, test.fileSource, test.threadPool, MapMode::Still);
+    const std::string empty = util::read_file("test/fixtures/api/empty.json");
+    map.setStyleJSON(empty);
+
+    // Change the style in place, as a diff does, and record the style it now matches
+    map.addLayer(std::make_unique<BackgroundLayer>("background"));
+    map.setStyleIdentity("mapbox://styles/test/background", "{}");
+    EXPECT_EQ("mapbox://styles/test/background", map.getStyleURL());
+    EXPECT_EQ("{}", map.getStyleJSON());
+
+    // Setting the original style again reloads it
+    map.setStyleJSON(empty);
+    EXPECT_EQ(nullptr, map.getLayer("background"));
+    EXPECT_EQ("", map.getStyleURL());
+}
+
 TEST(Map, DisabledSources) {
     MapTest test;
 
@@ -445,6 +465,129 @@ TEST(Map, DontLoadUnneededTiles) {
 }
 
 
+// Records requests in the order they are made and keeps them pending until answered
+class PrefetchFileSource : public FileSource {
+public:
+    class PrefetchRequest : public AsyncRequest {
+    public:
+        PrefetchRequest(PrefetchFileSource& fileSource_, std::string url_)
+            : fileSource(fileSource_), url(std::move(url_)) {
+        }
+
+        ~PrefetchRequest() override {
+            fileSource.pending.erase(url);
+        }
+
+        PrefetchFileSource& fileSource;
+        const std::string url;
+    };
+
+    std::unique_ptr<AsyncRequest> request(const Resource& resource, Callback callback) override {
+        requests.push_back(resource);
+        pending.emplace(resource.url, callback);
+        return std::make_unique<PrefetchRequest>(*this, resource.url);
+    }
+
+    void respond(const std::string& url, std::size_t size) {
+        Response response;
+        response.data = std::make_shared<std::string>(size, '\0');
+        // The callback frees the request, and the pending entry with it
+        auto callback = pending.at(url);
+        callback(response);
+    }
+
+    std::vector<Resource> requests;
+    std::unordered_map<std::string, Callback> pending;
+};
+
+struct PrefetchTest {
+    util::RunLoop runLoop;
+    HeadlessBackend backend { test::sharedDisplay() };
+    OffscreenView view { backend.getContext() };
+    PrefetchFileSource fileSource;
+    ThreadPool threadPool { 4 };
+    Map map { backend, view.size, 1, fileSource, threadPool, MapMode::Still };
+
+    PrefetchTest() {
+        // No layers, so nothing is requested but the prefetched tiles
+        map.setStyleJSON(R"STYLE({
+  "version": 8,
+  "sources": {
+    "vector": { "type": "vector", "tiles": [ "vector/{z}/{x}/{y}" ] },
+    "raster": { "type": "raster", "tiles": [ "raster/{z}/{x}/{y}" ], "tileSize": 256 }
+  },
+  "layers": []
+})STYLE");
+    }
+
+    std::vector<std::string> urls() const {
+        std::vector<std::string> result;
+        for (const auto& resource : fileSource.requests) {
+            result.push_back(resource.url);
+        }
+        return result;
+    }
+};
+
+TEST(Map, PrefetchTilesPriority) {
+    PrefetchTest test;
+    test.map.prefetchTiles({ { 1, 1, 1 }, { 1, 0, 0 }, { 1, 1, 1 } }, 64, 1024 * 1024);
+
+    // Each tile from every source before the next tile, sources with 256 pixel tiles need four
+    ASSERT_EQ(10u, test.fileSource.requests.size());
+    const std::vector<std::string> urls = test.urls();
+    const std::unordered_set<std::string> destination(urls.begin(), urls.begin() + 5);
+    EXPECT_EQ((std::unordered_set<std::string> {
+        "vector/1/1/1", "raster/2/2/2", "raster/2/3/2", "raster/2/2/3", "raster/2/3/3"
+    }), destination);
+    const std::unordered_set<std::string> next(urls.begin() + 5, urls.end());
+    EXPECT_EQ((std::unordered_set<std::string> {
+        "vector/1/0/0", "raster/2/0/0", "raster/2/1/0", "raster/2/0/1", "raster/2/1/1"
+    }), next);
+
+    for (const auto& resource : test.fileSource.requests) {
+        EXPECT_EQ(Resource::Priority::Prefetch, resource.priority);
+        EXPECT_EQ(Resource::Kind::Tile, resource.kind);
+    }
+}
+
+TEST(Map, PrefetchTilesBudget) {
+    PrefetchTest test;
+
+    // The tile budget counts the requests of all sources together
+    test.map.prefetchTiles({ { 1, 1, 1 }, { 1, 0, 0 } }, 3, 1024 * 1024);
+    const std::vector<std::string> urls = test.urls();
+    ASSERT_EQ(3u, urls.size());
+    for (const auto& url : urls) {
+        EXPECT_TRUE(url == "vector/1/1/1" || url.find("raster/2/") == 0) << url;
+    }
+
+    // Requests stop once the tiles received reach the byte budget
+    test.fileSource.requests.clear();
+    test.map.prefetchTiles({ { 1, 1, 1 }, { 1, 0, 0 } }, 64, 1000);
+    ASSERT_EQ(10u, test.fileSource.pending.size());
+    test.fileSource.respond("vector/1/1/1", 600);
+    EXPECT_EQ(9u, test.fileSource.pending.size());
+    test.fileSource.respond("vector/1/0/0", 600);
+    EXPECT_EQ(0u, test.fileSource.pending.size());
+}
+
+TEST(Map, PrefetchTilesCancel) {
+    PrefetchTest test;
+    test.map.prefetchTiles({ { 1, 1, 1 } }, 64, 1024 * 1024);
+    ASSERT_EQ(5u, test.fileSource.pending.size());
+
+    test.map.cancelPrefetch();
+    EXPECT_EQ(0u, test.fileSource.pending.size());
+
+    // Prefetching again replaces the previous requests
+    test.map.prefetchTiles({ { 1, 1, 1 } }, 64, 1024 * 1024);
+    test.map.prefetchTiles({ { 1, 0, 0 } }, 64, 1024 * 1024);
+    EXPECT_EQ(5u, test.fileSource.pending.size());
+    EXPECT_EQ(1u, test.fileSource.pending.count("vector/1/0/0"));
+    EXPECT_EQ(0u, test.fileSource.pending.count("vector/1/1/1"));
+}
+
 class MockBackend : public HeadlessBackend {
 public:
     MockBackend(std::shared_ptr<HeadlessDisplay> display_)
@@ -1,5 +1,6 @@
 #include <mbgl/test/util.hpp>
 #include <mbgl/storage/default_file_source.hpp>
+#include <mbgl/storage/network_status.hpp>
 #include <mbgl/util/run_loop.hpp>
 
 using namespace mbgl;
@@ -291,6 +292,147 @@ TEST(DefaultFileSource, OptionalNotFound) {
     loop.run();
 }
 
+// Test that optional requests for resources that are never cached (e.g. tiles of a custom tile
+// provider) are answered right away instead of asking the provider twice per tile
+TEST(DefaultFileSource, OptionalNonCacheable) {
+    util::RunLoop loop;
+    DefaultFileSource fs(":memory:", ".");
+
+    const Resource optionalResource { Resource::Tile, "custom://0/3/2/1", {}, Resource::Optional };
+
+    std::unique_ptr<AsyncRequest> req;
+    req = fs.request(optionalResource, [&](Response res) {
+        req.reset();
+        ASSERT_TRUE(res.error.get());
+        EXPECT_EQ(Response::Error::Reason::NotFound, res.error->reason);
+        EXPECT_EQ("Not found in offline database", res.error->message);
+        EXPECT_TRUE(res.noContent);
+        EXPECT_FALSE(res.data);
+        loop.stop();
+    });
+
+    loop.run();
+}
+
+// Test that required requests for resources served by the application are not held back while
+// the network is offline, the application serves them without a connection
+TEST(DefaultFileSource, RequiredNonCacheableOffline) {
+    util::RunLoop loop;
+    DefaultFileSource fs(":memory:", ".");
+    NetworkStatus::Set(NetworkStatus::Status::Offline);
+
+    const Resource resource { Resource::Tile, "custom://0/3/2/1" };
+
+    std::unique_ptr<AsyncRequest> req;
+    req = fs.request(resource, [&](Response) {
+        // No application serves this url here, only the answer matters
+        req.reset();
+        NetworkStatus::Set(NetworkStatus::Status::Online);
+        loop.stop();
+    });
+
+    loop.run();
+}
+
+TEST(DefaultFileSource, OptionalTooStale) {
+    util::RunLoop loop;
+    DefaultFileSource fs(":memory:", ".");
+
+    const Resource optionalResource { Resource::Unknown, "http://127.0.0.1:3000/test", {}, Resource::Optional };
+
+    using namespace std::chrono_literals;
+
+    Response response;
+    response.data = std::make_shared<std::string>("Cached value");
+    response.expires = util::now() - 1h;
+    fs.put(optionalResource, response);
+
+    fs.setMaximumStaleness(Resource::Unknown, Duration(30min));
+
+    std::unique_ptr<AsyncRequest> req;
+    req = fs.request(optionalResource, [&](Response res) {
+        req.reset();
+        ASSERT_TRUE(res.error.get());
+        EXPECT_EQ(Response::Error::Reason::NotFound, res.error->reason);
+        EXPECT_FALSE(res.data);
+        loop.stop();
+    });
+
+    loop.run();
+}
+
+// Test that the required request following an optional one that found the cached resource
+// too stale revalidates it conditionally
+TEST(DefaultFileSource, TEST_REQUIRES_SERVER(OptionalTooStaleThenRequired)) {
+    util::RunLoop loop;
+    DefaultFileSource fs(":memory:", ".");
+
+    Resource resource { Resource::Unknown, "http://127.0.0.1:3000/revalidate-same", {}, Resource::Optional };
+
+    using namespace std::chrono_literals;
+
+    Response response;
+    response.data = std::make_shared<std::string>("Cached value");
+    response.etag.emplace("snowfall");
+    response.expires = util::now() - 1h;
+    fs.put(resource, response);
+
+    fs.setMaximumStaleness(Resource::Unknown, Duration(30min));
+
+    std::unique_ptr<AsyncRequest> req;
+    req = fs.request(resource, [&](Response res) {
+        req.reset();
+        ASSERT_TRUE(res.error.get());
+        EXPECT_EQ(Response::Error::Reason::NotFound, res.error->reason);
+
+        // Like TileLoader, mark that an optional request was made
+        resource.necessity = Resource::Required;
+        resource.priorExpires = Timestamp{ Seconds::zero() };
+        req = fs.request(resource, [&](Response res2) {
+            req.reset();
+            EXPECT_EQ(nullptr, res2.error);
+            // The server only answers 304 when asked with the cached etag
+            ASSERT_TRUE(res2.data.get());
+            EXPECT_EQ("Cached value", *res2.data);
+            ASSERT_TRUE(bool(res2.expires));
+            EXPECT_LT(util::now(), *res2.expires);
+            loop.stop();
+        });
+    });
+
+    loop.run();
+}
+
+// Test that a resource too stale to be shown while revalidating is still served when the
+// server can't be reached
+TEST(DefaultFileSource, StaleIfError) {
+    util::RunLoop loop;
+    DefaultFileSource fs(":memory:", ".");
+
+    // Nothing listens on this port
+    const Resource resource { Resource::Unknown, "http://127.0.0.1:3001/test" };
+
+    using namespace std::chrono_literals;
+
+    Response response;
+    response.data = std::make_shared<std::string>("Cached value");
+    response.expires = util::now() - 1h;
+    fs.put(resource, response);
+
+    fs.setMaximumStaleness(Resource::Unknown, Duration(30min));
+
+    std::unique_ptr<AsyncRequest> req;
+    req = fs.request(resource, [&](Response res) {
+        req.reset();
+        EXPECT_EQ(nullptr, res.error);
+        ASSERT_TRUE(res.data.get());
+        EXPECT_EQ("Cached value", *res.data);
+        loop.stop();
+    });
+
+    loop.run();
+}
+
 // Test that we can make a request with etag data that doesn't first try to load
 // from cache like a regular request
 TEST(DefaultFileSource, TEST_REQUIRES_SERVER(NoCacheRefreshEtagNotModified)) {
@@ -0,0 +1,82 @@
+#include <mbgl/test/util.hpp>
+
+#include <mbgl/storage/mbtiles_file_source.hpp>
+#include <mbgl/util/run_loop.hpp>
+
+#include <gtest/gtest.h>
+#include <sqlite3.hpp>
+
+#include <unistd.h>
+
+using namespace mbgl;
+
+namespace {
+
+const char* path = "test/fixtures/storage/mbtiles.mbtiles";
+
+void createMBTiles() {
+    unlink(path);
+
+    mapbox::sqlite::Database db(path, mapbox::sqlite::ReadWrite | mapbox::sqlite::Create);
+    db.exec("CREATE TABLE metadata (name TEXT, value TEXT)");
+    db.exec("CREATE TABLE tiles (zoom_level INTEGER, tile_column INTEGER, tile_row INTEGER, tile_data BLOB)");
+    db.exec("INSERT INTO metadata VALUES ('name', 'test'), ('minzoom', '0'), ('maxzoom', '4'), "
+            "('bounds', '-180,-85,180,85')");
+    // Row 2 at z2 is y 1 in XYZ numbering
+    db.exec("INSERT INTO tiles VALUES (2, 1, 2, 'tile data')");
+}
+
+Response request(MBTilesFileSource& fs, const Resource& resource) {
+    util::RunLoop loop;
+    Response result;
+
+    std::unique_ptr<AsyncRequest> req = fs.request(resource, [&](Response res) {
+        req.reset();
+        result = res;
+        loop.stop();
+    });
+
+    loop.run();
+    return result;
+}
+
+} // namespace
+
+TEST(MBTilesFileSource, AcceptsURL) {
+    EXPECT_TRUE(MBTilesFileSource::acceptsURL("mbtiles:///data/tiles.mbtiles"));
+    EXPECT_FALSE(MBTilesFileSource::acceptsURL("file:///data/tiles.mbtiles"));
+    EXPECT_FALSE(MBTilesFileSource::acceptsURL("mbtiles"));
+}
+
+TEST(MBTilesFileSource, TEST_REQUIRES_WRITE(TileJSON)) {
+    createMBTiles();
+    MBTilesFileSource fs;
+
+    Response res = request(fs, { Resource::Source, std::string("mbtiles://") + path });
+    EXPECT_EQ(nullptr, res.error);
+    ASSERT_TRUE(res.data.get());
+    EXPECT_EQ("{\"tilejson\":\"2.1.0\",\"tiles\":[\"mbtiles://test/fixtures/storage/mbtiles.mbtiles/{z}/{x}/{y}\"],"
+              "\"minzoom\":0,\"maxzoom\":4,\"bounds\":[-180.0,-85.0,180.0,85.0],\"name\":\"test\"}", *res.data);
+}
+
+TEST(MBTilesFileSource, TEST_REQUIRES_WRITE(Tile)) {
+    createMBTiles();
+    MBTilesFileSource fs;
+
+    Response res = request(fs, { Resource::Tile, std::string("mbtiles://") + path + "/2/1/1" });
+    EXPECT_EQ(nullptr, res.error);
+    ASSERT_TRUE(res.data.get());
+    EXPECT_EQ("tile data", *res.data);
+
+    res = request(fs, { Resource::Tile, std::string("mbtiles://") + path + "/2/1/2" });
+    EXPECT_EQ(nullptr, res.error);
+    EXPECT_TRUE(res.noContent);
+}
+
+TEST(MBTilesFileSource, NonExistentFile) {
+    MBTilesFileSource fs;
+
+    Response res = request(fs, { Resource::Source, "mbtiles://test/fixtures/storage/does_not_exist.mbtiles" });
+    ASSERT_NE(nullptr, res.error);
+    EXPECT_EQ(Response::Error::Reason::NotFound, res.error->reason);
+}
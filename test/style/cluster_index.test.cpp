@@ -0,0 +1,85 @@
+#include <mbgl/style/sources/cluster_index.hpp>
+
+#include <gtest/gtest.h>
+
+using namespace mbgl;
+using namespace mbgl::style;
+
+namespace {
+
+Feature point(double lng, double lat, uint64_t id) {
+    Feature feature { mapbox::geometry::point<double>(lng, lat) };
+    feature.id = id;
+    return feature;
+}
+
+// Three points close together and one far away
+FeatureCollection features() {
+    return {
+        point(10.0, 10.0, 1),
+        point(10.001, 10.0, 2),
+        point(10.0, 10.001, 3),
+        point(-120.0, 40.0, 4),
+    };
+}
+
+uint32_t clusterID(const mapbox::geometry::feature<int16_t>& feature) {
+    return static_cast<uint32_t>(feature.properties.at("cluster_id").get<uint64_t>());
+}
+
+} // namespace
+
+TEST(ClusterIndex, Tile) {
+    const FeatureCollection points = features();
+    ClusterIndex index(points, ClusterIndex::Options());
+
+    auto tile = index.getTile(0, 0, 0);
+    ASSERT_EQ(2u, tile.size());
+
+    std::size_t clusters = 0;
+    for (const auto& feature : tile) {
+        if (feature.properties.count("cluster")) {
+            clusters++;
+            EXPECT_EQ(3u, feature.properties.at("point_count").get<uint64_t>());
+            EXPECT_EQ(uint64_t(clusterID(feature)), feature.id->get<uint64_t>());
+        } else {
+            EXPECT_EQ(4u, feature.id->get<uint64_t>());
+        }
+    }
+    EXPECT_EQ(1u, clusters);
+}
+
+TEST(ClusterIndex, ChildrenAndLeaves) {
+    const FeatureCollection points = features();
+    ClusterIndex index(points, ClusterIndex::Options());
+
+    uint32_t id = 0;
+    for (const auto& feature : index.getTile(0, 0, 0)) {
+        if (feature.properties.count("cluster")) {
+            id = clusterID(feature);
+        }
+    }
+    ASSERT_NE(0u, id);
+
+    FeatureCollection children = index.getChildren(id);
+    ASSERT_FALSE(children.empty());
+
+    FeatureCollection leaves = index.getLeaves(id, 10, 0);
+    ASSERT_EQ(3u, leaves.size());
+    EXPECT_EQ(2u, index.getLeaves(id, 2, 0).size());
+    EXPECT_EQ(1u, index.getLeaves(id, 10, 2).size());
+    EXPECT_TRUE(index.getLeaves(id, 0, 0).empty());
+
+    optional<uint8_t> expansionZoom = index.getExpansionZoom(id);
+    ASSERT_TRUE(bool(expansionZoom));
+    EXPECT_GT(*expansionZoom, 0u);
+}
+
+TEST(ClusterIndex, UnknownCluster) {
+    const FeatureCollection points = features();
+    ClusterIndex index(points, ClusterIndex::Options());
+
+    EXPECT_TRUE(index.getChildren(12345).empty());
+    EXPECT_TRUE(index.getLeaves(12345, 10, 0).empty());
+    EXPECT_FALSE(bool(index.getExpansionZoom(12345)));
+}
@@ -0,0 +1,173 @@
+#include <mbgl/test/util.hpp>
+
+#include <mbgl/style/sources/geojson_source.hpp>
+#include <mbgl/style/sources/geojson_source_impl.hpp>
+
+using namespace mbgl;
+using namespace mbgl::style;
+
+namespace {
+
+Feature point(double lng, double lat, FeatureIdentifier id, std::string name) {
+    Feature feature { mapbox::geometry::point<double>(lng, lat) };
+    feature.id = std::move(id);
+    feature.properties["name"] = std::move(name);
+    return feature;
+}
+
+FeatureCollection features() {
+    return {
+        point(-100.0, 60.0, uint64_t(1), "a"),
+        point(100.0, 60.0, uint64_t(2), "b"),
+        point(100.0, -60.0, std::string("c"), "c"),
+    };
+}
+
+// Properties of the features in a tile, by name
+std::map<std::string, PropertyMap> tileProperties(GeoJSONSource& source, const CanonicalTileID& tileID) {
+    std::map<std::string, PropertyMap> result;
+    for (const auto& feature : source.impl->getTileFeatures(tileID)) {
+        result[feature.properties.at("name").get<std::string>()] = feature.properties;
+    }
+    return result;
+}
+
+} // namespace
+
+TEST(GeoJSONSource, SetFeatureProperties) {
+    GeoJSONSource source("source");
+    source.setGeoJSON(GeoJSON { features() });
+
+    source.setFeatureProperty(uint64_t(2), "rank", Value(uint64_t(7)));
+    source.setFeatureProperties({ { std::string("c"), PropertyMap { { "rank", Value(uint64_t(3)) } } } });
+
+    auto properties = tileProperties(source, { 0, 0, 0 });
+    ASSERT_EQ(3u, properties.size());
+    EXPECT_EQ(0u, properties["a"].count("rank"));
+    EXPECT_EQ(Value(uint64_t(7)), properties["b"].at("rank"));
+    EXPECT_EQ(Value(uint64_t(3)), properties["c"].at("rank"));
+
+    // Properties used internally to patch tiles don't leak
+    for (const auto& entry : properties) {
+        EXPECT_EQ(1u + entry.second.count("rank"), entry.second.size());
+    }
+}
+
+TEST(GeoJSONSource, SetFeaturePropertiesClustered) {
+    GeoJSONOptions options;
+    options.cluster = true;
+    GeoJSONSource source("source", options);
+    source.setGeoJSON(GeoJSON { features() });
+
+    source.setFeatureProperty(uint64_t(1), "rank", Value(uint64_t(7)));
+
+    auto properties = tileProperties(source, { 0, 0, 0 });
+    ASSERT_EQ(3u, properties.size());
+    EXPECT_EQ(Value(uint64_t(7)), properties["a"].at("rank"));
+    EXPECT_EQ(0u, properties["b"].count("rank"));
+}
+
+TEST(GeoJSONSource, AddFeatures) {
+    GeoJSONSource source("source");
+    source.setGeoJSON(GeoJSON { features() });
+
+    source.addFeatures({ point(60.0, -70.0, std::string("d"), "d") });
+
+    auto properties = tileProperties(source, { 0, 0, 0 });
+    ASSERT_EQ(4u, properties.size());
+    EXPECT_EQ(1u, properties.count("d"));
+    EXPECT_EQ(1u, properties["d"].size());
+
+    // Only the tile that contains the new feature gets it
+    EXPECT_EQ(1u, tileProperties(source, { 1, 0, 0 }).size());
+    EXPECT_EQ(2u, tileProperties(source, { 1, 1, 1 }).size());
+}
+
+TEST(GeoJSONSource, UpdateFeatures) {
+    GeoJSONSource source("source");
+    source.setGeoJSON(GeoJSON { features() });
+
+    source.updateFeatures({
+        point(-100.0, -60.0, uint64_t(1), "a2"),
+        point(0.0, 0.0, std::string("missing"), "e"),
+    });
+
+    auto properties = tileProperties(source, { 0, 0, 0 });
+    ASSERT_EQ(3u, properties.size());
+    EXPECT_EQ(1u, properties.count("a2"));
+    EXPECT_EQ(0u, properties.count("a"));
+    EXPECT_EQ(0u, properties.count("e"));
+
+    // The feature moved to another tile
+    EXPECT_EQ(0u, tileProperties(source, { 1, 0, 0 }).size());
+    EXPECT_EQ(1u, tileProperties(source, { 1, 0, 1 }).count("a2"));
+}
+
+TEST(GeoJSONSource, RemoveFeatures) {
+    GeoJSONSource source("source");
+    source.setGeoJSON(GeoJSON { features() });
+
+    source.removeFeatures({ uint64_t(2), std::string("c"), uint64_t(42) });
+
+    auto properties = tileProperties(source, { 0, 0, 0 });
+    ASSERT_EQ(1u, properties.size());
+    EXPECT_EQ(1u, properties.count("a"));
+
+    // Removed ids can be added again
+    source.addFeatures({ point(100.0, 60.0, uint64_t(2), "b2") });
+    EXPECT_EQ(1u, tileProperties(source, { 0, 0, 0 }).count("b2"));
+}
+
+TEST(GeoJSONSource, FeatureIdentifiers) {
+    GeoJSONSource source("source");
+    source.setGeoJSON(GeoJSON { FeatureCollection {
+        point(-100.0, 60.0, uint64_t(1), "a"),
+        point(100.0, 60.0, std::string("01"), "b"),
+        point(100.0, -60.0, std::string("1e3"), "c"),
+        point(-100.0, -60.0, int64_t(-4), "d"),
+    } });
+
+    // Numeric ids match by value, strings only match the same string
+    source.removeFeatures({ 1.0, std::string("1"), std::string("1000"), -4.0 });
+
+    auto properties = tileProperties(source, { 0, 0, 0 });
+    ASSERT_EQ(2u, properties.size());
+    EXPECT_EQ(1u, properties.count("b"));
+    EXPECT_EQ(1u, properties.count("c"));
+
+    source.removeFeatures({ std::string("01"), std::string("1e3") });
+    EXPECT_TRUE(tileProperties(source, { 0, 0, 0 }).empty());
+}
+
+TEST(GeoJSONSource, ManyUpdates) {
+    GeoJSONSource source("source");
+    source.setGeoJSON(GeoJSON { features() });
+
+    // Enough changes to fold the changed features into the full index several times
+    for (uint64_t i = 0; i < 200; i++) {
+        source.addFeatures({ point(0.0, 0.0, 100 + i, "added") });
+        source.updateFeatures({ point(-100.0, 60.0, uint64_t(1), "a" + std::to_string(i)) });
+        if (i % 2) {
+            source.removeFeatures({ 100 + i });
+        }
+    }
+
+    const auto tile = source.impl->getTileFeatures({ 0, 0, 0 });
+    EXPECT_EQ(3u + 100u, tile.size());
+    EXPECT_EQ(1u, tileProperties(source, { 0, 0, 0 }).count("a199"));
+}
+
+TEST(GeoJSONSource, AddFeaturesClustered) {
+    GeoJSONOptions options;
+    options.cluster = true;
+    GeoJSONSource source("source", options);
+    source.setGeoJSON(GeoJSON { features() });
+
+    source.addFeatures({ point(60.0, -70.0, std::string("d"), "d") });
+    source.removeFeatures({ std::string("c") });
+
+    auto properties = tileProperties(source, { 0, 0, 0 });
+    ASSERT_EQ(3u, properties.size());
+    EXPECT_EQ(1u, properties.count("d"));
+    EXPECT_EQ(0u, properties.count("c"));
+}